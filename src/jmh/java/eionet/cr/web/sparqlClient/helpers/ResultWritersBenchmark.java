@@ -0,0 +1,164 @@
+package eionet.cr.web.sparqlClient.helpers;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResultHandlerException;
+import org.openrdf.query.impl.MapBindingSet;
+import org.openrdf.query.resultio.TupleQueryResultWriter;
+import org.openrdf.query.resultio.sparqljson.SPARQLResultsJSONWriter;
+import org.openrdf.query.resultio.sparqlxml.SPARQLResultsXMLWriter;
+import org.openrdf.query.resultio.text.csv.SPARQLResultsCSVWriter;
+
+/**
+ * Compares the throughput of the SPARQL endpoint's JSON, XML and CSV result writers with Sesame's stock writers of the same
+ * formats, on a result of a million rows held in memory. The output is counted and discarded. Run with
+ * <code>mvn -Pjmh test-compile exec:exec</code>.
+ *
+ * @author jaanus
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResultWritersBenchmark {
+
+    /** */
+    private static final int ROWS = 1000000;
+
+    /** */
+    private static final List<String> BINDING_NAMES = Arrays.asList("s", "label", "value");
+
+    /** */
+    private List<BindingSet> rows;
+
+    /**
+     * Generates the result: a resource, a language literal that needs escaping, and a typed literal in each row.
+     */
+    @Setup
+    public void setUp() {
+
+        ValueFactory vf = ValueFactoryImpl.getInstance();
+        rows = new ArrayList<BindingSet>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            MapBindingSet row = new MapBindingSet(BINDING_NAMES.size());
+            row.addBinding("s", vf.createURI("http://rod.eionet.europa.eu/obligations/" + i));
+            row.addBinding("label", vf.createLiteral("Obligation \"" + i + "\" <reporting> & \u00f5\u00e4\u00f6\u00fc", "en"));
+            row.addBinding("value", vf.createLiteral(i));
+            rows.add(row);
+        }
+    }
+
+    /**
+     * @return Number of bytes written.
+     * @throws TupleQueryResultHandlerException
+     */
+    @Benchmark
+    public long crJson() throws TupleQueryResultHandlerException {
+        CountingStream out = new CountingStream();
+        return write(new CRJsonWriter(out), out);
+    }
+
+    /**
+     * @return Number of bytes written.
+     * @throws TupleQueryResultHandlerException
+     */
+    @Benchmark
+    public long sesameJson() throws TupleQueryResultHandlerException {
+        CountingStream out = new CountingStream();
+        return write(new SPARQLResultsJSONWriter(out), out);
+    }
+
+    /**
+     * @return Number of bytes written.
+     * @throws TupleQueryResultHandlerException
+     */
+    @Benchmark
+    public long crXml() throws TupleQueryResultHandlerException {
+        CountingStream out = new CountingStream();
+        return write(new CRXmlWriter(out), out);
+    }
+
+    /**
+     * @return Number of bytes written.
+     * @throws TupleQueryResultHandlerException
+     */
+    @Benchmark
+    public long sesameXml() throws TupleQueryResultHandlerException {
+        CountingStream out = new CountingStream();
+        return write(new SPARQLResultsXMLWriter(out), out);
+    }
+
+    /**
+     * @return Number of bytes written.
+     * @throws TupleQueryResultHandlerException
+     */
+    @Benchmark
+    public long crCsv() throws TupleQueryResultHandlerException {
+        CountingStream out = new CountingStream();
+        return write(new CRCsvWriter(out), out);
+    }
+
+    /**
+     * @return Number of bytes written.
+     * @throws TupleQueryResultHandlerException
+     */
+    @Benchmark
+    public long sesameCsv() throws TupleQueryResultHandlerException {
+        CountingStream out = new CountingStream();
+        return write(new SPARQLResultsCSVWriter(out), out);
+    }
+
+    /**
+     * @param writer The writer to write the result with.
+     * @param out The stream that the writer writes into.
+     * @return Number of bytes written.
+     * @throws TupleQueryResultHandlerException
+     */
+    private long write(TupleQueryResultWriter writer, CountingStream out) throws TupleQueryResultHandlerException {
+
+        writer.startQueryResult(BINDING_NAMES);
+        for (BindingSet row : rows) {
+            writer.handleSolution(row);
+        }
+        writer.endQueryResult();
+        return out.count;
+    }
+
+    /**
+     * Discards the output, counting its bytes.
+     */
+    private static class CountingStream extends OutputStream {
+
+        /** */
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
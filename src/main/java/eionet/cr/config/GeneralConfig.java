@@ -48,6 +48,12 @@ public final class GeneralConfig {
     public static final String HARVESTER_SOURCES_UPPER_LIMIT = "harvester.batchHarvestingUpperLimit";
     public static final String HARVESTER_MAX_CONTENT_LENGTH = "harvester.maximumContentLength";
     public static final String HARVESTER_HTTP_TIMEOUT = "harvester.httpConnection.timeout";
+    public static final String HARVESTER_BATCH_HARVESTING_THREADS = "harvester.batchHarvestingThreads";
+    public static final String HARVESTER_BATCH_HARVESTING_THREADS_PER_HOST = "harvester.batchHarvestingThreadsPerHost";
+    public static final String HARVESTER_ADAPTIVE_SCHEDULING = "harvester.adaptiveScheduling";
+    public static final String HARVESTER_STREAMING_LOAD = "harvester.streamingLoad";
+    public static final String HARVESTER_BULK_LOAD_BATCH_SIZE = "harvester.bulkLoad.batchSize";
+    public static final String HARVESTER_POST_HARVEST_SCRIPT_THREADS = "harvester.postHarvestScriptThreads";
 
     /** */
     public static final String XMLCONV_LIST_CONVERSIONS_URL = "xmlconv.listConversions.url";
@@ -112,6 +118,48 @@ public final class GeneralConfig {
      */
     public static final String SPARQLENDPOINT_MAX_ROWS_COUNT = "sparql.max.rows";
 
+    /** Maximum size of a SPARQL endpoint result that is cached, 0 switches the cache off. */
+    public static final String SPARQL_RESULT_CACHE_MAX_ENTRY_BYTES = "sparql.resultCache.maxEntryBytes";
+
+    /** Number of SPARQL endpoint query permits of anonymous callers, 0 means no limit. */
+    public static final String SPARQL_ADMISSION_PERMITS_ANONYMOUS = "sparql.admission.permits.anonymous";
+
+    /** Number of SPARQL endpoint query permits of authenticated callers, 0 means no limit. */
+    public static final String SPARQL_ADMISSION_PERMITS_AUTHENTICATED = "sparql.admission.permits.authenticated";
+
+    /** Number of SPARQL endpoint query permits of internal callers, 0 means no limit. */
+    public static final String SPARQL_ADMISSION_PERMITS_INTERNAL = "sparql.admission.permits.internal";
+
+    /** Maximum number of SPARQL endpoint queries that one client may have running or queued, 0 means no limit. */
+    public static final String SPARQL_ADMISSION_MAX_PER_CLIENT = "sparql.admission.maxPerClient";
+
+    /** Maximum number of seconds that a SPARQL endpoint query waits for its permits. */
+    public static final String SPARQL_ADMISSION_QUEUE_SECONDS = "sparql.admission.queueSeconds";
+
+    /** Maximum execution time of SPARQL endpoint queries of non-internal callers, 0 means no limit. */
+    public static final String SPARQL_ADMISSION_MAX_QUERY_SECONDS = "sparql.admission.maxQuerySeconds";
+
+    /** Comma-separated host and IP address patterns of internal SPARQL endpoint callers. */
+    public static final String SPARQL_ADMISSION_INTERNAL_HOSTS = "sparql.admission.internalHosts";
+
+    /** Number of seconds that total match counts of searches are memoized for, 0 means counts are not memoized. */
+    public static final String SEARCH_MATCH_COUNT_CACHE_SECONDS = "search.matchCount.cacheSeconds";
+
+    /** Maximum number of milliseconds that a search waits for its total match count before showing an estimate. */
+    public static final String SEARCH_MATCH_COUNT_WAIT_MILLIS = "search.matchCount.waitMillis";
+
+    /** If true, literal filters of the filtered search are matched through Virtuoso's free-text index where possible. */
+    public static final String SEARCH_FILTERS_FULL_TEXT = "search.filters.fullText";
+
+    /** If true, the observation browser's filter values are answered from an in-memory index of observation dimensions. */
+    public static final String OBSERVATIONS_DIMENSION_INDEX = "observations.dimensionIndex";
+
+    /** Maximum number of dimension value combinations that the observation dimension index is built of, 0 means no limit. */
+    public static final String OBSERVATIONS_DIMENSION_INDEX_MAX_ROWS = "observations.dimensionIndex.maxRows";
+
+    /** Number of seconds that factsheets are cached for, 0 means factsheets are not cached. */
+    public static final String FACTSHEET_CACHE_SECONDS = "factsheet.cache.seconds";
+
     /** */
     public static final String APPLICATION_DISPLAY_NAME = "application.displayName";
 
@@ -130,6 +178,15 @@ public final class GeneralConfig {
     /** */
     public static final String STAGING_FILES_DIR = "stagingFilesDir";
 
+    /** Number of threads that convert the rows of a staging database's RDF export into triples. */
+    public static final String STAGING_EXPORT_THREADS = "staging.export.threads";
+
+    /** Seconds after which the index of concepts checked by RDF exports is fully rebuilt, 0 means no index. */
+    public static final String STAGING_CONCEPT_INDEX_SECONDS = "staging.conceptIndex.seconds";
+
+    /** Number of tables of an MS Access file, or batches of rows of a CSV file, imported into a staging database concurrently. */
+    public static final String STAGING_IMPORT_THREADS = "staging.import.threads";
+
     /** */
     public static final String APP_HOME_DIR = "application.homeDir";
 
@@ -241,6 +298,27 @@ public final class GeneralConfig {
         return value;
     }
 
+    /**
+     * Returns boolean property.
+     *
+     * @param key property key in the properties file
+     * @param defaultValue default value that is returned if not specified or not "true"/"false"
+     * @return property value or default if not specified correctly
+     */
+    public static synchronized boolean getBooleanProperty(final String key, final boolean defaultValue) {
+
+        String propValue = getProperty(key);
+        if (propValue != null) {
+            if (propValue.trim().equalsIgnoreCase("true")) {
+                return true;
+            } else if (propValue.trim().equalsIgnoreCase("false")) {
+                return false;
+            }
+        }
+
+        return defaultValue;
+    }
+
     /**
      *
      * @param key
@@ -23,6 +23,8 @@ package eionet.cr.dao;
 import java.util.List;
 
 import eionet.cr.dto.HarvestDTO;
+import eionet.cr.dto.HarvestPhaseDTO;
+import eionet.cr.dto.HarvestProfileDTO;
 import eionet.cr.dto.HarvestStatDTO;
 
 /**
@@ -60,7 +62,7 @@ public interface HarvestDAO extends DAO {
     List<HarvestDTO> getHarvestsBySourceId(Integer harvestSourceId) throws DAOException;
 
     /**
-     * Returns list of the last harvests statistics.
+     * Returns list of the last harvests statistics, each with the duration and throughput of its phases.
      *
      * @param limit how many harvests
      * @return List<HarvestStatDTO>
@@ -68,6 +70,25 @@ public interface HarvestDAO extends DAO {
      */
     List<HarvestStatDTO> getLastHarvestStats(Integer limit) throws DAOException;
 
+    /**
+     * Stores the duration and throughput of the given harvest's phases.
+     *
+     * @param harvestId id of the harvest
+     * @param phases the phases
+     * @throws DAOException
+     */
+    void insertHarvestPhases(int harvestId, List<HarvestPhaseDTO> phases) throws DAOException;
+
+    /**
+     * Summarises the finished harvests of the given sources, for estimating how long their next harvest will take and how
+     * likely it is to find changed content. Sources without any finished harvests are not returned.
+     *
+     * @param sourceIds ids of the harvest sources
+     * @return List<HarvestProfileDTO>
+     * @throws DAOException
+     */
+    List<HarvestProfileDTO> getHarvestProfiles(List<Integer> sourceIds) throws DAOException;
+
     /**
      *
      * @param harvestId
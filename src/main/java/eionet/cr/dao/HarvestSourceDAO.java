@@ -37,7 +37,9 @@ import eionet.cr.dto.HarvestSourceDTO;
 import eionet.cr.dto.ObjectDTO;
 import eionet.cr.dto.SubjectDTO;
 import eionet.cr.harvest.load.ContentLoader;
+import eionet.cr.harvest.load.IncrementalRDFFormatLoader;
 import eionet.cr.harvest.statistics.dto.HarvestedUrlCountDTO;
+import eionet.cr.harvest.util.HarvestPhaseTimer;
 import eionet.cr.util.Pair;
 import eionet.cr.util.SortingRequest;
 import eionet.cr.util.pagination.PagingRequest;
@@ -204,6 +206,20 @@ public interface HarvestSourceDAO extends DAO {
      */
     List<HarvestSourceDTO> getNextScheduledSources(int limit) throws DAOException;
 
+    /**
+     * Same as {@link #getNextScheduledSources(int)}, but skips the given number of the highest priority sources first, so that
+     * the sources can be read page by page.
+     *
+     * @param offset
+     *            - number of sources to skip.
+     * @param limit
+     *            - max number of sources to return.
+     * @return List<HarvestSourceDTO>
+     * @throws DAOException
+     *             if relational database is unavailable.
+     */
+    List<HarvestSourceDTO> getNextScheduledSources(int offset, int limit) throws DAOException;
+
     /**
      * @return String
      * @throws DAOException
@@ -285,10 +301,11 @@ public interface HarvestSourceDAO extends DAO {
      * @param file
      * @param contentLoader
      * @param graphUri
+     * @param phaseTimer Records the time spent on swapping the graph with its backup copy, may be null.
      * @return
      * @throws DAOException
      */
-    int loadContent(File file, ContentLoader contentLoader, String graphUri) throws DAOException;
+    int loadContent(File file, ContentLoader contentLoader, String graphUri, HarvestPhaseTimer phaseTimer) throws DAOException;
 
     /**
      * Loads structured content from the given input stream into the given graph, using the given content loader object.
@@ -296,10 +313,43 @@ public interface HarvestSourceDAO extends DAO {
      * @param inputStream
      * @param contentLoader
      * @param graphUri
+     * @param phaseTimer Records the time spent on swapping the graph with its backup copy, may be null.
      * @return
      * @throws DAOException
      */
-    int loadContent(InputStream inputStream, ContentLoader contentLoader, String graphUri) throws DAOException;
+    int loadContent(InputStream inputStream, ContentLoader contentLoader, String graphUri, HarvestPhaseTimer phaseTimer)
+            throws DAOException;
+
+    /**
+     * Loads structured content from the given file into the given graph incrementally: see
+     * {@link #loadContentIncrementally(InputStream, IncrementalRDFFormatLoader, String, HarvestPhaseTimer)}.
+     *
+     * @param file
+     * @param contentLoader
+     * @param graphUri
+     * @param phaseTimer Records the time spent on swapping the graph with its backup copy, may be null.
+     * @return
+     * @throws DAOException
+     */
+    int loadContentIncrementally(File file, IncrementalRDFFormatLoader contentLoader, String graphUri,
+            HarvestPhaseTimer phaseTimer) throws DAOException;
+
+    /**
+     * Loads structured content from the given input stream into the given graph incrementally. The content is parsed into a
+     * spool first, which is then compared with the graph's current content, and only the removed and added triples are applied
+     * to the graph. Falls back to the full reload of {@link #loadContent(InputStream, ContentLoader, String, HarvestPhaseTimer)}
+     * if the content or the graph has blank nodes (which cannot be compared), or if the differences are too many for the
+     * incremental update to pay off.
+     *
+     * @param inputStream
+     * @param contentLoader
+     * @param graphUri
+     * @param phaseTimer Records the time spent on swapping the graph with its backup copy, may be null.
+     * @return Number of triples in the content.
+     * @throws DAOException
+     */
+    int loadContentIncrementally(InputStream inputStream, IncrementalRDFFormatLoader contentLoader, String graphUri,
+            HarvestPhaseTimer phaseTimer) throws DAOException;
 
     /**
      * Adds the meta information the harvester has collected about the source. The meta data is considered part of the harvester and
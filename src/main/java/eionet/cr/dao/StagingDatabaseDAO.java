@@ -32,6 +32,7 @@ import eionet.cr.staging.exp.ExportRunner;
 import eionet.cr.staging.exp.ExportStatus;
 import eionet.cr.staging.exp.QueryConfiguration;
 import eionet.cr.staging.imp.ImportStatus;
+import eionet.cr.staging.util.ConceptIndex;
 
 // TODO: Auto-generated Javadoc
 /**
@@ -286,4 +287,15 @@ public interface StagingDatabaseDAO extends DAO {
      * @throws DAOException If a database access error happens.
      */
     LinkedHashMap<String, String> getRefAreas() throws DAOException;
+
+    /**
+     * Reads the concepts of the given kind, together with the graphs that have their notations, into the given builder of a
+     * {@link ConceptIndex}.
+     *
+     * @param kind The kind of concepts.
+     * @param graphUri If not null, only the concepts whose notations are in this graph are read.
+     * @param builder The builder.
+     * @throws DAOException If a database access error happens.
+     */
+    void loadConcepts(ConceptIndex.Kind kind, String graphUri, ConceptIndex.Builder builder) throws DAOException;
 }
@@ -0,0 +1,45 @@
+package eionet.cr.dao.readers;
+
+import org.openrdf.query.BindingSet;
+
+import eionet.cr.staging.util.ConceptIndex;
+import eionet.cr.util.sesame.SPARQLResultSetBaseReader;
+
+/**
+ * Reads concepts, selected as graph "g" and concept "s", straight into a {@link ConceptIndex.Builder}, so that no row objects
+ * are kept. The result list stays empty.
+ *
+ * @author jaanus
+ */
+public class ConceptsReader extends SPARQLResultSetBaseReader<String> {
+
+    /** */
+    private final ConceptIndex.Kind kind;
+
+    /** */
+    private final ConceptIndex.Builder builder;
+
+    /**
+     * Class constructor.
+     *
+     * @param kind Kind of the concepts read.
+     * @param builder The builder to add the concepts to.
+     */
+    public ConceptsReader(ConceptIndex.Kind kind, ConceptIndex.Builder builder) {
+
+        this.kind = kind;
+        this.builder = builder;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.util.sesame.SPARQLResultSetReader#readRow(org.openrdf.query.BindingSet)
+     */
+    @Override
+    public void readRow(BindingSet bindingSet) throws ResultSetReaderException {
+
+        String graphUri = getStringValue(bindingSet, "g");
+        builder.add(kind, graphUri, getStringValue(bindingSet, "s"));
+    }
+}
@@ -0,0 +1,32 @@
+package eionet.cr.dao.readers;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import eionet.cr.dto.HarvestPhaseDTO;
+import eionet.cr.util.sql.SQLResultSetBaseReader;
+
+/**
+ * Reads the phases of harvests from the HARVEST_PHASE table.
+ *
+ * @author jaanus
+ */
+public class HarvestPhaseReader extends SQLResultSetBaseReader<HarvestPhaseDTO> {
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.util.sql.SQLResultSetReader#readRow(java.sql.ResultSet)
+     */
+    @Override
+    public void readRow(ResultSet rs) throws SQLException, ResultSetReaderException {
+
+        HarvestPhaseDTO phase = new HarvestPhaseDTO();
+        phase.setHarvestId(rs.getInt("harvest_id"));
+        phase.setPhase(rs.getString("phase"));
+        phase.setDurationMicros(rs.getLong("duration_us"));
+        phase.setBytes(rs.getLong("bytes"));
+        phase.setTriples(rs.getInt("triples"));
+        resultList.add(phase);
+    }
+}
@@ -0,0 +1,32 @@
+package eionet.cr.dao.readers;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import eionet.cr.dto.HarvestProfileDTO;
+import eionet.cr.util.sql.SQLResultSetBaseReader;
+
+/**
+ * Reads the per-source summaries of harvest history, as aggregated from the HARVEST table.
+ *
+ * @author jaanus
+ */
+public class HarvestProfileReader extends SQLResultSetBaseReader<HarvestProfileDTO> {
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.util.sql.SQLResultSetReader#readRow(java.sql.ResultSet)
+     */
+    @Override
+    public void readRow(ResultSet rs) throws SQLException, ResultSetReaderException {
+
+        HarvestProfileDTO profile = new HarvestProfileDTO();
+        profile.setSourceId(rs.getInt("SOURCE_ID"));
+        profile.setHarvests(rs.getInt("HARVESTS"));
+        profile.setChangedHarvests(rs.getInt("CHANGED_HARVESTS"));
+        profile.setAvgDurationSeconds(rs.getDouble("AVG_SECONDS"));
+        profile.setAvgStatements(rs.getLong("AVG_STATEMENTS"));
+        resultList.add(profile);
+    }
+}
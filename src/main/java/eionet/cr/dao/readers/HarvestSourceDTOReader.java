@@ -58,6 +58,10 @@ public class HarvestSourceDTOReader extends SQLResultSetBaseReader<HarvestSource
         harvestSourceDTO.setPermanentError(YesNoBoolean.parse(rs.getString("PERMANENT_ERROR")));
         harvestSourceDTO.setMediaType(rs.getString("MEDIA_TYPE"));
         harvestSourceDTO.setSparqlEndpoint(YesNoBoolean.parse(rs.getString("IS_SPARQL_ENDPOINT")));
+        harvestSourceDTO.setBulkLoad(YesNoBoolean.parse(rs.getString("BULK_LOAD")));
+        harvestSourceDTO.setIncrementalLoad(YesNoBoolean.parse(rs.getString("INCREMENTAL_LOAD")));
+        harvestSourceDTO.setEtag(rs.getString("ETAG"));
+        harvestSourceDTO.setContentDigest(rs.getString("CONTENT_DIGEST"));
 
         resultList.add(harvestSourceDTO);
     }
@@ -0,0 +1,46 @@
+package eionet.cr.dao.readers;
+
+import org.openrdf.query.BindingSet;
+
+import eionet.cr.dao.util.ObservationDimensionIndex;
+import eionet.cr.util.sesame.SPARQLResultSetBaseReader;
+import eionet.cr.web.util.ObservationFilter;
+
+/**
+ * Reads combinations of observation dimension values, selected into the aliases of {@link ObservationFilter}, straight into an
+ * {@link ObservationDimensionIndex.Builder}, so that no row objects are kept. The result list stays empty.
+ *
+ * @author jaanus
+ */
+public class ObservationDimensionsReader extends SPARQLResultSetBaseReader<String[]> {
+
+    /** */
+    private final ObservationDimensionIndex.Builder builder;
+
+    /** */
+    private final ObservationFilter[] filters = ObservationFilter.values();
+
+    /**
+     * Class constructor.
+     *
+     * @param builder The builder to add the combinations to.
+     */
+    public ObservationDimensionsReader(ObservationDimensionIndex.Builder builder) {
+        this.builder = builder;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.util.sesame.SPARQLResultSetReader#readRow(org.openrdf.query.BindingSet)
+     */
+    @Override
+    public void readRow(BindingSet bindingSet) throws ResultSetReaderException {
+
+        String[] combination = new String[filters.length];
+        for (int i = 0; i < filters.length; i++) {
+            combination[i] = getStringValue(bindingSet, filters[i].getAlias());
+        }
+        builder.addCombination(combination);
+    }
+}
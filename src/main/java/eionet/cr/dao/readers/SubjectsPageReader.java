@@ -0,0 +1,253 @@
+package eionet.cr.dao.readers;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+
+import eionet.cr.dao.virtuoso.VirtuosoSearchDAO;
+import eionet.cr.dto.ObjectDTO;
+import eionet.cr.dto.SubjectDTO;
+import eionet.cr.util.Bindings;
+import eionet.cr.util.Hashes;
+import eionet.cr.util.sesame.SPARQLQueryUtil;
+import eionet.cr.web.util.WebConstants;
+
+/**
+ * Reads a page of found subjects together with all or specific predicates of these subjects, as returned by a single query that
+ * joins the subject finder query of a search with the subjects' triples, see {@link #getQuery(String, Bindings)}. Saves the
+ * round trip of first finding the subjects and then querying for their data with {@link SubjectDataReader}.
+ * <p>
+ * The finder query is evaluated as a sub-select, whose ordering does not carry over to the rows of the enclosing query. So if the
+ * finder query is ordered by a single key, the sub-select also selects that key, and the enclosing query is ordered by it too,
+ * see {@link #getQuery(String, String, boolean)}. Other ordered finder queries would lose their order, so for them the subjects
+ * have to be found and their data queried separately, see {@link #isOrderKept(String)}. Subjects are returned in the order of
+ * their first row. A subject that has none of the queried predicates comes in one row without a predicate, and is returned
+ * without predicates. If the query selects graphs, objects get their graph as source, like with
+ * {@link GenericSubjectDataReader}.
+ *
+ * @author jaanus
+ */
+public class SubjectsPageReader extends ResultSetMixedReader<SubjectDTO> {
+
+    /** Variable of the predicates, chosen not to clash with the finder query's variables. */
+    public static final String PREDICATE_VARIABLE = "pageP";
+
+    /** Variable of the objects. */
+    public static final String OBJECT_VARIABLE = "pageO";
+
+    /** Variable of the graphs, if the query selects them. */
+    public static final String GRAPH_VARIABLE = "pageG";
+
+    /** Variable of the finder query's sort key. */
+    public static final String ORDER_VARIABLE = "pageOrd";
+
+    /**
+     * Finder query ordered by a single key, with groups for the query's where clause, the sort direction, the sort key and the
+     * limit and offset.
+     */
+    private static final Pattern ORDERED_FINDER_PATTERN = Pattern.compile("^\\s*select\\s+distinct\\s+\\?s\\s+(where\\s*\\{.*\\})"
+            + "\\s*order\\s+by\\s+(asc|desc)?\\s*(\\(.*\\)|\\?\\w+)((\\s+(limit|offset)\\s+\\d+)*)\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    /** An ordering anywhere in a query. */
+    private static final Pattern ORDER_BY_PATTERN = Pattern.compile("\\border\\s+by\\b", Pattern.CASE_INSENSITIVE);
+
+    /** URIs of the predicates to be queried for, null or empty for all predicates. */
+    private String[] predicateUris;
+
+    /** Found subjects by hashes of their URIs, in the order of the result set. */
+    private Map<Long, SubjectDTO> subjectsMap = new LinkedHashMap<Long, SubjectDTO>();
+
+    /**
+     * Constructs an instance for reading the given predicates of the found subjects.
+     *
+     * @param predicateUris URIs of the predicates to read, null or empty for all predicates.
+     */
+    public SubjectsPageReader(String[] predicateUris) {
+
+        this.predicateUris = predicateUris;
+        this.blankNodeUriPrefix = VirtuosoSearchDAO.BNODE_URI_PREFIX;
+    }
+
+    /**
+     * Returns the query that finds the subjects with the given finder query, and selects their predicates. The finder query must
+     * select the subjects into variable "s". Virtuoso's "define" pragmas at its start are moved to the start of the whole query.
+     *
+     * @param finderQuery The subject finder query, including its ordering, limit and offset.
+     * @param bindings Bindings of the finder query, to which the bindings of the returned query are added.
+     * @return The query.
+     */
+    public String getQuery(String finderQuery, Bindings bindings) {
+
+        StringBuilder filter = new StringBuilder();
+        if (predicateUris != null && predicateUris.length > 0) {
+            filter.append(" filter (?").append(PREDICATE_VARIABLE).append(" IN (");
+            for (int i = 0; i < predicateUris.length; i++) {
+                String bindingName = "neededPredicate" + i;
+                filter.append(i > 0 ? ", ?" : "?").append(bindingName);
+                bindings.setURI(bindingName, predicateUris[i]);
+            }
+            filter.append("))");
+        }
+
+        return getQuery(finderQuery, "?s ?" + PREDICATE_VARIABLE + " ?pageObj ." + filter, false);
+    }
+
+    /**
+     * Returns the query that finds the subjects with the given finder query, and selects the subjects' triples matched by the
+     * given pattern. The pattern must use "?s" for the subject, "?pageP" for the predicate and "?pageObj" for the object.
+     * <p>
+     * A finder query of the form "select distinct ?s where {...} order by asc|desc(key) limit ... offset ..." is rewritten to
+     * select each subject once with the lowest (for descending order the highest) of its sort keys into "?pageOrd", which is
+     * how the distinct subjects are ordered by the original query. The enclosing query is then ordered by "?pageOrd" and "?s".
+     * Other finder queries are used as they are, so their ordering is lost, see {@link #isOrderKept(String)}.
+     *
+     * @param finderQuery The subject finder query, including its ordering, limit and offset.
+     * @param dataPattern Graph pattern of the subjects' triples.
+     * @param withGraphs If true, the query also selects the graphs of the triples.
+     * @return The query.
+     */
+    public static String getQuery(String finderQuery, String dataPattern, boolean withGraphs) {
+
+        String finder = SPARQLQueryUtil.removeDefines(finderQuery);
+        String order = null;
+        Matcher matcher = ORDERED_FINDER_PATTERN.matcher(finder);
+        if (matcher.matches()) {
+            boolean descending = "desc".equalsIgnoreCase(matcher.group(2));
+            order = (descending ? "desc(?" : "asc(?") + ORDER_VARIABLE + ")";
+            finder = "select ?s (" + (descending ? "max" : "min") + "(" + matcher.group(3) + ") as ?" + ORDER_VARIABLE + ") "
+                    + matcher.group(1) + " group by ?s order by " + order + matcher.group(4);
+        }
+
+        StringBuilder query = new StringBuilder(SPARQLQueryUtil.getDefines(finderQuery));
+        query.append("select ?s ?").append(PREDICATE_VARIABLE);
+        query.append(" bif:either(isLiteral(?pageObj), bif:substring(str(?pageObj), 1, ").append(WebConstants.MAX_OBJECT_LENGTH);
+        query.append("), ?pageObj) as ?").append(OBJECT_VARIABLE);
+        if (withGraphs) {
+            query.append(" ?").append(GRAPH_VARIABLE);
+        }
+        query.append(" where {{").append(finder).append("} optional {");
+        if (withGraphs) {
+            query.append("graph ?").append(GRAPH_VARIABLE).append(" {").append(dataPattern).append("}");
+        } else {
+            query.append(dataPattern);
+        }
+        query.append("}}");
+        if (order != null) {
+            query.append(" order by ").append(order).append(" ?s");
+        }
+
+        return query.toString();
+    }
+
+    /**
+     * Returns true if the query returned by {@link #getQuery(String, String, boolean)} for the given finder query returns the
+     * subjects in the finder query's order, i.e. if the finder query is ordered by a single key or not ordered at all.
+     *
+     * @param finderQuery The subject finder query.
+     * @return False if the finder query's ordering would be lost.
+     */
+    public static boolean isOrderKept(String finderQuery) {
+
+        String finder = SPARQLQueryUtil.removeDefines(finderQuery);
+        return ORDERED_FINDER_PATTERN.matcher(finder).matches() || !ORDER_BY_PATTERN.matcher(finder).find();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.util.sql.SQLResultSetReader#readRow(java.sql.ResultSet)
+     */
+    @Override
+    public void readRow(ResultSet rs) throws SQLException, ResultSetReaderException {
+        throw new UnsupportedOperationException("Method not implemented");
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.util.sesame.SPARQLResultSetReader#readRow(org.openrdf.query.BindingSet)
+     */
+    @Override
+    public void readRow(BindingSet bindingSet) throws ResultSetReaderException {
+
+        Value subjectValue = bindingSet.getValue("s");
+        String subjectUri = subjectValue.stringValue();
+
+        boolean isAnonSubject = subjectValue instanceof BNode;
+        if (isAnonSubject && blankNodeUriPrefix != null && !subjectUri.startsWith(blankNodeUriPrefix)) {
+            subjectUri = blankNodeUriPrefix + subjectUri;
+        }
+        Long subjectHash = Long.valueOf(Hashes.spoHash(subjectUri));
+
+        SubjectDTO subject = subjectsMap.get(subjectHash);
+        if (subject == null) {
+            subject = new SubjectDTO(subjectUri, isAnonSubject);
+            subject.setUriHash(subjectHash.longValue());
+            subjectsMap.put(subjectHash, subject);
+        }
+
+        Value predicateValue = bindingSet.getValue(PREDICATE_VARIABLE);
+        Value objectValue = bindingSet.getValue(OBJECT_VARIABLE);
+        if (predicateValue == null || objectValue == null) {
+            return;
+        }
+
+        boolean isLiteral = objectValue instanceof Literal;
+        String objectLang = isLiteral ? ((Literal) objectValue).getLanguage() : null;
+        URI dataType = isLiteral ? ((Literal) objectValue).getDatatype() : null;
+
+        String strObjectValue = objectValue.stringValue();
+        boolean isAnonObject = objectValue instanceof BNode;
+        if (isAnonObject && blankNodeUriPrefix != null) {
+            strObjectValue = blankNodeUriPrefix.concat(strObjectValue);
+        }
+
+        ObjectDTO object = new ObjectDTO(strObjectValue, objectLang == null ? "" : objectLang, isLiteral, isAnonObject, dataType);
+        object.setHash(Hashes.spoHash(strObjectValue));
+
+        String graphUri = getStringValue(bindingSet, GRAPH_VARIABLE);
+        if (StringUtils.isNotEmpty(graphUri)) {
+
+            long graphHash = Hashes.spoHash(graphUri);
+            object.setSourceUri(graphUri);
+            object.setDerivSourceUri(graphUri);
+            object.setSourceHash(graphHash);
+            object.setDerivSourceHash(graphHash);
+        }
+
+        String predicateUri = predicateValue.stringValue();
+        Collection<ObjectDTO> objects = subject.getPredicates().get(predicateUri);
+        if (objects == null) {
+            objects = new ArrayList<ObjectDTO>();
+            subject.getPredicates().put(predicateUri, objects);
+        }
+        // Without graphs, a triple that is in several graphs comes in several rows, but is added once.
+        if (StringUtils.isNotEmpty(graphUri) || !objects.contains(object)) {
+            objects.add(object);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.dao.readers.ResultSetMixedReader#getResultList()
+     */
+    @Override
+    public List<SubjectDTO> getResultList() {
+        return new ArrayList<SubjectDTO>(subjectsMap.values());
+    }
+}
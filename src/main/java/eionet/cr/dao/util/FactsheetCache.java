@@ -0,0 +1,122 @@
+package eionet.cr.dao.util;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+
+import eionet.cr.config.GeneralConfig;
+import eionet.cr.dto.FactsheetDTO;
+import eionet.cr.util.sesame.SPARQLResultCache;
+
+/**
+ * Cache of factsheets, so that popular factsheet pages are not queried from the triple store on every view. Factsheets are kept
+ * in the "factsheetCache" of ehcache.xml, which overflows to disk, for the configured number of seconds.
+ * <p>
+ * The key of a factsheet is made of the subject, the accepted languages, the requested predicate pages and the current versions
+ * of the graphs that have triples of the subject (see {@link SPARQLResultCache#getGraphVersions(Collection)}). So when a harvest
+ * or any other change reported to {@link SPARQLResultCache#invalidate(Collection)} changes one of these graphs, or a graph starts
+ * having triples of the subject, the factsheet is queried again. Labels of predicates and objects come from other graphs too,
+ * and their changes show up when the factsheet expires.
+ *
+ * @author jaanus
+ */
+public final class FactsheetCache {
+
+    /** Name of the cache in ehcache.xml. */
+    public static final String CACHE_NAME = "factsheetCache";
+
+    /**
+     * Hide utility class constructor.
+     */
+    private FactsheetCache() {
+        // Just an empty private constructor to avoid instantiating this utility class.
+    }
+
+    /**
+     * @return True if factsheets are cached.
+     */
+    public static boolean isEnabled() {
+        return getCache() != null;
+    }
+
+    /**
+     * Returns the cache key of a factsheet.
+     *
+     * @param subjectUri The factsheet's subject.
+     * @param acceptedLanguages Accepted languages of labels, may be null.
+     * @param predicatePages Requested pages of predicates' objects, by predicates, may be null.
+     * @param graphUris Graphs that have triples of the subject.
+     * @return The key.
+     */
+    public static String getKey(String subjectUri, List<String> acceptedLanguages, Map<String, Integer> predicatePages,
+            Collection<String> graphUris) {
+
+        TreeMap<String, Integer> pages = new TreeMap<String, Integer>();
+        if (predicatePages != null) {
+            for (Map.Entry<String, Integer> entry : predicatePages.entrySet()) {
+                if (StringUtils.isNotBlank(entry.getKey()) && entry.getValue() != null && entry.getValue().intValue() > 0) {
+                    pages.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        StringBuilder key = new StringBuilder(subjectUri).append('\n');
+        key.append(acceptedLanguages == null ? "" : StringUtils.join(acceptedLanguages, ' ')).append('\n');
+        key.append(pages).append('\n');
+        key.append(SPARQLResultCache.getGraphVersions(graphUris));
+        return DigestUtils.sha256Hex(key.toString());
+    }
+
+    /**
+     * @param key Key returned by {@link #getKey(String, List, Map, Collection)}.
+     * @return The cached factsheet, or null if there is none.
+     */
+    public static FactsheetDTO get(String key) {
+
+        Cache cache = getCache();
+        Element element = cache == null ? null : cache.get(key);
+        return element == null ? null : (FactsheetDTO) element.getObjectValue();
+    }
+
+    /**
+     * Caches the given factsheet for the configured number of seconds.
+     *
+     * @param key Key returned by {@link #getKey(String, List, Map, Collection)}.
+     * @param factsheet The factsheet.
+     */
+    public static void put(String key, FactsheetDTO factsheet) {
+
+        Cache cache = getCache();
+        if (cache != null) {
+            Element element = new Element(key, factsheet);
+            element.setTimeToLive(getCacheSeconds());
+            cache.put(element);
+        }
+    }
+
+    /**
+     * @return The cache, or null if it is not configured or caching is switched off.
+     */
+    private static Cache getCache() {
+
+        if (getCacheSeconds() <= 0) {
+            return null;
+        }
+        return CacheManager.getInstance().getCache(CACHE_NAME);
+    }
+
+    /**
+     * @return Number of seconds that factsheets are cached for, 0 if caching is switched off.
+     */
+    private static int getCacheSeconds() {
+        return GeneralConfig.getIntProperty(GeneralConfig.FACTSHEET_CACHE_SECONDS, 0);
+    }
+}
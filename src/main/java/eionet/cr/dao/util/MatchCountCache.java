@@ -0,0 +1,196 @@
+package eionet.cr.dao.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.log4j.Logger;
+
+import eionet.cr.config.GeneralConfig;
+import eionet.cr.dao.DAOException;
+import eionet.cr.util.Bindings;
+import eionet.cr.util.NamedDaemonThreadFactory;
+import eionet.cr.util.pagination.PagingRequest;
+import eionet.cr.util.sesame.SPARQLResultCache;
+
+/**
+ * Memoizes the total match counts of searches and paginated listings, so that paging through them does not re-evaluate their
+ * count queries on every page. Counts are kept in the "searchMatchCountCache" of ehcache.xml for the configured number of
+ * seconds. The key of a count is made of the whitespace-normalized count query, its bindings and the versions of the graphs
+ * that the query reads (see {@link SPARQLResultCache#getDataVersions(String, Map)}), so any change of these graphs that is
+ * reported to {@link SPARQLResultCache#invalidate(java.util.Collection)} makes the counts of earlier data unreachable. Other
+ * changes of the data show up in the counts when they expire.
+ * <p>
+ * A count that is not memoized is computed in the background. The search waits for it up to the configured number of
+ * milliseconds, and if it is not ready by then, the search shows an estimate made by {@link #estimate(PagingRequest, int)},
+ * while the exact count is memoized for the following pages. The same count query is never run twice at the same time.
+ * If memoizing is switched off, the count is computed by the calling thread, as it always used to be.
+ *
+ * @author jaanus
+ */
+public final class MatchCountCache {
+
+    /** Name of the cache in ehcache.xml. */
+    public static final String CACHE_NAME = "searchMatchCountCache";
+
+    /** Number of threads that compute counts in the background. */
+    private static final int COUNTER_THREADS = 2;
+
+    /** Prefix of the names of the counter threads. */
+    private static final String THREAD_NAME_PREFIX = "match-counter-";
+
+    /** */
+    private static final Logger LOGGER = Logger.getLogger(MatchCountCache.class);
+
+    /** Counts being computed, by their keys. */
+    private static final ConcurrentMap<String, FutureTask<Integer>> RUNNING =
+            new ConcurrentHashMap<String, FutureTask<Integer>>();
+
+    /** Computes the counts in the background, created on first use. */
+    private static ExecutorService executor;
+
+    /**
+     * Hide utility class constructor.
+     */
+    private MatchCountCache() {
+        // Just an empty private constructor to avoid instantiating this utility class.
+    }
+
+    /**
+     * Returns the count returned by the given counter for the given count query, either memoized or computed by the counter.
+     *
+     * @param countQuery The count query, which the counter executes.
+     * @param bindings Bindings of the count query, may be null.
+     * @param counter Executes the count query.
+     * @return The count, or null if it was not computed within the configured time and an estimate should be used instead.
+     * @throws DAOException if memoizing is switched off and the counter fails.
+     */
+    public static Integer getCount(String countQuery, Bindings bindings, Callable<Integer> counter) throws DAOException {
+
+        Cache cache = getCache();
+        if (cache == null) {
+            return call(counter);
+        }
+
+        Map<String, Object> bindingsMap = bindings == null ? null : bindings.getBindings();
+        StringBuilder key = new StringBuilder(SPARQLResultCache.normalize(countQuery)).append('\n');
+        key.append(bindingsMap == null ? "" : new TreeMap<String, Object>(bindingsMap).toString());
+        key.append('\n').append(SPARQLResultCache.getDataVersions(countQuery, bindingsMap));
+        final String hash = DigestUtils.sha256Hex(key.toString());
+
+        Element element = cache.get(hash);
+        if (element != null) {
+            return (Integer) element.getObjectValue();
+        }
+
+        FutureTask<Integer> task = new FutureTask<Integer>(counter) {
+            @Override
+            protected void done() {
+                RUNNING.remove(hash);
+            }
+
+            @Override
+            protected void set(Integer count) {
+
+                // Memoized before the task is done, so that the count is always either running or memoized.
+                Cache cache = getCache();
+                if (cache != null) {
+                    Element element = new Element(hash, count);
+                    element.setTimeToLive(getCacheSeconds());
+                    cache.put(element);
+                }
+                super.set(count);
+            }
+        };
+        FutureTask<Integer> running = RUNNING.putIfAbsent(hash, task);
+        if (running == null) {
+            running = task;
+            getExecutor().execute(task);
+        }
+
+        try {
+            int waitMillis = GeneralConfig.getIntProperty(GeneralConfig.SEARCH_MATCH_COUNT_WAIT_MILLIS, 0);
+            return running.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.debug("Match count not ready in time, it will be memoized for the next pages");
+            return null;
+        } catch (Exception e) {
+            LOGGER.error("Failed to compute match count", e);
+            return null;
+        }
+    }
+
+    /**
+     * Estimates the total match count of a search from the page it returned: the subjects up to and including this page, and if
+     * the page is full, one more page.
+     *
+     * @param pagingRequest The requested page.
+     * @param pageCount Number of subjects on the page.
+     * @return The estimate.
+     */
+    public static int estimate(PagingRequest pagingRequest, int pageCount) {
+
+        if (pagingRequest == null) {
+            return pageCount;
+        }
+        int count = pagingRequest.getOffset() + pageCount;
+        return pageCount >= pagingRequest.getItemsPerPage() ? count + pagingRequest.getItemsPerPage() : count;
+    }
+
+    /**
+     * @param counter The counter.
+     * @return The count.
+     * @throws DAOException if the counter fails.
+     */
+    private static Integer call(Callable<Integer> counter) throws DAOException {
+
+        try {
+            return counter.call();
+        } catch (DAOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DAOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return The executor of the counters.
+     */
+    private static synchronized ExecutorService getExecutor() {
+
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(COUNTER_THREADS, new NamedDaemonThreadFactory(THREAD_NAME_PREFIX));
+        }
+        return executor;
+    }
+
+    /**
+     * @return The cache, or null if it is not configured or memoizing is switched off.
+     */
+    private static Cache getCache() {
+
+        if (getCacheSeconds() <= 0) {
+            return null;
+        }
+        return CacheManager.getInstance().getCache(CACHE_NAME);
+    }
+
+    /**
+     * @return Number of seconds that counts are memoized for, 0 if memoizing is switched off.
+     */
+    private static int getCacheSeconds() {
+        return GeneralConfig.getIntProperty(GeneralConfig.SEARCH_MATCH_COUNT_CACHE_SECONDS, 0);
+    }
+}
@@ -0,0 +1,464 @@
+package eionet.cr.dao.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+import eionet.cr.config.GeneralConfig;
+import eionet.cr.dao.DAOException;
+import eionet.cr.util.Pair;
+import eionet.cr.util.sesame.SPARQLResultCache;
+import eionet.cr.web.util.ObservationFilter;
+
+/**
+ * In-memory index of the dimension value combinations of all DataCube observations, which answers the value lists of the
+ * observation browser's filters without querying the triple store. Every dimension of {@link ObservationFilter} has a dictionary
+ * of its values, and the distinct combinations of value ids are kept in one int column per dimension, -1 where an observation
+ * has no value for the dimension. The values of a filter are found by scanning the columns, which takes milliseconds even for
+ * millions of combinations.
+ * <p>
+ * The index is built in the background by a {@link Loader} given to {@link #getCurrent(Loader)}, and is valid as long as the
+ * graphs that it was built from keep the versions they had (see {@link SPARQLResultCache#getGraphVersions(Collection)}), and
+ * none of the other graphs that changed since has observations, dimension value labels or dataset statuses. So harvests of
+ * unrelated sources do not make it outdated. When a change of the data does, the next request starts a rebuild, and the filter
+ * values are queried from the triple store until the rebuild is finished. If the data has more combinations than configured by
+ * {@link GeneralConfig#OBSERVATIONS_DIMENSION_INDEX_MAX_ROWS}, the index is not built, and the values are always queried from the
+ * triple store.
+ *
+ * @author jaanus
+ */
+public final class ObservationDimensionIndex {
+
+    /** Value id of a dimension that an observation has no value for. */
+    private static final int NONE = -1;
+
+    /** Required value id of a filter whose selection is blank, i.e. any value is accepted but there must be one. */
+    private static final int BOUND = -2;
+
+    /** Required value id of a filter that puts no requirement on the observations. */
+    private static final int UNCONSTRAINED = -3;
+
+    /** */
+    private static final Logger LOGGER = Logger.getLogger(ObservationDimensionIndex.class);
+
+    /** The last built index. */
+    private static final AtomicReference<ObservationDimensionIndex> CURRENT = new AtomicReference<ObservationDimensionIndex>();
+
+    /** True while a rebuild is running. */
+    private static final AtomicBoolean BUILDING = new AtomicBoolean();
+
+    /** Default maximum number of combinations that the index is built of. */
+    private static final int DEFAULT_MAX_ROWS = 5000000;
+
+    /**
+     * Store version for which the last rebuild failed or found too many combinations, so that it is not retried before the data
+     * changes again.
+     */
+    private static volatile long failedVersion = -1L;
+
+    /** URIs of the graphs that this index was built from. */
+    private final Set<String> graphs;
+
+    /** Versions of these graphs when the index was built. */
+    private final String graphVersions;
+
+    /** Store version up to which the changes of other graphs have been checked. */
+    private volatile long checkedStoreVersion;
+
+    /** True if the data has changed since the index was built. */
+    private volatile boolean outdated;
+
+    /** Value ids by values, per dimension. */
+    private final List<Map<String, Integer>> ids;
+
+    /** Values by value ids, per dimension. */
+    private final String[][] values;
+
+    /** Labels by value ids, per dimension. */
+    private final String[][] labels;
+
+    /** Value ids of the combinations, one column per dimension. */
+    private final int[][] columns;
+
+    /** Number of combinations. */
+    private final int size;
+
+    /** Value ids of the completed datasets. */
+    private final BitSet completedDatasets;
+
+    /**
+     * Class constructor, used by {@link Builder#build(long)}.
+     *
+     * @param builder The builder.
+     * @param storeVersion Store version when the loading of the builder started.
+     */
+    private ObservationDimensionIndex(Builder builder, long storeVersion) {
+
+        this.graphs = builder.graphs;
+        this.graphVersions = builder.graphVersions;
+        this.checkedStoreVersion = storeVersion;
+        this.ids = builder.ids;
+        this.size = builder.size;
+        int dimensions = builder.ids.size();
+        this.values = new String[dimensions][];
+        this.labels = new String[dimensions][];
+        this.columns = new int[dimensions][];
+        for (int i = 0; i < dimensions; i++) {
+            values[i] = builder.values.get(i).toArray(new String[builder.values.get(i).size()]);
+            labels[i] = new String[values[i].length];
+            for (int j = 0; j < values[i].length; j++) {
+                String label = builder.labels.get(values[i][j]);
+                labels[i][j] = label == null ? values[i][j] : label;
+            }
+            columns[i] = Arrays.copyOf(builder.columns[i], size);
+        }
+
+        this.completedDatasets = new BitSet();
+        Map<String, Integer> datasetIds = ids.get(ObservationFilter.DATASET.ordinal());
+        for (String datasetUri : builder.completedDatasets) {
+            Integer id = datasetIds.get(datasetUri);
+            if (id != null) {
+                completedDatasets.set(id);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the current data. If there is none, starts building it in the background with the given loader and
+     * returns null, and the caller should query the triple store instead.
+     *
+     * @param loader Loads the index data, and tells whether changed graphs have any.
+     * @return The index, or null if it is switched off, or not built for the current data yet.
+     */
+    public static ObservationDimensionIndex getCurrent(final Loader loader) {
+
+        if (!GeneralConfig.getBooleanProperty(GeneralConfig.OBSERVATIONS_DIMENSION_INDEX, false)) {
+            return null;
+        }
+
+        final long version = SPARQLResultCache.getStoreVersion();
+        ObservationDimensionIndex index = CURRENT.get();
+        if (index != null && index.isCurrent(version, loader)) {
+            return index;
+        }
+
+        if (version != failedVersion && BUILDING.compareAndSet(false, true)) {
+            final int maxRows =
+                    GeneralConfig.getIntProperty(GeneralConfig.OBSERVATIONS_DIMENSION_INDEX_MAX_ROWS, DEFAULT_MAX_ROWS);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        long started = System.currentTimeMillis();
+                        ObservationDimensionIndex built = load(loader, version, maxRows);
+                        if (built == null) {
+                            failedVersion = version;
+                            LOGGER.info("Not building the observation dimension index, there are more than " + maxRows
+                                    + " dimension combinations");
+                        } else {
+                            CURRENT.set(built);
+                            LOGGER.info("Built the dimension index of " + built.size + " observation dimension combinations in "
+                                    + (System.currentTimeMillis() - started) + " ms");
+                        }
+                    } catch (Exception e) {
+                        failedVersion = version;
+                        LOGGER.error("Failed to build the observation dimension index", e);
+                    } finally {
+                        BUILDING.set(false);
+                    }
+                }
+            }, "ObservationDimensionIndex");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return null;
+    }
+
+    /**
+     * Loads and builds the index, unless the data has more than the given number of dimension value combinations.
+     *
+     * @param loader Loads the index data.
+     * @param storeVersion Store version when the loading starts.
+     * @param maxRows Maximum number of combinations, 0 or less for no limit.
+     * @return The index, or null if there are too many combinations.
+     * @throws DAOException if a query fails.
+     */
+    static ObservationDimensionIndex load(Loader loader, long storeVersion, int maxRows) throws DAOException {
+
+        Builder builder = loader.load(maxRows > 0 ? maxRows + 1 : 0);
+        if (maxRows > 0 && builder.size > maxRows) {
+            return null;
+        }
+        return builder.build(storeVersion);
+    }
+
+    /**
+     * Tells whether the data that this index was built of is unchanged: the graphs it was built from have the same versions, and
+     * the other graphs that changed since the last check have none of the index data.
+     *
+     * @param storeVersion The current store version.
+     * @param loader Tells whether changed graphs have index data.
+     * @return True if this index is current.
+     */
+    boolean isCurrent(long storeVersion, Loader loader) {
+
+        if (outdated || storeVersion == checkedStoreVersion) {
+            return !outdated;
+        }
+
+        if (!SPARQLResultCache.getGraphVersions(graphs).equals(graphVersions)) {
+            outdated = true;
+            return false;
+        }
+
+        Set<String> changedGraphs = SPARQLResultCache.getGraphsChangedSince(checkedStoreVersion);
+        changedGraphs.removeAll(graphs);
+        try {
+            if (!changedGraphs.isEmpty() && loader.hasData(changedGraphs)) {
+                outdated = true;
+                return false;
+            }
+        } catch (DAOException e) {
+            LOGGER.warn("Failed to check the changed graphs for observation dimension data", e);
+            return false;
+        }
+
+        checkedStoreVersion = storeVersion;
+        return true;
+    }
+
+    /**
+     * Returns the values of the given filter that observations matching the selections of the preceding filters have, with the
+     * values' labels, ordered by the labels. Same as the result of the triple store query of
+     * {@link eionet.cr.dao.ScoreboardSparqlDAO#getFilterValues(Map, ObservationFilter, boolean)}.
+     *
+     * @param selections Selected values by filters, a blank value requires any value. If null or empty, all observations
+     *            having a value for the given filter are matched.
+     * @param filter The filter.
+     * @param isAdmin If false, observations of datasets that are not completed are skipped, unless a dataset is selected.
+     * @return The values and labels, as a new modifiable list.
+     */
+    public List<Pair<String, String>> getFilterValues(Map<ObservationFilter, String> selections, ObservationFilter filter,
+            boolean isAdmin) {
+
+        ObservationFilter[] filters = ObservationFilter.values();
+        int target = filter.ordinal();
+        int[] required = new int[target];
+        for (int i = 0; i < target; i++) {
+
+            String selValue = selections == null ? null : selections.get(filters[i]);
+            if (selections == null || selections.isEmpty()) {
+                required[i] = UNCONSTRAINED;
+            } else if (StringUtils.isBlank(selValue)) {
+                required[i] = BOUND;
+            } else {
+                Integer id = ids.get(i).get(selValue);
+                if (id == null) {
+                    return new ArrayList<Pair<String, String>>();
+                }
+                required[i] = id;
+            }
+        }
+
+        int datasetIndex = ObservationFilter.DATASET.ordinal();
+        boolean completedOnly =
+                !isAdmin && (target == datasetIndex || (datasetIndex < target && required[datasetIndex] == BOUND));
+
+        BitSet found = new BitSet();
+        int[] targetColumn = columns[target];
+        for (int row = 0; row < size; row++) {
+
+            int valueId = targetColumn[row];
+            if (valueId == NONE || found.get(valueId) || !matches(row, required)) {
+                continue;
+            }
+            if (completedOnly) {
+                int datasetId = columns[datasetIndex][row];
+                if (datasetId == NONE || !completedDatasets.get(datasetId)) {
+                    continue;
+                }
+            }
+            found.set(valueId);
+        }
+
+        List<Pair<String, String>> result = new ArrayList<Pair<String, String>>(found.cardinality());
+        for (int id = found.nextSetBit(0); id >= 0; id = found.nextSetBit(id + 1)) {
+            result.add(new Pair<String, String>(values[target][id], labels[target][id]));
+        }
+        Collections.sort(result, new Comparator<Pair<String, String>>() {
+            @Override
+            public int compare(Pair<String, String> o1, Pair<String, String> o2) {
+                return o1.getRight().compareTo(o2.getRight());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @param row A combination.
+     * @param required Required value ids of the preceding dimensions.
+     * @return True if the combination has the required values.
+     */
+    private boolean matches(int row, int[] required) {
+
+        for (int i = 0; i < required.length; i++) {
+            int valueId = columns[i][row];
+            if (required[i] == BOUND ? valueId == NONE : required[i] != UNCONSTRAINED && required[i] != valueId) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Loads the data of the index from the triple store.
+     */
+    public interface Loader {
+
+        /**
+         * Loads the graphs, dimension value combinations, labels and completed datasets into a new builder.
+         *
+         * @param limit Maximum number of combinations to load, 0 for all.
+         * @return The builder.
+         * @throws DAOException if a query fails.
+         */
+        Builder load(int limit) throws DAOException;
+
+        /**
+         * @param graphUris URIs of graphs.
+         * @return True if any of the given graphs has observations, dimension value labels or dataset statuses.
+         * @throws DAOException if the query fails.
+         */
+        boolean hasData(Collection<String> graphUris) throws DAOException;
+    }
+
+    /**
+     * Collects the combinations, labels and completed datasets that an index is built of.
+     */
+    public static class Builder {
+
+        /** */
+        private final Set<String> graphs = new HashSet<String>();
+
+        /** */
+        private String graphVersions = "";
+
+        /** */
+        private final List<Map<String, Integer>> ids = new ArrayList<Map<String, Integer>>();
+
+        /** */
+        private final List<List<String>> values = new ArrayList<List<String>>();
+
+        /** */
+        private final Map<String, String> labels = new HashMap<String, String>();
+
+        /** */
+        private final List<String> completedDatasets = new ArrayList<String>();
+
+        /** */
+        private int[][] columns;
+
+        /** */
+        private int size;
+
+        /**
+         * Class constructor.
+         */
+        public Builder() {
+
+            int dimensions = ObservationFilter.values().length;
+            columns = new int[dimensions][1024];
+            for (int i = 0; i < dimensions; i++) {
+                ids.add(new HashMap<String, Integer>());
+                values.add(new ArrayList<String>());
+            }
+        }
+
+        /**
+         * Sets the graphs that the index data is loaded from, and takes their current versions. Must be called before loading
+         * the data, so that changes during the loading outdate the index.
+         *
+         * @param graphUris URIs of the graphs.
+         */
+        public void setGraphs(Collection<String> graphUris) {
+
+            graphs.clear();
+            graphs.addAll(graphUris);
+            graphVersions = SPARQLResultCache.getGraphVersions(graphs);
+        }
+
+        /**
+         * Adds a combination of dimension values.
+         *
+         * @param combination Values of the dimensions in the order of {@link ObservationFilter}, null where there is none.
+         */
+        public void addCombination(String[] combination) {
+
+            if (size == columns[0].length) {
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = Arrays.copyOf(columns[i], size * 2);
+                }
+            }
+            for (int i = 0; i < columns.length; i++) {
+                columns[i][size] = combination[i] == null ? NONE : getId(i, combination[i]);
+            }
+            size++;
+        }
+
+        /**
+         * Sets the label of a dimension value. Values without a label are labelled by themselves.
+         *
+         * @param value The value.
+         * @param label The label.
+         */
+        public void setLabel(String value, String label) {
+            labels.put(value, label);
+        }
+
+        /**
+         * Marks the given dataset as completed.
+         *
+         * @param datasetUri URI of the dataset.
+         */
+        public void addCompletedDataset(String datasetUri) {
+            completedDatasets.add(datasetUri);
+        }
+
+        /**
+         * @param storeVersion Store version when the loading of the data started.
+         * @return The index.
+         */
+        public ObservationDimensionIndex build(long storeVersion) {
+            return new ObservationDimensionIndex(this, storeVersion);
+        }
+
+        /**
+         * @param dimension Index of the dimension.
+         * @param value The value.
+         * @return Id of the value in the dimension's dictionary, added if new.
+         */
+        private int getId(int dimension, String value) {
+
+            Integer id = ids.get(dimension).get(value);
+            if (id == null) {
+                id = values.get(dimension).size();
+                ids.get(dimension).put(value, id);
+                values.get(dimension).add(value);
+            }
+            return id;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
@@ -24,6 +25,8 @@ import org.openrdf.repository.RepositoryResult;
 import eionet.cr.dao.DAOException;
 import eionet.cr.dao.helpers.SearchHelper;
 import eionet.cr.dao.readers.SubjectDataReader;
+import eionet.cr.dao.readers.SubjectsPageReader;
+import eionet.cr.dao.util.MatchCountCache;
 import eionet.cr.dto.ObjectDTO;
 import eionet.cr.dto.SubjectDTO;
 import eionet.cr.util.Bindings;
@@ -289,6 +292,70 @@ public abstract class VirtuosoBaseDAO {
         return resultList;
     }
 
+    /**
+     * Returns the page of subjects found by the given subject finder query together with the given predicates of these subjects,
+     * in one query, instead of first finding the subjects and then calling {@link #getFoundSubjectsData(List, String[])}. See
+     * {@link SubjectsPageReader} for how the subjects are read. Finder queries whose ordering the one query would lose still
+     * take the two queries, see {@link SubjectsPageReader#isOrderKept(String)}.
+     *
+     * @param finderQuery The query that finds the page of subjects into variable "s".
+     * @param finderBindings Bindings of the finder query, may be null. Not modified by this method.
+     * @param predicateUris The list of URIs of predicates to query for, null or empty for all predicates.
+     * @return The found subjects, in the order they were found.
+     * @throws DAOException If any sort of data access error occurs.
+     */
+    protected List<SubjectDTO> getFoundSubjectsPage(String finderQuery, Bindings finderBindings, String[] predicateUris)
+            throws DAOException {
+
+        if (!SubjectsPageReader.isOrderKept(finderQuery)) {
+
+            SingleObjectReader<String> matchReader = new SingleObjectReader<String>();
+            matchReader.setBlankNodeUriPrefix(BNODE_URI_PREFIX);
+            List<String> subjectUris = executeSPARQL(finderQuery, finderBindings, matchReader);
+            if (subjectUris == null || subjectUris.isEmpty()) {
+                return new ArrayList<SubjectDTO>();
+            }
+            return getFoundSubjectsData(subjectUris, predicateUris);
+        }
+
+        SubjectsPageReader reader = new SubjectsPageReader(predicateUris);
+        Bindings bindings = finderBindings == null ? new Bindings() : finderBindings.copy();
+        String query = reader.getQuery(finderQuery, bindings);
+        executeSPARQL(query, bindings, reader);
+        return reader.getResultList();
+    }
+
+    /**
+     * Returns the total number of rows retrieved by the query constructed in SearchHelper, memoized by {@link MatchCountCache}.
+     *
+     * @param helper SearchHelper object.
+     * @return number of rows, or null if the rows are still being counted and an estimate should be shown instead
+     * @throws DAOException
+     */
+    protected Integer getMemoizedRowCount(SearchHelper helper) throws DAOException {
+
+        return getMemoizedCount(helper.getCountQuery(new ArrayList<Object>()), helper.getQueryBindings());
+    }
+
+    /**
+     * Returns the result of the given count query, memoized by {@link MatchCountCache}.
+     *
+     * @param countQuery Query that selects a single count.
+     * @param bindings Bindings of the query, may be null.
+     * @return The count, or null if it is still being computed and an estimate should be shown instead.
+     * @throws DAOException
+     */
+    protected Integer getMemoizedCount(final String countQuery, final Bindings bindings) throws DAOException {
+
+        return MatchCountCache.getCount(countQuery, bindings, new Callable<Integer>() {
+            @Override
+            public Integer call() throws DAOException {
+                Object resultObject = executeUniqueResultSPARQL(countQuery, bindings, new SingleObjectReader<Object>());
+                return resultObject == null ? 0 : Integer.valueOf(resultObject.toString());
+            }
+        });
+    }
+
     /**
      * Count the total number of rows retrieved by the query constructed in SearchHelper.
      *
@@ -21,16 +21,23 @@
 package eionet.cr.dao.virtuoso;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import eionet.cr.dao.DAOException;
 import eionet.cr.dao.HarvestDAO;
 import eionet.cr.dao.readers.HarvestDTOReader;
+import eionet.cr.dao.readers.HarvestPhaseReader;
+import eionet.cr.dao.readers.HarvestProfileReader;
 import eionet.cr.dao.readers.HarvestStatReader;
 import eionet.cr.dao.readers.HarvestWithMessageTypesReader;
 import eionet.cr.dto.HarvestDTO;
+import eionet.cr.dto.HarvestPhaseDTO;
+import eionet.cr.dto.HarvestProfileDTO;
 import eionet.cr.dto.HarvestStatDTO;
 import eionet.cr.harvest.HarvestConstants;
 import eionet.cr.harvest.util.HarvestMessageType;
@@ -68,6 +75,26 @@ public class VirtuosoHarvestDAO extends VirtuosoBaseDAO implements HarvestDAO {
     private static final String DELETE_HARVESTS_OLDER_THAN_LAST_10_SQL = "DELETE FROM harvest WHERE started < (SELECT TOP 1 started FROM ("
             + "SELECT TOP 10 harvest_id, started FROM harvest WHERE harvest_source_id=? ORDER BY started desc) as A ORDER BY STARTED asc)";
 
+    /** */
+    private static final String INSERT_HARVEST_PHASE_SQL =
+            "insert into HARVEST_PHASE (HARVEST_ID, PHASE, DURATION_US, BYTES, TRIPLES) values (?, ?, ?, ?, ?)";
+
+    /** The list of harvest ids in parentheses is to be appended. */
+    private static final String GET_HARVEST_PHASES_SQL = "select * from HARVEST_PHASE where HARVEST_ID in ";
+
+    /**
+     * A harvest found changed content if the server returned 200 and the content was loaded. Harvests that found the content
+     * unchanged by its digest have a download phase but no loading phase. Harvests recorded before the phases were introduced
+     * have no phases at all, and are considered changed. The list of source ids in parentheses is to be appended.
+     */
+    private static final String GET_HARVEST_PROFILES_SQL = "select H.HARVEST_SOURCE_ID as SOURCE_ID, count(*) as HARVESTS,"
+            + " sum(case when H.HTTP_CODE = 200 and (exists (select 1 from HARVEST_PHASE P where P.HARVEST_ID = H.HARVEST_ID"
+            + " and P.PHASE = 'LOADING') or not exists (select 1 from HARVEST_PHASE P where P.HARVEST_ID = H.HARVEST_ID))"
+            + " then 1 else 0 end) as CHANGED_HARVESTS,"
+            + " avg(cast(datediff('second', H.STARTED, H.FINISHED) as float)) as AVG_SECONDS,"
+            + " avg(H.TOT_STATEMENTS) as AVG_STATEMENTS"
+            + " from HARVEST H where H.STATUS = ? and H.FINISHED is not null and H.HARVEST_SOURCE_ID in ";
+
     /**
      * {@inheritDoc}
      */
@@ -160,7 +187,80 @@ public class VirtuosoHarvestDAO extends VirtuosoBaseDAO implements HarvestDAO {
 
         List<Object> values = new ArrayList<Object>();
         values.add(HarvestConstants.STATUS_FINISHED);
-        return executeSQL(getHarvestStatsSQL, values, new HarvestStatReader());
+        List<HarvestStatDTO> harvestStats = executeSQL(getHarvestStatsSQL, values, new HarvestStatReader());
+        if (harvestStats == null || harvestStats.isEmpty()) {
+            return harvestStats;
+        }
+
+        // Attach the phases of the harvests, fetched in one query.
+        Map<Integer, HarvestStatDTO> harvestStatsById = new HashMap<Integer, HarvestStatDTO>();
+        StringBuilder sql = new StringBuilder(GET_HARVEST_PHASES_SQL).append("(");
+        for (HarvestStatDTO harvestStat : harvestStats) {
+            sql.append(harvestStatsById.isEmpty() ? "" : ",").append(harvestStat.getHarvestId());
+            harvestStatsById.put(harvestStat.getHarvestId(), harvestStat);
+        }
+        sql.append(")");
+
+        for (HarvestPhaseDTO phase : executeSQL(sql.toString(), null, new HarvestPhaseReader())) {
+            HarvestStatDTO harvestStat = harvestStatsById.get(phase.getHarvestId());
+            if (harvestStat != null) {
+                harvestStat.getPhases().put(phase.getPhase(), phase);
+            }
+        }
+        return harvestStats;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insertHarvestPhases(int harvestId, List<HarvestPhaseDTO> phases) throws DAOException {
+
+        if (phases == null || phases.isEmpty()) {
+            return;
+        }
+
+        PreparedStatement ps = null;
+        Connection conn = null;
+        try {
+            conn = getSQLConnection();
+            ps = conn.prepareStatement(INSERT_HARVEST_PHASE_SQL);
+            for (HarvestPhaseDTO phase : phases) {
+                ps.setInt(1, harvestId);
+                ps.setString(2, phase.getPhase());
+                ps.setLong(3, phase.getDurationMicros());
+                ps.setLong(4, phase.getBytes());
+                ps.setInt(5, phase.getTriples());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (Exception e) {
+            throw new DAOException(e.getMessage(), e);
+        } finally {
+            SQLUtil.close(ps);
+            SQLUtil.close(conn);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<HarvestProfileDTO> getHarvestProfiles(List<Integer> sourceIds) throws DAOException {
+
+        if (sourceIds == null || sourceIds.isEmpty()) {
+            return new ArrayList<HarvestProfileDTO>();
+        }
+
+        StringBuilder sql = new StringBuilder(GET_HARVEST_PROFILES_SQL).append("(");
+        for (int i = 0; i < sourceIds.size(); i++) {
+            sql.append(i == 0 ? "" : ",").append(sourceIds.get(i).intValue());
+        }
+        sql.append(") group by H.HARVEST_SOURCE_ID");
+
+        List<Object> values = new ArrayList<Object>();
+        values.add(HarvestConstants.STATUS_FINISHED);
+        return executeSQL(sql.toString(), values, new HarvestProfileReader());
     }
 
     /**
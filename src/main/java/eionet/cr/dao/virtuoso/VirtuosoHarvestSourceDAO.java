@@ -21,6 +21,7 @@ import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.time.DateUtils;
@@ -33,6 +34,7 @@ import org.openrdf.model.Value;
 import org.openrdf.model.ValueFactory;
 import org.openrdf.repository.RepositoryConnection;
 import org.openrdf.repository.RepositoryException;
+import org.openrdf.repository.RepositoryResult;
 import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFParseException;
 
@@ -48,13 +50,18 @@ import eionet.cr.dto.ObjectDTO;
 import eionet.cr.dto.SubjectDTO;
 import eionet.cr.harvest.BaseHarvest;
 import eionet.cr.harvest.load.ContentLoader;
+import eionet.cr.harvest.load.IncrementalRDFFormatLoader;
+import eionet.cr.harvest.load.TripleSpool;
 import eionet.cr.harvest.statistics.dto.HarvestedUrlCountDTO;
+import eionet.cr.harvest.util.HarvestPhaseTimer;
+import eionet.cr.harvest.util.HarvestPhaseTimer.Phase;
 import eionet.cr.util.Bindings;
 import eionet.cr.util.Hashes;
 import eionet.cr.util.Pair;
 import eionet.cr.util.SortingRequest;
 import eionet.cr.util.YesNoBoolean;
 import eionet.cr.util.pagination.PagingRequest;
+import eionet.cr.util.sesame.SPARQLResultCache;
 import eionet.cr.util.sesame.SesameUtil;
 import eionet.cr.util.sql.SQLUtil;
 import eionet.cr.util.sql.SingleObjectReader;
@@ -69,6 +76,12 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
 
     /**  */
     private static final String BACKUP_GRAPH_SUFFIX = "_backup";
+
+    /**
+     * Maximum number of removed plus added triples, relative to the number of triples in the new content, for which an incremental
+     * load still updates the graph statement by statement rather than reloading it fully.
+     */
+    private static final double MAX_INCREMENTAL_CHANGE_RATIO = 0.5;
     /** */
     private static final String GET_SOURCES_SQL =
             "SELECT<pagingParams> * FROM HARVEST_SOURCE WHERE URL NOT IN (SELECT URL FROM REMOVE_SOURCE_QUEUE) ";
@@ -116,8 +129,8 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
      * exists then don't insert (like MySQL INSERT IGNORE)
      */
     private static final String ADD_SOURCE_SQL = "insert soft HARVEST_SOURCE ("
-            + "URL,URL_HASH,EMAILS,TIME_CREATED,INTERVAL_MINUTES,PRIORITY_SOURCE,SOURCE_OWNER,MEDIA_TYPE,IS_SPARQL_ENDPOINT,COUNT_UNAVAIL,STATEMENTS) "
-            + "VALUES (?,?,?,NOW(),?,?,?,?,?,0,0)";
+            + "URL,URL_HASH,EMAILS,TIME_CREATED,INTERVAL_MINUTES,PRIORITY_SOURCE,SOURCE_OWNER,MEDIA_TYPE,IS_SPARQL_ENDPOINT,BULK_LOAD,"
+            + "INCREMENTAL_LOAD,COUNT_UNAVAIL,STATEMENTS) VALUES (?,?,?,NOW(),?,?,?,?,?,?,?,0,0)";
     /** */
     private static final String DELETE_HARVEST_SOURCES = "delete from HARVEST_SOURCE where URL_HASH=?";
     /** */
@@ -405,6 +418,8 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
             }
             ps.setString(7, source.getMediaType());
             ps.setString(8, YesNoBoolean.format(source.isSparqlEndpoint()));
+            ps.setString(9, YesNoBoolean.format(source.isBulkLoad()));
+            ps.setString(10, YesNoBoolean.format(source.isIncrementalLoad()));
 
             ps.executeUpdate();
             ps = conn.prepareStatement("select identity_value()");
@@ -529,7 +544,8 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
 
     /** */
     private static final String EDIT_SOURCE_SQL = "update HARVEST_SOURCE set URL=?, URL_HASH=?, EMAILS=?, INTERVAL_MINUTES=?,"
-            + " PRIORITY_SOURCE=?, SOURCE_OWNER=?, MEDIA_TYPE=?, IS_SPARQL_ENDPOINT=? where HARVEST_SOURCE_ID=?";
+            + " PRIORITY_SOURCE=?, SOURCE_OWNER=?, MEDIA_TYPE=?, IS_SPARQL_ENDPOINT=?, BULK_LOAD=?, INCREMENTAL_LOAD=?"
+            + " where HARVEST_SOURCE_ID=?";
 
     /*
      * (non-Javadoc)
@@ -548,6 +564,8 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
         values.add(source.getOwner());
         values.add(source.getMediaType());
         values.add(YesNoBoolean.format(source.isSparqlEndpoint()));
+        values.add(YesNoBoolean.format(source.isBulkLoad()));
+        values.add(YesNoBoolean.format(source.isIncrementalLoad()));
         values.add(source.getSourceId());
 
         Connection conn = null;
@@ -615,12 +633,27 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
      */
     @Override
     public List<HarvestSourceDTO> getNextScheduledSources(int limit) throws DAOException {
+        return getNextScheduledSources(0, limit);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.dao.HarvestSourceDAO#getNextScheduledSources(int, int)
+     */
+    @Override
+    public List<HarvestSourceDTO> getNextScheduledSources(int offset, int limit) throws DAOException {
 
         if (limit < 1) {
             throw new IllegalArgumentException("Limit must be >=1 ");
         }
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must be >=0 ");
+        }
 
-        String query = GET_NEXT_SCHEDULED_SOURCES_SQL.replace("<limit>", String.valueOf(limit));
+        // Virtuoso's "top <skip>, <count>" form pages through the result.
+        String top = offset > 0 ? offset + ", " + limit : String.valueOf(limit);
+        String query = GET_NEXT_SCHEDULED_SOURCES_SQL.replace("<limit>", top);
         query = query.replace("<seconds_since_last_harvest>", SECONDS_SINCE_LAST_HARVEST_EXPR);
         query = query.replace("<harvest_interval_seconds>", HARVEST_INTERVAL_SECONDS_EXPR);
         return executeSQL(query, Collections.EMPTY_LIST, new HarvestSourceDTOReader());
@@ -773,8 +806,8 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
     /** */
     private static final String UPDATE_SOURCE_HARVEST_FINISHED_SQL = "update HARVEST_SOURCE "
             + "set EMAILS=?, STATEMENTS=?, COUNT_UNAVAIL=?, LAST_HARVEST=?, INTERVAL_MINUTES=?, "
-            + "LAST_HARVEST_FAILED=?, PRIORITY_SOURCE=?, SOURCE_OWNER=?, PERMANENT_ERROR=?, LAST_HARVEST_ID=? "
-            + "where URL_HASH=?";
+            + "LAST_HARVEST_FAILED=?, PRIORITY_SOURCE=?, SOURCE_OWNER=?, PERMANENT_ERROR=?, LAST_HARVEST_ID=?, ETAG=?, "
+            + "CONTENT_DIGEST=? where URL_HASH=?";
 
     /*
      * (non-Javadoc)
@@ -804,6 +837,8 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
         values.add(sourceDTO.getOwner());
         values.add(YesNoBoolean.format(sourceDTO.isPermanentError()));
         values.add(sourceDTO.getLastHarvestId());
+        values.add(sourceDTO.getEtag());
+        values.add(sourceDTO.getContentDigest());
         values.add(Hashes.spoHash(sourceDTO.getUrl()));
 
         Connection conn = null;
@@ -850,6 +885,10 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
             repoConn.commit();
             sqlConn.commit();
 
+            // Cached results of queries reading the removed graphs or the sources' metadata are no longer valid.
+            SPARQLResultCache.invalidate(sourceUrls);
+            SPARQLResultCache.invalidate(GeneralConfig.HARVESTER_URI);
+
         } catch (RepositoryException e) {
             SesameUtil.rollback(repoConn);
             SQLUtil.rollback(sqlConn);
@@ -878,6 +917,7 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
             conn.setAutoCommit(false);
             conn.clear(conn.getValueFactory().createURI(graphUri));
             conn.commit();
+            SPARQLResultCache.invalidate(graphUri);
         } catch (RepositoryException e) {
             SesameUtil.rollback(conn);
             throw new DAOException("Repository exception when clearing graph " + graphUri, e);
@@ -1415,12 +1455,13 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
     }
 
     @Override
-    public int loadContent(File file, ContentLoader contentLoader, String graphUri) throws DAOException {
+    public int loadContent(File file, ContentLoader contentLoader, String graphUri, HarvestPhaseTimer phaseTimer)
+            throws DAOException {
 
         InputStream inputStream = null;
         try {
             inputStream = new FileInputStream(file);
-            return loadContent(inputStream, contentLoader, graphUri);
+            return loadContent(inputStream, contentLoader, graphUri, phaseTimer);
 
         } catch (FileNotFoundException e) {
             throw new DAOException(e.getMessage(), e);
@@ -1432,10 +1473,12 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
     /*
      * (non-Javadoc)
      *
-     * @see eionet.cr.dao.HarvestSourceDAO#loadContent(java.io.InputStream, eionet.cr.harvest.load.ContentLoader, java.lang.String)
+     * @see eionet.cr.dao.HarvestSourceDAO#loadContent(java.io.InputStream, eionet.cr.harvest.load.ContentLoader, java.lang.String,
+     * eionet.cr.harvest.util.HarvestPhaseTimer)
      */
     @Override
-    public int loadContent(InputStream inputStream, ContentLoader contentLoader, String graphUri) throws DAOException {
+    public int loadContent(InputStream inputStream, ContentLoader contentLoader, String graphUri, HarvestPhaseTimer phaseTimer)
+            throws DAOException {
 
         // Prepare connections (repository and SQL).
         RepositoryConnection repoConn = null;
@@ -1455,6 +1498,7 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
         URI backupGraphResource = repoConn.getValueFactory().createURI(backupGraphUri);
 
         int triplesLoaded = 0;
+        long swapStarted = HarvestPhaseTimer.start();
         try {
             // Ensure there is no backup graph left from previous harvests.
             // Note that Virtuoso's Sesame driver clears graphs in auto-commit by force, even if you set auto-commit to false.
@@ -1473,6 +1517,9 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
             } catch (Exception e) {
                 throw new DAOException("Failed to rename original graph to " + backupGraphUri, e);
             }
+            if (phaseTimer != null) {
+                phaseTimer.stop(Phase.GRAPH_SWAP, swapStarted);
+            }
 
             // Load triples into the "original" graph.
             try {
@@ -1515,12 +1562,16 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
             }
 
             // Content successfully loaded, clear the backup graph created two steps ago.
+            swapStarted = HarvestPhaseTimer.start();
             try {
                 LOGGER.debug(BaseHarvest.loggerMsg("Clearing backup graph", backupGraphUri));
                 SesameUtil.executeSPARUL("clear graph <" + backupGraphResource.stringValue() + ">", null, repoConn);
             } catch (Exception e) {
                 throw new DAOException("Failed clearing backup graph" + backupGraphUri, e);
             }
+            if (phaseTimer != null) {
+                phaseTimer.stop(Phase.GRAPH_SWAP, swapStarted);
+            }
         } finally {
             // Ensure connections will be closed regardless of success or exceptions.
             SQLUtil.close(sqlConn);
@@ -1531,6 +1582,182 @@ public class VirtuosoHarvestSourceDAO extends VirtuosoBaseDAO implements Harvest
         return triplesLoaded;
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.dao.HarvestSourceDAO#loadContentIncrementally(java.io.File,
+     * eionet.cr.harvest.load.IncrementalRDFFormatLoader, java.lang.String, eionet.cr.harvest.util.HarvestPhaseTimer)
+     */
+    @Override
+    public int loadContentIncrementally(File file, IncrementalRDFFormatLoader contentLoader, String graphUri,
+            HarvestPhaseTimer phaseTimer) throws DAOException {
+
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            return loadContentIncrementally(inputStream, contentLoader, graphUri, phaseTimer);
+
+        } catch (FileNotFoundException e) {
+            throw new DAOException(e.getMessage(), e);
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.dao.HarvestSourceDAO#loadContentIncrementally(java.io.InputStream,
+     * eionet.cr.harvest.load.IncrementalRDFFormatLoader, java.lang.String, eionet.cr.harvest.util.HarvestPhaseTimer)
+     */
+    @Override
+    public int loadContentIncrementally(InputStream inputStream, IncrementalRDFFormatLoader contentLoader, String graphUri,
+            HarvestPhaseTimer phaseTimer) throws DAOException {
+
+        RepositoryConnection repoConn = null;
+        Connection sqlConn = null;
+        TripleSpool incoming = null;
+        TripleSpool existing = null;
+        File sortedIncoming = null;
+        File sortedExisting = null;
+        String fullReloadReason = null;
+        int triplesParsed = 0;
+        try {
+            repoConn = SesameUtil.getRepositoryConnection();
+            sqlConn = SesameUtil.getSQLConnection();
+            URI graphResource = repoConn.getValueFactory().createURI(graphUri);
+
+            // Parse the new content into a spool, the graph is not touched yet.
+            LOGGER.debug(BaseHarvest.loggerMsg("Spooling new content of", graphUri));
+            triplesParsed = contentLoader.load(inputStream, repoConn, sqlConn, graphUri, graphUri);
+            incoming = contentLoader.getSpool();
+
+            // Spool the graph's current content.
+            if (incoming.hasBNodes()) {
+                fullReloadReason = "new content has blank nodes";
+            } else {
+                existing = new TripleSpool();
+                RepositoryResult<org.openrdf.model.Statement> statements =
+                        repoConn.getStatements(null, null, null, false, graphResource);
+                try {
+                    while (statements.hasNext()) {
+                        existing.add(statements.next());
+                    }
+                } finally {
+                    statements.close();
+                }
+                existing.close();
+                if (existing.hasBNodes()) {
+                    fullReloadReason = "current content has blank nodes";
+                }
+            }
+
+            if (fullReloadReason == null) {
+
+                // Count the differences between the sorted spools.
+                sortedIncoming = incoming.sort();
+                sortedExisting = existing.sort();
+                final int[] counts = new int[2];
+                TripleSpool.diff(sortedExisting, sortedIncoming, new TripleSpool.DiffHandler() {
+                    @Override
+                    public void removed(String line) {
+                        counts[0]++;
+                    }
+
+                    @Override
+                    public void added(String line) {
+                        counts[1]++;
+                    }
+                });
+
+                LOGGER.debug(BaseHarvest.loggerMsg(counts[0] + " triples to remove and " + counts[1] + " to add in", graphUri));
+                if (counts[0] + counts[1] > incoming.size() * MAX_INCREMENTAL_CHANGE_RATIO) {
+                    fullReloadReason = "too many changes (" + counts[0] + " removed, " + counts[1] + " added)";
+                } else if (counts[0] + counts[1] > 0) {
+                    applyDifferences(repoConn, graphResource, sortedExisting, sortedIncoming);
+                }
+            }
+        } catch (Exception e) {
+            // The loader's spool is there also if the loading itself failed.
+            TripleSpool spool = incoming != null ? incoming : contentLoader.getSpool();
+            if (spool != null) {
+                spool.delete();
+            }
+            throw new DAOException("Failed incremental content loading of " + graphUri, e);
+        } finally {
+            SQLUtil.close(sqlConn);
+            SesameUtil.close(repoConn);
+            if (existing != null) {
+                existing.delete();
+            }
+            FileUtils.deleteQuietly(sortedIncoming);
+            FileUtils.deleteQuietly(sortedExisting);
+        }
+
+        // If the incremental update was not possible or not worth it, do the full reload from the spool,
+        // which is valid N-Triples.
+        try {
+            if (fullReloadReason != null) {
+                LOGGER.debug(BaseHarvest.loggerMsg("Reloading fully, as " + fullReloadReason + ":", graphUri));
+                loadContent(incoming.getFile(), contentLoader.createFullReloadLoader(), graphUri, phaseTimer);
+            }
+        } finally {
+            incoming.delete();
+        }
+
+        return triplesParsed;
+    }
+
+    /**
+     * Removes the triples that are only in the given existing sorted spool from the given graph, and then adds the triples that
+     * are only in the given incoming sorted spool. Removals go first, so that a triple which the store considers equal to a
+     * removed one, but spooled in a different form, is not removed right after being added.
+     *
+     * @param repoConn Repository connection.
+     * @param graph The graph.
+     * @param sortedExisting The sorted spool of the graph's current content.
+     * @param sortedIncoming The sorted spool of the new content.
+     * @throws OpenRDFException
+     * @throws IOException
+     */
+    private void applyDifferences(final RepositoryConnection repoConn, final URI graph, File sortedExisting, File sortedIncoming)
+            throws OpenRDFException, IOException {
+
+        final ValueFactory valueFactory = repoConn.getValueFactory();
+        try {
+            repoConn.setAutoCommit(false);
+            TripleSpool.diff(sortedExisting, sortedIncoming, new TripleSpool.DiffHandler() {
+                @Override
+                public void removed(String line) throws OpenRDFException {
+                    repoConn.remove(TripleSpool.parseLine(line, valueFactory), graph);
+                }
+
+                @Override
+                public void added(String line) {
+                }
+            });
+            TripleSpool.diff(sortedExisting, sortedIncoming, new TripleSpool.DiffHandler() {
+                @Override
+                public void removed(String line) {
+                }
+
+                @Override
+                public void added(String line) throws OpenRDFException {
+                    repoConn.add(TripleSpool.parseLine(line, valueFactory), graph);
+                }
+            });
+            repoConn.commit();
+            repoConn.setAutoCommit(true);
+        } catch (OpenRDFException e) {
+            // Ignored if the Virtuoso connection URL has log_enable=2 or log_enable=3.
+            SesameUtil.rollback(repoConn);
+            throw e;
+        } catch (IOException e) {
+            SesameUtil.rollback(repoConn);
+            throw e;
+        }
+    }
+
     /**
      * Replace graph URI with new one.
      *
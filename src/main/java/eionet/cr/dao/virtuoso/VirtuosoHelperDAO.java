@@ -56,6 +56,7 @@ import eionet.cr.dao.readers.SPOReader;
 import eionet.cr.dao.readers.SubPropertiesReader;
 import eionet.cr.dao.readers.TriplesReader;
 import eionet.cr.dao.readers.UploadDTOReader;
+import eionet.cr.dao.util.FactsheetCache;
 import eionet.cr.dao.util.PredicateLabels;
 import eionet.cr.dao.util.SubProperties;
 import eionet.cr.dao.util.UriLabelPair;
@@ -82,6 +83,7 @@ import eionet.cr.util.URLUtil;
 import eionet.cr.util.Util;
 import eionet.cr.util.pagination.PagingRequest;
 import eionet.cr.util.sesame.SPARQLQueryUtil;
+import eionet.cr.util.sesame.SPARQLResultCache;
 import eionet.cr.util.sesame.SPARQLResultSetReader;
 import eionet.cr.util.sesame.SesameUtil;
 import eionet.cr.util.sql.PairReader;
@@ -269,6 +271,7 @@ public class VirtuosoHelperDAO extends VirtuosoBaseDAO implements HelperDAO {
     @Override
     public void addTriples(RepositoryConnection conn, SubjectDTO subjectDTO) throws DAOException, RepositoryException {
         URI sub = conn.getValueFactory().createURI(subjectDTO.getUri());
+        Set<String> sourceUris = new HashSet<String>();
 
         for (String predicateUri : subjectDTO.getPredicateUris()) {
             URI pred = conn.getValueFactory().createURI(predicateUri);
@@ -279,6 +282,7 @@ public class VirtuosoHelperDAO extends VirtuosoBaseDAO implements HelperDAO {
 
                     String sourceUri = object.getSourceUri();
                     URI source = conn.getValueFactory().createURI(sourceUri);
+                    sourceUris.add(sourceUri);
 
                     if (object.isLiteral()) {
                         // Literal can't have both language and type
@@ -296,6 +300,7 @@ public class VirtuosoHelperDAO extends VirtuosoBaseDAO implements HelperDAO {
                 }
             }
         }
+        SPARQLResultCache.invalidate(sourceUris);
     }
 
     /*
@@ -327,6 +332,9 @@ public class VirtuosoHelperDAO extends VirtuosoBaseDAO implements HelperDAO {
         } finally {
             SesameUtil.close(conn);
         }
+        if (ret > 0) {
+            SPARQLResultCache.invalidate(context);
+        }
         return ret;
     }
 
@@ -1068,6 +1076,7 @@ public class VirtuosoHelperDAO extends VirtuosoBaseDAO implements HelperDAO {
         } finally {
             SQLUtil.close(stmt);
         }
+        SPARQLResultCache.invalidate(graph.stringValue());
     }
 
     /*
@@ -1557,6 +1566,10 @@ public class VirtuosoHelperDAO extends VirtuosoBaseDAO implements HelperDAO {
             "group by ?obj \n" +
             "order by ?lbl limit " + PredicateObjectsReader.PREDICATE_PAGE_SIZE + " offset ";
 
+    /** */
+    private static final String GET_SUBJECT_GRAPHS =
+            "select distinct ?g where {graph ?g {?s ?p ?o. filter(?s=iri(?subjectUri))}}";
+
     // @formatter:on
 
     /*
@@ -1581,6 +1594,16 @@ public class VirtuosoHelperDAO extends VirtuosoBaseDAO implements HelperDAO {
         Bindings bindings = new Bindings();
         bindings.setString("subjectUri", subjectUri);
 
+        String cacheKey = null;
+        if (FactsheetCache.isEnabled()) {
+            List<String> graphUris = executeSPARQL(GET_SUBJECT_GRAPHS, bindings, new SingleObjectReader<String>());
+            cacheKey = FactsheetCache.getKey(subjectUri, acceptedLanguages, predicatePages, graphUris);
+            FactsheetDTO cached = FactsheetCache.get(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         FactsheetReader factsheetReader = new FactsheetReader(subjectUri);
         executeSPARQL(query, bindings, factsheetReader);
         FactsheetDTO factsheetDTO = factsheetReader.getFactsheetDTO();
@@ -1608,6 +1631,10 @@ public class VirtuosoHelperDAO extends VirtuosoBaseDAO implements HelperDAO {
                     }
                 }
             }
+
+            if (cacheKey != null) {
+                FactsheetCache.put(cacheKey, factsheetDTO);
+            }
         }
 
         return factsheetDTO;
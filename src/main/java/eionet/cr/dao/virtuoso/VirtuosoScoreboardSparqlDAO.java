@@ -32,9 +32,13 @@ import org.openrdf.repository.RepositoryException;
 import eionet.cr.common.Predicates;
 import eionet.cr.common.Subjects;
 import eionet.cr.dao.readers.CodelistExporter;
+import eionet.cr.dao.readers.ObservationDimensionsReader;
 import eionet.cr.dao.readers.SkosItemsReader;
+import eionet.cr.dao.util.MatchCountCache;
+import eionet.cr.dao.util.ObservationDimensionIndex;
 import eionet.cr.util.pagination.PagingRequest;
 import eionet.cr.util.sesame.SPARQLQueryUtil;
+import eionet.cr.util.sesame.SPARQLResultCache;
 import eionet.cr.util.sesame.SesameUtil;
 import eionet.cr.util.sql.PairReader;
 import eionet.cr.util.sql.SQLUtil;
@@ -186,6 +190,20 @@ public class VirtuosoScoreboardSparqlDAO extends VirtuosoBaseDAO implements Scor
             "  <DATASET_URI> adms:status <STATUS_URI>\n" +
             "}";
 
+    /** Labels of all SKOS concepts, for labelling the values in the observation dimension index. */
+    private static final String DIMENSION_VALUE_LABELS_SPARQL = "" +
+            "PREFIX skos: <http://www.w3.org/2004/02/skos/core#>\n" +
+            "select ?value min(str(?prefLabel)) as ?label\n" +
+            "where {\n" +
+            "  ?value skos:prefLabel ?prefLabel filter(lang(?prefLabel) in ('en',''))\n" +
+            "}\n" +
+            "group by ?value";
+
+    /** Pattern of the triples that the observation dimension index is built of, in graph ?g. */
+    private static final String DIMENSION_INDEX_GRAPH_PATTERN = "" +
+            "graph ?g {?s ?p ?o filter (?p = <" + Predicates.RDF_TYPE + "> && ?o = <" + Subjects.DATACUBE_OBSERVATION + ">" +
+            " || ?p = <http://www.w3.org/2004/02/skos/core#prefLabel> || ?p = <" + Predicates.ADMS_STATUS + ">)}";
+
     /** The Constant INDICATORS_FOR_ODP_ZIPPING. */
     private static final String INDICATORS_FOR_ODP_ZIPPING = "" +
             "PREFIX dcterms: <http://purl.org/dc/terms/>\n" +
@@ -563,6 +581,7 @@ public class VirtuosoScoreboardSparqlDAO extends VirtuosoBaseDAO implements Scor
             repoConn.add(distributionURI, ecodpFormatPredicateURI, vf.createLiteral("rdf/xml"), graphURI);
 
             repoConn.commit();
+            SPARQLResultCache.invalidate(graphURI.stringValue());
             return identifierURI.stringValue();
 
         } catch (RepositoryException e) {
@@ -610,6 +629,21 @@ public class VirtuosoScoreboardSparqlDAO extends VirtuosoBaseDAO implements Scor
             throw new IllegalArgumentException("Filter for which the values are being asked, must not be null!");
         }
 
+        ObservationDimensionIndex index = ObservationDimensionIndex.getCurrent(new ObservationDimensionIndex.Loader() {
+            @Override
+            public ObservationDimensionIndex.Builder load(int limit) throws DAOException {
+                return loadObservationDimensions(limit);
+            }
+
+            @Override
+            public boolean hasData(Collection<String> graphUris) throws DAOException {
+                return hasObservationDimensions(graphUris);
+            }
+        });
+        if (index != null) {
+            return index.getFilterValues(selections, filter, isAdmin);
+        }
+
         String filterAlias = filter.getAlias();
         int filterIndex = filter.ordinal();
 
@@ -665,6 +699,72 @@ public class VirtuosoScoreboardSparqlDAO extends VirtuosoBaseDAO implements Scor
         return resultList;
     }
 
+    /**
+     * Loads the dimension value combinations of all observations, the labels of the values and the completed datasets, for
+     * building the {@link ObservationDimensionIndex}. The graphs that have these are found first.
+     *
+     * @param limit Maximum number of combinations to load, 0 for all.
+     * @return Builder of the index.
+     * @throws DAOException if a query fails.
+     */
+    private ObservationDimensionIndex.Builder loadObservationDimensions(int limit) throws DAOException {
+
+        ObservationDimensionIndex.Builder builder = new ObservationDimensionIndex.Builder();
+        String graphsSparql = "select distinct ?g where {" + DIMENSION_INDEX_GRAPH_PATTERN + "}";
+        builder.setGraphs(executeSPARQL(graphsSparql, new SingleObjectReader<String>()));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("select distinct");
+        for (ObservationFilter filter : ObservationFilter.values()) {
+            sb.append(" ?").append(filter.getAlias());
+        }
+        sb.append("\nwhere {\n");
+        sb.append("  ?s a <").append(Subjects.DATACUBE_OBSERVATION).append(">.\n");
+        for (ObservationFilter filter : ObservationFilter.values()) {
+            sb.append("  optional {?s <").append(filter.getPredicate()).append("> ?").append(filter.getAlias()).append("}\n");
+        }
+        sb.append("}");
+        if (limit > 0) {
+            sb.append(" limit ").append(limit);
+        }
+        executeSPARQL(sb.toString(), new ObservationDimensionsReader(builder));
+
+        List<Pair<String, String>> labels =
+                executeSPARQL(DIMENSION_VALUE_LABELS_SPARQL, new PairReader<String, String>("value", "label"));
+        for (Pair<String, String> label : labels) {
+            builder.setLabel(label.getLeft(), label.getRight());
+        }
+
+        sb = new StringBuilder();
+        sb.append("select distinct ?s where {?s <").append(Predicates.ADMS_STATUS).append("> <");
+        sb.append(Subjects.ADMS_STATUS_COMPLETED).append(">}");
+        for (String datasetUri : executeSPARQL(sb.toString(), new SingleObjectReader<String>())) {
+            builder.addCompletedDataset(datasetUri);
+        }
+
+        return builder;
+    }
+
+    /**
+     * Returns true if any of the given graphs has observations, labels of dimension values or dataset statuses, i.e. data of the
+     * {@link ObservationDimensionIndex}.
+     *
+     * @param graphUris URIs of the graphs.
+     * @return True if any of the graphs has index data.
+     * @throws DAOException if the query fails.
+     */
+    private boolean hasObservationDimensions(Collection<String> graphUris) throws DAOException {
+
+        StringBuilder sb = new StringBuilder("select ?g where {");
+        sb.append(DIMENSION_INDEX_GRAPH_PATTERN).append(" filter (?g in (");
+        int i = 0;
+        for (String graphUri : graphUris) {
+            sb.append(i++ > 0 ? ", <" : "<").append(graphUri).append(">");
+        }
+        sb.append("))} limit 1");
+        return !executeSPARQL(sb.toString(), new SingleObjectReader<String>()).isEmpty();
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -854,7 +954,7 @@ public class VirtuosoScoreboardSparqlDAO extends VirtuosoBaseDAO implements Scor
         }
 
         List<Pair<String, String>> list = executeSPARQL(sb.toString(), bindings, new PairReader<String, String>());
-        int totalMatchCount = list.size();
+        Integer totalMatchCount = list.size();
         if (pageRequest != null) {
 
             sb = new StringBuilder();
@@ -873,11 +973,10 @@ public class VirtuosoScoreboardSparqlDAO extends VirtuosoBaseDAO implements Scor
             bindings = new Bindings();
             bindings.setURI("pred", predicateUri);
 
-            String count = executeUniqueResultSPARQL(sb.toString(), bindings, new SingleObjectReader<String>());
-            totalMatchCount = NumberUtils.toInt(count);
+            totalMatchCount = getMemoizedCount(sb.toString(), bindings);
         }
 
-        return new SearchResultDTO<Pair<String, String>>(list, totalMatchCount);
+        return createPairsResult(list, totalMatchCount, pageRequest);
     }
 
     /*
@@ -936,7 +1035,7 @@ public class VirtuosoScoreboardSparqlDAO extends VirtuosoBaseDAO implements Scor
         }
 
         List<Pair<String, String>> list = executeSPARQL(sb.toString(), bindings, new PairReader<String, String>());
-        int totalMatchCount = list.size();
+        Integer totalMatchCount = list.size();
         if (pageRequest != null) {
 
             sb = new StringBuilder();
@@ -949,11 +1048,28 @@ public class VirtuosoScoreboardSparqlDAO extends VirtuosoBaseDAO implements Scor
             }
             sb.append("}");
 
-            String count = executeUniqueResultSPARQL(sb.toString(), new SingleObjectReader<String>());
-            totalMatchCount = NumberUtils.toInt(count);
+            totalMatchCount = getMemoizedCount(sb.toString(), null);
         }
 
-        return new SearchResultDTO<Pair<String, String>>(list, totalMatchCount);
+        return createPairsResult(list, totalMatchCount, pageRequest);
+    }
+
+    /**
+     * Creates the result of a paginated listing of pairs. If the listing's total count is still being computed, the result has an
+     * estimated count and is marked as not exact.
+     *
+     * @param list The listed page.
+     * @param totalMatchCount Total count of the listing, or null if it is still being computed.
+     * @param pageRequest The requested page.
+     * @return The result.
+     */
+    private SearchResultDTO<Pair<String, String>> createPairsResult(List<Pair<String, String>> list, Integer totalMatchCount,
+            PagingRequest pageRequest) {
+
+        int matchCount = totalMatchCount == null ? MatchCountCache.estimate(pageRequest, list.size()) : totalMatchCount;
+        SearchResultDTO<Pair<String, String>> result = new SearchResultDTO<Pair<String, String>>(list, matchCount);
+        result.setExactMatchCount(totalMatchCount != null);
+        return result;
     }
 
     /*
@@ -990,6 +1106,7 @@ public class VirtuosoScoreboardSparqlDAO extends VirtuosoBaseDAO implements Scor
 
             // Commit the transaction.
             repoConn.commit();
+            SPARQLResultCache.invalidate(uri);
 
         } catch (OpenRDFException e) {
             SesameUtil.rollback(repoConn);
@@ -1212,6 +1329,9 @@ public class VirtuosoScoreboardSparqlDAO extends VirtuosoBaseDAO implements Scor
             }
 
             LOGGER.debug(String.format("A total of %d triples deleted!", updateCount));
+            if (updateCount > 0) {
+                SPARQLResultCache.invalidate(datasetGraphUri);
+            }
             return new Pair<Integer, String>(Integer.valueOf(updateCount), sql);
         } catch (Exception e) {
             throw new DAOException(e.getMessage(), e);
@@ -1266,6 +1386,9 @@ public class VirtuosoScoreboardSparqlDAO extends VirtuosoBaseDAO implements Scor
             pstmt.setString(3, Predicates.DCTERMS_MODIFIED);
             pstmt.setString(4, DateFormatUtils.format(new Date(), "yyyy-MM-dd HH:mm:ss"));
             pstmt.executeUpdate();
+
+            dctModifiedGraphs.add(graphUri);
+            SPARQLResultCache.invalidate(dctModifiedGraphs);
         } finally {
             SQLUtil.close(rs);
             SQLUtil.close(pstmt);
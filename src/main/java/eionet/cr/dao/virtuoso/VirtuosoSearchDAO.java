@@ -26,11 +26,12 @@ import eionet.cr.dao.SearchDAO;
 import eionet.cr.dao.helpers.FreeTextSearchHelper.FilterType;
 import eionet.cr.dao.helpers.QueryHelper;
 import eionet.cr.dao.readers.DeliverySearchReader;
-import eionet.cr.dao.readers.FreeTextSearchReader;
 import eionet.cr.dao.readers.GenericSubjectDataReader;
 import eionet.cr.dao.readers.ResultSetReaderException;
 import eionet.cr.dao.readers.SubjectDataReader;
+import eionet.cr.dao.readers.SubjectsPageReader;
 import eionet.cr.dao.util.BBOX;
+import eionet.cr.dao.util.MatchCountCache;
 import eionet.cr.dao.util.SearchExpression;
 import eionet.cr.dao.virtuoso.helpers.VirtuosoDeliveriesSearchHelper;
 import eionet.cr.dao.virtuoso.helpers.VirtuosoFilteredSearchHelper;
@@ -116,34 +117,27 @@ public class VirtuosoSearchDAO extends VirtuosoBaseDAO implements SearchDAO {
         long startTime = System.currentTimeMillis();
         logger.trace("Free-text search, executing subject finder query: " + query);
 
-        // execute the query, using dedicated reader
-        FreeTextSearchReader<String> matchReader = new FreeTextSearchReader<String>();
-        matchReader.setBlankNodeUriPrefix(VirtuosoBaseDAO.BNODE_URI_PREFIX);
-        List<String> subjectUris = executeSPARQL(query, helper.getQueryBindings(), matchReader);
+        // only these predicates will be queried for
+        String[] neededPredicates = {Predicates.RDF_TYPE, Predicates.RDFS_LABEL};
+
+        // find the subjects and get their data in one query
+        List<SubjectDTO> resultList = getFoundSubjectsPage(query, helper.getQueryBindings(), neededPredicates);
 
         result.setQuery(QueryHelper.getFormatedQuery(query, helper.getQueryBindings()));
 
         logger.debug("Free-text search, find subjects query time " + Util.durationSince(startTime));
 
-        // initialize total match count and resultList
+        // initialize total match count
         Integer totalMatchCount = Integer.valueOf(0);
-        List<SubjectDTO> resultList = new ArrayList<SubjectDTO>();
-
-        // if result list not empty, do the necessary processing and get total match count
-        if (subjectUris != null && !subjectUris.isEmpty()) {
-
-            // only these predicates will be queried for
-            String[] neededPredicates = {Predicates.RDF_TYPE, Predicates.RDFS_LABEL};
 
-            // get the subjects data
-            logger.trace("Free-text search, getting the data of the found subjects");
-            resultList = getFoundSubjectsData(subjectUris, neededPredicates);
+        // if result list not empty and paging required, get distinct subjects total match count
+        if (!resultList.isEmpty() && pagingRequest != null) {
 
-            // if paging required, get distinct subjects total match count
-            if (pagingRequest != null) {
-
-                logger.trace("Free-text search, getting exact row count");
-                totalMatchCount = new Integer(getExactRowCount(helper));
+            logger.trace("Free-text search, getting memoized row count");
+            totalMatchCount = getMemoizedRowCount(helper);
+            if (totalMatchCount == null) {
+                totalMatchCount = MatchCountCache.estimate(pagingRequest, resultList.size());
+                result.setExactMatchCount(false);
             }
         }
         logger.debug("Free-text search, total query time " + Util.durationSince(startTime));
@@ -381,34 +375,27 @@ public class VirtuosoSearchDAO extends VirtuosoBaseDAO implements SearchDAO {
         long startTime = System.currentTimeMillis();
         logger.trace("Search by filters, executing subject finder query: " + query);
 
-        // execute the query, with the IN parameters
-        List<String> subjectUris = executeSPARQL(query, bindings, new SingleObjectReader<String>());
+        // only these predicates will be queried for
+        String[] neededPredicates = new String[] {};
+        if (selectPredicates != null && selectPredicates.size() > 0) {
+            neededPredicates = selectPredicates.toArray(neededPredicates);
+        }
+
+        // find the subjects and get their data in one query
+        List<SubjectDTO> resultList = getFoundSubjectsPage(query, bindings, neededPredicates);
 
         result.setQuery(QueryHelper.getFormatedQuery(query, bindings));
 
         logger.debug("Search by filters, find subjects query time " + Util.durationSince(startTime));
 
         int totalRowCount = 0;
-        List<SubjectDTO> resultList = new ArrayList<SubjectDTO>();
 
-        // if result list not null and not empty, then get the subjects data and
-        // total rowcount
-        if (subjectUris != null && !subjectUris.isEmpty()) {
-
-            // only these predicates will be queried for
-            String[] neededPredicates = new String[] {};
-            if (selectPredicates != null && selectPredicates.size() > 0) {
-                neededPredicates = selectPredicates.toArray(neededPredicates);
-            }
-
-            // get the data of all found subjects
-            logger.trace("Search by filters, getting the data of the found subjects");
-            resultList = getFoundSubjectsData(subjectUris, neededPredicates);
-        }
         // if paging required, get the total number of found subjects too
-        if (pagingRequest != null) {
-            logger.trace("Search by filters, getting exact row count");
-            totalRowCount = new Integer(getExactRowCount(helper));
+        if (pagingRequest != null && (!resultList.isEmpty() || pagingRequest.getOffset() > 0)) {
+            logger.trace("Search by filters, getting memoized row count");
+            Integer rowCount = getMemoizedRowCount(helper);
+            result.setExactMatchCount(rowCount != null);
+            totalRowCount = rowCount != null ? rowCount.intValue() : MatchCountCache.estimate(pagingRequest, resultList.size());
         }
 
         logger.debug("Search by filters, total query time " + Util.durationSince(startTime));
@@ -578,26 +565,18 @@ public class VirtuosoSearchDAO extends VirtuosoBaseDAO implements SearchDAO {
         long startTime = System.currentTimeMillis();
         logger.trace("Searching subjects in source, executing finder query: " + query);
 
-        // execute the query
-        SingleObjectReader<String> matchReader = new SingleObjectReader<String>();
-        matchReader.setBlankNodeUriPrefix(VirtuosoBaseDAO.BNODE_URI_PREFIX);
-        List<String> subjectUris = executeSPARQL(query, helper.getQueryBindings(), matchReader);
+        // find the subjects and get all their data in one query
+        List<SubjectDTO> resultList = getFoundSubjectsPage(query, helper.getQueryBindings(), null);
 
         Integer totalMatchCount = Integer.valueOf(0);
-        List<SubjectDTO> resultList = new ArrayList<SubjectDTO>();
-
-        // if result list not null and not empty, then get the subjects data and total rowcount
-        if (subjectUris != null && !subjectUris.isEmpty()) {
 
-            // get the data of all found subjects
-            logger.trace("Searching subjects in sources, getting the data of the found subjects");
-            resultList = getFoundSubjectsData(subjectUris, null);
+        // if result list not empty and paging required, get the total number of found subjects too
+        if (!resultList.isEmpty() && pagingRequest != null) {
 
-            // if paging required, get the total number of found subjects too
-            if (pagingRequest != null) {
-
-                logger.trace("Search subjects in source, executing rowcount query: " + query);
-                totalMatchCount = new Integer(getExactRowCount(helper));
+            logger.trace("Search subjects in source, getting memoized row count");
+            totalMatchCount = getMemoizedRowCount(helper);
+            if (totalMatchCount == null) {
+                totalMatchCount = MatchCountCache.estimate(pagingRequest, resultList.size());
             }
         }
 
@@ -757,34 +736,41 @@ public class VirtuosoSearchDAO extends VirtuosoBaseDAO implements SearchDAO {
         long startTime = System.currentTimeMillis();
         logger.debug("Search references, executing subject finder query: " + query);
 
-        // execute the query
-        SingleObjectReader<String> reader = new SingleObjectReader<String>();
-        reader.setBlankNodeUriPrefix(BNODE_URI_PREFIX);
-
-        List<String> subjectUris = executeSPARQL(query, helper.getQueryBindings(), reader);
+        List<SubjectDTO> resultList;
+        if (SubjectsPageReader.isOrderKept(query)) {
+
+            // find the subjects and get their data in one query
+            String pageQuery = helper.getSubjectsPageQuery(query);
+            logger.debug("Page query: " + pageQuery);
+            SubjectsPageReader reader = new SubjectsPageReader(null);
+            resultList = executeSPARQL(pageQuery, helper.getQueryBindings(), reader);
+        } else {
+
+            // the one query would lose the finder's order, so find the subjects first and then get their data
+            SingleObjectReader<String> reader = new SingleObjectReader<String>();
+            reader.setBlankNodeUriPrefix(BNODE_URI_PREFIX);
+            List<String> subjectUris = executeSPARQL(query, helper.getQueryBindings(), reader);
+
+            resultList = new ArrayList<SubjectDTO>();
+            if (subjectUris != null && !subjectUris.isEmpty()) {
+
+                String predicateQuery = helper.getSubjectsDataQuery(subjectUris, subjectUri);
+                SubjectDataReader sdReader = new GenericSubjectDataReader(subjectUris);
+                sdReader.setBlankNodeUriPrefix(BNODE_URI_PREFIX);
+                logger.debug("Predicate query: " + predicateQuery);
+                resultList = executeSPARQL(predicateQuery, helper.getSubjectDataBindings(), sdReader);
+            }
+        }
 
         Integer totalMatchCount = Integer.valueOf(0);
-        List<SubjectDTO> resultList = new ArrayList<SubjectDTO>();
-
-        // if result list not null and not empty, then get the subjects data and total rowcount
-        if (subjectUris != null && !subjectUris.isEmpty()) {
-
-            logger.debug("Search references, getting the data of the found subjects");
-
-            // get the data of all found subjects
-            String predicateQuery = helper.getSubjectsDataQuery(subjectUris, subjectUri);
-            SubjectDataReader sdReader = new GenericSubjectDataReader(subjectUris);
-            sdReader.setBlankNodeUriPrefix(BNODE_URI_PREFIX);
-            logger.debug("Predicate query: " + predicateQuery);
-            // separate bindings for subject data
-            resultList = executeSPARQL(predicateQuery, helper.getSubjectDataBindings(), sdReader);
 
-            // if paging required, get the total number of found subjects too
-            if (pagingRequest != null) {
+        // if result list not empty and paging required, get the total number of found subjects too
+        if (!resultList.isEmpty() && pagingRequest != null) {
 
-                logger.debug("Search references, executing rowcount query: " + query);
-                totalMatchCount = new Integer(getExactRowCount(helper));
-                // totalMatchCount = resultList.size();
+            logger.debug("Search references, getting memoized row count");
+            totalMatchCount = getMemoizedRowCount(helper);
+            if (totalMatchCount == null) {
+                totalMatchCount = MatchCountCache.estimate(pagingRequest, resultList.size());
             }
         }
 
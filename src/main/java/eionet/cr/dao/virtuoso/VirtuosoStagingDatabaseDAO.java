@@ -48,6 +48,7 @@ import org.apache.log4j.Logger;
 import eionet.cr.common.CRException;
 import eionet.cr.dao.DAOException;
 import eionet.cr.dao.StagingDatabaseDAO;
+import eionet.cr.dao.readers.ConceptsReader;
 import eionet.cr.dao.readers.StagingDatabaseDTOReader;
 import eionet.cr.dto.StagingDatabaseDTO;
 import eionet.cr.dto.StagingDatabaseTableColumnDTO;
@@ -57,6 +58,8 @@ import eionet.cr.staging.exp.ExportRunner;
 import eionet.cr.staging.exp.ExportStatus;
 import eionet.cr.staging.exp.QueryConfiguration;
 import eionet.cr.staging.imp.ImportStatus;
+import eionet.cr.staging.util.ConceptIndex;
+import eionet.cr.util.Bindings;
 import eionet.cr.util.sql.PairReader;
 import eionet.cr.util.sql.SQLUtil;
 import eionet.cr.util.sql.SingleObjectReader;
@@ -92,6 +95,10 @@ public class VirtuosoStagingDatabaseDAO extends VirtuosoBaseDAO implements Stagi
             + " ?s <http://www.w3.org/2004/02/skos/core#inScheme> <http://eurostat.linked-statistics.org/dic/geo>."
             + " ?s <http://www.w3.org/2004/02/skos/core#notation> ?notation} order by ?notation";
 
+    /** Finds concepts whose graph pattern is put in place of "@pattern@" and "@filter@". */
+    private static final String GET_CONCEPTS_SPARQL = "select ?g ?s where {@pattern@"
+            + " graph ?g {?s <http://www.w3.org/2004/02/skos/core#notation> ?notation}@filter@}";
+
     /** */
     private static final String GET_EXPORTED_RESOURCES_SPARQL = "SELECT distinct ?s FROM <" + ExportRunner.EXPORT_URI_PREFIX
             + "@id@> WHERE {?s ?p ?o} order by ?s";
@@ -787,4 +794,42 @@ public class VirtuosoStagingDatabaseDAO extends VirtuosoBaseDAO implements Stagi
         executeSPARQL(GET_REFAREAS_SPARQL, null, reader);
         return reader.getResultMap();
     }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.dao.StagingDatabaseDAO#loadConcepts(eionet.cr.staging.util.ConceptIndex.Kind, java.lang.String,
+     * eionet.cr.staging.util.ConceptIndex.Builder)
+     */
+    @Override
+    public void loadConcepts(ConceptIndex.Kind kind, String graphUri, ConceptIndex.Builder builder) throws DAOException {
+
+        String pattern = null;
+        switch (kind) {
+            case INDICATOR:
+                pattern = "?s a <http://semantic.digital-agenda-data.eu/def/class/Indicator>.";
+                break;
+            case BREAKDOWN:
+                pattern = "?s a <http://semantic.digital-agenda-data.eu/def/class/Breakdown>.";
+                break;
+            case UNIT:
+                pattern = "?s a <http://semantic.digital-agenda-data.eu/def/class/UnitMeasure>.";
+                break;
+            default:
+                pattern = "?s a <http://www.w3.org/2004/02/skos/core#Concept>."
+                        + " ?s <http://www.w3.org/2004/02/skos/core#inScheme> <http://eurostat.linked-statistics.org/dic/geo>.";
+                break;
+        }
+
+        Bindings bindings = null;
+        String filter = "";
+        if (graphUri != null) {
+            bindings = new Bindings();
+            bindings.setURI("graph", graphUri);
+            filter = " filter (?g = ?graph)";
+        }
+
+        String query = StringUtils.replace(GET_CONCEPTS_SPARQL, "@pattern@", pattern);
+        executeSPARQL(StringUtils.replace(query, "@filter@", filter), bindings, new ConceptsReader(kind, builder));
+    }
 }
@@ -1,5 +1,8 @@
 package eionet.cr.dao.virtuoso.helpers;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -9,6 +12,7 @@ import org.apache.commons.lang.StringUtils;
 
 import eionet.cr.common.CRRuntimeException;
 import eionet.cr.common.Predicates;
+import eionet.cr.config.GeneralConfig;
 import eionet.cr.dao.helpers.AbstractSearchHelper;
 import eionet.cr.util.Bindings;
 import eionet.cr.util.SortingRequest;
@@ -28,6 +32,22 @@ public class VirtuosoFilteredSearchHelper extends AbstractSearchHelper {
     /** */
     protected static final String SORT_OBJECT_VALUE_VARIABLE = "sortObjVal";
 
+    /** Shortest word that a literal filter matches through the free-text index. */
+    private static final int MIN_FULL_TEXT_WORD_LENGTH = 3;
+
+    /** Shortest prefix of a wildcard word that Virtuoso's free-text engine accepts. */
+    private static final int MIN_FULL_TEXT_PREFIX_LENGTH = 4;
+
+    /** Words of Virtuoso's default noise word list (noise.txt) that are not too short for the free-text index. */
+    private static final Set<String> NOISE_WORDS = new HashSet<String>(Arrays.asList("about", "after", "all", "also", "and",
+            "another", "any", "are", "because", "been", "before", "being", "between", "both", "but", "came", "can", "come",
+            "could", "did", "does", "each", "else", "for", "from", "get", "got", "had", "has", "have", "her", "here", "him",
+            "himself", "his", "how", "into", "its", "just", "like", "make", "many", "might", "more", "most", "much", "must",
+            "never", "now", "only", "other", "our", "out", "over", "said", "same", "see", "should", "since", "some", "still",
+            "such", "take", "than", "that", "the", "their", "them", "then", "there", "these", "they", "this", "those", "through",
+            "too", "under", "use", "very", "want", "was", "way", "well", "were", "what", "when", "where", "which", "while", "who",
+            "will", "with", "would", "you", "your"));
+
     /** */
     private Map<String, String> filters;
 
@@ -36,10 +56,8 @@ public class VirtuosoFilteredSearchHelper extends AbstractSearchHelper {
      */
     private Set<String> literalRangeFilters;
 
-    /**
-     *
-     */
-    private Boolean requiresFullTextSearch = null;
+    /** True if literal filters are matched through Virtuoso's free-text index where possible. */
+    private boolean fullTextFilters;
 
     /**
      *
@@ -86,6 +104,7 @@ public class VirtuosoFilteredSearchHelper extends AbstractSearchHelper {
 
         this.filters = filters;
         this.literalRangeFilters = literalRangeFilters;
+        this.fullTextFilters = GeneralConfig.getBooleanProperty(GeneralConfig.SEARCH_FILTERS_FULL_TEXT, false);
         bindings = new Bindings();
     }
 
@@ -197,12 +216,14 @@ public class VirtuosoFilteredSearchHelper extends AbstractSearchHelper {
                     result += " . filter(?" + objectVariable + " = ?" + objectValueVariable + ")";
                     bindings.setURI(objectValueVariable, objectValue);
                 } else {
-                    // result += " . filter bif:contains(?" + objectVariable + ", ?" + objectValueVariable + ")";
-                    // Quotes are added for bif:contains expression
-                    // objectValue = "\"" + objectValue + "\"";
-                    // requiresFullTextSearch = Boolean.TRUE;
-                    result += " . filter (regex(?" + objectVariable + ", ?" + objectValueVariable + ", \"i\"))";
-                    bindings.setString(objectValueVariable, objectValue);
+                    String fullTextExpression = fullTextFilters ? toFullTextExpression(objectValue) : null;
+                    if (fullTextExpression != null) {
+                        result += " . filter bif:contains(?" + objectVariable + ", ?" + objectValueVariable + ")";
+                        bindings.setString(objectValueVariable, fullTextExpression);
+                    } else {
+                        result += " . filter (regex(?" + objectVariable + ", ?" + objectValueVariable + ", \"i\"))";
+                        bindings.setString(objectValueVariable, objectValue);
+                    }
                 }
             }
         }
@@ -215,6 +236,73 @@ public class VirtuosoFilteredSearchHelper extends AbstractSearchHelper {
         return result;
     }
 
+    /**
+     * Converts the value of a literal filter into a Virtuoso free-text expression that requires all of the value's words. A word
+     * ending with "*" is matched as a prefix, and words in double quotes are matched as a phrase. Returns null if the value
+     * cannot be matched through the free-text index, i.e. if it has unclosed quotes, too short words or prefixes, words with
+     * other characters than letters and digits, or only noise words that the index leaves out. Such values are matched with a
+     * regular expression instead.
+     *
+     * @param value The filter value.
+     * @return The free-text expression, or null.
+     */
+    public static String toFullTextExpression(String value) {
+
+        String[] parts = StringUtils.splitPreserveAllTokens(value, '"');
+        if (parts == null || parts.length % 2 == 0) {
+            return null;
+        }
+
+        List<String> terms = new ArrayList<String>();
+        boolean onlyNoiseWords = true;
+        for (int i = 0; i < parts.length; i++) {
+
+            String[] words = StringUtils.split(parts[i]);
+            boolean isPhrase = i % 2 == 1;
+            for (String word : words) {
+                if (!isFullTextWord(word, isPhrase)) {
+                    return null;
+                }
+                onlyNoiseWords = onlyNoiseWords && NOISE_WORDS.contains(word.toLowerCase());
+            }
+
+            if (isPhrase && words.length > 0) {
+                terms.add("\"" + StringUtils.join(words, ' ') + "\"");
+            } else if (!isPhrase) {
+                for (String word : words) {
+                    terms.add("\"" + word + "\"");
+                }
+            }
+        }
+
+        return terms.isEmpty() || onlyNoiseWords ? null : StringUtils.join(terms, " and ");
+    }
+
+    /**
+     * @param word A word of a filter value.
+     * @param inPhrase True if the word is in a phrase, where words of any length are matched but prefixes are not.
+     * @return True if the word can be matched through the free-text index.
+     */
+    private static boolean isFullTextWord(String word, boolean inPhrase) {
+
+        int length = word.length();
+        if (!inPhrase && word.endsWith("*")) {
+            length--;
+            if (length < MIN_FULL_TEXT_PREFIX_LENGTH) {
+                return false;
+            }
+        } else if (!inPhrase && length < MIN_FULL_TEXT_WORD_LENGTH) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (!Character.isLetterOrDigit(word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -5,6 +5,7 @@ import java.util.List;
 
 import eionet.cr.common.Predicates;
 import eionet.cr.dao.helpers.AbstractSearchHelper;
+import eionet.cr.dao.readers.SubjectsPageReader;
 import eionet.cr.util.Bindings;
 import eionet.cr.util.SortingRequest;
 import eionet.cr.util.pagination.PagingRequest;
@@ -136,6 +137,25 @@ public class VirtuosoReferencesSearchHelper extends AbstractSearchHelper {
         return sparql;
     }
 
+    /**
+     * Returns sparql query that finds the references with the given finder query and gets their predicates in one go, to be read
+     * with {@link SubjectsPageReader}. Gets the same predicates as {@link #getSubjectsDataQuery(Collection, String)}, with the
+     * subject URI as the source URI, and uses the bindings of the finder query.
+     *
+     * @param finderQuery
+     *            query returned by {@link #getQuery(List)}
+     * @return SPARQL query for getting the references and their data.
+     */
+    public String getSubjectsPageQuery(String finderQuery) {
+
+        String subjectUriBinding = (isValidIRI ? "?subjectUri" : "IRI(?subjectUri)");
+        String dataPattern =
+                "?s ?pageP ?pageObj . filter(?pageP = <" + Predicates.RDF_TYPE + "> || <" + Predicates.RDFS_LABEL
+                        + "> || (isURI(?pageObj) && ?pageObj=" + subjectUriBinding + "))";
+
+        return SubjectsPageReader.getQuery(finderQuery, dataPattern, true);
+    }
+
     @Override
     public Bindings getQueryBindings() {
         return bindings;
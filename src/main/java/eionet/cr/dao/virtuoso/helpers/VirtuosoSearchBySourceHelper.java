@@ -17,12 +17,15 @@ import eionet.cr.util.pagination.PagingRequest;
  */
 public class VirtuosoSearchBySourceHelper extends AbstractSearchHelper {
 
-    /** SPARQL for getting subjects from the source. */
-    private static final String SOURCE_SUBJECTS_SPARQL = "select distinct ?s from ?sourceUrl where {?s ?p ?o}";
+    /**
+     * SPARQL for getting subjects from the source. Uses a graph pattern instead of a FROM clause, so that it can be a sub-select
+     * of the query that also gets the subjects' data.
+     */
+    private static final String SOURCE_SUBJECTS_SPARQL = "select distinct ?s where {graph ?sourceUrl {?s ?p ?o}}";
 
     /** */
     private static final String SOURCE_SKIP_ANON_SUBJECTS_SPARQL =
-            "select distinct ?s from ?sourceUrl where {?s ?p ?o filter(!isBlank(?s))}";
+            "select distinct ?s where {graph ?sourceUrl {?s ?p ?o filter(!isBlank(?s))}}";
 
     /** SPARQL for getting count of subjects in the source. */
     private static final String SOURCE_SUBJECTS_COUNT_SPARQL = "select count(distinct ?s) from ?sourceUrl where {?s ?p ?o}";
@@ -81,7 +84,8 @@ public class VirtuosoSearchBySourceHelper extends AbstractSearchHelper {
     @Override
     protected String getOrderedQuery(List<Object> inParams) {
 
-        String sparql = "select distinct ?s from ?sourceUrl where {?s ?p ?o optional {?s ?sortPredicate ?ord} } ORDER BY ";
+        String sparql =
+                "select distinct ?s where {graph ?sourceUrl {?s ?p ?o optional {?s ?sortPredicate ?ord} }} ORDER BY ";
         if (skipAnonymous) {
             sparql = StringUtils.replace(sparql, "optional", "filter(!isBlank(?s)) optional");
         }
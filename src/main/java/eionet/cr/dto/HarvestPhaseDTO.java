@@ -0,0 +1,115 @@
+package eionet.cr.dto;
+
+/**
+ * Duration and throughput of one phase of a harvest (download, loading, post-harvest scripts, etc).
+ *
+ * @author jaanus
+ */
+public class HarvestPhaseDTO {
+
+    /** */
+    private int harvestId;
+
+    /** Name of the phase, see {@link eionet.cr.harvest.util.HarvestPhaseTimer.Phase}. */
+    private String phase;
+
+    /** Duration of the phase, in microseconds. */
+    private long durationMicros;
+
+    /** Number of bytes processed in the phase, 0 if not applicable. */
+    private long bytes;
+
+    /** Number of triples processed in the phase, 0 if not applicable. */
+    private int triples;
+
+    /**
+     * @return the harvestId
+     */
+    public int getHarvestId() {
+        return harvestId;
+    }
+
+    /**
+     * @param harvestId the harvestId to set
+     */
+    public void setHarvestId(int harvestId) {
+        this.harvestId = harvestId;
+    }
+
+    /**
+     * @return the phase
+     */
+    public String getPhase() {
+        return phase;
+    }
+
+    /**
+     * @param phase the phase to set
+     */
+    public void setPhase(String phase) {
+        this.phase = phase;
+    }
+
+    /**
+     * @return the durationMicros
+     */
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+
+    /**
+     * @param durationMicros the durationMicros to set
+     */
+    public void setDurationMicros(long durationMicros) {
+        this.durationMicros = durationMicros;
+    }
+
+    /**
+     * @return the duration in milliseconds, with microsecond precision
+     */
+    public double getDurationMillis() {
+        return durationMicros / 1000d;
+    }
+
+    /**
+     * @return the bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @param bytes the bytes to set
+     */
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return the triples
+     */
+    public int getTriples() {
+        return triples;
+    }
+
+    /**
+     * @param triples the triples to set
+     */
+    public void setTriples(int triples) {
+        this.triples = triples;
+    }
+
+    /**
+     * @return bytes processed per second, null if no bytes or no duration
+     */
+    public Long getBytesPerSecond() {
+        return bytes <= 0 || durationMicros <= 0 ? null : Long.valueOf(bytes * 1000000L / durationMicros);
+    }
+
+    /**
+     * @return triples processed per second, null if no triples or no duration
+     */
+    public Long getTriplesPerSecond() {
+        return triples <= 0 || durationMicros <= 0 ? null : Long.valueOf(triples * 1000000L / durationMicros);
+    }
+}
@@ -0,0 +1,105 @@
+package eionet.cr.dto;
+
+/**
+ * Summary of a harvest source's recent harvests: how long they took, how many triples they got and how many of them found the
+ * content actually changed. Used by the batch harvester to estimate the cost and volatility of the source.
+ *
+ * @author jaanus
+ */
+public class HarvestProfileDTO {
+
+    /** */
+    private int sourceId;
+
+    /** Number of finished harvests in the source's history. */
+    private int harvests;
+
+    /** Number of those harvests that loaded changed content (i.e. not "not modified" and not "content unchanged"). */
+    private int changedHarvests;
+
+    /** Average duration of the harvests, in seconds. */
+    private double avgDurationSeconds;
+
+    /** Average number of triples that the harvests got. */
+    private long avgStatements;
+
+    /**
+     * @return the sourceId
+     */
+    public int getSourceId() {
+        return sourceId;
+    }
+
+    /**
+     * @param sourceId the sourceId to set
+     */
+    public void setSourceId(int sourceId) {
+        this.sourceId = sourceId;
+    }
+
+    /**
+     * @return the harvests
+     */
+    public int getHarvests() {
+        return harvests;
+    }
+
+    /**
+     * @param harvests the harvests to set
+     */
+    public void setHarvests(int harvests) {
+        this.harvests = harvests;
+    }
+
+    /**
+     * @return the changedHarvests
+     */
+    public int getChangedHarvests() {
+        return changedHarvests;
+    }
+
+    /**
+     * @param changedHarvests the changedHarvests to set
+     */
+    public void setChangedHarvests(int changedHarvests) {
+        this.changedHarvests = changedHarvests;
+    }
+
+    /**
+     * @return the avgDurationSeconds
+     */
+    public double getAvgDurationSeconds() {
+        return avgDurationSeconds;
+    }
+
+    /**
+     * @param avgDurationSeconds the avgDurationSeconds to set
+     */
+    public void setAvgDurationSeconds(double avgDurationSeconds) {
+        this.avgDurationSeconds = avgDurationSeconds;
+    }
+
+    /**
+     * @return the avgStatements
+     */
+    public long getAvgStatements() {
+        return avgStatements;
+    }
+
+    /**
+     * @param avgStatements the avgStatements to set
+     */
+    public void setAvgStatements(long avgStatements) {
+        this.avgStatements = avgStatements;
+    }
+
+    /**
+     * Returns the share of harvests that found the content changed, smoothed towards one half so that a source with a short
+     * history is neither considered static nor volatile too eagerly.
+     *
+     * @return change rate between 0 and 1 (exclusive)
+     */
+    public double getChangeRate() {
+        return (changedHarvests + 1d) / (harvests + 2d);
+    }
+}
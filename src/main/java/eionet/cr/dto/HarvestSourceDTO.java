@@ -92,6 +92,18 @@ public class HarvestSourceDTO implements Serializable, Cloneable {
     /** The is sparql endpoint. */
     private boolean isSparqlEndpoint;
 
+    /** */
+    private boolean bulkLoad;
+
+    /** */
+    private boolean incrementalLoad;
+
+    /** ETag returned by the server with the last successfully harvested content. */
+    private String etag;
+
+    /** Hex-encoded digest of the last successfully harvested content. */
+    private String contentDigest;
+
     /**
      * Instantiates a new harvest source dto.
      */
@@ -473,4 +485,76 @@ public class HarvestSourceDTO implements Serializable, Cloneable {
     public void setSparqlEndpoint(boolean isSparqlEndpoint) {
         this.isSparqlEndpoint = isSparqlEndpoint;
     }
+
+    /**
+     * Checks if the source's content should be loaded with the triple store's bulk loader.
+     *
+     * @return the bulkLoad
+     */
+    public boolean isBulkLoad() {
+        return bulkLoad;
+    }
+
+    /**
+     * Sets the bulk load flag.
+     *
+     * @param bulkLoad the bulkLoad to set
+     */
+    public void setBulkLoad(boolean bulkLoad) {
+        this.bulkLoad = bulkLoad;
+    }
+
+    /**
+     * Checks if only the differences between the source's new content and its graph's current content should be loaded.
+     *
+     * @return the incrementalLoad
+     */
+    public boolean isIncrementalLoad() {
+        return incrementalLoad;
+    }
+
+    /**
+     * Sets the incremental load flag.
+     *
+     * @param incrementalLoad the incrementalLoad to set
+     */
+    public void setIncrementalLoad(boolean incrementalLoad) {
+        this.incrementalLoad = incrementalLoad;
+    }
+
+    /**
+     * Returns the ETag returned by the server with the last successfully harvested content.
+     *
+     * @return the etag
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Sets the ETag.
+     *
+     * @param etag the etag to set
+     */
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    /**
+     * Returns the hex-encoded digest of the last successfully harvested content.
+     *
+     * @return the contentDigest
+     */
+    public String getContentDigest() {
+        return contentDigest;
+    }
+
+    /**
+     * Sets the content digest.
+     *
+     * @param contentDigest the contentDigest to set
+     */
+    public void setContentDigest(String contentDigest) {
+        this.contentDigest = contentDigest;
+    }
 }
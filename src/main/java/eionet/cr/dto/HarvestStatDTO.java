@@ -23,6 +23,8 @@ package eionet.cr.dto;
 
 import java.text.DecimalFormat;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Data of harvest statistics.
@@ -37,6 +39,9 @@ public class HarvestStatDTO extends HarvestDTO {
     /** Harvest source url. */
     private String sourceUrl;
 
+    /** The harvest's phases by their names. */
+    private Map<String, HarvestPhaseDTO> phases = new HashMap<String, HarvestPhaseDTO>();
+
     /**
      * @return the sourceUrl
      */
@@ -51,6 +56,13 @@ public class HarvestStatDTO extends HarvestDTO {
         this.sourceUrl = sourceUrl;
     }
 
+    /**
+     * @return the harvest's phases by their names, see {@link eionet.cr.harvest.util.HarvestPhaseTimer.Phase}
+     */
+    public Map<String, HarvestPhaseDTO> getPhases() {
+        return phases;
+    }
+
     /**
      * @return the duration
      */
@@ -36,6 +36,9 @@ public class SearchResultDTO<T> {
     /** Total number of items found. */
     private int matchCount;
 
+    /** False if the total number of items found is an estimate. */
+    private boolean exactMatchCount = true;
+
     /** Query of the search. */
     private String query;
 
@@ -82,6 +85,20 @@ public class SearchResultDTO<T> {
         this.matchCount = matchCount;
     }
 
+    /**
+     * @return false if the match count is an estimate
+     */
+    public boolean isExactMatchCount() {
+        return exactMatchCount;
+    }
+
+    /**
+     * @param exactMatchCount false if the match count is an estimate
+     */
+    public void setExactMatchCount(boolean exactMatchCount) {
+        this.exactMatchCount = exactMatchCount;
+    }
+
     /**
      * @return the query
      */
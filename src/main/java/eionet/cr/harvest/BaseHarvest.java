@@ -59,22 +59,29 @@ import eionet.cr.dao.HelperDAO;
 import eionet.cr.dao.PostHarvestScriptDAO;
 import eionet.cr.dto.HarvestDTO;
 import eionet.cr.dto.HarvestMessageDTO;
+import eionet.cr.dto.HarvestPhaseDTO;
 import eionet.cr.dto.HarvestSourceDTO;
 import eionet.cr.dto.ObjectDTO;
 import eionet.cr.dto.PostHarvestScriptDTO;
-import eionet.cr.dto.PostHarvestScriptDTO.TargetType;
 import eionet.cr.dto.SubjectDTO;
+import eionet.cr.harvest.load.BulkRDFFormatLoader;
 import eionet.cr.harvest.load.ContentLoader;
+import eionet.cr.harvest.load.DecompressingContentLoader;
 import eionet.cr.harvest.load.FeedFormatLoader;
+import eionet.cr.harvest.load.IncrementalRDFFormatLoader;
 import eionet.cr.harvest.load.RDFFormatLoader;
 import eionet.cr.harvest.util.HarvestMessageType;
+import eionet.cr.harvest.util.HarvestPhaseTimer;
+import eionet.cr.harvest.util.HarvestPhaseTimer.Phase;
+import eionet.cr.harvest.util.PostHarvestScriptRunner;
+import eionet.cr.harvest.util.PostHarvestScriptRunner.ScriptRun;
 import eionet.cr.harvest.util.RDFMediaTypes;
 import eionet.cr.util.EMailSender;
 import eionet.cr.util.FileDeletionJob;
 import eionet.cr.util.Util;
+import eionet.cr.util.sesame.SPARQLResultCache;
 import eionet.cr.util.sesame.SesameUtil;
 import eionet.cr.util.sql.SingleObjectReader;
-import eionet.cr.web.action.admin.postHarvest.PostHarvestScriptParser;
 import eionet.cr.web.security.CRUser;
 
 /**
@@ -152,6 +159,9 @@ public abstract class BaseHarvest implements Harvest {
     /** The timeout value of this harvest. Initialized at first access to the getter. */
     private Integer timeout;
 
+    /** Duration and throughput of this harvest's phases. */
+    private final HarvestPhaseTimer phaseTimer = new HarvestPhaseTimer();
+
     /**
      *
      * Class constructor.
@@ -275,6 +285,9 @@ public abstract class BaseHarvest implements Harvest {
             // add source into inference if it is schema source
             addIntoInferenceRule();
 
+            // save the duration and throughput of this harvest's phases
+            saveHarvestPhases();
+
             // delete sources in permanent error state
             deleteErroneousSources();
 
@@ -290,6 +303,9 @@ public abstract class BaseHarvest implements Harvest {
                 throw new HarvestException(e.getMessage(), e);
             }
         } finally {
+            // the harvested graph and the source's metadata have changed, even if the harvest failed half-way
+            SPARQLResultCache.invalidate(getContextUrl(), GeneralConfig.HARVESTER_URI);
+
             LOGGER.debug(loggerMsg("Harvest finished"));
             LOGGER.debug("                                                                   ");
         }
@@ -302,7 +318,8 @@ public abstract class BaseHarvest implements Harvest {
     protected abstract void afterFinish();
 
     /**
-     * Runs all post-harvest scripts relevant for this harvest.
+     * Runs all post-harvest scripts relevant for this harvest. All-source and source-specific scripts are run and committed first,
+     * so that the type-specific scripts are picked by the types found after them.
      */
     private void runPostHarvestScripts() {
 
@@ -313,22 +330,24 @@ public abstract class BaseHarvest implements Harvest {
 
         LOGGER.debug(loggerMsg("Running post-harvest scripts"));
 
+        long started = HarvestPhaseTimer.start();
         RepositoryConnection conn = null;
         try {
             conn = SesameUtil.getRepositoryConnection();
             conn.setAutoCommit(false);
             PostHarvestScriptDAO dao = DAOFactory.get().getDao(PostHarvestScriptDAO.class);
+            PostHarvestScriptRunner runner =
+                    new PostHarvestScriptRunner(getContextUrl(), GeneralConfig.getIntProperty(
+                            GeneralConfig.HARVESTER_POST_HARVEST_SCRIPT_THREADS, 1));
 
             int totalScriptsFound = 0;
-            // run scripts meant for all sources (i.e. all-source scripts)
-            List<PostHarvestScriptDTO> scripts = dao.listActive(null, null);
+            // run scripts meant for all sources (i.e. all-source scripts) and scripts meant for this source only
+            List<PostHarvestScriptDTO> scripts = new ArrayList<PostHarvestScriptDTO>();
+            scripts.addAll(dao.listActive(null, null));
+            scripts.addAll(dao.listActive(PostHarvestScriptDTO.TargetType.SOURCE, getContextUrl()));
             totalScriptsFound += scripts.size();
-            runScripts(scripts, conn);
-
-            // run scripts meant for this source only
-            scripts = dao.listActive(PostHarvestScriptDTO.TargetType.SOURCE, getContextUrl());
-            totalScriptsFound += scripts.size();
-            runScripts(scripts, conn);
+            runScripts(scripts, runner, conn);
+            conn.commit();
 
             // run scripts meant for the types found in the freshly harvested content of this source
             SingleObjectReader<String> reader = new SingleObjectReader<String>();
@@ -338,7 +357,7 @@ public abstract class BaseHarvest implements Harvest {
 
                 scripts = dao.listActiveForTypes(distinctTypes);
                 totalScriptsFound += scripts.size();
-                runScripts(scripts, conn);
+                runScripts(scripts, runner, conn);
             }
 
             if (totalScriptsFound == 0) {
@@ -354,64 +373,38 @@ public abstract class BaseHarvest implements Harvest {
             LOGGER.error(loggerMsg("Error when running post-harvest scripts: " + e.getMessage()), e);
         } finally {
             SesameUtil.close(conn);
+            phaseTimer.stop(Phase.SCRIPTS, started);
         }
     }
 
     /**
+     * Runs the given scripts with the given runner, and records their outcome and timing in harvest messages.
      *
      * @param scriptDtos
+     * @param runner
      * @param conn
+     * @throws InterruptedException
      */
-    private void runScripts(List<PostHarvestScriptDTO> scriptDtos, RepositoryConnection conn) {
-
-        if (scriptDtos == null || scriptDtos.isEmpty()) {
-            return;
-        }
-
-        for (PostHarvestScriptDTO scriptDto : scriptDtos) {
-            runScript(scriptDto, conn);
-        }
-    }
-
-    /**
-     * @param scriptDto
-     * @param conn
-     */
-    private void runScript(PostHarvestScriptDTO scriptDto, RepositoryConnection conn) {
-
-        TargetType targetType = scriptDto.getTargetType();
-        String targetUrl = scriptDto.getTargetUrl();
-        String query = scriptDto.getScript();
-        String title = scriptDto.getTitle();
-        String scriptType = targetType == null ? "all-source" : targetType.toString().toLowerCase() + "-specific";
-        String associatedType = targetType != null && targetType.equals(TargetType.TYPE) ? targetUrl : null;
-        String parsedQuery = PostHarvestScriptParser.parseForExecution(query, getContextUrl(), associatedType);
-
-        try {
-            LOGGER.debug(MessageFormat.format("Executing {0} script titled \"{1}\":\n{2}", scriptType, title, parsedQuery));
-
-            int updateCount = SesameUtil.executeSPARUL(parsedQuery, conn);
-            if (updateCount > 0 && !scriptDto.isRunOnce()) {
-                // run maximum 100 times
-                LOGGER.debug("Script's update count was " + updateCount
-                        + ", running it until the count becomes 0, or no more than 100 times ...");
-                int i = 0;
-                int totalUpdateCount = updateCount;
-                for (; updateCount > 0 && i < 100; i++) {
-                    updateCount = SesameUtil.executeSPARUL(parsedQuery, conn, getContextUrl());
-                    totalUpdateCount += updateCount;
-                }
-                LOGGER.debug("Script was run for a total of " + (i + 1) + " times, total update count = " + totalUpdateCount);
+    private void runScripts(List<PostHarvestScriptDTO> scriptDtos, PostHarvestScriptRunner runner, RepositoryConnection conn)
+            throws InterruptedException {
+
+        for (ScriptRun scriptRun : runner.run(scriptDtos, conn)) {
+
+            if (scriptRun.getError() != null) {
+                String message =
+                        MessageFormat.format(
+                                "Got exception *** {0} *** when executing the following {1} post-harvest script titled \"{2}\":\n{3}",
+                                scriptRun.getError().toString(), scriptRun.getScriptType(), scriptRun.getTitle(),
+                                scriptRun.getParsedQuery());
+                LOGGER.warn(message);
+                addHarvestMessage(message, HarvestMessageType.WARNING);
             } else {
-                LOGGER.debug("Script's update count was " + updateCount);
+                addHarvestMessage(MessageFormat.format(
+                        "Executed {0} post-harvest script titled \"{1}\": {2} run(s), update count {3}, {4} ms",
+                        scriptRun.getScriptType(), scriptRun.getTitle(), String.valueOf(scriptRun.getRuns()),
+                        String.valueOf(scriptRun.getUpdateCount()), String.valueOf(scriptRun.getMillis())),
+                        HarvestMessageType.INFO);
             }
-        } catch (Exception e) {
-            String message =
-                    MessageFormat.format(
-                            "Got exception *** {0} *** when executing the following {1} post-harvest script titled \"{2}\":\n{3}",
-                            e.toString(), scriptType, title, parsedQuery);
-            LOGGER.warn(message);
-            addHarvestMessage(message, HarvestMessageType.WARNING);
         }
     }
 
@@ -432,8 +425,28 @@ public abstract class BaseHarvest implements Harvest {
     private void addIntoInferenceRule() throws DAOException {
         if (getHarvestSourceDAO().isSourceInInferenceRule(getContextUrl())) {
             LOGGER.debug(loggerMsg("Adding source into inference rule"));
+            long started = HarvestPhaseTimer.start();
             getHarvestSourceDAO().addSourceIntoInferenceRule(getContextUrl());
+            phaseTimer.stop(Phase.INFERENCE, started);
+        }
+    }
+
+    /**
+     * Saves the duration and throughput of this harvest's phases, and logs them.
+     *
+     * @throws DAOException
+     */
+    private void saveHarvestPhases() throws DAOException {
+
+        List<HarvestPhaseDTO> phases = phaseTimer.getPhases(harvestId);
+        if (LOGGER.isDebugEnabled()) {
+            StringBuilder buf = new StringBuilder("Harvest phases:");
+            for (HarvestPhaseDTO phase : phases) {
+                buf.append(' ').append(phase.getPhase()).append('=').append(phase.getDurationMicros() / 1000L).append("ms");
+            }
+            LOGGER.debug(loggerMsg(buf.toString()));
         }
+        getHarvestDAO().insertHarvestPhases(harvestId, phases);
     }
 
     /**
@@ -994,6 +1007,13 @@ public abstract class BaseHarvest implements Harvest {
         }
     }
 
+    /**
+     * @return duration and throughput of this harvest's phases.
+     */
+    protected HarvestPhaseTimer getPhaseTimer() {
+        return phaseTimer;
+    }
+
     /**
      * @param isOnDemandHarvest
      *            the isOnDemandHarvest parameter to set
@@ -1034,10 +1054,10 @@ public abstract class BaseHarvest implements Harvest {
                 // The file could be a zipped RDF, an XML with an RDF conversion, N3, or actually a completely valid RDF
                 // that simply wasn't declared in the server-returned content type.
                 FileToRdfProcessor fileProcessor = new FileToRdfProcessor(file, getContextUrl());
-                processedFile = fileProcessor.process();
-                if (processedFile != null && fileProcessor.getRdfFormat() != null) {
+                processedFile = processFile(fileProcessor, file);
+                ContentLoader rdfLoader = processedFile == null ? null : createProcessedFileLoader(fileProcessor);
+                if (rdfLoader != null) {
                     LOGGER.debug(loggerMsg("File processed into RDF format"));
-                    ContentLoader rdfLoader = new RDFFormatLoader(fileProcessor.getRdfFormat());
                     rdfLoader.setTimeout(getTimeout());
                     return loadFile(processedFile, rdfLoader);
                 } else {
@@ -1063,10 +1083,173 @@ public abstract class BaseHarvest implements Harvest {
     protected int loadFile(File file, ContentLoader contentLoader) throws DAOException {
 
         LOGGER.debug(loggerMsg("Loading file into triple store, loader class is " + contentLoader.getClass().getSimpleName()));
-        int tripleCount = getHarvestSourceDAO().loadContent(file, contentLoader, getContextUrl());
+        long started = HarvestPhaseTimer.start();
+        long graphSwapMicros = phaseTimer.getDurationMicros(Phase.GRAPH_SWAP);
+        int tripleCount = 0;
+        if (contentLoader instanceof IncrementalRDFFormatLoader) {
+            tripleCount =
+                    getHarvestSourceDAO().loadContentIncrementally(file, (IncrementalRDFFormatLoader) contentLoader,
+                            getContextUrl(), phaseTimer);
+        } else {
+            tripleCount = getHarvestSourceDAO().loadContent(file, contentLoader, getContextUrl(), phaseTimer);
+        }
+        recordLoading(started, graphSwapMicros, file.length(), tripleCount);
+        return tripleCount;
+    }
+
+    /**
+     * Records the loading phase that started at the given time, excluding the time that was meanwhile spent on swapping the
+     * graph with its backup copy.
+     *
+     * @param started value of {@link HarvestPhaseTimer#start()} when the loading started.
+     * @param graphSwapMicros duration of the graph swap phase when the loading started.
+     * @param bytes number of bytes loaded, 0 if not known.
+     * @param tripleCount number of triples loaded.
+     */
+    private void recordLoading(long started, long graphSwapMicros, long bytes, int tripleCount) {
+
+        long nanos = System.nanoTime() - started;
+        long graphSwapNanos = (phaseTimer.getDurationMicros(Phase.GRAPH_SWAP) - graphSwapMicros) * 1000L;
+        phaseTimer.record(Phase.LOADING, nanos - graphSwapNanos, bytes, tripleCount);
+    }
+
+    /**
+     * Processes the given file with the given processor, recording the time spent on format detection and XML conversion.
+     *
+     * @param fileProcessor the processor.
+     * @param file the file being processed.
+     * @return see {@link FileToRdfProcessor#process()}.
+     * @throws IOException
+     * @throws SAXException
+     * @throws RDFHandlerException
+     * @throws RDFParseException
+     */
+    protected File processFile(FileToRdfProcessor fileProcessor, File file) throws IOException, SAXException,
+            RDFHandlerException, RDFParseException {
+
+        long started = HarvestPhaseTimer.start();
+        try {
+            return fileProcessor.process();
+        } finally {
+            long nanos = System.nanoTime() - started;
+            long conversionNanos = fileProcessor.getConversionNanos();
+            if (conversionNanos > 0) {
+                phaseTimer.record(Phase.CONVERSION, conversionNanos, 0L, 0);
+            }
+            phaseTimer.record(Phase.DETECTION, nanos - conversionNanos, file.length(), 0);
+        }
+    }
+
+    /**
+     * Creates the loader for content in the given RDF format. If the context source has incremental loading switched on, only the
+     * differences from the graph's current content will be loaded. Otherwise see {@link #createFullRdfFormatLoader(RDFFormat)}.
+     *
+     * @param rdfFormat format of the content.
+     * @return the loader.
+     */
+    protected ContentLoader createRdfFormatLoader(RDFFormat rdfFormat) {
+
+        if (getContextSourceDTO() != null && getContextSourceDTO().isIncrementalLoad()) {
+            return new IncrementalRDFFormatLoader(rdfFormat, getContextSourceDTO().isBulkLoad());
+        } else {
+            return createFullRdfFormatLoader(rdfFormat);
+        }
+    }
+
+    /**
+     * Creates the loader that loads all the content in the given RDF format. If the context source has bulk loading switched on,
+     * the content will be loaded with the triple store's bulk loader, otherwise statement by statement.
+     *
+     * @param rdfFormat format of the content.
+     * @return the loader.
+     */
+    protected ContentLoader createFullRdfFormatLoader(RDFFormat rdfFormat) {
+
+        if (getContextSourceDTO() != null && getContextSourceDTO().isBulkLoad()) {
+            return new BulkRDFFormatLoader(rdfFormat);
+        } else {
+            return new RDFFormatLoader(rdfFormat);
+        }
+    }
+
+    /**
+     * Creates the loader for a file processed by the given {@link FileToRdfProcessor}: an uncompressing loader if the file is
+     * compressed RDF, otherwise a loader of the file's detected RDF format.
+     *
+     * @param fileProcessor the processor that has processed the file.
+     * @return the loader, or null if the file could not be processed into RDF.
+     */
+    protected ContentLoader createProcessedFileLoader(FileToRdfProcessor fileProcessor) {
+
+        if (fileProcessor.isCompressedRdf()) {
+            return new DecompressingContentLoader(new DecompressingContentLoader.LoaderFactory() {
+                @Override
+                public ContentLoader createLoader(RDFFormat rdfFormat) {
+                    // Archive entries are loaded one by one into the same graph, so none of them can replace it incrementally.
+                    return createFullRdfFormatLoader(rdfFormat);
+                }
+
+                @Override
+                public void entrySkipped(String entryName) {
+                    addHarvestMessage("Skipped " + (entryName == null ? "the uncompressed content" : "archive entry " + entryName)
+                            + ", as it does not seem to be RDF", HarvestMessageType.WARNING);
+                }
+            });
+        } else if (fileProcessor.getRdfFormat() != null) {
+            return createRdfFormatLoader(fileProcessor.getRdfFormat());
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Loads the given input stream into triplestore as it is being read, without spooling it anywhere first.
+     *
+     * @param inputStream stream of the content to load.
+     * @param contentLoader does the actual loading of triples.
+     * @return number of triples.
+     * @throws DAOException database exception
+     */
+    protected int loadStream(InputStream inputStream, ContentLoader contentLoader) throws DAOException {
+
+        LOGGER.debug(loggerMsg("Loading stream into triple store, loader class is " + contentLoader.getClass().getSimpleName()));
+        long started = HarvestPhaseTimer.start();
+        long graphSwapMicros = phaseTimer.getDurationMicros(Phase.GRAPH_SWAP);
+        int tripleCount = 0;
+        if (contentLoader instanceof IncrementalRDFFormatLoader) {
+            tripleCount =
+                    getHarvestSourceDAO().loadContentIncrementally(inputStream, (IncrementalRDFFormatLoader) contentLoader,
+                            getContextUrl(), phaseTimer);
+        } else {
+            tripleCount = getHarvestSourceDAO().loadContent(inputStream, contentLoader, getContextUrl(), phaseTimer);
+        }
+        recordLoading(started, graphSwapMicros, 0L, tripleCount);
         return tripleCount;
     }
 
+    /**
+     * Logs and records as harvest message the throughput of getting the content into the triplestore, so that the streaming and
+     * spooled load modes can be compared on real sources.
+     *
+     * @param mode human-readable name of the load mode.
+     * @param bytes number of bytes read from the source.
+     * @param triples number of triples loaded.
+     * @param millis time from the first byte read to the last triple loaded, in milliseconds.
+     */
+    protected void addLoadThroughputMessage(String mode, long bytes, int triples, long millis) {
+
+        long safeMillis = Math.max(1L, millis);
+        long bytesPerSecond = bytes * 1000L / safeMillis;
+        long triplesPerSecond = triples * 1000L / safeMillis;
+
+        String message =
+                MessageFormat.format("Loaded {0} triples from {1} bytes in {2} ms ({3}): {4} bytes/s, {5} triples/s",
+                        String.valueOf(triples), String.valueOf(bytes), String.valueOf(millis), mode,
+                        String.valueOf(bytesPerSecond), String.valueOf(triplesPerSecond));
+        LOGGER.debug(loggerMsg(message));
+        addHarvestMessage(message, HarvestMessageType.INFO);
+    }
+
     /**
      * Returns content loader for local files.
      *
@@ -1127,7 +1310,7 @@ public abstract class BaseHarvest implements Harvest {
             }
 
             if (rdfFormat != null) {
-                contentLoader = new RDFFormatLoader(rdfFormat);
+                contentLoader = createRdfFormatLoader(rdfFormat);
             }
         }
 
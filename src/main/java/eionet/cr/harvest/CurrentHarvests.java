@@ -20,7 +20,10 @@
  * Jaanus Heinlaid, Tieto Eesti*/
 package eionet.cr.harvest;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 /**
  *
@@ -29,14 +32,15 @@ import java.util.HashMap;
  */
 public final class CurrentHarvests {
 
-    /** */
-    private static Harvest queuedHarvest;
+    /** Harvests currently executed by the batch harvester, in the order they were started. */
+    private static LinkedHashSet<Harvest> queuedHarvests;
     private static HashMap<String, String> onDemandHarvests;
 
     /**
      *
      */
     static {
+        queuedHarvests = new LinkedHashSet<Harvest>();
         onDemandHarvests = new HashMap<String, String>();
     }
 
@@ -48,17 +52,50 @@ public final class CurrentHarvests {
     }
 
     /**
+     * Returns the longest-running of the harvests currently executed by the batch harvester, or null if there is none.
+     *
      * @return the queuedHarvest
      */
     public static synchronized Harvest getQueuedHarvest() {
-        return queuedHarvest;
+        return queuedHarvests.isEmpty() ? null : queuedHarvests.iterator().next();
+    }
+
+    /**
+     * Returns a copy of the harvests currently executed by the batch harvester, in the order they were started.
+     *
+     * @return the queuedHarvests
+     */
+    public static synchronized List<Harvest> getQueuedHarvests() {
+        return new ArrayList<Harvest>(queuedHarvests);
     }
 
     /**
-     * @param queuedHarvest the queuedHarvest to set
+     * Registers the given harvest as currently executed by the batch harvester.
+     *
+     * @param harvest the harvest to add
      */
-    public static synchronized void setQueuedHarvest(Harvest queuedHarvest) {
-        CurrentHarvests.queuedHarvest = queuedHarvest;
+    public static synchronized void addQueuedHarvest(Harvest harvest) {
+        if (harvest != null) {
+            queuedHarvests.add(harvest);
+        }
+    }
+
+    /**
+     * Removes the given harvest from the ones currently executed by the batch harvester.
+     *
+     * @param harvest the harvest to remove
+     */
+    public static synchronized void removeQueuedHarvest(Harvest harvest) {
+        if (harvest != null) {
+            queuedHarvests.remove(harvest);
+        }
+    }
+
+    /**
+     * Clears the registry of harvests currently executed by the batch harvester.
+     */
+    public static synchronized void clearQueuedHarvests() {
+        queuedHarvests.clear();
     }
 
     /**
@@ -94,8 +131,10 @@ public final class CurrentHarvests {
             return false;
         }
 
-        if (queuedHarvest != null && queuedHarvest.isBeingHarvested(url)) {
-            return true;
+        for (Harvest queuedHarvest : queuedHarvests) {
+            if (queuedHarvest.isBeingHarvested(url)) {
+                return true;
+            }
         }
 
         if (onDemandHarvests.containsKey(url)) {
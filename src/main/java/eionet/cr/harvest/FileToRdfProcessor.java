@@ -22,21 +22,17 @@
 package eionet.cr.harvest;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.net.URLEncoder;
 import java.nio.channels.FileLockInterruptionException;
 import java.text.MessageFormat;
 import java.util.Map.Entry;
-import java.util.zip.GZIPInputStream;
 
 import javax.imageio.IIOException;
 import javax.xml.parsers.ParserConfigurationException;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.openrdf.rio.RDFFormat;
@@ -46,7 +42,9 @@ import org.xml.sax.SAXException;
 
 import eionet.cr.common.CRRuntimeException;
 import eionet.cr.config.GeneralConfig;
+import eionet.cr.harvest.load.DecompressingContentLoader;
 import eionet.cr.harvest.util.FileRdfFormatDetector;
+import eionet.cr.util.CompressUtil;
 import eionet.cr.util.FileDeletionJob;
 import eionet.cr.util.FileUtil;
 import eionet.cr.util.xml.ConversionsParser;
@@ -72,6 +70,12 @@ public class FileToRdfProcessor {
      */
     private RDFFormat rdfFormat;
 
+    /** True if the file is compressed RDF that can be loaded with an uncompressing loader as it is. */
+    private boolean compressedRdf;
+
+    /** Time spent on converting XML into RDF by a conversion stylesheet, in nanoseconds. */
+    private long conversionNanos;
+
     /**
      *
      * @param file
@@ -110,6 +114,14 @@ public class FileToRdfProcessor {
      */
     public File process() throws IOException, SAXException, RDFHandlerException, RDFParseException {
 
+        // If the file is compressed (or an archive) with RDF inside, it can be loaded with an uncompressing loader as it is,
+        // so no need for an uncompressed copy.
+        if (DecompressingContentLoader.containsRdf(file)) {
+            LOGGER.debug(loggerMsg("File is compressed RDF, to be loaded without uncompressing it first"));
+            compressedRdf = true;
+            return file;
+        }
+
         // try unzipping (if the file is not zipped, reference to the same file is returned,
         // otherwise reference to the newly created unzipped file is returned)
         File unzippedFile = tryUnzip(file);
@@ -120,6 +132,18 @@ public class FileToRdfProcessor {
         // initialize result to null
         File resultFile = null;
         try {
+            // First sniff the format from the file's prefix: if it is conclusive, no XML analysis or trial parsing is needed.
+            FileRdfFormatDetector.Sniff sniff = FileRdfFormatDetector.sniff(unzippedFile);
+            if (sniff.getRdfFormat() != null) {
+                LOGGER.debug(loggerMsg("Sniffed RDF format from the file's prefix: " + sniff));
+                rdfFormat = sniff.getRdfFormat();
+                resultFile = unzippedFile;
+                return resultFile;
+            } else if (sniff == FileRdfFormatDetector.Sniff.BINARY) {
+                LOGGER.debug(loggerMsg("Sniffed binary content, so not RDF"));
+                return null;
+            }
+
             // See if the unzipped (if it was zipped) file is an XML that can be processed into RDF.
             XmlAnalysis xmlAnalysis = getXmlAnalysis(unzippedFile);
             if (xmlAnalysis != null) {
@@ -136,15 +160,18 @@ public class FileToRdfProcessor {
                     // The file's start element was not RDF, so try to convert it to RDF.
                     LOGGER.debug(loggerMsg("Seems to be XML file, attempting RDF conversion"));
                     String conversionSchema = xmlAnalysis.getConversionSchema();
+                    long conversionStarted = System.nanoTime();
                     resultFile = attemptRdfConversion(unzippedFile, conversionSchema, contextUrl);
+                    conversionNanos = System.nanoTime() - conversionStarted;
                     if (resultFile != null) {
                         rdfFormat = RDFFormat.RDFXML;
                     }
                 }
             } else {
                 // The file wasn't XML, so see if it is any of the supported RDF formats.
+                // The prefix was already sniffed above, so go straight to trial parsing.
                 FileRdfFormatDetector rdfFormatDetector = new FileRdfFormatDetector();
-                rdfFormat = rdfFormatDetector.detect(unzippedFile, contextUrl);
+                rdfFormat = rdfFormatDetector.detectByParsing(unzippedFile, contextUrl);
                 if (rdfFormat != null) {
                     // File was one of RDF formats, so assign to result file.
                     resultFile = unzippedFile;
@@ -178,31 +205,19 @@ public class FileToRdfProcessor {
     }
 
     /**
+     * Uncompresses the given file if it is compressed in any of the formats supported by {@link CompressUtil} (gzip, bzip2, etc).
      *
      * @param file
-     * @return
+     * @return reference to the uncompressed file, or the given file itself if it is not compressed.
      */
     private File tryUnzip(File file) {
 
-        GZIPInputStream inputStream = null;
-        FileOutputStream outputStream = null;
-        FileInputStream fis = null;
-
+        File unzippedFile = new File(file.getAbsolutePath() + ".unzipped");
         try {
-            // closing GZIPInputStream does not seem to close the given InputStream
-            fis = new FileInputStream(file);
-            inputStream = new GZIPInputStream(fis);
-            File unzippedFile = new File(file.getAbsolutePath() + ".unzipped");
-            outputStream = new FileOutputStream(unzippedFile);
-            IOUtils.copy(inputStream, outputStream);
+            CompressUtil.uncompress(file, unzippedFile);
             return unzippedFile;
-
         } catch (IOException e) {
             return file;
-        } finally {
-            IOUtils.closeQuietly(fis);
-            IOUtils.closeQuietly(inputStream);
-            IOUtils.closeQuietly(outputStream);
         }
     }
 
@@ -304,4 +319,25 @@ public class FileToRdfProcessor {
     public RDFFormat getRdfFormat() {
         return rdfFormat;
     }
+
+    /**
+     * Returns true if the processed file is compressed RDF (or an archive of RDF files) that should be loaded with a
+     * {@link DecompressingContentLoader}. In such a case {@link #getRdfFormat()} returns null, as every archive entry may be in
+     * a different format.
+     *
+     * @return
+     */
+    public boolean isCompressedRdf() {
+        return compressedRdf;
+    }
+
+    /**
+     * Returns the part of {@link #process()}'s time that was spent on converting XML into RDF by a conversion stylesheet. The rest
+     * of it was spent on detecting the file's format.
+     *
+     * @return Time in nanoseconds, 0 if no conversion was attempted.
+     */
+    public long getConversionNanos() {
+        return conversionNanos;
+    }
 }
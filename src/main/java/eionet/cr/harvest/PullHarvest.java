@@ -26,6 +26,7 @@ import static eionet.cr.harvest.ResponseCodeUtil.isNotModified;
 import static eionet.cr.harvest.ResponseCodeUtil.isPermanentError;
 import static eionet.cr.harvest.ResponseCodeUtil.isRedirect;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -36,6 +37,9 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
@@ -44,11 +48,13 @@ import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.httpclient.HttpConnectionManager;
 import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.params.HttpClientParams;
 import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.math.NumberUtils;
 import org.apache.log4j.Logger;
@@ -58,6 +64,7 @@ import org.openrdf.rio.RDFHandlerException;
 import org.openrdf.rio.RDFParseException;
 import org.xml.sax.SAXException;
 
+import eionet.cr.common.CRRuntimeException;
 import eionet.cr.common.Predicates;
 import eionet.cr.common.TempFilePathGenerator;
 import eionet.cr.config.GeneralConfig;
@@ -73,9 +80,10 @@ import eionet.cr.dto.SubjectDTO;
 import eionet.cr.filestore.FileStore;
 import eionet.cr.harvest.load.ContentLoader;
 import eionet.cr.harvest.load.FeedFormatLoader;
-import eionet.cr.harvest.load.RDFFormatLoader;
 import eionet.cr.harvest.util.EndpointHttpClient;
 import eionet.cr.harvest.util.HarvestMessageType;
+import eionet.cr.harvest.util.HarvestPhaseTimer;
+import eionet.cr.harvest.util.HarvestPhaseTimer.Phase;
 import eionet.cr.harvest.util.MediaTypeToDcmiTypeConverter;
 import eionet.cr.harvest.util.RDFMediaTypes;
 import eionet.cr.util.FileDeletionJob;
@@ -105,9 +113,24 @@ public class PullHarvest extends BaseHarvest {
     /** */
     private static final String ACCEPT_HEADER = StringUtils.join(RDFMediaTypes.collection(), ',') + ",text/xml,*/*;q=0.6";
 
+    /** Algorithm of the digest by which unchanged content is recognized. */
+    private static final String CONTENT_DIGEST_ALGORITHM = "SHA-256";
+
+    /** Length of the harvest source's etag column, longer ETags are not stored. */
+    private static final int MAX_ETAG_LENGTH = 255;
+
     /** */
     private boolean isSourceAvailable;
 
+    /** True if the current request was made conditional, i.e. previously harvested content may be considered still valid. */
+    private boolean isConditionalRequest;
+
+    /** Hex-encoded digest of the content downloaded by this harvest, null if nothing downloaded. */
+    private String contentDigest;
+
+    /** True if the downloaded content has the same digest as the previously harvested content, so it was not loaded again. */
+    private boolean isContentUnchanged;
+
     /** */
     private final List<String> redirectedUrls = new ArrayList<String>();
 
@@ -407,9 +430,14 @@ public class PullHarvest extends BaseHarvest {
             if (!isError(httpResponseCode) && !isNotModified(httpResponseCode)) {
 
                 int noOfTriples = downloadAndProcessContent(urlConn);
-                setStoredTriplesCount(noOfTriples);
-                LOGGER.debug(loggerMsg(noOfTriples + " triples loaded"));
-                finishWithOK(urlConn, noOfTriples);
+                if (isContentUnchanged) {
+                    LOGGER.debug(loggerMsg("Content unchanged since last harvest"));
+                    finishWithNotModified(urlConn, 0);
+                } else {
+                    setStoredTriplesCount(noOfTriples);
+                    LOGGER.debug(loggerMsg(noOfTriples + " triples loaded"));
+                    finishWithOK(urlConn, noOfTriples);
+                }
 
             } else if (isNotModified(httpResponseCode)) {
                 LOGGER.debug(loggerMsg("Source not modified since last harvest"));
@@ -475,6 +503,10 @@ public class PullHarvest extends BaseHarvest {
         getContextSourceDTO().setPermanentError(false);
         getContextSourceDTO().setCountUnavail(0);
 
+        // remember the validators of the content, so that the next harvest can skip it if it is still the same
+        getContextSourceDTO().setEtag(getStorableEtag(urlConn));
+        getContextSourceDTO().setContentDigest(contentDigest);
+
         // add source metadata resulting from this harvest
         addSourceMetadata(urlConn, 0, null, null);
 
@@ -482,6 +514,19 @@ public class PullHarvest extends BaseHarvest {
         setCleanAllPreviousSourceMetadata(true);
     }
 
+    /**
+     * Returns the ETag of the given connection's response, or null if there is none, or it is too long to be stored in the
+     * harvest source's etag column. Without an ETag, the next harvest sends no If-None-Match.
+     *
+     * @param urlConn The connection, may be null.
+     * @return The ETag, or null.
+     */
+    private static String getStorableEtag(HttpURLConnection urlConn) {
+
+        String etag = urlConn == null ? null : urlConn.getHeaderField("ETag");
+        return etag != null && etag.length() <= MAX_ETAG_LENGTH ? etag : null;
+    }
+
     /**
      *
      * @param urlConn
@@ -489,7 +534,13 @@ public class PullHarvest extends BaseHarvest {
      */
     private void finishWithNotModified(HttpURLConnection urlConn, int noOfTriples) {
 
-        addHarvestMessage("Source not modified since last harvest", HarvestMessageType.INFO);
+        if (isContentUnchanged) {
+            addHarvestMessage("Source content unchanged since last harvest", HarvestMessageType.INFO);
+            // the content was downloaded, so remember its new ETag for the next harvest's If-None-Match
+            getContextSourceDTO().setEtag(getStorableEtag(urlConn));
+        } else {
+            addHarvestMessage("Source not modified since last harvest", HarvestMessageType.INFO);
+        }
         isSourceAvailable = true;
 
         // update context source DTO (since the server returned source-not-modified,
@@ -705,6 +756,9 @@ public class PullHarvest extends BaseHarvest {
      * Download and process content. If response content type is one of RDF, then proceed straight to loading. Otherwise process the
      * file to see if it's zipped, it's an XML with RDF conversion, or actually an RDF file.
      *
+     * If {@link GeneralConfig#HARVESTER_STREAMING_LOAD} is on and the response content type is one of RDF or web feed, the
+     * content is loaded straight from the connection's stream, i.e. parsed while it is being downloaded, without a temporary file.
+     *
      * @param urlConn
      *            - connection to the remote source.
      * @return number of triples harvested.
@@ -720,19 +774,38 @@ public class PullHarvest extends BaseHarvest {
     private int downloadAndProcessContent(HttpURLConnection urlConn) throws IOException, DAOException, SAXException,
             RDFHandlerException, RDFParseException {
 
+        // If the previously harvested content's digest is known and still valid, the content must be downloaded into a file first,
+        // so that it can be skipped if it is unchanged. Otherwise it can be loaded while downloading. So can the content of a
+        // source with a stored ETag: its server has already answered 304 if the content was unchanged.
+        String previousDigest = isConditionalRequest ? getContextSourceDTO().getContentDigest() : null;
+        ContentLoader contentLoader = createContentLoader(urlConn);
+        if (contentLoader != null && GeneralConfig.getBooleanProperty(GeneralConfig.HARVESTER_STREAMING_LOAD, false)) {
+            if (previousDigest == null || StringUtils.isNotBlank(getContextSourceDTO().getEtag())) {
+                return streamAndLoadContent(urlConn, contentLoader);
+            }
+        }
+
         File downloadedFile = null;
         try {
+            long started = System.currentTimeMillis();
+            long downloadStarted = HarvestPhaseTimer.start();
             downloadedFile = downloadFile(urlConn);
+            getPhaseTimer().record(Phase.DOWNLOAD, System.nanoTime() - downloadStarted, downloadedFile.length(), 0);
+            if (previousDigest != null && previousDigest.equals(contentDigest)) {
+                isContentUnchanged = true;
+                return 0;
+            }
 
             // If the downloaded file can be loaded straight away as it is, then proceed to loading straight away.
             // Otherwise try to process the file into RDF format and *then* proceed to loading.
 
-            ContentLoader contentLoader = createContentLoader(urlConn);
-
             if (contentLoader != null) {
                 contentLoader.setTimeout(getTimeout());
                 LOGGER.debug(loggerMsg("Downloaded file is in RDF or web feed format"));
-                return loadFile(downloadedFile, contentLoader);
+                int noOfTriples = loadFile(downloadedFile, contentLoader);
+                addLoadThroughputMessage("spooled to temporary file, " + contentLoader.getClass().getSimpleName(),
+                        downloadedFile.length(), noOfTriples, System.currentTimeMillis() - started);
+                return noOfTriples;
             } else {
                 LOGGER.debug(loggerMsg("Downloaded file is not in RDF or web feed format, processing the file further"));
                 File processedFile = null;
@@ -740,12 +813,16 @@ public class PullHarvest extends BaseHarvest {
                     // The file could be a zipped RDF, an XML with an RDF conversion, N3, or actually a completely valid RDF
                     // that simply wasn't declared in the server-returned content type.
                     FileToRdfProcessor fileProcessor = new FileToRdfProcessor(downloadedFile, getContextUrl());
-                    processedFile = fileProcessor.process();
-                    if (processedFile != null && fileProcessor.getRdfFormat() != null) {
+                    processedFile = processFile(fileProcessor, downloadedFile);
+                    ContentLoader rdfLoader = processedFile == null ? null : createProcessedFileLoader(fileProcessor);
+                    if (rdfLoader != null) {
                         LOGGER.debug(loggerMsg("File processed into RDF format"));
-                        ContentLoader rdfLoader = new RDFFormatLoader(fileProcessor.getRdfFormat());
                         rdfLoader.setTimeout(getTimeout());
-                        return loadFile(processedFile, rdfLoader);
+                        int noOfTriples = loadFile(processedFile, rdfLoader);
+                        addLoadThroughputMessage("spooled to temporary file and processed, "
+                                + rdfLoader.getClass().getSimpleName(), downloadedFile.length(), noOfTriples,
+                                System.currentTimeMillis() - started);
+                        return noOfTriples;
                     } else {
                         LOGGER.debug(loggerMsg("File couldn't be processed into RDF format"));
                         return 0;
@@ -759,6 +836,49 @@ public class PullHarvest extends BaseHarvest {
         }
     }
 
+    /**
+     * Loads the content straight from the given connection's input stream with the given loader, so that triples are parsed and
+     * stored while the content is still being downloaded. Side effect: adds the number of bytes read to the metadata to save in
+     * the harvester context.
+     *
+     * @param urlConn
+     *            - connection to the remote source.
+     * @param contentLoader
+     *            - loader matching the content type declared by the server.
+     * @return number of triples harvested.
+     * @throws IOException
+     *             if the connection's input stream could not be opened.
+     * @throws DAOException
+     *             if loading failed, including failures to read the stream half-way.
+     */
+    private int streamAndLoadContent(HttpURLConnection urlConn, ContentLoader contentLoader) throws IOException, DAOException {
+
+        LOGGER.debug(loggerMsg("Content is in RDF or web feed format, loading it while downloading"));
+
+        CountingInputStream inputStream = null;
+        try {
+            long started = System.currentTimeMillis();
+            DigestInputStream digestInputStream =
+                    new DigestInputStream(new BufferedInputStream(urlConn.getInputStream()), newContentDigest());
+            inputStream = new CountingInputStream(digestInputStream);
+            isSourceAvailable = true;
+
+            contentLoader.setTimeout(getTimeout());
+            int noOfTriples = loadStream(inputStream, contentLoader);
+            contentDigest = Hex.encodeHexString(digestInputStream.getMessageDigest().digest());
+
+            long bytesRead = inputStream.getByteCount();
+            getPhaseTimer().record(Phase.LOADING, 0L, bytesRead, 0);
+            addSourceMetadata(Predicates.CR_BYTE_SIZE, ObjectDTO.createLiteral(String.valueOf(bytesRead)));
+            addLoadThroughputMessage("streamed, " + contentLoader.getClass().getSimpleName(), bytesRead, noOfTriples,
+                    System.currentTimeMillis() - started);
+            return noOfTriples;
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+            URLUtil.disconnect(urlConn);
+        }
+    }
+
     /**
      *
      * @param redirectedToUrl
@@ -845,6 +965,20 @@ public class PullHarvest extends BaseHarvest {
         return subjectDTO;
     }
 
+    /**
+     * Creates the digest by which unchanged content is recognized.
+     *
+     * @return the digest.
+     */
+    private static MessageDigest newContentDigest() {
+
+        try {
+            return MessageDigest.getInstance(CONTENT_DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new CRRuntimeException(CONTENT_DIGEST_ALGORITHM + " digest not available", e);
+        }
+    }
+
     /**
      * Download file from remote source to a temporary file locally. Side effect: adds the file size to the metadata to save in the
      * harvester context.
@@ -864,9 +998,11 @@ public class PullHarvest extends BaseHarvest {
         File file = TempFilePathGenerator.generate();
         try {
             outputStream = new FileOutputStream(file);
-            inputStream = urlConn.getInputStream();
+            DigestInputStream digestInputStream = new DigestInputStream(urlConn.getInputStream(), newContentDigest());
+            inputStream = digestInputStream;
             isSourceAvailable = true;
             int bytesCopied = IOUtils.copy(inputStream, outputStream);
+            contentDigest = Hex.encodeHexString(digestInputStream.getMessageDigest().digest());
 
             // add number of bytes to source metadata, unless it's already there
             addSourceMetadata(Predicates.CR_BYTE_SIZE, ObjectDTO.createLiteral(String.valueOf(bytesCopied)));
@@ -909,7 +1045,8 @@ public class PullHarvest extends BaseHarvest {
         connection.setConnectTimeout(httpTimeout);
         connection.setReadTimeout(httpTimeout);
 
-        // Use "If-Modified-Since" header, if this is not an on-demand harvest
+        // Use "If-Modified-Since" and "If-None-Match" headers, if this is not an on-demand harvest
+        isConditionalRequest = false;
         if (!isOnDemandHarvest) {
 
             // "If-Modified-Since" will be compared to this URL's last harvest
@@ -930,10 +1067,17 @@ public class PullHarvest extends BaseHarvest {
                 // "If-Modified-Since" should only be set if there is no modified conversion or post-harvest scripts for this URL.
                 // Because if there is a conversion stylesheet or post-harvest scripts, and any of them has been modified since last
                 // harvest, we surely want to get the content again and run the conversion or script on the content, regardless of
-                // when the content itself was last modified.
+                // when the content itself was last modified. Same goes for "If-None-Match" and skipping unchanged content.
                 if (!hasModifiedConversion && !scriptsModified) {
+                    isConditionalRequest = true;
                     LOGGER.debug(loggerMsg("Using if-modified-since, compared to last harvest " + formatDate(lastHarvestDate)));
                     connection.setIfModifiedSince(lastHarvest);
+
+                    String etag = getContextSourceDTO().getEtag();
+                    if (!StringUtils.isBlank(etag)) {
+                        LOGGER.debug(loggerMsg("Using if-none-match, compared to last harvest's ETag " + etag));
+                        connection.setRequestProperty("If-None-Match", etag);
+                    }
                 }
             }
         }
@@ -1052,7 +1196,7 @@ public class PullHarvest extends BaseHarvest {
 
         RDFFormat rdfFormat = getRdfFormat(urlConn);
         if (rdfFormat != null) {
-            return new RDFFormatLoader(rdfFormat);
+            return createRdfFormatLoader(rdfFormat);
         }
 
         String contentType = getSourceContentType(urlConn);
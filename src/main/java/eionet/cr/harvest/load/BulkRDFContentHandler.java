@@ -0,0 +1,127 @@
+package eionet.cr.harvest.load;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.BNode;
+import org.openrdf.model.Statement;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.ntriples.NTriplesUtil;
+
+import eionet.cr.util.sql.SQLUtil;
+
+/**
+ * An {@link RDFContentHandler} that does not add statements into the repository one by one, but serializes them into a large
+ * N-Triples buffer which is handed to Virtuoso's native multi-threaded Turtle loader (DB.DBA.TTLP_MT) over the SQL connection
+ * once it reaches the batch size. This replaces tens of thousands of driver round trips by one call per batch.
+ *
+ * Statements with blank nodes bypass the buffer and go through the repository connection as usual, because Virtuoso scopes
+ * blank node labels to a single TTLP call, so the same blank node split over two batches would become two different nodes.
+ *
+ * @author jaanus
+ */
+public class BulkRDFContentHandler extends RDFContentHandler {
+
+    /** */
+    private static final Logger LOGGER = Logger.getLogger(BulkRDFContentHandler.class);
+
+    /** Virtuoso's bulk Turtle loader. The flags value 255 is the same relaxed parsing that Virtuoso's Sesame driver uses. */
+    private static final String TTLP_MT_SQL = "DB.DBA.TTLP_MT(?, '', ?, 255)";
+
+    /** Flush the buffer also when it grows above this many characters, regardless of the statement count. */
+    private static final int MAX_BUFFER_CHARS = 16 * 1024 * 1024;
+
+    /** Number of statements per bulk-load call. */
+    private final int batchSize;
+
+    /** N-Triples serialization of the statements buffered so far. */
+    private final StringBuilder buffer = new StringBuilder();
+
+    /** Number of statements buffered so far. */
+    private int bufferedCount;
+
+    /** Number of bulk-load calls made. */
+    private int flushCount;
+
+    /**
+     * @param repoConn
+     * @param sqlConn
+     * @param contextUri The URI of the graph where the triples will be loaded into.
+     * @param timeout Timeout in milliseconds.
+     * @param batchSize Number of statements per bulk-load call.
+     */
+    public BulkRDFContentHandler(RepositoryConnection repoConn, Connection sqlConn, String contextUri, long timeout, int batchSize) {
+
+        super(repoConn, sqlConn, contextUri, timeout);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.harvest.load.RDFContentHandler#addStatement(org.openrdf.model.Statement)
+     */
+    @Override
+    protected void addStatement(Statement statement) throws Exception {
+
+        if (statement.getSubject() instanceof BNode || statement.getObject() instanceof BNode) {
+            super.addStatement(statement);
+            return;
+        }
+
+        buffer.append(NTriplesUtil.toNTriplesString(statement.getSubject())).append(' ');
+        buffer.append(NTriplesUtil.toNTriplesString(statement.getPredicate())).append(' ');
+        buffer.append(NTriplesUtil.toNTriplesString(statement.getObject())).append(" .\n");
+        bufferedCount++;
+
+        if (bufferedCount >= batchSize || buffer.length() >= MAX_BUFFER_CHARS) {
+            flush();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.harvest.load.RDFContentHandler#endRDF()
+     */
+    @Override
+    public void endRDF() throws RDFHandlerException {
+
+        try {
+            flush();
+        } catch (SQLException e) {
+            throw new RDFHandlerException("Bulk loading of the last batch failed: " + e.getMessage(), e);
+        }
+        LOGGER.debug("Bulk-loaded content in " + flushCount + " batch(es), " + getNumberOfTriplesSaved() + " triples in total");
+        super.endRDF();
+    }
+
+    /**
+     * Hands the buffered statements to Virtuoso's bulk loader and clears the buffer.
+     *
+     * @throws SQLException if the bulk load call fails.
+     */
+    private void flush() throws SQLException {
+
+        if (bufferedCount == 0) {
+            return;
+        }
+
+        CallableStatement stmt = null;
+        try {
+            stmt = getSqlConn().prepareCall(TTLP_MT_SQL);
+            stmt.setString(1, buffer.toString());
+            stmt.setString(2, getContext().stringValue());
+            stmt.execute();
+            flushCount++;
+            LOGGER.trace("Bulk-loaded batch #" + flushCount + " of " + bufferedCount + " statements");
+        } finally {
+            SQLUtil.close(stmt);
+            buffer.setLength(0);
+            bufferedCount = 0;
+        }
+    }
+}
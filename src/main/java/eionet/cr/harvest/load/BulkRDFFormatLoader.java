@@ -0,0 +1,43 @@
+package eionet.cr.harvest.load;
+
+import java.sql.Connection;
+
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.rio.RDFFormat;
+
+import eionet.cr.config.GeneralConfig;
+
+/**
+ * An {@link RDFFormatLoader} that loads the parsed statements with Virtuoso's native bulk loader in large batches, rather than
+ * adding them into the repository one by one. See {@link BulkRDFContentHandler} for details.
+ *
+ * @author jaanus
+ */
+public class BulkRDFFormatLoader extends RDFFormatLoader {
+
+    /** Default number of statements per bulk-load call. */
+    public static final int DEFAULT_BATCH_SIZE = 100000;
+
+    /**
+     * The loader will expect content in the given {@link RDFFormat}.
+     *
+     * @param rdfFormat
+     */
+    public BulkRDFFormatLoader(RDFFormat rdfFormat) {
+        super(rdfFormat);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.harvest.load.RDFFormatLoader#createContentHandler(org.openrdf.repository.RepositoryConnection,
+     * java.sql.Connection, java.lang.String, long)
+     */
+    @Override
+    protected RDFContentHandler createContentHandler(RepositoryConnection repoConn, Connection sqlConn, String contextUri,
+            long timeout) {
+
+        int batchSize = GeneralConfig.getIntProperty(GeneralConfig.HARVESTER_BULK_LOAD_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+        return new BulkRDFContentHandler(repoConn, sqlConn, contextUri, timeout, batchSize);
+    }
+}
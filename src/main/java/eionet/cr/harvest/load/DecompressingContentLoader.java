@@ -0,0 +1,190 @@
+package eionet.cr.harvest.load;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.log4j.Logger;
+import org.openrdf.OpenRDFException;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.rio.RDFFormat;
+
+import eionet.cr.harvest.util.FileRdfFormatDetector;
+import eionet.cr.util.CompressUtil;
+
+/**
+ * Implementation of {@link ContentLoader} for compressed content (gzip, bzip2, etc) and archives (zip, tar, etc), or any
+ * combination of the two (e.g. tar.gz). The content is uncompressed on the fly and fed straight into the RDF parser, without an
+ * uncompressed copy on the disk. Every entry of an archive is loaded into the same graph, in the RDF format sniffed from the
+ * entry's prefix. Entries that are not sniffed as RDF are skipped and reported to {@link LoaderFactory#entrySkipped(String)}.
+ *
+ * @author jaanus
+ */
+public class DecompressingContentLoader implements ContentLoader {
+
+    /** */
+    private static final Logger LOGGER = Logger.getLogger(DecompressingContentLoader.class);
+
+    /** Creates the loaders of the uncompressed content, so that e.g. the bulk loader can be used for it as well. */
+    private final LoaderFactory loaderFactory;
+
+    /** Timeout for RDF loading. */
+    private long timeout;
+
+    /**
+     * Creates the loaders of the uncompressed content, by its RDF format.
+     */
+    public interface LoaderFactory {
+
+        /**
+         * @param rdfFormat The RDF format of the uncompressed content.
+         * @return The loader.
+         */
+        ContentLoader createLoader(RDFFormat rdfFormat);
+
+        /**
+         * Called for every archive entry (or the whole uncompressed content) that is skipped, as it is not sniffed as RDF.
+         *
+         * @param entryName Name of the archive entry, or null if not an archive.
+         */
+        void entrySkipped(String entryName);
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param loaderFactory Creates the loaders of the uncompressed content.
+     */
+    public DecompressingContentLoader(LoaderFactory loaderFactory) {
+        this.loaderFactory = loaderFactory;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.harvest.load.ContentLoader#load(java.io.InputStream, org.openrdf.repository.RepositoryConnection,
+     * java.sql.Connection, java.lang.String, java.lang.String)
+     */
+    @Override
+    public int load(InputStream inputStream, RepositoryConnection repoConn, Connection sqlConn, String baseUri, String contextUri)
+            throws IOException, OpenRDFException, ContentParsingException {
+
+        InputStream uncompressed = new BufferedInputStream(CompressUtil.uncompressing(new BufferedInputStream(inputStream)));
+        ArchiveInputStream archive = CompressUtil.archiveOrNull(uncompressed);
+        if (archive == null) {
+            return loadEntry(uncompressed, null, repoConn, sqlConn, baseUri, contextUri);
+        }
+
+        int tripleCount = 0;
+        ArchiveEntry entry = null;
+        while ((entry = archive.getNextEntry()) != null) {
+            if (!entry.isDirectory()) {
+                tripleCount += loadEntry(archive, entry.getName(), repoConn, sqlConn, baseUri, contextUri);
+            }
+        }
+        return tripleCount;
+    }
+
+    /**
+     * Sniffs the RDF format of the given uncompressed stream and loads it with a loader of that format. The stream is not closed,
+     * as it may be an archive stream that has more entries to come.
+     *
+     * @param inputStream The uncompressed stream.
+     * @param entryName Name of the archive entry, or null if not an archive.
+     * @param repoConn
+     * @param sqlConn
+     * @param baseUri
+     * @param contextUri
+     * @return Number of triples loaded, 0 if the stream was not sniffed as RDF.
+     * @throws IOException
+     * @throws OpenRDFException
+     * @throws ContentParsingException
+     */
+    private int loadEntry(InputStream inputStream, String entryName, RepositoryConnection repoConn, Connection sqlConn,
+            String baseUri, String contextUri) throws IOException, OpenRDFException, ContentParsingException {
+
+        BufferedInputStream buffered =
+                new BufferedInputStream(new CloseShieldInputStream(inputStream), FileRdfFormatDetector.SNIFF_PREFIX_BYTES);
+        RDFFormat rdfFormat = sniff(buffered);
+        if (rdfFormat == null) {
+            LOGGER.debug("Skipping " + (entryName == null ? "uncompressed content" : "archive entry " + entryName)
+                    + ", as it does not seem to be RDF");
+            loaderFactory.entrySkipped(entryName);
+            return 0;
+        }
+
+        LOGGER.debug("Loading " + (entryName == null ? "uncompressed content" : "archive entry " + entryName) + " as "
+                + rdfFormat.getName());
+        ContentLoader loader = loaderFactory.createLoader(rdfFormat);
+        loader.setTimeout(timeout);
+        return loader.load(buffered, repoConn, sqlConn, baseUri, contextUri);
+    }
+
+    /**
+     * Returns true if the given file is compressed or an archive, and its uncompressed content (or at least one entry of the
+     * archive) is sniffed as RDF. Returns false for files that are neither compressed nor archives.
+     *
+     * @param file The file to inspect.
+     * @return As described above.
+     */
+    public static boolean containsRdf(File file) {
+
+        InputStream fileInputStream = null;
+        try {
+            fileInputStream = new BufferedInputStream(new FileInputStream(file));
+            InputStream uncompressing = CompressUtil.uncompressing(fileInputStream);
+            InputStream uncompressed = new BufferedInputStream(uncompressing);
+            ArchiveInputStream archive = CompressUtil.archiveOrNull(uncompressed);
+            if (archive == null) {
+                return uncompressing != fileInputStream && sniff(uncompressed) != null;
+            }
+
+            ArchiveEntry entry = null;
+            while ((entry = archive.getNextEntry()) != null) {
+                if (!entry.isDirectory()
+                        && sniff(new BufferedInputStream(archive, FileRdfFormatDetector.SNIFF_PREFIX_BYTES)) != null) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            LOGGER.debug("Failed to inspect " + file + " for compressed RDF: " + e);
+            return false;
+        } finally {
+            IOUtils.closeQuietly(fileInputStream);
+        }
+    }
+
+    /**
+     * Sniffs the RDF format of the given stream from its prefix, and resets the stream back to where it was.
+     *
+     * @param inputStream The stream to sniff, must support mark/reset.
+     * @return The RDF format, or null if the prefix was not conclusively sniffed as RDF.
+     * @throws IOException
+     */
+    private static RDFFormat sniff(InputStream inputStream) throws IOException {
+
+        byte[] prefix = new byte[FileRdfFormatDetector.SNIFF_PREFIX_BYTES];
+        inputStream.mark(prefix.length);
+        int length = FileRdfFormatDetector.readPrefix(inputStream, prefix);
+        inputStream.reset();
+        return FileRdfFormatDetector.sniff(prefix, length, length < prefix.length).getRdfFormat();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.harvest.load.ContentLoader#setTimeout(long)
+     */
+    @Override
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,98 @@
+package eionet.cr.harvest.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.Statement;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.rio.RDFFormat;
+
+/**
+ * An {@link RDFFormatLoader} that does not add the parsed statements into the repository, but writes them into a
+ * {@link TripleSpool}. The spool is then compared with the graph's current content, and only the differences are applied to the
+ * graph. See {@link eionet.cr.dao.HarvestSourceDAO#loadContentIncrementally(InputStream, IncrementalRDFFormatLoader, String,
+ * eionet.cr.harvest.util.HarvestPhaseTimer)}.
+ *
+ * @author jaanus
+ */
+public class IncrementalRDFFormatLoader extends RDFFormatLoader {
+
+    /** The spool of the statements parsed by the last call to load(). */
+    private TripleSpool spool;
+
+    /** If true, a full reload of the spool is done with {@link BulkRDFFormatLoader}. */
+    private boolean bulkReload;
+
+    /**
+     * The loader will expect content in the given {@link RDFFormat}.
+     *
+     * @param rdfFormat
+     */
+    public IncrementalRDFFormatLoader(RDFFormat rdfFormat) {
+        this(rdfFormat, false);
+    }
+
+    /**
+     * The loader will expect content in the given {@link RDFFormat}.
+     *
+     * @param rdfFormat
+     * @param bulkReload If true, a full reload of the spool is done with {@link BulkRDFFormatLoader}.
+     */
+    public IncrementalRDFFormatLoader(RDFFormat rdfFormat, boolean bulkReload) {
+        super(rdfFormat);
+        this.bulkReload = bulkReload;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.harvest.load.RDFFormatLoader#load(java.io.InputStream, org.openrdf.repository.RepositoryConnection,
+     * java.sql.Connection, java.lang.String, java.lang.String)
+     */
+    @Override
+    public int load(InputStream inputStream, RepositoryConnection repoConn, Connection sqlConn, String baseUri, String contextUri)
+            throws IOException, OpenRDFException, ContentParsingException {
+
+        spool = new TripleSpool();
+        try {
+            return super.load(inputStream, repoConn, sqlConn, baseUri, contextUri);
+        } finally {
+            spool.close();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.harvest.load.RDFFormatLoader#createContentHandler(org.openrdf.repository.RepositoryConnection,
+     * java.sql.Connection, java.lang.String, long)
+     */
+    @Override
+    protected RDFContentHandler createContentHandler(RepositoryConnection repoConn, Connection sqlConn, String contextUri,
+            long timeout) {
+
+        return new RDFContentHandler(repoConn, sqlConn, contextUri, timeout) {
+            @Override
+            protected void addStatement(Statement statement) throws Exception {
+                spool.add(statement);
+            }
+        };
+    }
+
+    /**
+     * @return The spool of the statements parsed by the last call to load(), null if not called yet. The caller is responsible
+     *         for deleting it.
+     */
+    public TripleSpool getSpool() {
+        return spool;
+    }
+
+    /**
+     * @return The loader for a full reload of the spool, which is N-Triples, if the incremental update is not possible.
+     */
+    public ContentLoader createFullReloadLoader() {
+        return bulkReload ? new BulkRDFFormatLoader(RDFFormat.NTRIPLES) : new RDFFormatLoader(RDFFormat.NTRIPLES);
+    }
+}
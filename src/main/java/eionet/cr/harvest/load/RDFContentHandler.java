@@ -152,7 +152,7 @@ public class RDFContentHandler implements RDFHandler {
 
         // Add the given statement (i.e. triple) into repository.
         try {
-            repoConn.add(rdfStatement, context);
+            addStatement(rdfStatement);
             triplesSaved++;
             totalTime = System.currentTimeMillis();
 
@@ -191,6 +191,17 @@ public class RDFContentHandler implements RDFHandler {
         // No specific handling here.
     }
 
+    /**
+     * Adds the given pre-processed statement into the graph where the content is loaded into. This implementation adds it straight
+     * into the repository connection. Extending classes may buffer it instead, in which case they must flush in {@link #endRDF()}.
+     *
+     * @param statement The statement to add.
+     * @throws Exception if adding fails.
+     */
+    protected void addStatement(Statement statement) throws Exception {
+        repoConn.add(statement, context);
+    }
+
     /**
      * Does some pre-processing on the given RDF statement if necessary, and returns the resulting the statement.
      *
@@ -217,6 +228,20 @@ public class RDFContentHandler implements RDFHandler {
         return result;
     }
 
+    /**
+     * @return the SQL connection to the database where the content is loaded into
+     */
+    protected Connection getSqlConn() {
+        return sqlConn;
+    }
+
+    /**
+     * @return the graph where the triples will be loaded into
+     */
+    protected Resource getContext() {
+        return context;
+    }
+
     /**
      * @return the triplesLoaded
      */
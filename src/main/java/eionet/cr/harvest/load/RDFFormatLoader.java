@@ -76,7 +76,7 @@ public class RDFFormatLoader implements ContentLoader {
         rdfParser.setDatatypeHandling(RDFParser.DatatypeHandling.IGNORE);
 
         // Set the RDF parser's RDF handler to our implementation that loads triples into repository.
-        RDFContentHandler rdfHandler = new RDFContentHandler(repoConn, sqlConn, contextUri, timeout);
+        RDFContentHandler rdfHandler = createContentHandler(repoConn, sqlConn, contextUri, timeout);
         rdfParser.setRDFHandler(rdfHandler);
 
         // Parse the stream, return number of loaded triples.
@@ -84,6 +84,21 @@ public class RDFFormatLoader implements ContentLoader {
         return rdfHandler.getNumberOfTriplesSaved();
     }
 
+    /**
+     * Creates the RDF handler that the parser will feed the parsed statements to. Extending classes may override this to load the
+     * statements in a different way.
+     *
+     * @param repoConn The repository connection where the content is loaded into.
+     * @param sqlConn SQL connection in case the handler needs to use it.
+     * @param contextUri URI of the graph where the triples will be loaded into.
+     * @param timeout Timeout in milliseconds.
+     * @return The handler.
+     */
+    protected RDFContentHandler createContentHandler(RepositoryConnection repoConn, Connection sqlConn, String contextUri,
+            long timeout) {
+        return new RDFContentHandler(repoConn, sqlConn, contextUri, timeout);
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -0,0 +1,414 @@
+package eionet.cr.harvest.load;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.commons.io.IOUtils;
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.rio.ntriples.NTriplesUtil;
+
+import eionet.cr.common.TempFilePathGenerator;
+
+/**
+ * A temporary file of triples, one per line in canonical N-Triples form (terms separated by tabs, which N-Triples allows, and
+ * xsd:string literals written as plain literals), so that the file is valid N-Triples and can be loaded as such. Two spools that are sorted with {@link #sort()} can be compared
+ * with {@link #diff(File, File, DiffHandler)} in a single streaming pass, without holding either of them in memory.
+ *
+ * @author jaanus
+ */
+public class TripleSpool {
+
+    /** Number of lines sorted in memory at a time, before they are written into a sorted chunk file. */
+    private static final int SORT_CHUNK_LINES = 200000;
+
+    /** The spool file. */
+    private final File file;
+
+    /** Writer into the spool file, null once closed. */
+    private Writer writer;
+
+    /** Number of triples added. */
+    private int size;
+
+    /** True if any of the added triples has a blank node. */
+    private boolean hasBNodes;
+
+    /**
+     * Creates a new empty spool in the harvester's temporary files directory.
+     *
+     * @throws IOException
+     */
+    public TripleSpool() throws IOException {
+
+        file = TempFilePathGenerator.generate("nt");
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+    }
+
+    /**
+     * Adds the given triple to the spool.
+     *
+     * @param statement The triple.
+     * @throws IOException
+     */
+    public void add(Statement statement) throws IOException {
+
+        if (statement.getSubject() instanceof BNode || statement.getObject() instanceof BNode) {
+            hasBNodes = true;
+        }
+        writer.write(toLine(statement));
+        writer.write('\n');
+        size++;
+    }
+
+    /**
+     * Closes the spool for writing. Safe to call more than once.
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    /**
+     * Closes the spool and writes its lines into a new file, sorted and without duplicates. The spool file itself remains as it
+     * was. Lines are sorted in chunks of {@link #SORT_CHUNK_LINES} in memory, and the chunks are then merged.
+     *
+     * @return The sorted file, to be deleted by the caller.
+     * @throws IOException
+     */
+    public File sort() throws IOException {
+
+        close();
+
+        List<File> chunks = new ArrayList<File>();
+        BufferedReader reader = null;
+        try {
+            reader = openReader(file);
+            List<String> lines = new ArrayList<String>();
+            String line = null;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                if (lines.size() >= SORT_CHUNK_LINES) {
+                    chunks.add(writeSortedChunk(lines));
+                    lines.clear();
+                }
+            }
+            if (!lines.isEmpty() || chunks.isEmpty()) {
+                chunks.add(writeSortedChunk(lines));
+            }
+        } catch (IOException e) {
+            deleteAll(chunks);
+            throw e;
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+
+        if (chunks.size() == 1) {
+            return chunks.get(0);
+        }
+
+        try {
+            return merge(chunks);
+        } finally {
+            deleteAll(chunks);
+        }
+    }
+
+    /**
+     * Deletes the spool file.
+     */
+    public void delete() {
+
+        IOUtils.closeQuietly(writer);
+        writer = null;
+        file.delete();
+    }
+
+    /**
+     * @return The spool file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return Number of triples added.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return True if any of the added triples has a blank node.
+     */
+    public boolean hasBNodes() {
+        return hasBNodes;
+    }
+
+    /**
+     * Streams through the two given sorted files (as returned by {@link #sort()}) and reports the lines that are only in the old
+     * one as removed, and the lines that are only in the new one as added.
+     *
+     * @param sortedOld The old sorted file.
+     * @param sortedNew The new sorted file.
+     * @param handler The handler to report the differences to.
+     * @throws IOException
+     * @throws OpenRDFException if thrown by the handler.
+     */
+    public static void diff(File sortedOld, File sortedNew, DiffHandler handler) throws IOException, OpenRDFException {
+
+        BufferedReader oldReader = null;
+        BufferedReader newReader = null;
+        try {
+            oldReader = openReader(sortedOld);
+            newReader = openReader(sortedNew);
+            String oldLine = oldReader.readLine();
+            String newLine = newReader.readLine();
+            while (oldLine != null || newLine != null) {
+
+                int compared = oldLine == null ? 1 : newLine == null ? -1 : oldLine.compareTo(newLine);
+                if (compared < 0) {
+                    handler.removed(oldLine);
+                    oldLine = oldReader.readLine();
+                } else if (compared > 0) {
+                    handler.added(newLine);
+                    newLine = newReader.readLine();
+                } else {
+                    oldLine = oldReader.readLine();
+                    newLine = newReader.readLine();
+                }
+            }
+        } finally {
+            IOUtils.closeQuietly(oldReader);
+            IOUtils.closeQuietly(newReader);
+        }
+    }
+
+    /**
+     * Returns the canonical spool line of the given triple, without the line break.
+     *
+     * @param statement The triple.
+     * @return The line.
+     */
+    public static String toLine(Statement statement) {
+
+        StringBuilder buf = new StringBuilder();
+        buf.append(NTriplesUtil.toNTriplesString(statement.getSubject())).append('\t');
+        buf.append(NTriplesUtil.toNTriplesString(statement.getPredicate())).append('\t');
+        buf.append(toNTriplesString(statement.getObject())).append(" .");
+        return buf.toString();
+    }
+
+    /**
+     * Returns the N-Triples form of the given value, with xsd:string literals written as plain literals, because the triple store
+     * does not keep the xsd:string datatype either.
+     *
+     * @param value
+     * @return
+     */
+    private static String toNTriplesString(Value value) {
+
+        if (value instanceof Literal) {
+            Literal literal = (Literal) value;
+            if (literal.getLanguage() == null && XMLSchema.STRING.equals(literal.getDatatype())) {
+                return "\"" + NTriplesUtil.escapeString(literal.getLabel()) + "\"";
+            }
+        }
+        return NTriplesUtil.toNTriplesString(value);
+    }
+
+    /**
+     * Parses the given spool line back into a triple.
+     *
+     * @param line The line, as returned by {@link #toLine(Statement)}.
+     * @param valueFactory The factory of the triple's values.
+     * @return The triple.
+     */
+    public static Statement parseLine(String line, ValueFactory valueFactory) {
+
+        String[] terms = line.substring(0, line.length() - 2).split("\t", 3);
+        Resource subject = NTriplesUtil.parseResource(terms[0], valueFactory);
+        URI predicate = NTriplesUtil.parseURI(terms[1], valueFactory);
+        Value object = NTriplesUtil.parseValue(terms[2], valueFactory);
+        return valueFactory.createStatement(subject, predicate, object);
+    }
+
+    /**
+     * Sorts the given lines and writes them into a new chunk file, without duplicates.
+     *
+     * @param lines
+     * @return
+     * @throws IOException
+     */
+    private static File writeSortedChunk(List<String> lines) throws IOException {
+
+        Collections.sort(lines);
+        File chunk = TempFilePathGenerator.generate("sorted.nt");
+        Writer chunkWriter = null;
+        try {
+            chunkWriter = openWriter(chunk);
+            String previous = null;
+            for (String line : lines) {
+                if (!line.equals(previous)) {
+                    chunkWriter.write(line);
+                    chunkWriter.write('\n');
+                    previous = line;
+                }
+            }
+        } finally {
+            IOUtils.closeQuietly(chunkWriter);
+        }
+        return chunk;
+    }
+
+    /**
+     * Merges the given sorted chunk files into a new sorted file, without duplicates.
+     *
+     * @param chunks
+     * @return
+     * @throws IOException
+     */
+    private static File merge(List<File> chunks) throws IOException {
+
+        File merged = TempFilePathGenerator.generate("sorted.nt");
+        List<BufferedReader> readers = new ArrayList<BufferedReader>();
+        Writer mergedWriter = null;
+        try {
+            PriorityQueue<ChunkHead> heads = new PriorityQueue<ChunkHead>();
+            for (File chunk : chunks) {
+                BufferedReader reader = openReader(chunk);
+                readers.add(reader);
+                String line = reader.readLine();
+                if (line != null) {
+                    heads.add(new ChunkHead(line, reader));
+                }
+            }
+
+            mergedWriter = openWriter(merged);
+            String previous = null;
+            while (!heads.isEmpty()) {
+                ChunkHead head = heads.poll();
+                if (!head.line.equals(previous)) {
+                    mergedWriter.write(head.line);
+                    mergedWriter.write('\n');
+                    previous = head.line;
+                }
+                String next = head.reader.readLine();
+                if (next != null) {
+                    heads.add(new ChunkHead(next, head.reader));
+                }
+            }
+        } catch (IOException e) {
+            IOUtils.closeQuietly(mergedWriter);
+            merged.delete();
+            throw e;
+        } finally {
+            IOUtils.closeQuietly(mergedWriter);
+            for (BufferedReader reader : readers) {
+                IOUtils.closeQuietly(reader);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    private static BufferedReader openReader(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+    }
+
+    /**
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    private static Writer openWriter(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+    }
+
+    /**
+     * @param files
+     */
+    private static void deleteAll(List<File> files) {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Receives the differences found by {@link TripleSpool#diff(File, File, DiffHandler)}.
+     */
+    public interface DiffHandler {
+
+        /**
+         * @param line A line that is only in the old file.
+         * @throws IOException
+         * @throws OpenRDFException
+         */
+        void removed(String line) throws IOException, OpenRDFException;
+
+        /**
+         * @param line A line that is only in the new file.
+         * @throws IOException
+         * @throws OpenRDFException
+         */
+        void added(String line) throws IOException, OpenRDFException;
+    }
+
+    /**
+     * The current line of a chunk being merged, ordered by the line.
+     */
+    private static class ChunkHead implements Comparable<ChunkHead> {
+
+        /** */
+        private final String line;
+
+        /** */
+        private final BufferedReader reader;
+
+        /**
+         * @param line
+         * @param reader
+         */
+        ChunkHead(String line, BufferedReader reader) {
+            this.line = line;
+            this.reader = reader;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Comparable#compareTo(java.lang.Object)
+         */
+        @Override
+        public int compareTo(ChunkHead other) {
+            return line.compareTo(other.line);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package eionet.cr.harvest.scheduled;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import eionet.cr.dao.DAOException;
+import eionet.cr.dto.HarvestProfileDTO;
+import eionet.cr.dto.HarvestSourceDTO;
+
+/**
+ * Picks the sources to batch-harvest in one interval of the {@link HarvestingJob}, based on how the sources behaved in their
+ * recent harvests.
+ * <p>
+ * A source whose content has rarely changed is backed off: it is considered due only after a multiple of its harvest interval,
+ * up to {@link #MAX_BACKOFF} times. Priority sources are never backed off. The due sources are ordered by how overdue they are,
+ * weighted by how often their content changes, so that volatile sources go first. They are then packed into the interval's time
+ * budget by their estimated cost, i.e. the average duration of their recent harvests. The cost of a source without history is
+ * estimated from its number of triples and the time per triple observed on the other candidates.
+ * <p>
+ * The candidates come ordered by how overdue they are without the back-off, so the first ones may all turn out to be backed
+ * off. Therefore {@link #select(CandidatePages, int, int, long)} keeps reading pages of candidates until enough of them are due
+ * to fill the batch.
+ *
+ * @author jaanus
+ */
+public class AdaptiveHarvestScheduler {
+
+    /** Maximum factor by which a source's harvest interval is stretched when its content rarely changes. */
+    public static final double MAX_BACKOFF = 8d;
+
+    /** Sources whose content changes at least this often are not backed off at all. */
+    public static final double VOLATILE_CHANGE_RATE = 0.5d;
+
+    /** Estimated cost of a source's harvest when nothing is known about it nor any other candidate. */
+    public static final double DEFAULT_COST_SECONDS = 60d;
+
+    /** */
+    private static final int MILLIS = 1000;
+
+    /** Number of seconds that the selected sources may take together. */
+    private final double budgetSeconds;
+
+    /** Maximum number of sources to select, 0 means no limit. */
+    private final int upperLimit;
+
+    /**
+     * Class constructor.
+     *
+     * @param budgetSeconds Number of seconds that the selected sources may take together, typically the interval's length
+     *            multiplied by the number of harvesting threads.
+     * @param upperLimit Maximum number of sources to select, 0 means no limit.
+     */
+    public AdaptiveHarvestScheduler(double budgetSeconds, int upperLimit) {
+
+        this.budgetSeconds = budgetSeconds;
+        this.upperLimit = upperLimit;
+    }
+
+    /**
+     * Selects the sources to harvest from the candidates read page by page from the given source. Pages are read until the
+     * candidates due so far fill the batch, a page comes back short, or the given number of pages has been read.
+     *
+     * @param pages The source of the candidates and their profiles.
+     * @param pageSize Number of candidates in a page.
+     * @param maxPages Maximum number of pages to read.
+     * @param now Current time, in milliseconds.
+     * @return The selected sources, most urgent first.
+     * @throws DAOException If reading the candidates fails.
+     */
+    public List<HarvestSourceDTO> select(CandidatePages pages, int pageSize, int maxPages, long now) throws DAOException {
+
+        List<HarvestSourceDTO> candidates = new ArrayList<HarvestSourceDTO>();
+        Map<Integer, HarvestProfileDTO> profiles = new HashMap<Integer, HarvestProfileDTO>();
+        for (int i = 0; i < maxPages; i++) {
+
+            List<HarvestSourceDTO> page = pages.getCandidates(i * pageSize, pageSize);
+            candidates.addAll(page);
+            if (!page.isEmpty()) {
+                profiles.putAll(pages.getProfiles(page));
+            }
+            if (page.size() < pageSize || isFilled(getDue(candidates, profiles, now, null))) {
+                break;
+            }
+        }
+        return select(candidates, profiles, now);
+    }
+
+    /**
+     * Selects the sources to harvest from the given candidates. Candidates that will not be harvested anyway (those with a
+     * permanent error or unavailable 5 times or more) are always returned, ahead of the others, so that the caller can deal with
+     * them. They take none of the budget. The first source due is always selected, even if it alone exceeds the budget, so that
+     * big sources get their turn too.
+     *
+     * @param candidates The candidates, as returned by the harvest source DAO's next scheduled sources.
+     * @param profiles The candidates' harvest profiles, by source id. Candidates without a profile have no history.
+     * @param now Current time, in milliseconds.
+     * @return The selected sources, most urgent first.
+     */
+    public List<HarvestSourceDTO> select(List<HarvestSourceDTO> candidates, Map<Integer, HarvestProfileDTO> profiles, long now) {
+
+        List<HarvestSourceDTO> result = new ArrayList<HarvestSourceDTO>();
+        List<Candidate> due = getDue(candidates, profiles, now, result);
+
+        double spent = 0d;
+        int selected = 0;
+        for (Candidate candidate : due) {
+
+            if (upperLimit > 0 && selected >= upperLimit) {
+                break;
+            }
+            if (selected == 0 || spent + candidate.cost <= budgetSeconds) {
+                result.add(candidate.source);
+                spent += candidate.cost;
+                selected++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns true if the given due candidates fill the batch, i.e. reach the upper limit or spend the budget.
+     *
+     * @param due The due candidates.
+     * @return true if no more candidates are needed
+     */
+    private boolean isFilled(List<Candidate> due) {
+
+        if (upperLimit > 0 && due.size() >= upperLimit) {
+            return true;
+        }
+        double cost = 0d;
+        for (Candidate candidate : due) {
+            cost += candidate.cost;
+        }
+        return cost >= budgetSeconds;
+    }
+
+    /**
+     * Returns the candidates that are due, ordered by their score.
+     *
+     * @param candidates The candidates.
+     * @param profiles The candidates' harvest profiles, by source id.
+     * @param now Current time, in milliseconds.
+     * @param undue If not null, candidates that will not be harvested anyway are added to it.
+     * @return The due candidates, highest score first.
+     */
+    private List<Candidate> getDue(List<HarvestSourceDTO> candidates, Map<Integer, HarvestProfileDTO> profiles, long now,
+            List<HarvestSourceDTO> undue) {
+
+        List<Candidate> due = new ArrayList<Candidate>();
+
+        double knownSeconds = 0d;
+        long knownStatements = 0L;
+        int knownCount = 0;
+        for (HarvestProfileDTO profile : profiles.values()) {
+            if (profile.getHarvests() > 0) {
+                knownSeconds += profile.getAvgDurationSeconds();
+                knownStatements += profile.getAvgStatements();
+                knownCount++;
+            }
+        }
+        double avgCost = knownCount > 0 ? knownSeconds / knownCount : DEFAULT_COST_SECONDS;
+        double secondsPerStatement = knownStatements > 0 ? knownSeconds / knownStatements : 0d;
+
+        for (HarvestSourceDTO source : candidates) {
+
+            if (source.isPermanentError() || (source.getCountUnavail() != null && source.getCountUnavail().intValue() >= 5)) {
+                if (undue != null) {
+                    undue.add(source);
+                }
+                continue;
+            }
+
+            HarvestProfileDTO profile = source.getSourceId() == null ? null : profiles.get(source.getSourceId());
+            double changeRate = profile == null ? VOLATILE_CHANGE_RATE : profile.getChangeRate();
+            double backoff = source.isPrioritySource() ? 1d : getBackoff(changeRate);
+
+            double overdue = getSecondsSinceLastHarvest(source, now) / (getIntervalSeconds(source) * backoff);
+            if (overdue >= 1d) {
+
+                double cost;
+                if (profile != null && profile.getHarvests() > 0) {
+                    cost = profile.getAvgDurationSeconds();
+                } else if (secondsPerStatement > 0d && source.getStatements() != null && source.getStatements().intValue() > 0) {
+                    cost = source.getStatements().intValue() * secondsPerStatement;
+                } else {
+                    cost = avgCost;
+                }
+                due.add(new Candidate(source, overdue * (VOLATILE_CHANGE_RATE + changeRate), Math.max(1d, cost)));
+            }
+        }
+
+        Collections.sort(due, new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate c1, Candidate c2) {
+                return Double.compare(c2.score, c1.score);
+            }
+        });
+        return due;
+    }
+
+    /**
+     * Returns the factor by which a source's harvest interval is stretched, given the rate at which its content changes.
+     *
+     * @param changeRate Share of the source's harvests that found changed content.
+     * @return Factor between 1 and {@link #MAX_BACKOFF}.
+     */
+    public static double getBackoff(double changeRate) {
+
+        if (changeRate <= 0d) {
+            return MAX_BACKOFF;
+        }
+        return Math.max(1d, Math.min(MAX_BACKOFF, VOLATILE_CHANGE_RATE / changeRate));
+    }
+
+    /**
+     * Same as the harvest source DAO's expression: a source never harvested is due one interval after its creation.
+     *
+     * @param source The source.
+     * @param now Current time, in milliseconds.
+     * @return Seconds since the source's last harvest.
+     */
+    private static double getSecondsSinceLastHarvest(HarvestSourceDTO source, long now) {
+
+        if (source.getLastHarvest() != null) {
+            return Math.abs(now - source.getLastHarvest().getTime()) / (double) MILLIS;
+        } else if (source.getTimeCreated() != null) {
+            return Math.abs(now - source.getTimeCreated().getTime()) / (double) MILLIS + getIntervalSeconds(source);
+        } else {
+            return Double.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @param source The source.
+     * @return The source's harvest interval in seconds, at least 1.
+     */
+    private static double getIntervalSeconds(HarvestSourceDTO source) {
+
+        Integer minutes = source.getIntervalMinutes();
+        return minutes == null || minutes.intValue() <= 0 ? 1d : minutes.intValue() * 60d;
+    }
+
+    /**
+     * Reads the candidates page by page, most overdue first, as the harvest source DAO's next scheduled sources.
+     */
+    public interface CandidatePages {
+
+        /**
+         * @param offset Number of candidates to skip.
+         * @param limit Maximum number of candidates to return.
+         * @return The page of candidates.
+         * @throws DAOException If reading fails.
+         */
+        List<HarvestSourceDTO> getCandidates(int offset, int limit) throws DAOException;
+
+        /**
+         * @param candidates A page of candidates.
+         * @return The candidates' harvest profiles, by source id.
+         * @throws DAOException If reading fails.
+         */
+        Map<Integer, HarvestProfileDTO> getProfiles(List<HarvestSourceDTO> candidates) throws DAOException;
+    }
+
+    /**
+     * A source that is due, with its priority score and estimated cost.
+     */
+    private static class Candidate {
+
+        /** */
+        private final HarvestSourceDTO source;
+
+        /** */
+        private final double score;
+
+        /** */
+        private final double cost;
+
+        /**
+         * Class constructor.
+         *
+         * @param source The source.
+         * @param score Priority score, higher goes first.
+         * @param cost Estimated duration of the harvest, in seconds.
+         */
+        Candidate(HarvestSourceDTO source, double score, double cost) {
+            this.source = source;
+            this.score = score;
+            this.cost = cost;
+        }
+    }
+}
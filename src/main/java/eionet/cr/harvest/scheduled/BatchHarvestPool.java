@@ -0,0 +1,210 @@
+package eionet.cr.harvest.scheduled;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import eionet.cr.dto.HarvestSourceDTO;
+import eionet.cr.util.NamedDaemonThreadFactory;
+import eionet.cr.util.URLUtil;
+
+/**
+ * A bounded pool of worker threads that harvests a list of batch-harvest sources concurrently. The pool is host-fair: no more
+ * than the given number of sources from the same host are harvested at the same time, so one slow remote server occupies at most
+ * that many workers while the rest keep going through the other hosts' sources.
+ *
+ * The {@link #execute(List, SourceHarvester)} method blocks until all the given sources have been harvested, so that the calling
+ * Quartz job still finishes only when its whole batch is done.
+ *
+ * @author jaanus
+ */
+public class BatchHarvestPool {
+
+    /** */
+    private static final Logger LOGGER = Logger.getLogger(BatchHarvestPool.class);
+
+    /** Prefix of the names of the worker threads. */
+    private static final String THREAD_NAME_PREFIX = "batch-harvester-";
+
+    /** Maximum number of sources harvested concurrently. */
+    private final int threads;
+
+    /** Maximum number of sources from the same host harvested concurrently. */
+    private final int threadsPerHost;
+
+    /** Sources waiting to be harvested, in the order they were given. */
+    private final LinkedList<HarvestSourceDTO> pending = new LinkedList<HarvestSourceDTO>();
+
+    /** Number of sources currently being harvested, by host. */
+    private final HashMap<String, Integer> activeByHost = new HashMap<String, Integer>();
+
+    /**
+     * Callback that harvests one source. Implementations must be safe to call from several threads at once.
+     */
+    public interface SourceHarvester {
+
+        /**
+         * Harvests the given source.
+         *
+         * @param sourceDTO The source to harvest.
+         */
+        void harvest(HarvestSourceDTO sourceDTO);
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param threads Maximum number of sources harvested concurrently. Values below 1 are treated as 1.
+     * @param threadsPerHost Maximum number of sources from the same host harvested concurrently. Values below 1 are treated as 1.
+     */
+    public BatchHarvestPool(int threads, int threadsPerHost) {
+
+        this.threads = Math.max(1, threads);
+        this.threadsPerHost = Math.max(1, threadsPerHost);
+    }
+
+    /**
+     * Harvests the given sources with the given harvester, blocking until all of them are done. With just one thread (or just one
+     * source) the sources are harvested in the calling thread, exactly as the batch harvester did before it had a pool.
+     *
+     * @param sources The sources to harvest.
+     * @param harvester The harvester that does the actual work.
+     * @throws InterruptedException If the calling thread was interrupted while waiting for the workers.
+     */
+    public void execute(List<HarvestSourceDTO> sources, final SourceHarvester harvester) throws InterruptedException {
+
+        if (sources == null || sources.isEmpty()) {
+            return;
+        }
+
+        if (threads == 1 || sources.size() == 1) {
+            for (HarvestSourceDTO sourceDTO : sources) {
+                harvester.harvest(sourceDTO);
+            }
+            return;
+        }
+
+        synchronized (this) {
+            pending.addAll(sources);
+        }
+
+        int workerCount = Math.min(threads, sources.size());
+        LOGGER.debug("Harvesting " + sources.size() + " sources with " + workerCount + " workers, max " + threadsPerHost
+                + " per host");
+
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount, new NamedDaemonThreadFactory(THREAD_NAME_PREFIX));
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        work(harvester);
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.trace("Still waiting for batch harvest workers to finish");
+            }
+        } catch (InterruptedException e) {
+            synchronized (this) {
+                pending.clear();
+                notifyAll();
+            }
+            executor.shutdownNow();
+            throw e;
+        }
+    }
+
+    /**
+     * The loop of a single worker: take the next harvestable source, harvest it, release its host, until nothing is left.
+     *
+     * @param harvester The harvester that does the actual work.
+     */
+    private void work(SourceHarvester harvester) {
+
+        HarvestSourceDTO sourceDTO = null;
+        try {
+            while ((sourceDTO = take()) != null) {
+                try {
+                    harvester.harvest(sourceDTO);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Unexpected error when batch-harvesting " + sourceDTO.getUrl(), e);
+                } finally {
+                    release(sourceDTO);
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.warn("Batch harvest worker interrupted, leaving remaining sources to the next run");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the first pending source whose host is below its concurrency cap, waiting while all pending sources' hosts are at
+     * their caps. Returns null when there are no more pending sources.
+     *
+     * @return The next source to harvest, or null if none left.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private synchronized HarvestSourceDTO take() throws InterruptedException {
+
+        while (!pending.isEmpty()) {
+
+            for (Iterator<HarvestSourceDTO> iter = pending.iterator(); iter.hasNext();) {
+
+                HarvestSourceDTO sourceDTO = iter.next();
+                String host = hostOf(sourceDTO);
+                Integer active = activeByHost.get(host);
+                if (active == null || active.intValue() < threadsPerHost) {
+                    iter.remove();
+                    activeByHost.put(host, active == null ? 1 : active.intValue() + 1);
+                    return sourceDTO;
+                }
+            }
+            wait();
+        }
+        return null;
+    }
+
+    /**
+     * Releases the host slot taken by the given source and wakes up workers waiting for a slot.
+     *
+     * @param sourceDTO The source whose harvest has finished.
+     */
+    private synchronized void release(HarvestSourceDTO sourceDTO) {
+
+        String host = hostOf(sourceDTO);
+        Integer active = activeByHost.get(host);
+        if (active == null || active.intValue() <= 1) {
+            activeByHost.remove(host);
+        } else {
+            activeByHost.put(host, active.intValue() - 1);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Returns the key by which the given source's concurrency is capped: the scheme-host-port part of its URL, or the URL itself
+     * if that cannot be extracted.
+     *
+     * @param sourceDTO The source.
+     * @return The host key.
+     */
+    private static String hostOf(HarvestSourceDTO sourceDTO) {
+
+        String url = sourceDTO.getUrl();
+        String host = URLUtil.extractUrlHost(url);
+        return host == null || host.isEmpty() ? String.valueOf(url) : host.toLowerCase();
+    }
+}
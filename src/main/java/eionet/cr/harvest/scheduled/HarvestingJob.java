@@ -23,9 +23,11 @@ package eionet.cr.harvest.scheduled;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
@@ -42,7 +44,9 @@ import eionet.cr.common.JobScheduler;
 import eionet.cr.config.GeneralConfig;
 import eionet.cr.dao.DAOException;
 import eionet.cr.dao.DAOFactory;
+import eionet.cr.dao.HarvestDAO;
 import eionet.cr.dao.HarvestSourceDAO;
+import eionet.cr.dto.HarvestProfileDTO;
 import eionet.cr.dto.HarvestSourceDTO;
 import eionet.cr.dto.UrgentHarvestQueueItemDTO;
 import eionet.cr.harvest.CurrentHarvests;
@@ -67,6 +71,15 @@ public class HarvestingJob implements StatefulJob, ServletContextListener {
      */
     private static final int MINUTES = 60;
 
+    /** With adaptive scheduling, this many times more candidates than the sources limit are considered in each interval. */
+    private static final int CANDIDATES_FACTOR = 4;
+
+    /** With adaptive scheduling, the maximum number of candidates read at a time. */
+    private static final int MAX_CANDIDATES = 1000;
+
+    /** With adaptive scheduling, the maximum number of candidate pages read in each interval. */
+    private static final int MAX_CANDIDATE_PAGES = 10;
+
     /** */
     private static final Logger LOGGER = Logger.getLogger(HarvestingJob.class);
 
@@ -78,6 +91,9 @@ public class HarvestingJob implements StatefulJob, ServletContextListener {
     private static Integer intervalSeconds;
     private static Integer harvesterUpperLimit;
     private static Integer dailyActiveMinutes;
+    private static Integer batchHarvestingThreads;
+    private static Integer batchHarvestingThreadsPerHost;
+    private static Boolean adaptiveScheduling;
 
     /*
      * (non-Javadoc)
@@ -99,7 +115,7 @@ public class HarvestingJob implements StatefulJob, ServletContextListener {
             throw new JobExecutionException(e.toString(), e);
         } finally {
             // State that no harvest is currently queued.
-            CurrentHarvests.setQueuedHarvest(null);
+            CurrentHarvests.clearQueuedHarvests();
             // reset batch-harvesting queue
             batchQueue = null;
         }
@@ -197,24 +213,41 @@ public class HarvestingJob implements StatefulJob, ServletContextListener {
             }
         }
 
-        // Harvest the batch harvest queue (if anything added to it).
-        for (Iterator<HarvestSourceDTO> iter = batchQueue.iterator(); iter.hasNext();) {
-
-            HarvestSourceDTO sourceDTO = iter.next();
+        // Pick the sources from the batch harvest queue that are to be harvested right now.
+        List<HarvestSourceDTO> harvestNow = new ArrayList<HarvestSourceDTO>();
+        for (HarvestSourceDTO sourceDTO : getBatchQueue()) {
 
             // For sources where interval is less than 8 hours, the batch harvesting hours doesn't apply.
             // They are always harvested.
             boolean ignoreBatchHarvestingHour = sourceDTO.getIntervalMinutes().intValue() < 480;
             if (isBatchHarvestingHour() || ignoreBatchHarvestingHour) {
-
-                // Remove source from batch harvest queue before starting its harvest.
-                iter.remove();
-
-                LOGGER.trace("Going to batch-harvest " + sourceDTO.getUrl());
-                pullHarvest(sourceDTO, false);
+                harvestNow.add(sourceDTO);
             }
         }
 
+        // Harvest the picked sources in the worker pool, several hosts at a time.
+        BatchHarvestPool pool = new BatchHarvestPool(getBatchHarvestingThreads(), getBatchHarvestingThreadsPerHost());
+        try {
+            pool.execute(harvestNow, new BatchHarvestPool.SourceHarvester() {
+                @Override
+                public void harvest(HarvestSourceDTO sourceDTO) {
+
+                    // Remove source from batch harvest queue before starting its harvest.
+                    batchQueue.remove(sourceDTO);
+
+                    LOGGER.trace("Going to batch-harvest " + sourceDTO.getUrl());
+                    try {
+                        pullHarvest(sourceDTO, false);
+                    } catch (DAOException e) {
+                        LOGGER.error(e.toString(), e);
+                    }
+                }
+            });
+        } catch (InterruptedException e) {
+            LOGGER.warn("Interrupted while waiting for batch harvests to finish");
+            Thread.currentThread().interrupt();
+        }
+
         // Delete sources that were found necessary to delete (if any).
         if (!sourcesToDelete.isEmpty()) {
 
@@ -238,11 +271,64 @@ public class HarvestingJob implements StatefulJob, ServletContextListener {
      */
     public static List<HarvestSourceDTO> getNextScheduledSources() throws DAOException {
 
-        if (isBatchHarvestingEnabled()) {
-            return DAOFactory.get().getDao(HarvestSourceDAO.class).getNextScheduledSources(getSourcesLimitForInterval());
-        } else {
+        if (!isBatchHarvestingEnabled()) {
             return new ArrayList<HarvestSourceDTO>();
+        } else if (!isAdaptiveScheduling()) {
+            return DAOFactory.get().getDao(HarvestSourceDAO.class).getNextScheduledSources(getSourcesLimitForInterval());
         }
+
+        int limit = getSourcesLimitForInterval();
+        int upperLimit = getHarvesterUpperLimit().intValue();
+        int candidatesLimit = Math.min(MAX_CANDIDATES, Math.max(limit, upperLimit) * CANDIDATES_FACTOR);
+
+        AdaptiveHarvestScheduler.CandidatePages pages = new AdaptiveHarvestScheduler.CandidatePages() {
+
+            @Override
+            public List<HarvestSourceDTO> getCandidates(int offset, int pageSize) throws DAOException {
+                return DAOFactory.get().getDao(HarvestSourceDAO.class).getNextScheduledSources(offset, pageSize);
+            }
+
+            @Override
+            public Map<Integer, HarvestProfileDTO> getProfiles(List<HarvestSourceDTO> candidates) throws DAOException {
+
+                List<Integer> sourceIds = new ArrayList<Integer>();
+                for (HarvestSourceDTO candidate : candidates) {
+                    if (candidate.getSourceId() != null) {
+                        sourceIds.add(candidate.getSourceId());
+                    }
+                }
+                Map<Integer, HarvestProfileDTO> profiles = new HashMap<Integer, HarvestProfileDTO>();
+                for (HarvestProfileDTO profile : DAOFactory.get().getDao(HarvestDAO.class).getHarvestProfiles(sourceIds)) {
+                    profiles.put(Integer.valueOf(profile.getSourceId()), profile);
+                }
+                return profiles;
+            }
+        };
+
+        double budgetSeconds = getIntervalSeconds().doubleValue() * getBatchHarvestingThreads().intValue();
+        AdaptiveHarvestScheduler scheduler = new AdaptiveHarvestScheduler(budgetSeconds, upperLimit);
+        List<HarvestSourceDTO> selected =
+                scheduler.select(pages, candidatesLimit, MAX_CANDIDATE_PAGES, System.currentTimeMillis());
+        LOGGER.trace(selected.size() + " candidate sources selected into a budget of " + budgetSeconds + " seconds");
+        return selected;
+    }
+
+    /**
+     * Returns true if the sources to batch-harvest in each interval are picked by {@link AdaptiveHarvestScheduler}, i.e. by
+     * their recent harvests' duration and change rate, and packed into the interval's time budget. Otherwise the number of
+     * sources is simply spread evenly over the day's batch harvesting intervals. The value is retrieved from the general
+     * configuration file, defaulting to false.
+     *
+     * @return true if adaptive scheduling is switched on
+     */
+    public static boolean isAdaptiveScheduling() {
+
+        if (adaptiveScheduling == null) {
+            boolean adaptive = GeneralConfig.getBooleanProperty(GeneralConfig.HARVESTER_ADAPTIVE_SCHEDULING, false);
+            adaptiveScheduling = Boolean.valueOf(adaptive);
+        }
+
+        return adaptiveScheduling.booleanValue();
     }
 
     /**
@@ -342,6 +428,38 @@ public class HarvestingJob implements StatefulJob, ServletContextListener {
         return harvesterUpperLimit;
     }
 
+    /**
+     * Returns the number of sources that the batch harvester harvests concurrently. The value is retrieved from the general
+     * configuration file, defaulting to 1 (i.e. one source at a time).
+     *
+     * @return the number of batch harvesting threads
+     */
+    public static Integer getBatchHarvestingThreads() {
+
+        if (batchHarvestingThreads == null) {
+            int threads = GeneralConfig.getIntProperty(GeneralConfig.HARVESTER_BATCH_HARVESTING_THREADS, 1);
+            batchHarvestingThreads = Integer.valueOf(Math.max(1, threads));
+        }
+
+        return batchHarvestingThreads;
+    }
+
+    /**
+     * Returns the maximum number of sources from the same host that the batch harvester harvests concurrently. The value is
+     * retrieved from the general configuration file, defaulting to 1.
+     *
+     * @return the number of batch harvesting threads per host
+     */
+    public static Integer getBatchHarvestingThreadsPerHost() {
+
+        if (batchHarvestingThreadsPerHost == null) {
+            int threads = GeneralConfig.getIntProperty(GeneralConfig.HARVESTER_BATCH_HARVESTING_THREADS_PER_HOST, 1);
+            batchHarvestingThreadsPerHost = Integer.valueOf(Math.max(1, threads));
+        }
+
+        return batchHarvestingThreadsPerHost;
+    }
+
     /**
      * Returns the interval in minutes where the harvester checks for checks for new urgent or scheduled tasks. Value can be less
      * than 1.0.
@@ -437,7 +555,7 @@ public class HarvestingJob implements StatefulJob, ServletContextListener {
     private void executeHarvest(Harvest harvest) {
 
         if (harvest != null) {
-            CurrentHarvests.setQueuedHarvest(harvest);
+            CurrentHarvests.addQueuedHarvest(harvest);
             try {
                 harvest.execute();
             } catch (HarvestException e) {
@@ -449,7 +567,7 @@ public class HarvestingJob implements StatefulJob, ServletContextListener {
                             "Got exception from " + harvest.getClass().getSimpleName() + " [" + harvest.getContextUrl() + "]", e);
                 }
             } finally {
-                CurrentHarvests.setQueuedHarvest(null);
+                CurrentHarvests.removeQueuedHarvest(harvest);
             }
         }
     }
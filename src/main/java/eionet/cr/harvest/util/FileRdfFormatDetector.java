@@ -28,9 +28,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
 import java.nio.channels.FileLockInterruptionException;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import javax.imageio.IIOException;
 
@@ -51,6 +53,8 @@ import org.openrdf.rio.turtle.TurtleParserFactory;
 /**
  * Detects the {@link RDFFormat} of a given file.
  *
+ * The format is first sniffed from a bounded prefix of the file (see {@link #sniff(File)}). Only if the prefix is not conclusive,
+ * the file is fully parsed with each of the supported parsers until one succeeds.
  *
  * @author jaanus
  */
@@ -63,6 +67,28 @@ public class FileRdfFormatDetector {
     private static final RDFParserFactory[] PARSER_FACTORIES = {new RDFXMLParserFactory(), new TurtleParserFactory(),
             new N3ParserFactory()};
 
+    /** Number of bytes read from the file's start when sniffing its format. */
+    public static final int SNIFF_PREFIX_BYTES = 64 * 1024;
+
+    /** Maximum number of lines that are checked when sniffing for N-Triples. */
+    private static final int SNIFF_MAX_LINES = 50;
+
+    /** The RDF namespace, expected to be declared in the prefix of an RDF/XML file. */
+    private static final String RDF_NAMESPACE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+
+    /** Pattern of a single N-Triples statement line. */
+    private static final Pattern NTRIPLES_LINE = Pattern.compile("^(<[^<>\\s]*>|_:\\S+)\\s+<[^<>\\s]*>\\s+"
+            + "(<[^<>\\s]*>|_:\\S+|\".*\"(@[A-Za-z0-9\\-]+|\\^\\^<[^<>\\s]*>)?)\\s*\\.\\s*(#.*)?$");
+
+    /** Line break in any of the common conventions. */
+    private static final Pattern LINE_BREAK = Pattern.compile("\\r?\\n|\\r");
+
+    /** Pattern of an XML document's start (prologue, comment, doctype or element). */
+    private static final Pattern XML_START = Pattern.compile("^<(\\?xml|!--|!DOCTYPE|[A-Za-z_])");
+
+    /** Pattern of the start tag of an RDF/XML document's root element (rdf:RDF with any namespace prefix). */
+    private static final Pattern RDFXML_ROOT = Pattern.compile("<([A-Za-z_][\\w.\\-]*:)?RDF[\\s>/]");
+
     /** Parsing exceptions for each parsed format. Using linked hash-map, so the iterator will be in parsing formats order. */
     private Map<RDFFormat, Exception> parsingExceptions = new LinkedHashMap<RDFFormat, Exception>();
 
@@ -80,6 +106,28 @@ public class FileRdfFormatDetector {
      */
     public RDFFormat detect(File file, String baseUri) throws IOException {
 
+        Sniff sniff = sniff(file);
+        if (sniff.getRdfFormat() != null) {
+            LOGGER.trace("Sniffed format " + sniff + " from the file's prefix");
+            return sniff.getRdfFormat();
+        } else if (sniff == Sniff.BINARY) {
+            return null;
+        }
+
+        return detectByParsing(file, baseUri);
+    }
+
+    /**
+     * Detects the {@link RDFFormat} of the given file by fully parsing it with each of the supported parsers until one succeeds.
+     * Unlike {@link #detect(File, String)}, does not try to sniff the format first.
+     *
+     * @param file
+     * @param baseUri
+     * @return
+     * @throws IOException
+     */
+    public RDFFormat detectByParsing(File file, String baseUri) throws IOException {
+
         RDFFormat result = null;
 
         for (int i = 0; i < PARSER_FACTORIES.length; i++) {
@@ -102,6 +150,243 @@ public class FileRdfFormatDetector {
         return result;
     }
 
+    /**
+     * Sniffs the format of the given file by looking at its first {@link #SNIFF_PREFIX_BYTES} bytes only.
+     *
+     * @param file
+     * @return The sniffing result, never null.
+     * @throws IOException
+     */
+    public static Sniff sniff(File file) throws IOException {
+
+        FileInputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            byte[] prefix = new byte[SNIFF_PREFIX_BYTES];
+            int length = readPrefix(inputStream, prefix);
+            return sniff(prefix, length, length < SNIFF_PREFIX_BYTES);
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * Reads from the given stream until the given prefix buffer is full or the stream ends.
+     *
+     * @param inputStream
+     * @param prefix
+     * @return Number of bytes read.
+     * @throws IOException
+     */
+    public static int readPrefix(InputStream inputStream, byte[] prefix) throws IOException {
+
+        int length = 0;
+        int read = 0;
+        while (length < prefix.length && (read = inputStream.read(prefix, length, prefix.length - length)) != -1) {
+            length += read;
+        }
+        return length;
+    }
+
+    /**
+     * Sniffs the format of content whose prefix is given in the first <code>length</code> bytes of the given array. The checks are
+     * in this order: magic numbers of binary content, NUL bytes, Turtle prologue, N-Triples lines, XML start and finally the
+     * RDF/XML root element. Content with NUL bytes is left to the trial parsing, since it may be e.g. UTF-16 without a byte order
+     * mark.
+     *
+     * @param prefix
+     *            - the content's prefix
+     * @param length
+     *            - number of valid bytes in the prefix
+     * @param complete
+     *            - true if the prefix is the whole content, i.e. its last line is not cut off
+     * @return The sniffing result, never null.
+     */
+    public static Sniff sniff(byte[] prefix, int length, boolean complete) {
+
+        if (length <= 0) {
+            return Sniff.UNKNOWN;
+        }
+
+        // UTF-16 and UTF-32 byte order marks: the content may well be RDF/XML, but is not sniffed any further here.
+        if (startsWith(prefix, length, 0xFE, 0xFF) || startsWith(prefix, length, 0xFF, 0xFE)
+                || startsWith(prefix, length, 0x00, 0x00, 0xFE, 0xFF)) {
+            return Sniff.UNKNOWN;
+        }
+
+        if (isBinary(prefix, length)) {
+            return Sniff.BINARY;
+        } else if (containsNul(prefix, length)) {
+            return Sniff.UNKNOWN;
+        }
+
+        int offset = startsWith(prefix, length, 0xEF, 0xBB, 0xBF) ? 3 : 0;
+        String text;
+        try {
+            text = new String(prefix, offset, length - offset, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+
+        // Turtle prologue (or N3, if it uses any of the N3-only constructs).
+        String firstLine = firstSignificantLine(text);
+        if (firstLine == null) {
+            return Sniff.UNKNOWN;
+        } else if (firstLine.startsWith("@prefix") || firstLine.startsWith("@base")) {
+            return isN3(text) ? Sniff.UNKNOWN : Sniff.TURTLE;
+        }
+
+        // N-Triples lines, loaded with the Turtle parser as they have always been, since N-Triples is a subset of Turtle.
+        if (isNTriples(text, complete)) {
+            return Sniff.TURTLE;
+        }
+
+        String trimmed = text.trim();
+        if (XML_START.matcher(trimmed).find()) {
+            return isRdfXml(trimmed) ? Sniff.RDFXML : Sniff.XML;
+        }
+
+        return Sniff.UNKNOWN;
+    }
+
+    /**
+     * Returns true if the given prefix starts with the given bytes.
+     *
+     * @param prefix
+     * @param length
+     * @param bytes
+     * @return
+     */
+    private static boolean startsWith(byte[] prefix, int length, int... bytes) {
+
+        if (length < bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if ((prefix[i] & 0xFF) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the given prefix starts with the magic number of a well-known binary format.
+     *
+     * @param prefix
+     * @param length
+     * @return
+     */
+    private static boolean isBinary(byte[] prefix, int length) {
+
+        return startsWith(prefix, length, '%', 'P', 'D', 'F') || startsWith(prefix, length, 'P', 'K', 0x03, 0x04)
+                || startsWith(prefix, length, 0x1F, 0x8B) || startsWith(prefix, length, 0x89, 'P', 'N', 'G')
+                || startsWith(prefix, length, 0xFF, 0xD8, 0xFF) || startsWith(prefix, length, 'G', 'I', 'F', '8')
+                || startsWith(prefix, length, 0xD0, 0xCF, 0x11, 0xE0) || startsWith(prefix, length, 'B', 'Z', 'h');
+    }
+
+    /**
+     * Returns true if the given prefix contains a NUL byte.
+     *
+     * @param prefix
+     * @param length
+     * @return
+     */
+    private static boolean containsNul(byte[] prefix, int length) {
+
+        for (int i = 0; i < length; i++) {
+            if (prefix[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the first line of the given text that is neither blank nor a #-comment, trimmed. Null if there is no such line.
+     *
+     * @param text
+     * @return
+     */
+    private static String firstSignificantLine(String text) {
+
+        for (String line : LINE_BREAK.split(text)) {
+            line = line.trim();
+            if (line.length() > 0 && !line.startsWith("#")) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the given text uses any of the N3 constructs that are not valid Turtle.
+     *
+     * @param text
+     * @return
+     */
+    private static boolean isN3(String text) {
+        return text.contains("@keywords") || text.contains("@forAll") || text.contains("@forSome") || text.contains("=>")
+                || text.contains("{");
+    }
+
+    /**
+     * Returns true if all the non-blank, non-comment lines of the given text (at most {@link #SNIFF_MAX_LINES}) are N-Triples
+     * statements. If the text is not complete, its last line is ignored, as it is probably cut off.
+     *
+     * @param text
+     * @param complete
+     * @return
+     */
+    private static boolean isNTriples(String text, boolean complete) {
+
+        String[] lines = LINE_BREAK.split(text);
+        int end = complete ? lines.length : lines.length - 1;
+        int matched = 0;
+        for (int i = 0; i < end && matched < SNIFF_MAX_LINES; i++) {
+
+            String line = lines[i].trim();
+            if (line.length() == 0 || line.startsWith("#")) {
+                continue;
+            } else if (!NTRIPLES_LINE.matcher(line).matches()) {
+                return false;
+            }
+            matched++;
+        }
+        return matched > 0;
+    }
+
+    /**
+     * Returns true if the first element of the given XML text is rdf:RDF and the RDF namespace is declared.
+     *
+     * @param xml
+     * @return
+     */
+    private static boolean isRdfXml(String xml) {
+
+        int i = 0;
+        while (i < xml.length()) {
+            int start = xml.indexOf('<', i);
+            if (start < 0) {
+                return false;
+            }
+            if (xml.startsWith("<?", start)) {
+                i = xml.indexOf("?>", start);
+            } else if (xml.startsWith("<!--", start)) {
+                i = xml.indexOf("-->", start);
+            } else if (xml.startsWith("<!", start)) {
+                i = xml.indexOf('>', start);
+            } else {
+                return RDFXML_ROOT.matcher(xml).region(start, xml.length()).lookingAt() && xml.contains(RDF_NAMESPACE);
+            }
+            if (i < 0) {
+                return false;
+            }
+            i++;
+        }
+        return false;
+    }
+
     /**
      * Returns true if the given input stream is a valid notation of the RDF format whose parser-factory has been supplied.
      *
@@ -156,6 +441,42 @@ public class FileRdfFormatDetector {
         return parsingExceptions;
     }
 
+    /**
+     * Result of sniffing a file's format from its prefix.
+     *
+     * @author jaanus
+     */
+    public enum Sniff {
+
+        /** Binary content, certainly not RDF. */
+        BINARY(null),
+        /** Generic XML that is not RDF/XML (at least not with an rdf:RDF root). */
+        XML(null),
+        /** RDF/XML. */
+        RDFXML(RDFFormat.RDFXML),
+        /** Turtle or N-Triples. */
+        TURTLE(RDFFormat.TURTLE),
+        /** Not conclusive, the content has to be parsed to find out. */
+        UNKNOWN(null);
+
+        /** */
+        private RDFFormat rdfFormat;
+
+        /**
+         * @param rdfFormat
+         */
+        private Sniff(RDFFormat rdfFormat) {
+            this.rdfFormat = rdfFormat;
+        }
+
+        /**
+         * @return The sniffed RDF format, or null if the sniffed content is not RDF or the sniffing was not conclusive.
+         */
+        public RDFFormat getRdfFormat() {
+            return rdfFormat;
+        }
+    }
+
     /**
      * An extension of {@link RDFHandlerBase} whose only purpose is to help detect whether the parsed content is valid RDF notation.
      * If by 100th statement there have been no {@link RDFParseException} thrown, it throws a dummy {@link RDFHandlerException} to
@@ -0,0 +1,106 @@
+package eionet.cr.harvest.util;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import eionet.cr.dto.HarvestPhaseDTO;
+
+/**
+ * Accumulates the duration, bytes and triples of a harvest's phases, measured with {@link System#nanoTime()}. A phase can be
+ * recorded several times (e.g. loading of several files), in which case the values are summed up.
+ *
+ * @author jaanus
+ */
+public class HarvestPhaseTimer {
+
+    /**
+     * Phases of a harvest, in the order they happen.
+     */
+    public enum Phase {
+
+        /** Downloading the content into a temporary file. */
+        DOWNLOAD,
+        /** Detecting the format of content that was not declared as RDF. */
+        DETECTION,
+        /** Converting XML content into RDF by a conversion stylesheet. */
+        CONVERSION,
+        /** Parsing and loading the triples, including download when content is loaded while being downloaded. */
+        LOADING,
+        /** Clearing and renaming the backup copy of the graph that the triples are loaded into. */
+        GRAPH_SWAP,
+        /** Running post-harvest scripts. */
+        SCRIPTS,
+        /** Updating the inference rule set with the harvested schema. */
+        INFERENCE;
+    }
+
+    /** */
+    private final Map<Phase, HarvestPhaseDTO> phases = new EnumMap<Phase, HarvestPhaseDTO>(Phase.class);
+
+    /**
+     * @return The current value of the high-resolution timer, to be given to {@link #stop(Phase, long)} when the phase ends.
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time since the given start as the given phase's duration.
+     *
+     * @param phase The phase.
+     * @param startNanos Value returned by {@link #start()} when the phase started.
+     * @return The recorded duration, in nanoseconds.
+     */
+    public long stop(Phase phase, long startNanos) {
+
+        long nanos = System.nanoTime() - startNanos;
+        record(phase, nanos, 0L, 0);
+        return nanos;
+    }
+
+    /**
+     * Records the given duration, bytes and triples of the given phase.
+     *
+     * @param phase The phase.
+     * @param nanos Duration in nanoseconds.
+     * @param bytes Number of bytes processed, 0 if not applicable.
+     * @param triples Number of triples processed, 0 if not applicable.
+     */
+    public synchronized void record(Phase phase, long nanos, long bytes, int triples) {
+
+        HarvestPhaseDTO dto = phases.get(phase);
+        if (dto == null) {
+            dto = new HarvestPhaseDTO();
+            dto.setPhase(phase.name());
+            phases.put(phase, dto);
+        }
+        dto.setDurationMicros(dto.getDurationMicros() + Math.max(0L, nanos) / 1000L);
+        dto.setBytes(dto.getBytes() + bytes);
+        dto.setTriples(dto.getTriples() + triples);
+    }
+
+    /**
+     * @param phase The phase.
+     * @return Duration recorded for the given phase so far, in microseconds.
+     */
+    public synchronized long getDurationMicros(Phase phase) {
+
+        HarvestPhaseDTO dto = phases.get(phase);
+        return dto == null ? 0L : dto.getDurationMicros();
+    }
+
+    /**
+     * @param harvestId Id of the harvest that the phases belong to.
+     * @return The phases recorded so far, in the order they happen.
+     */
+    public synchronized List<HarvestPhaseDTO> getPhases(int harvestId) {
+
+        List<HarvestPhaseDTO> list = new ArrayList<HarvestPhaseDTO>(phases.values());
+        for (HarvestPhaseDTO dto : list) {
+            dto.setHarvestId(harvestId);
+        }
+        return list;
+    }
+}
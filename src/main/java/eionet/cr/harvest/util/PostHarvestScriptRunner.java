@@ -0,0 +1,332 @@
+package eionet.cr.harvest.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.log4j.Logger;
+import org.openrdf.repository.RepositoryConnection;
+
+import eionet.cr.dto.PostHarvestScriptDTO;
+import eionet.cr.dto.PostHarvestScriptDTO.TargetType;
+import eionet.cr.util.NamedDaemonThreadFactory;
+import eionet.cr.util.sesame.SesameUtil;
+import eionet.cr.web.action.admin.postHarvest.PostHarvestScriptParser;
+
+/**
+ * Runs a list of post-harvest scripts against a harvested graph. Scripts are grouped by their {@link ScriptFootprint}: scripts
+ * that can affect each other end up in the same group and are run in their given order, while independent groups are run
+ * concurrently, each in its own repository connection and transaction. With just one thread (or just one group) all scripts are
+ * run in the calling thread's connection and transaction, in their given order.
+ *
+ * A script whose update count is above zero is re-run until the count becomes zero (or up to {@link #MAX_RERUNS} times), unless
+ * it is run-once, or its footprint shows that re-running it cannot change anything more.
+ *
+ * @author jaanus
+ */
+public class PostHarvestScriptRunner {
+
+    /** */
+    private static final Logger LOGGER = Logger.getLogger(PostHarvestScriptRunner.class);
+
+    /** Maximum number of times a script is re-run after its first run, until its update count becomes zero. */
+    public static final int MAX_RERUNS = 100;
+
+    /** Prefix of the names of the worker threads. */
+    private static final String THREAD_NAME_PREFIX = "post-harvest-script-";
+
+    /** URL of the harvested source, i.e. the graph that the scripts are run against. */
+    private final String contextUrl;
+
+    /** Maximum number of script groups run concurrently. */
+    private final int threads;
+
+    /**
+     * Class constructor.
+     *
+     * @param contextUrl URL of the harvested source.
+     * @param threads Maximum number of script groups run concurrently. Values below 1 are treated as 1.
+     */
+    public PostHarvestScriptRunner(String contextUrl, int threads) {
+
+        this.contextUrl = contextUrl;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Runs the given scripts, blocking until all of them are done. Failures of individual scripts do not stop the others, they
+     * are reported in the returned results instead.
+     *
+     * @param scriptDtos The scripts to run.
+     * @param conn The connection in which the scripts are run if they are not run concurrently. Not committed by this method.
+     * @return The results of the scripts, in their given order.
+     * @throws InterruptedException If the calling thread was interrupted while waiting for concurrently run scripts.
+     */
+    public List<ScriptRun> run(List<PostHarvestScriptDTO> scriptDtos, RepositoryConnection conn) throws InterruptedException {
+
+        List<ScriptRun> scriptRuns = new ArrayList<ScriptRun>();
+        if (scriptDtos == null || scriptDtos.isEmpty()) {
+            return scriptRuns;
+        }
+
+        for (PostHarvestScriptDTO scriptDto : scriptDtos) {
+            scriptRuns.add(new ScriptRun(scriptDto, contextUrl, scriptRuns.size()));
+        }
+
+        List<List<ScriptRun>> groups = group(scriptRuns);
+        if (threads == 1 || groups.size() == 1) {
+            for (ScriptRun scriptRun : scriptRuns) {
+                execute(scriptRun, conn);
+            }
+            return scriptRuns;
+        }
+
+        int workerCount = Math.min(threads, groups.size());
+        LOGGER.debug("Running " + scriptRuns.size() + " post-harvest scripts in " + groups.size()
+                + " independent groups, with " + workerCount + " workers");
+
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (final List<ScriptRun> group : groups) {
+            tasks.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    executeGroup(group);
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount, new NamedDaemonThreadFactory(THREAD_NAME_PREFIX));
+        try {
+            executor.invokeAll(tasks);
+        } finally {
+            executor.shutdownNow();
+        }
+        return scriptRuns;
+    }
+
+    /**
+     * Splits the given scripts into groups that cannot affect each other. Scripts in a group keep their given order.
+     *
+     * @param scriptRuns The scripts.
+     * @return The groups.
+     */
+    static List<List<ScriptRun>> group(List<ScriptRun> scriptRuns) {
+
+        List<List<ScriptRun>> groups = new ArrayList<List<ScriptRun>>();
+        for (ScriptRun scriptRun : scriptRuns) {
+
+            List<ScriptRun> target = null;
+            for (int i = 0; i < groups.size();) {
+                List<ScriptRun> group = groups.get(i);
+                if (isIndependentOf(scriptRun, group)) {
+                    i++;
+                } else if (target == null) {
+                    target = group;
+                    i++;
+                } else {
+                    target.addAll(group);
+                    groups.remove(i);
+                }
+            }
+
+            if (target == null) {
+                target = new ArrayList<ScriptRun>();
+                groups.add(target);
+            } else {
+                Collections.sort(target, new Comparator<ScriptRun>() {
+                    @Override
+                    public int compare(ScriptRun scriptRun1, ScriptRun scriptRun2) {
+                        return scriptRun1.index - scriptRun2.index;
+                    }
+                });
+            }
+            target.add(scriptRun);
+        }
+        return groups;
+    }
+
+    /**
+     * @param scriptRun
+     * @param group
+     * @return
+     */
+    private static boolean isIndependentOf(ScriptRun scriptRun, List<ScriptRun> group) {
+
+        for (ScriptRun other : group) {
+            if (!scriptRun.footprint.isIndependentOf(other.footprint)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs the given group of scripts in a connection and transaction of its own.
+     *
+     * @param group The group.
+     */
+    private void executeGroup(List<ScriptRun> group) {
+
+        RepositoryConnection conn = null;
+        try {
+            conn = SesameUtil.getRepositoryConnection();
+            conn.setAutoCommit(false);
+            for (ScriptRun scriptRun : group) {
+                execute(scriptRun, conn);
+            }
+            conn.commit();
+        } catch (Exception e) {
+            SesameUtil.rollback(conn);
+            LOGGER.error("Error when running a group of post-harvest scripts: " + e.getMessage(), e);
+            for (ScriptRun scriptRun : group) {
+                if (scriptRun.error == null) {
+                    scriptRun.error = e;
+                }
+            }
+        } finally {
+            SesameUtil.close(conn);
+        }
+    }
+
+    /**
+     * Runs the given script in the given connection, re-running it as long as it might still change something.
+     *
+     * @param scriptRun The script.
+     * @param conn The connection.
+     */
+    private void execute(ScriptRun scriptRun, RepositoryConnection conn) {
+
+        String parsedQuery = scriptRun.parsedQuery;
+        long started = System.currentTimeMillis();
+        try {
+            LOGGER.debug("Executing " + scriptRun.getScriptType() + " script titled \"" + scriptRun.getTitle() + "\":\n"
+                    + parsedQuery);
+
+            int updateCount = SesameUtil.executeSPARUL(parsedQuery, conn);
+            scriptRun.runs = 1;
+            scriptRun.updateCount = updateCount;
+            if (updateCount > 0 && !scriptRun.scriptDto.isRunOnce()) {
+
+                if (!scriptRun.footprint.isSelfFeeding()) {
+                    LOGGER.debug("Script's update count was " + updateCount
+                            + ", but it reads none of its own output, so re-running it would change nothing");
+                } else {
+                    LOGGER.debug("Script's update count was " + updateCount
+                            + ", running it until the count becomes 0, or no more than " + MAX_RERUNS + " times ...");
+                    for (; updateCount > 0 && scriptRun.runs <= MAX_RERUNS; scriptRun.runs++) {
+                        updateCount = SesameUtil.executeSPARUL(parsedQuery, conn, contextUrl);
+                        scriptRun.updateCount += updateCount;
+                    }
+                    LOGGER.debug("Script was run for a total of " + scriptRun.runs + " times, total update count = "
+                            + scriptRun.updateCount);
+                }
+            } else {
+                LOGGER.debug("Script's update count was " + updateCount);
+            }
+        } catch (Exception e) {
+            scriptRun.error = e;
+        } finally {
+            scriptRun.millis = System.currentTimeMillis() - started;
+        }
+    }
+
+    /**
+     * A script to run, and the result of running it.
+     */
+    public static class ScriptRun {
+
+        /** */
+        private final PostHarvestScriptDTO scriptDto;
+
+        /** The script, parsed for execution. */
+        private final String parsedQuery;
+
+        /** */
+        private final ScriptFootprint footprint;
+
+        /** Position of the script in the list given to the runner. */
+        private final int index;
+
+        /** Number of times the script was run. */
+        private int runs;
+
+        /** Total update count of all the runs. */
+        private int updateCount;
+
+        /** Total duration of all the runs. */
+        private long millis;
+
+        /** The exception that the script failed with, or null if it did not fail. */
+        private Exception error;
+
+        /**
+         * @param scriptDto
+         * @param contextUrl
+         * @param index
+         */
+        ScriptRun(PostHarvestScriptDTO scriptDto, String contextUrl, int index) {
+
+            TargetType targetType = scriptDto.getTargetType();
+            String associatedType = targetType != null && targetType.equals(TargetType.TYPE) ? scriptDto.getTargetUrl() : null;
+            this.scriptDto = scriptDto;
+            this.parsedQuery = PostHarvestScriptParser.parseForExecution(scriptDto.getScript(), contextUrl, associatedType);
+            this.footprint = ScriptFootprint.analyse(parsedQuery);
+            this.index = index;
+        }
+
+        /**
+         * @return The script's title.
+         */
+        public String getTitle() {
+            return scriptDto.getTitle();
+        }
+
+        /**
+         * @return The script's type as displayed in messages, e.g. "all-source" or "type-specific".
+         */
+        public String getScriptType() {
+            TargetType targetType = scriptDto.getTargetType();
+            return targetType == null ? "all-source" : targetType.toString().toLowerCase() + "-specific";
+        }
+
+        /**
+         * @return The script, parsed for execution.
+         */
+        public String getParsedQuery() {
+            return parsedQuery;
+        }
+
+        /**
+         * @return Number of times the script was run.
+         */
+        public int getRuns() {
+            return runs;
+        }
+
+        /**
+         * @return Total update count of all the runs.
+         */
+        public int getUpdateCount() {
+            return updateCount;
+        }
+
+        /**
+         * @return Total duration of all the runs, in milliseconds.
+         */
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * @return The exception that the script failed with, or null if it did not fail.
+         */
+        public Exception getError() {
+            return error;
+        }
+    }
+}
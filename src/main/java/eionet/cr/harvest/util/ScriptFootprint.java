@@ -0,0 +1,317 @@
+package eionet.cr.harvest.util;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import eionet.cr.common.Namespace;
+import eionet.cr.common.Predicates;
+
+/**
+ * A conservative static analysis of a post-harvest SPARQL/Update script: the predicates and types that it writes (in its
+ * INSERT/DELETE templates) and the ones it reads (in its WHERE clause). It tells whether two scripts can affect each other, and
+ * whether re-running a script can ever change anything more than its first run did.
+ *
+ * Whenever the analysis cannot be sure (variable predicates or types, property paths, several operations in one script, graph
+ * management operations and the like), the script is considered to touch everything.
+ *
+ * @author jaanus
+ */
+public final class ScriptFootprint {
+
+    /** Tokens of interest: IRI, string literal, comment, variable, prefixed name, word, punctuation. */
+    private static final Pattern TOKEN = Pattern.compile("<([^<>\"{}|^`\\\\\\s]*)>" + "|\"(?:[^\"\\\\]|\\\\.)*\""
+            + "|'(?:[^'\\\\]|\\\\.)*'" + "|#[^\\n]*" + "|([?$]\\w+)" + "|((?:[A-Za-z][\\w-]*)?:(?:\\w[\\w-]*)?)"
+            + "|([A-Za-z_]\\w*)" + "|(\\^\\^|[{}()\\[\\];,./|^*+?])");
+
+    /** Term recorded for rdf:type with any type. */
+    private static final String ANY_TYPE = "a *";
+
+    /** Prefix of the terms recorded for rdf:type with a particular type. */
+    private static final String TYPE_TERM_PREFIX = "a ";
+
+    /** Keywords after which the next IRI or variable is a graph name, not a term of the data. */
+    private static final Set<String> GRAPH_KEYWORDS = keywords("FROM", "INTO", "WITH", "USING", "GRAPH", "NAMED");
+
+    /** Keywords that start a projection or solution modifiers, whose variables are not triple pattern terms. */
+    private static final Set<String> MODIFIER_KEYWORDS = keywords("SELECT", "BY", "HAVING", "LIMIT", "OFFSET");
+
+    /** Keywords of graph management operations, whose effect is not limited to particular predicates. */
+    private static final Set<String> GRAPH_MANAGEMENT_KEYWORDS = keywords("CLEAR", "DROP", "LOAD", "CREATE", "COPY", "MOVE",
+            "ADD");
+
+    /** Keywords that start an update operation's template. */
+    private static final Set<String> UPDATE_KEYWORDS = keywords("INSERT", "DELETE", "MODIFY");
+
+    /** Predicates and types written by the script. */
+    private final Set<String> writes = new HashSet<String>();
+
+    /** Predicates and types read by the script. */
+    private final Set<String> reads = new HashSet<String>();
+
+    /** True if the analysis could not determine what the script touches. */
+    private boolean touchesEverything;
+
+    /** True if the script deletes triples. */
+    private boolean deletes;
+
+    /**
+     * Hidden constructor, use {@link #analyse(String)}.
+     */
+    private ScriptFootprint() {
+        // Use analyse(String).
+    }
+
+    /**
+     * Analyses the given script. The script is expected to be already parsed for execution, i.e. with the harvested source and
+     * associated type variables replaced by actual IRIs.
+     *
+     * @param script The script.
+     * @return The footprint.
+     */
+    public static ScriptFootprint analyse(String script) {
+
+        ScriptFootprint footprint = new ScriptFootprint();
+        if (script == null || script.trim().length() == 0) {
+            return footprint;
+        }
+
+        Map<String, String> prefixes = new HashMap<String, String>();
+        for (Namespace namespace : Namespace.values()) {
+            prefixes.put(namespace.getPrefix(), namespace.getUri());
+        }
+
+        Set<String> terms = footprint.writes;
+        int braceDepth = 0;
+        int parenDepth = 0;
+        LinkedList<Integer> outerParenDepths = new LinkedList<Integer>();
+        int position = 0;
+        int updateKeywords = 0;
+        int templateGroups = 0;
+        boolean whereSeen = false;
+        boolean typePredicate = false;
+        boolean skipGraphName = false;
+        boolean inModifiers = false;
+        String pendingPrefix = null;
+        int prefixState = 0;
+
+        Matcher matcher = TOKEN.matcher(script);
+        while (matcher.find() && !footprint.touchesEverything) {
+
+            String token = matcher.group();
+            String iri = matcher.group(1);
+            String variable = matcher.group(2);
+            String prefixedName = matcher.group(3);
+            String word = matcher.group(4);
+            String punctuation = matcher.group(5);
+
+            if (token.startsWith("#")) {
+                continue;
+            }
+
+            // PREFIX declarations
+            if (prefixState > 0) {
+                if (prefixState == 2 && prefixedName != null) {
+                    pendingPrefix = prefixedName.substring(0, prefixedName.indexOf(':'));
+                    prefixState = 1;
+                } else if (prefixState == 1 && iri != null) {
+                    prefixes.put(pendingPrefix, iri);
+                    prefixState = 0;
+                } else {
+                    prefixState = 0;
+                }
+                continue;
+            }
+
+            if (word != null && !word.equals("a")) {
+                String keyword = word.toUpperCase();
+                if (keyword.equals("PREFIX")) {
+                    prefixState = 2;
+                } else if (keyword.equals("WHERE") && braceDepth == 0) {
+                    if (whereSeen || templateGroups > updateKeywords) {
+                        footprint.touchesEverything = true;
+                    }
+                    whereSeen = true;
+                    terms = footprint.reads;
+                } else if (braceDepth == 0 && UPDATE_KEYWORDS.contains(keyword)) {
+                    if (whereSeen) {
+                        footprint.touchesEverything = true;
+                    }
+                    updateKeywords++;
+                    footprint.deletes = footprint.deletes || keyword.equals("DELETE");
+                } else if (braceDepth == 0 && GRAPH_MANAGEMENT_KEYWORDS.contains(keyword)) {
+                    footprint.touchesEverything = true;
+                } else if (GRAPH_KEYWORDS.contains(keyword)) {
+                    skipGraphName = true;
+                } else if (MODIFIER_KEYWORDS.contains(keyword)) {
+                    inModifiers = true;
+                }
+                position = 0;
+                continue;
+            }
+
+            if (punctuation != null) {
+                if (punctuation.equals("{") || punctuation.equals("}")) {
+                    // a group inside parentheses, e.g. FILTER (EXISTS {...}), has triple patterns of its own
+                    if (punctuation.equals("{")) {
+                        outerParenDepths.push(Integer.valueOf(parenDepth));
+                        parenDepth = 0;
+                    } else if (!outerParenDepths.isEmpty()) {
+                        parenDepth = outerParenDepths.pop().intValue();
+                    }
+                    braceDepth += punctuation.equals("{") ? 1 : -1;
+                    if (punctuation.equals("{") && braceDepth == 1 && !whereSeen) {
+                        templateGroups++;
+                    }
+                    inModifiers = false;
+                    position = 0;
+                } else if (punctuation.equals("(") || punctuation.equals(")")) {
+                    parenDepth = Math.max(0, parenDepth + (punctuation.equals("(") ? 1 : -1));
+                } else if (parenDepth == 0 && !inModifiers) {
+                    if (punctuation.equals(".")) {
+                        position = 0;
+                    } else if (punctuation.equals(";")) {
+                        if (braceDepth == 0) {
+                            // several operations in one script
+                            footprint.touchesEverything = true;
+                        }
+                        position = 1;
+                    } else if (punctuation.equals(",")) {
+                        position = 2;
+                    } else if (punctuation.equals("[") || punctuation.equals("]")) {
+                        position = 1;
+                    } else if (!punctuation.equals("^^") && (position == 1 || position == 2)) {
+                        // property path
+                        footprint.touchesEverything = true;
+                    }
+                }
+                continue;
+            }
+
+            // remaining tokens are terms: IRIs, prefixed names, variables, literals and the "a" keyword
+            if (skipGraphName && (iri != null || variable != null || prefixedName != null)) {
+                skipGraphName = false;
+                continue;
+            }
+            if (inModifiers || parenDepth > 0 || braceDepth == 0) {
+                continue;
+            }
+
+            String value = iri != null ? iri : prefixedName != null ? expand(prefixedName, prefixes) : null;
+            if (position == 1) {
+                if (variable != null) {
+                    footprint.touchesEverything = true;
+                } else if ("a".equals(word) || Predicates.RDF_TYPE.equals(value)) {
+                    typePredicate = true;
+                } else if (value != null) {
+                    terms.add(value);
+                    typePredicate = false;
+                } else {
+                    typePredicate = false;
+                }
+            } else if (position == 2 && typePredicate) {
+                terms.add(value != null ? TYPE_TERM_PREFIX + value : ANY_TYPE);
+            }
+            position++;
+        }
+
+        if (!whereSeen && templateGroups > updateKeywords) {
+            // a pattern without the WHERE keyword, so it cannot be told apart from the template
+            footprint.touchesEverything = true;
+        }
+        if (footprint.deletes && footprint.writes.isEmpty()) {
+            // DELETE WHERE shorthand, the template is the pattern itself
+            footprint.touchesEverything = true;
+        }
+        return footprint;
+    }
+
+    /**
+     * Returns true if this script and the given one cannot affect each other, i.e. neither writes anything that the other reads
+     * or writes, so they can be run in any order or concurrently.
+     *
+     * @param other The other script's footprint.
+     * @return As described above.
+     */
+    public boolean isIndependentOf(ScriptFootprint other) {
+
+        if (touchesEverything || other.touchesEverything) {
+            return false;
+        }
+        return !intersect(writes, other.writes) && !intersect(writes, other.reads) && !intersect(other.writes, reads);
+    }
+
+    /**
+     * Returns true if re-running the script might change something that its previous run did not, i.e. it deletes triples or
+     * reads anything that it writes itself. An insert-only script that reads none of its own output has reached its fixpoint
+     * after the first run, whatever update count the triple store reports for it.
+     *
+     * @return As described above.
+     */
+    public boolean isSelfFeeding() {
+        return touchesEverything || deletes || intersect(writes, reads);
+    }
+
+    /**
+     * @return True if the analysis could not determine what the script touches.
+     */
+    public boolean touchesEverything() {
+        return touchesEverything;
+    }
+
+    /**
+     * Returns true if the two given term sets have a common term, with the "any type" term matching every type.
+     *
+     * @param terms1
+     * @param terms2
+     * @return
+     */
+    private static boolean intersect(Set<String> terms1, Set<String> terms2) {
+
+        for (String term : terms1) {
+            if (terms2.contains(term)) {
+                return true;
+            } else if (term.startsWith(TYPE_TERM_PREFIX) && terms2.contains(ANY_TYPE)) {
+                return true;
+            } else if (term.equals(ANY_TYPE)) {
+                for (String term2 : terms2) {
+                    if (term2.startsWith(TYPE_TERM_PREFIX)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Expands the given prefixed name by the given prefixes. Names with undeclared prefixes are returned as they are.
+     *
+     * @param prefixedName
+     * @param prefixes
+     * @return
+     */
+    private static String expand(String prefixedName, Map<String, String> prefixes) {
+
+        int colonIndex = prefixedName.indexOf(':');
+        String namespace = prefixes.get(prefixedName.substring(0, colonIndex));
+        return namespace == null ? prefixedName : namespace + prefixedName.substring(colonIndex + 1);
+    }
+
+    /**
+     * @param keywords
+     * @return
+     */
+    private static Set<String> keywords(String... keywords) {
+
+        Set<String> set = new HashSet<String>();
+        for (String keyword : keywords) {
+            set.add(keyword);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,456 @@
+package eionet.cr.staging.exp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+
+import eionet.cr.common.Predicates;
+import eionet.cr.staging.util.ConceptIndex;
+import eionet.cr.staging.util.ConceptIndex.Kind;
+
+/**
+ * A {@link QueryConfiguration} compiled for converting the rows of its export query into triples. The object URI template and the
+ * value templates are parsed once into literal parts and placeholders, and the predicates and datatypes are created once, so that
+ * a row is converted by concatenating its values into the templates. Conversion does not change the compiled configuration, so
+ * blocks of rows can be converted by several threads at once, see {@link #convert(List)}.
+ *
+ * @author jaanus
+ */
+final class CompiledQueryConfiguration {
+
+    /** The object URI template. */
+    private final Template subjectTemplate;
+
+    /** Values of the object URI template's placeholders that no column gives a value for, null if there is none. */
+    private final String[] subjectDefaults;
+
+    /** The mapped columns, in the order of the query configuration's column mappings, null where a column is not mapped. */
+    private final Column[] columns;
+
+    /** Predicates and values that every object gets, regardless of the row. */
+    private final List<Value[]> fixedValues = new ArrayList<Value[]>();
+
+    /** Kinds of concepts, by the ids of the properties whose values must be existing concepts. */
+    private final Map<String, Kind> conceptKinds = new HashMap<String, Kind>();
+
+    /** The existing concepts. */
+    private ConceptIndex concepts;
+
+    /** The graph that the triples go into. */
+    private final URI graphURI;
+
+    /** */
+    private final ValueFactory vf;
+
+    /** True if a column is mapped to the indicator property. */
+    private final boolean indicatorMapped;
+
+    /**
+     * Class constructor. The predicate URIs of the column mappings' properties must be set.
+     *
+     * @param queryConf The query configuration.
+     * @param datasetIdentifier Identifier of the dataset that replaces the "dataset" placeholder of the object URI template.
+     * @param graphURI The graph that the triples go into.
+     * @param vf Value factory for creating the triples. It must be safe to use by several threads at once, like Sesame's ones.
+     */
+    CompiledQueryConfiguration(QueryConfiguration queryConf, String datasetIdentifier, URI graphURI, ValueFactory vf) {
+
+        String objectUriTemplate = queryConf.getObjectUriTemplate();
+        if (StringUtils.isBlank(objectUriTemplate)) {
+            throw new IllegalArgumentException("The object URI template in the query configuration must not be blank!");
+        }
+
+        this.graphURI = graphURI;
+        this.vf = vf;
+
+        List<String> placeholders = new ArrayList<String>();
+        placeholders.add(ExportRunner.INDICATOR);
+        placeholders.add(ExportRunner.BREAKDOWN);
+
+        boolean hasIndicatorMapping = false;
+        columns = new Column[queryConf.getColumnMappings().size()];
+        int i = 0;
+        for (Entry<String, ObjectProperty> entry : queryConf.getColumnMappings().entrySet()) {
+
+            ObjectProperty property = entry.getValue();
+            if (property != null) {
+                if (!placeholders.contains(property.getId())) {
+                    placeholders.add(property.getId());
+                }
+                hasIndicatorMapping = hasIndicatorMapping || property.getId().equals(ExportRunner.INDICATOR);
+                columns[i] = new Column(property, placeholders.indexOf(property.getId()), vf);
+            }
+            i++;
+        }
+        this.indicatorMapped = hasIndicatorMapping;
+
+        subjectTemplate = new Template(StringUtils.replace(objectUriTemplate, "<dataset>", datasetIdentifier), placeholders);
+        subjectDefaults = new String[placeholders.size()];
+        String indicatorCode = StringUtils.substringAfterLast(queryConf.getIndicatorUri(), "/");
+        subjectDefaults[0] = StringUtils.isBlank(indicatorCode) ? ExportRunner.DEFAULT_INDICATOR_CODE : indicatorCode;
+        subjectDefaults[1] = ExportRunner.DEFAULT_BREAKDOWN_CODE;
+    }
+
+    /**
+     * Adds a predicate and value that every object gets.
+     *
+     * @param predicateURI The predicate.
+     * @param value The value.
+     */
+    void addFixedValue(URI predicateURI, Value value) {
+        fixedValues.add(new Value[] {predicateURI, value});
+    }
+
+    /**
+     * @param concepts The existing concepts that values of the properties given to {@link #setConceptKind(String, Kind)} are
+     *            checked against.
+     */
+    void setConcepts(ConceptIndex concepts) {
+        this.concepts = concepts;
+    }
+
+    /**
+     * Sets the kind of concepts that values of the given property must be, so that values that are not existing concepts are
+     * reported by the converted blocks.
+     *
+     * @param propertyId Id of the property.
+     * @param kind Kind of the concepts.
+     */
+    void setConceptKind(String propertyId, Kind kind) {
+        conceptKinds.put(propertyId, kind);
+    }
+
+    /**
+     * @return True if a column is mapped to the indicator property.
+     */
+    boolean isIndicatorMapped() {
+        return indicatorMapped;
+    }
+
+    /**
+     * Converts the given rows into triples. May be called by several threads at once, once all fixed values and concepts are
+     * set.
+     *
+     * @param rows Values of the mapped columns, in the order of the query configuration's column mappings.
+     * @return The triples and other outcome of the rows.
+     */
+    Block convert(List<String[]> rows) {
+
+        Block block = new Block(rows.size());
+        String[] placeholderValues = new String[subjectDefaults.length];
+        Value[] values = new Value[columns.length];
+        for (String[] row : rows) {
+
+            for (int i = 0; i < placeholderValues.length; i++) {
+                placeholderValues[i] = null;
+            }
+            for (int i = 0; i < columns.length; i++) {
+                values[i] = columns[i] == null ? null : columns[i].convert(row[i], placeholderValues, block);
+            }
+            for (int i = 0; i < placeholderValues.length; i++) {
+                if (placeholderValues[i] == null) {
+                    placeholderValues[i] = subjectDefaults[i];
+                }
+            }
+
+            URI subjectURI = vf.createURI(subjectTemplate.expand(placeholderValues));
+            for (Value[] fixedValue : fixedValues) {
+                block.statements.add(vf.createStatement(subjectURI, (URI) fixedValue[0], fixedValue[1], graphURI));
+            }
+            for (int i = 0; i < columns.length; i++) {
+                if (values[i] != null) {
+                    block.statements.add(vf.createStatement(subjectURI, columns[i].predicateURI, values[i], graphURI));
+                    if (columns[i].timePeriod && values[i] instanceof URI) {
+                        block.timePeriods.add(values[i].stringValue());
+                    }
+                }
+            }
+            block.subjectCount++;
+        }
+        return block;
+    }
+
+    /**
+     * A mapped column.
+     */
+    private final class Column {
+
+        /** Id of the property that the column is mapped to. */
+        private final String propertyId;
+
+        /** Index of the object URI template's placeholder of the property. */
+        private final int placeholder;
+
+        /** Value of a blank cell, null if blank cells have no value. */
+        private final String defaultValue;
+
+        /** The property's predicate, null if the column gives no triples. */
+        private final URI predicateURI;
+
+        /** The property's value template, null if the value is the cell's value. */
+        private final Template valueTemplate;
+
+        /** True if the values are literals. */
+        private final boolean literal;
+
+        /** Datatype of the literals, null if none or if it is not a valid URI. */
+        private final URI dataType;
+
+        /** True if the property is the time period. */
+        private final boolean timePeriod;
+
+        /**
+         * Class constructor.
+         *
+         * @param property The property that the column is mapped to.
+         * @param placeholder Index of the object URI template's placeholder of the property.
+         * @param vf Value factory.
+         */
+        private Column(ObjectProperty property, int placeholder, ValueFactory vf) {
+
+            this.propertyId = property.getId();
+            this.placeholder = placeholder;
+            this.predicateURI = property.getPredicateURI();
+            this.literal = property.isLiteralRange();
+            this.timePeriod = predicateURI != null && Predicates.DAS_TIMEPERIOD.equals(predicateURI.stringValue());
+
+            if (propertyId.equals(ExportRunner.BREAKDOWN)) {
+                defaultValue = ExportRunner.DEFAULT_BREAKDOWN_CODE;
+            } else if (propertyId.equals(ExportRunner.INDICATOR)) {
+                defaultValue = ExportRunner.DEFAULT_INDICATOR_CODE;
+            } else {
+                defaultValue = null;
+            }
+
+            String template = property.getValueTemplate();
+            valueTemplate = template == null ? null : new Template(template, Collections.singletonList("value"));
+
+            URI type = null;
+            if (literal && property.getDataType() != null) {
+                try {
+                    type = vf.createURI(property.getDataType());
+                } catch (IllegalArgumentException e) {
+                    type = null;
+                }
+            }
+            this.dataType = type;
+        }
+
+        /**
+         * Converts a cell of the column.
+         *
+         * @param cellValue Value of the cell.
+         * @param placeholderValues Values of the object URI template's placeholders, set if not set yet.
+         * @param block The block of the row, into which values that are not existing concepts are recorded.
+         * @return The value of the property, null if none.
+         */
+        private Value convert(String cellValue, String[] placeholderValues, Block block) {
+
+            String colValue = StringUtils.isBlank(cellValue) ? defaultValue : cellValue;
+            if (StringUtils.isBlank(colValue)) {
+                return null;
+            }
+
+            if (placeholderValues[placeholder] == null) {
+                placeholderValues[placeholder] = colValue;
+            }
+            if (predicateURI == null) {
+                return null;
+            }
+
+            String propertyValue = valueTemplate == null ? colValue : valueTemplate.expand(new String[] {colValue});
+            Kind conceptKind = conceptKinds.get(propertyId);
+            if (conceptKind != null && concepts != null && !concepts.contains(conceptKind, propertyValue)) {
+                block.addMissingConcept(propertyId, colValue);
+            }
+
+            if (!literal) {
+                return vf.createURI(propertyValue);
+            } else if (dataType == null) {
+                return vf.createLiteral(propertyValue);
+            }
+            try {
+                return vf.createLiteral(propertyValue, dataType);
+            } catch (IllegalArgumentException e) {
+                return vf.createLiteral(propertyValue);
+            }
+        }
+    }
+
+    /**
+     * A template parsed into literal parts and placeholders, i.e. names in angle brackets. Text in angle brackets that is not a
+     * known placeholder stays literal.
+     */
+    static final class Template {
+
+        /** Literal parts, one more than placeholders. */
+        private final String[] literals;
+
+        /** Indexes of the placeholders' names, each one following the literal part of the same index. */
+        private final int[] placeholders;
+
+        /** Known placeholder names. */
+        private final List<String> names;
+
+        /**
+         * Parses the given template.
+         *
+         * @param template The template.
+         * @param names Known placeholder names.
+         */
+        Template(String template, List<String> names) {
+
+            this.names = names;
+            List<String> literalList = new ArrayList<String>();
+            List<Integer> placeholderList = new ArrayList<Integer>();
+
+            StringBuilder literal = new StringBuilder();
+            int pos = 0;
+            while (pos < template.length()) {
+
+                int start = template.indexOf('<', pos);
+                int end = start < 0 ? -1 : template.indexOf('>', start);
+                if (end < 0) {
+                    literal.append(template.substring(pos));
+                    break;
+                }
+
+                int index = names.indexOf(template.substring(start + 1, end));
+                if (index < 0) {
+                    literal.append(template, pos, start + 1);
+                    pos = start + 1;
+                } else {
+                    literal.append(template, pos, start);
+                    literalList.add(literal.toString());
+                    literal.setLength(0);
+                    placeholderList.add(index);
+                    pos = end + 1;
+                }
+            }
+            literalList.add(literal.toString());
+
+            literals = literalList.toArray(new String[literalList.size()]);
+            placeholders = new int[placeholderList.size()];
+            for (int i = 0; i < placeholders.length; i++) {
+                placeholders[i] = placeholderList.get(i);
+            }
+        }
+
+        /**
+         * Fills the template.
+         *
+         * @param values Values of the placeholders, by the indexes of their names. A placeholder without value stays as it is.
+         * @return The filled template.
+         */
+        String expand(String[] values) {
+
+            StringBuilder sb = new StringBuilder(128);
+            for (int i = 0; i < placeholders.length; i++) {
+                sb.append(literals[i]);
+                String value = values[placeholders[i]];
+                if (value == null) {
+                    sb.append('<').append(names.get(placeholders[i])).append('>');
+                } else {
+                    sb.append(value);
+                }
+            }
+            return sb.append(literals[placeholders.length]).toString();
+        }
+    }
+
+    /**
+     * The outcome of converting a block of rows: the triples ready to be added to the repository in one call, and what the export
+     * runner records about the rows.
+     */
+    static final class Block {
+
+        /** */
+        private final List<Statement> statements;
+
+        /** */
+        private final int rowCount;
+
+        /** */
+        private int subjectCount;
+
+        /** */
+        private final Set<String> timePeriods = new LinkedHashSet<String>();
+
+        /** */
+        private final Map<String, Set<String>> missingConcepts = new HashMap<String, Set<String>>();
+
+        /**
+         * Class constructor.
+         *
+         * @param rowCount Number of rows in the block.
+         */
+        private Block(int rowCount) {
+
+            this.rowCount = rowCount;
+            this.statements = new ArrayList<Statement>(rowCount * 8);
+        }
+
+        /**
+         * @param propertyId Id of the property.
+         * @param colValue Column value that is not an existing concept.
+         */
+        private void addMissingConcept(String propertyId, String colValue) {
+
+            Set<String> values = missingConcepts.get(propertyId);
+            if (values == null) {
+                values = new LinkedHashSet<String>();
+                missingConcepts.put(propertyId, values);
+            }
+            values.add(colValue);
+        }
+
+        /**
+         * @return The triples of the rows, each in its graph.
+         */
+        List<Statement> getStatements() {
+            return statements;
+        }
+
+        /**
+         * @return Number of rows in the block.
+         */
+        int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * @return Number of objects created from the rows.
+         */
+        int getSubjectCount() {
+            return subjectCount;
+        }
+
+        /**
+         * @return Time periods that the objects refer to.
+         */
+        Set<String> getTimePeriods() {
+            return timePeriods;
+        }
+
+        /**
+         * @param propertyId Id of a property.
+         * @return Column values of the property that are not existing concepts.
+         */
+        Set<String> getMissingConcepts(String propertyId) {
+
+            Set<String> values = missingConcepts.get(propertyId);
+            return values == null ? Collections.<String> emptySet() : values;
+        }
+    }
+}
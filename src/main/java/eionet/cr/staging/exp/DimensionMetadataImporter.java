@@ -34,6 +34,8 @@ import org.openrdf.repository.RepositoryConnection;
 import org.openrdf.repository.RepositoryException;
 
 import eionet.cr.common.Predicates;
+import eionet.cr.staging.util.ConceptIndex;
+import eionet.cr.util.sesame.SPARQLResultCache;
 import eionet.cr.util.sesame.SesameUtil;
 import eionet.cr.util.sql.SQLUtil;
 
@@ -139,6 +141,10 @@ public class DimensionMetadataImporter extends Thread {
             doExecute(repoConn);
             repoConn.commit();
 
+            // The imported concepts must be seen by cached query results and by the concept index of RDF exports.
+            SPARQLResultCache.invalidate(graphURI.stringValue());
+            ConceptIndex.invalidate();
+
             long millis = System.currentTimeMillis() - started;
             LOGGER.debug("Finished in " + millis + " ms");
         } catch (Exception e) {
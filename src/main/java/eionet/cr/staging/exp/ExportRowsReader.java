@@ -0,0 +1,164 @@
+package eionet.cr.staging.exp;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import eionet.cr.util.sesame.SesameUtil;
+import eionet.cr.util.sql.SQLUtil;
+
+/**
+ * A thread that runs an RDF export query on a staging database once, through a forward-only read-only cursor that fetches the
+ * rows in batches, and feeds the values of the mapped columns into a bounded queue. The export runner takes the rows from the
+ * queue with {@link #take()} and turns them into triples while the next rows are being read, so that the export takes time in
+ * proportion to the number of rows, unlike paging the query with "SELECT TOP offset,limit" which runs it again for every page.
+ * <p>
+ * The queue holds at most {@link #QUEUE_CAPACITY} rows, so the reader waits for the export runner when it is ahead of it.
+ *
+ * @author jaanus
+ */
+final class ExportRowsReader extends Thread {
+
+    /** Number of rows fetched from the database at a time. */
+    static final int FETCH_SIZE = 5000;
+
+    /** Maximum number of read rows waiting for the export runner. */
+    static final int QUEUE_CAPACITY = 10000;
+
+    /** Marks the end of the rows in the queue. */
+    private static final String[] END = new String[0];
+
+    /** */
+    private static final Logger LOGGER = Logger.getLogger(ExportRowsReader.class);
+
+    /** Name of the staging database. */
+    private final String dbName;
+
+    /** The export query. */
+    private final String query;
+
+    /** Names of the columns whose values are read, in the order of the values in a row. */
+    private final String[] columnNames;
+
+    /** The rows read. */
+    private final BlockingQueue<String[]> queue = new ArrayBlockingQueue<String[]>(QUEUE_CAPACITY);
+
+    /** Set when the export runner stops taking rows. */
+    private volatile boolean cancelled;
+
+    /** The error that stopped the reading, if any. */
+    private volatile Exception error;
+
+    /**
+     * Class constructor.
+     *
+     * @param dbName Name of the staging database.
+     * @param query The export query.
+     * @param columnNames Names of the columns whose values are read.
+     */
+    ExportRowsReader(String dbName, String query, String[] columnNames) {
+
+        super("ExportRowsReader-" + dbName);
+        this.dbName = dbName;
+        this.query = query;
+        this.columnNames = columnNames;
+        setDaemon(true);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Thread#run()
+     */
+    @Override
+    public void run() {
+
+        Connection sqlConn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            sqlConn = SesameUtil.getSQLConnection(dbName);
+            pstmt = sqlConn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(FETCH_SIZE);
+            rs = pstmt.executeQuery();
+            rs.setFetchSize(FETCH_SIZE);
+
+            int[] columnIndexes = new int[columnNames.length];
+            for (int i = 0; i < columnNames.length; i++) {
+                columnIndexes[i] = rs.findColumn(columnNames[i]);
+            }
+
+            while (!cancelled && rs.next()) {
+
+                String[] row = new String[columnIndexes.length];
+                for (int i = 0; i < columnIndexes.length; i++) {
+                    row[i] = rs.getString(columnIndexes[i]);
+                }
+                put(row);
+            }
+        } catch (Exception e) {
+            error = e;
+        } finally {
+            SQLUtil.close(rs);
+            SQLUtil.close(pstmt);
+            SQLUtil.close(sqlConn);
+            try {
+                put(END);
+            } catch (InterruptedException e) {
+                LOGGER.warn("Interrupted while ending the rows of " + getName());
+            }
+        }
+    }
+
+    /**
+     * Returns the next row, waiting for it to be read if needed.
+     *
+     * @return Values of the columns, in the order of the column names given to the constructor, or null if all rows are read.
+     * @throws SQLException If reading the rows failed.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    String[] take() throws SQLException, InterruptedException {
+
+        String[] row = queue.take();
+        if (row != END) {
+            return row;
+        }
+
+        queue.offer(END);
+        if (error instanceof SQLException) {
+            throw (SQLException) error;
+        } else if (error != null) {
+            throw new SQLException("Failed to read the rows of the export query", error);
+        }
+        return null;
+    }
+
+    /**
+     * Stops the reading and releases the database connection, called when the export runner stops taking rows before the end.
+     */
+    void cancel() {
+
+        cancelled = true;
+        queue.clear();
+    }
+
+    /**
+     * Puts the given row into the queue, waiting for space unless the reading is cancelled.
+     *
+     * @param row The row.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private void put(String[] row) throws InterruptedException {
+
+        boolean added = false;
+        while (!added && !cancelled) {
+            added = queue.offer(row, 1, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -32,30 +32,41 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.openrdf.model.Literal;
 import org.openrdf.model.URI;
-import org.openrdf.model.Value;
 import org.openrdf.model.ValueFactory;
 import org.openrdf.model.vocabulary.XMLSchema;
 import org.openrdf.repository.RepositoryConnection;
 import org.openrdf.repository.RepositoryException;
 
 import eionet.cr.common.Predicates;
+import eionet.cr.config.GeneralConfig;
 import eionet.cr.dao.DAOException;
 import eionet.cr.dao.DAOFactory;
 import eionet.cr.dao.StagingDatabaseDAO;
 import eionet.cr.dto.StagingDatabaseDTO;
+import eionet.cr.staging.exp.CompiledQueryConfiguration.Block;
+import eionet.cr.staging.util.ConceptIndex;
+import eionet.cr.staging.util.ConceptIndex.Kind;
 import eionet.cr.staging.util.TimePeriodsHarvester;
 import eionet.cr.util.LogUtil;
+import eionet.cr.util.NamedDaemonThreadFactory;
 import eionet.cr.util.Util;
+import eionet.cr.util.sesame.SPARQLResultCache;
 import eionet.cr.util.sesame.SesameUtil;
 import eionet.cr.util.sql.SQLUtil;
 
@@ -67,13 +78,10 @@ import eionet.cr.util.sql.SQLUtil;
 public final class ExportRunner extends Thread {
 
     /** */
-    private static final int EXPORT_PAGE_SIZE = 5000;
+    static final String DEFAULT_INDICATOR_CODE = "*";
 
     /** */
-    private static final String DEFAULT_INDICATOR_CODE = "*";
-
-    /** */
-    private static final String DEFAULT_BREAKDOWN_CODE = "total";
+    static final String DEFAULT_BREAKDOWN_CODE = "total";
 
     /** */
     public static final String EXPORT_URI_PREFIX = "http://semantic.digital-agenda-data.eu/import/";
@@ -85,10 +93,10 @@ public final class ExportRunner extends Thread {
     private static final String UNIT = "unit";
 
     /**  */
-    private static final String BREAKDOWN = "breakdown";
+    static final String BREAKDOWN = "breakdown";
 
     /**  */
-    private static final String INDICATOR = "indicator";
+    static final String INDICATOR = "indicator";
 
     /** */
     private static final Logger LOGGER = Logger.getLogger(ExportRunner.class);
@@ -96,6 +104,12 @@ public final class ExportRunner extends Thread {
     /** */
     public static final int MAX_TEST_RESULTS = 500;
 
+    /** Number of rows converted into triples and added to the repository at a time. */
+    private static final int EXPORT_BLOCK_SIZE = 1000;
+
+    /** Prefix of the names of the threads that convert the rows. */
+    private static final String THREAD_NAME_PREFIX = "rdf-export-";
+
     /** */
     private StagingDatabaseDTO dbDTO;
 
@@ -145,10 +159,7 @@ public final class ExportRunner extends Thread {
     private URI indicatorValueURI;
 
     /** */
-    private Set<String> existingIndicators;
-    private Set<String> existingBreakdowns;
-    private Set<String> existingUnits;
-    private Set<String> existingRefAreas;
+    private ConceptIndex concepts;
 
     /** */
     private Set<String> missingIndicators = new LinkedHashSet<String>();
@@ -280,6 +291,11 @@ public final class ExportRunner extends Thread {
             // Commit the transaction.
             repoConn.commit();
 
+            // Invalidate cached SPARQL results that read the exported graphs or the dataset's metadata.
+            SPARQLResultCache.invalidate(graphs);
+            SPARQLResultCache.invalidate(graphURI == null ? null : graphURI.stringValue(),
+                    datasetValueURI == null ? null : datasetValueURI.stringValue());
+
             // Log finish event.
             long millis = System.currentTimeMillis() - started;
             LogUtil.debug("RDF export (id=" + exportId + ") finished in " + (millis / 1000L) + " sec", exportLogger, LOGGER);
@@ -322,284 +338,195 @@ public final class ExportRunner extends Thread {
             return;
         }
 
-        Connection sqlConn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
-        try {
-            // Prepare SQL connection.
-            sqlConn = SesameUtil.getSQLConnection(dbDTO.getName());
+        String trimmedQuery = checkSelectQuery(query);
 
-            // Prepare ValueFactory to be used by each "export row" call below.
-            ValueFactory valueFactory = repoConn.getValueFactory();
+        // Run the query once, its rows are read into a queue by a separate thread while the previous ones are exported here.
+        String[] columnNames = queryConf.getColumnMappings().keySet().toArray(new String[0]);
+        LOGGER.debug(String.format("Going to execute export query:\n%s\n", trimmedQuery));
+        ExportRowsReader rowsReader = new ExportRowsReader(dbDTO.getName(), trimmedQuery, columnNames);
+        rowsReader.start();
 
+        // Blocks of rows are converted into triples by worker threads, and added to the repository here in the order of the rows.
+        int threads = Math.max(1, GeneralConfig.getIntProperty(GeneralConfig.STAGING_EXPORT_THREADS, 1));
+        ExecutorService executor =
+                threads == 1 ? null : Executors.newFixedThreadPool(threads, new NamedDaemonThreadFactory(THREAD_NAME_PREFIX));
+        LinkedList<Future<Block>> pendingBlocks = new LinkedList<Future<Block>>();
+        try {
             rowCount = 0;
-            int offset = 0;
-            int limit = EXPORT_PAGE_SIZE;
-            int rsSize = 0;
-            int queryCounter = 0;
+            CompiledQueryConfiguration compiledConf = null;
+            List<String[]> rows = new ArrayList<String[]>(EXPORT_BLOCK_SIZE);
+            String[] row = null;
             do {
-                queryCounter++;
-
-                String pageQuery = buildPageQuery(query, offset, limit);
-                offset = offset + limit;
-
-                if (queryCounter <= 2) {
-                    LOGGER.debug(String.format("Going to execute page query nr %d:\n%s\n", queryCounter, pageQuery));
+                row = rowsReader.take();
+                if (row != null) {
+                    rows.add(row);
                 }
+                if (rows.size() == EXPORT_BLOCK_SIZE || (row == null && !rows.isEmpty())) {
 
-                rsSize = 0;
-                pstmt = sqlConn.prepareStatement(pageQuery);
-                rs = pstmt.executeQuery();
-
-                while (rs.next()) {
-
-                    rowCount++;
-                    rsSize++;
-
-                    exportRow(rs, rowCount, repoConn, valueFactory);
-
-                    // Log progress after every 1000 rows, but not more than 50 times.
-                    if (rowCount % 1000 == 0) {
-                        if (rowCount == 50000) {
-                            LogUtil.debug(rowCount + " rows exported, no further row-count logged until export finished...", exportLogger, LOGGER);
-                        } else if (rowCount < 50000) {
-                            LogUtil.debug(rowCount + " rows exported", exportLogger, LOGGER);
+                    if (compiledConf == null) {
+                        compiledConf = compileQueryConfiguration(repoConn.getValueFactory());
+                    }
+                    if (executor == null) {
+                        writeBlock(compiledConf.convert(rows), repoConn);
+                    } else {
+                        final CompiledQueryConfiguration conf = compiledConf;
+                        final List<String[]> blockRows = rows;
+                        pendingBlocks.add(executor.submit(new Callable<Block>() {
+                            @Override
+                            public Block call() {
+                                return conf.convert(blockRows);
+                            }
+                        }));
+                        if (pendingBlocks.size() > threads * 2) {
+                            writeBlock(pendingBlocks.removeFirst().get(), repoConn);
                         }
                     }
+                    rows = new ArrayList<String[]>(EXPORT_BLOCK_SIZE);
                 }
+            } while (row != null);
 
-                SQLUtil.close(rs);
-                SQLUtil.close(pstmt);
-
-            } while (rsSize == limit);
+            while (!pendingBlocks.isEmpty()) {
+                writeBlock(pendingBlocks.removeFirst().get(), repoConn);
+            }
 
-            LOGGER.debug("Total number of page queries executed: " + queryCounter);
             LogUtil.debug("A total of " + rowCount + " rows exported", exportLogger, LOGGER);
 
+        } catch (InterruptedException e) {
+            throw new DAOException("Interrupted while waiting for the rows of the export query", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DAOException("Failed to convert the rows of the export query", e.getCause());
         } finally {
-            SQLUtil.close(rs);
-            SQLUtil.close(pstmt);
-            SQLUtil.close(sqlConn);
+            rowsReader.cancel();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
         }
     }
 
     /**
+     * Compiles the query configuration for converting the rows of the export query, loading the existing concepts that the
+     * values are checked against.
+     *
      * @param vf
+     *            the value factory
+     * @return the compiled query configuration
+     * @throws DAOException
      */
-    private void prepareValues(ValueFactory vf) {
+    private CompiledQueryConfiguration compileQueryConfiguration(ValueFactory vf) throws DAOException {
 
-        setPredicateURIs(vf);
-        setHiddenPropertiesValues(vf);
+        loadExistingConcepts();
 
-        objectTypeURI = vf.createURI(queryConf.getObjectTypeUri());
-        rdfTypeURI = vf.createURI(Predicates.RDF_TYPE);
+        CompiledQueryConfiguration compiledConf = new CompiledQueryConfiguration(queryConf, datasetIdentifier, graphURI, vf);
+        compiledConf.addFixedValue(rdfTypeURI, objectTypeURI);
 
-        indicatorPredicateURI = vf.createURI(Predicates.DAS_INDICATOR);
-        String indicatorUri = queryConf.getIndicatorUri();
-        if (StringUtils.isNotBlank(indicatorUri)) {
-            indicatorValueURI = vf.createURI(indicatorUri);
+        // Assume this point cannot be reached if dataset value is empty.
+        compiledConf.addFixedValue(datasetPredicateURI, datasetValueURI);
+        if (hiddenProperties != null) {
+            for (ObjectHiddenProperty hiddenProperty : hiddenProperties) {
+                compiledConf.addFixedValue(hiddenProperty.getPredicateURI(), hiddenProperty.getValueValue());
+            }
         }
 
-        String datasetUri = queryConf.getDatasetUri();
-        datasetIdentifier = StringUtils.substringAfterLast(datasetUri, "/");
-        if (StringUtils.isBlank(datasetIdentifier)) {
-            throw new IllegalArgumentException("Unable to extract identifier from this dataset URI: " + datasetUri);
+        // If there is no column mapping for the indicator, but a fixed indicator URI has been provided then use the latter.
+        if (!compiledConf.isIndicatorMapped() && indicatorValueURI != null) {
+            compiledConf.addFixedValue(indicatorPredicateURI, indicatorValueURI);
         }
-        datasetPredicateURI = vf.createURI(Predicates.DATACUBE_DATA_SET);
-        datasetValueURI = vf.createURI(datasetUri);
 
-        graphURI = vf.createURI(StringUtils.replace(datasetUri, "/dataset/", "/data/"));
+        compiledConf.setConcepts(concepts);
+        compiledConf.setConceptKind(INDICATOR, Kind.INDICATOR);
+        compiledConf.setConceptKind(BREAKDOWN, Kind.BREAKDOWN);
+        compiledConf.setConceptKind(UNIT, Kind.UNIT);
+        compiledConf.setConceptKind(REF_AREA, Kind.REF_AREA);
+        return compiledConf;
     }
 
     /**
-     * Sets the predicate ur is.
+     * Adds the triples of the given block of converted rows to the repository, and records the rest of the block's outcome.
      *
-     * @param vf
-     *            the new predicate ur is
-     */
-    private void setPredicateURIs(ValueFactory vf) {
-
-        Map<String, ObjectProperty> columnMappings = queryConf.getColumnMappings();
-        Collection<ObjectProperty> objectProperties = columnMappings.values();
-        for (ObjectProperty objectProperty : objectProperties) {
-            objectProperty.setPredicateURI(vf);
-        }
-    }
-
-    /**
-     * Export row.
-     *
-     * @param rs
-     *            the rs
-     * @param rowIndex
-     *            the row index
+     * @param block
+     *            the block
      * @param repoConn
      *            the repo conn
-     * @param vf
-     *            the vf
-     * @throws SQLException
-     *             the sQL exception
      * @throws RepositoryException
-     *             the repository exception
-     * @throws DAOException
      */
-    private void exportRow(ResultSet rs, int rowIndex, RepositoryConnection repoConn, ValueFactory vf)
-            throws SQLException, RepositoryException, DAOException {
+    private void writeBlock(Block block, RepositoryConnection repoConn) throws RepositoryException {
 
-        if (rowIndex == 1) {
-            loadExistingConcepts();
+        if (!block.getStatements().isEmpty()) {
+            repoConn.add(block.getStatements());
+            graphs.add(graphURI.stringValue());
         }
 
-        // Prepare subject URI on the basis of the template in the query configuration.
-        String subjectUri = queryConf.getObjectUriTemplate();
-        if (StringUtils.isBlank(subjectUri)) {
-            throw new IllegalArgumentException("The object URI template in the query configuration must not be blank!");
+        int tripleCountBefore = tripleCount;
+        tripleCount += block.getStatements().size();
+        subjectCount += block.getSubjectCount();
+        if (tripleCount / 5000 > tripleCountBefore / 5000) {
+            LOGGER.debug(tripleCount + " triples exported so far");
         }
-        subjectUri = StringUtils.replace(subjectUri, "<dataset>", datasetIdentifier);
 
-        // Prepare the map of ObjectDTO to be added to the subject later.
-        LinkedHashMap<URI, ArrayList<Value>> valuesByPredicate = new LinkedHashMap<URI, ArrayList<Value>>();
+        // Time periods should be harvested afterwards.
+        timePeriods.addAll(block.getTimePeriods());
 
-        // Add rdf:type predicate-value.
-        addPredicateValue(valuesByPredicate, rdfTypeURI, objectTypeURI);
+        missingIndicators.addAll(block.getMissingConcepts(INDICATOR));
+        missingBreakdowns.addAll(block.getMissingConcepts(BREAKDOWN));
+        missingUnits.addAll(block.getMissingConcepts(UNIT));
+        missingRefAreas.addAll(block.getMissingConcepts(REF_AREA));
 
-        // Add the DataCube dataset predicate-value. Assume this point cannot be reached if dataset value is empty.
-        addPredicateValue(valuesByPredicate, datasetPredicateURI, datasetValueURI);
-
-        // Add predicate-value pairs for hidden properties.
-        if (hiddenProperties != null) {
-            for (ObjectHiddenProperty hiddenProperty : hiddenProperties) {
-                addPredicateValue(valuesByPredicate, hiddenProperty.getPredicateURI(), hiddenProperty.getValueValue());
+        // Log progress after every 1000 rows, but not more than 50 times.
+        rowCount += block.getRowCount();
+        if (rowCount % 1000 == 0) {
+            if (rowCount == 50000) {
+                LogUtil.debug(rowCount + " rows exported, no further row-count logged until export finished...", exportLogger,
+                        LOGGER);
+            } else if (rowCount < 50000) {
+                LogUtil.debug(rowCount + " rows exported", exportLogger, LOGGER);
             }
         }
+    }
 
-        boolean hasIndicatorMapping = false;
-
-        // Loop through the query configuration's column mappings, construct ObjectDTO for each.
-        for (Entry<String, ObjectProperty> entry : queryConf.getColumnMappings().entrySet()) {
-
-            String colName = entry.getKey();
-            String colValue = rs.getString(colName);
-            ObjectProperty property = entry.getValue();
-            if (property.getId().equals(INDICATOR)) {
-                hasIndicatorMapping = true;
-            }
-
-            if (StringUtils.isBlank(colValue)) {
-                if (property.getId().equals(BREAKDOWN)) {
-                    colValue = DEFAULT_BREAKDOWN_CODE;
-                } else if (property.getId().equals(INDICATOR)) {
-                    colValue = DEFAULT_INDICATOR_CODE;
-                }
-            }
-
-            if (StringUtils.isNotBlank(colValue)) {
-
-                // Replace property place-holders in subject ID
-                subjectUri = StringUtils.replace(subjectUri, "<" + property.getId() + ">", colValue);
-
-                URI predicateURI = property.getPredicateURI();
-                if (predicateURI != null) {
-
-                    String propertyValue = property.getValueTemplate();
-                    if (propertyValue == null) {
-                        propertyValue = colValue;
-                    } else {
-                        // Replace the column value place-holder in the value template (the latter cannot be specified by user)
-                        propertyValue = StringUtils.replace(propertyValue, "<value>", colValue);
-                    }
-
-                    recordMissingConcepts(property, colValue, propertyValue);
-
-                    Value value = null;
-                    if (property.isLiteralRange()) {
-                        try {
-                            String dataTypeUri = property.getDataType();
-                            value = vf.createLiteral(propertyValue, dataTypeUri == null ? null : vf.createURI(dataTypeUri));
-                        } catch (IllegalArgumentException e) {
-                            value = vf.createLiteral(propertyValue);
-                        }
-                    } else {
-                        value = vf.createURI(propertyValue);
-                    }
+    /**
+     * @param vf
+     */
+    private void prepareValues(ValueFactory vf) {
 
-                    addPredicateValue(valuesByPredicate, predicateURI, value);
-                }
-            }
-        }
+        setPredicateURIs(vf);
+        setHiddenPropertiesValues(vf);
 
-        // If there was no column mapping for the indicator, but a fixed indicator URI has been provided then use the latter.
-        if (!hasIndicatorMapping && indicatorValueURI != null) {
-            addPredicateValue(valuesByPredicate, indicatorPredicateURI, indicatorValueURI);
-        }
+        objectTypeURI = vf.createURI(queryConf.getObjectTypeUri());
+        rdfTypeURI = vf.createURI(Predicates.RDF_TYPE);
 
-        // If <indicator> column placeholder not replaced yet, then use the fixed indicator URI if given.
-        if (subjectUri.indexOf("<indicator>") != -1) {
-            String indicatorCode = StringUtils.substringAfterLast(queryConf.getIndicatorUri(), "/");
-            if (StringUtils.isBlank(indicatorCode)) {
-                // No fixed indicator URI given either, resort to the default.
-                indicatorCode = DEFAULT_INDICATOR_CODE;
-            }
-            subjectUri = StringUtils.replace(subjectUri, "<indicator>", indicatorCode);
+        indicatorPredicateURI = vf.createURI(Predicates.DAS_INDICATOR);
+        String indicatorUri = queryConf.getIndicatorUri();
+        if (StringUtils.isNotBlank(indicatorUri)) {
+            indicatorValueURI = vf.createURI(indicatorUri);
         }
 
-        // If <breakdown> column placeholder not replaced yet, then use the default.
-        if (subjectUri.indexOf("<breakdown>") != -1) {
-            subjectUri = StringUtils.replace(subjectUri, "<breakdown>", DEFAULT_BREAKDOWN_CODE);
+        String datasetUri = queryConf.getDatasetUri();
+        datasetIdentifier = StringUtils.substringAfterLast(datasetUri, "/");
+        if (StringUtils.isBlank(datasetIdentifier)) {
+            throw new IllegalArgumentException("Unable to extract identifier from this dataset URI: " + datasetUri);
         }
+        datasetPredicateURI = vf.createURI(Predicates.DATACUBE_DATA_SET);
+        datasetValueURI = vf.createURI(datasetUri);
 
-        // Loop over predicate-value pairs and create the triples in the triple store.
-        if (!valuesByPredicate.isEmpty()) {
-
-            int tripleCountBefore = tripleCount;
-            URI subjectURI = vf.createURI(subjectUri);
-            for (Entry<URI, ArrayList<Value>> entry : valuesByPredicate.entrySet()) {
-
-                ArrayList<Value> values = entry.getValue();
-                if (values != null && !values.isEmpty()) {
-                    URI predicateURI = entry.getKey();
-                    for (Value value : values) {
-                        repoConn.add(subjectURI, predicateURI, value, graphURI);
-                        graphs.add(graphURI.stringValue());
-                        tripleCount++;
-                        if (tripleCount % 5000 == 0) {
-                            LOGGER.debug(tripleCount + " triples exported so far");
-                        }
-
-                        // Time periods should be harvested afterwards.
-                        if (Predicates.DAS_TIMEPERIOD.equals(predicateURI.stringValue())) {
-                            if (value instanceof URI) {
-                                timePeriods.add(value.stringValue());
-                            }
-                        }
-                    }
-                }
-            }
-
-            if (tripleCount > tripleCountBefore) {
-                subjectCount++;
-            }
-        }
+        graphURI = vf.createURI(StringUtils.replace(datasetUri, "/dataset/", "/data/"));
     }
 
     /**
-     * Adds the predicate value.
+     * Sets the predicate ur is.
      *
-     * @param valuesByPredicate
-     *            the values by predicate
-     * @param predicateURI
-     *            the predicate uri
-     * @param value
-     *            the value
+     * @param vf
+     *            the new predicate ur is
      */
-    private void addPredicateValue(LinkedHashMap<URI, ArrayList<Value>> valuesByPredicate, URI predicateURI, Value value) {
+    private void setPredicateURIs(ValueFactory vf) {
 
-        ArrayList<Value> values = valuesByPredicate.get(predicateURI);
-        if (values == null) {
-            values = new ArrayList<Value>();
-            valuesByPredicate.put(predicateURI, values);
+        Map<String, ObjectProperty> columnMappings = queryConf.getColumnMappings();
+        Collection<ObjectProperty> objectProperties = columnMappings.values();
+        for (ObjectProperty objectProperty : objectProperties) {
+            objectProperty.setPredicateURI(vf);
         }
-        values.add(value);
     }
 
     /**
@@ -797,13 +724,9 @@ public final class ExportRunner extends Thread {
      */
     private String buildPageQuery(String query, int offset, int limit) throws DAOException {
 
-        String trimmedQuery = query.trim();
-        if (!StringUtils.startsWithIgnoreCase(trimmedQuery, "SELECT")) {
-            throw new DAOException("Was expecting the query to strat with a 'SELECT' statement!");
-        }
-
-        String resultQuery = new StringBuilder().append(String.format("SELECT TOP %d,%d * FROM (", offset, limit)).append(query.trim())
-                .append(") as QRY").toString();
+        String trimmedQuery = checkSelectQuery(query);
+        String resultQuery = new StringBuilder().append(String.format("SELECT TOP %d,%d * FROM (", offset, limit))
+                .append(trimmedQuery).append(") as QRY").toString();
         return resultQuery;
     }
 
@@ -815,15 +738,28 @@ public final class ExportRunner extends Thread {
      */
     private String buildCountQuery(String query) throws DAOException {
 
-        String upperQuery = query.toUpperCase().trim();
-        if (!upperQuery.startsWith("SELECT")) {
-            throw new DAOException("Was expecting query to start with a 'SELECT' statement!");
-        }
-
-        String resultQuery = new StringBuilder().append("SELECT COUNT(*) FROM (").append(query.trim()).append(") as QRY").toString();
+        String trimmedQuery = checkSelectQuery(query);
+        String resultQuery =
+                new StringBuilder().append("SELECT COUNT(*) FROM (").append(trimmedQuery).append(") as QRY").toString();
         return resultQuery;
     }
 
+    /**
+     * Checks that the given export query is a SELECT statement.
+     *
+     * @param query The query.
+     * @return The query without leading and trailing whitespace.
+     * @throws DAOException If the query does not start with SELECT.
+     */
+    private static String checkSelectQuery(String query) throws DAOException {
+
+        String trimmedQuery = query.trim();
+        if (!StringUtils.startsWithIgnoreCase(trimmedQuery, "SELECT")) {
+            throw new DAOException("Was expecting the query to start with a 'SELECT' statement!");
+        }
+        return trimmedQuery;
+    }
+
     /**
      *
      * @param rs
@@ -858,16 +794,16 @@ public final class ExportRunner extends Thread {
      */
     private void recordMissingConcepts(ObjectProperty property, String colValue, String propertyValue) {
 
-        if (INDICATOR.equals(property.getId()) && !existingIndicators.contains(propertyValue)) {
+        if (INDICATOR.equals(property.getId()) && !concepts.contains(Kind.INDICATOR, propertyValue)) {
             missingIndicators.add(colValue);
         }
-        if (BREAKDOWN.equals(property.getId()) && !existingBreakdowns.contains(propertyValue)) {
+        if (BREAKDOWN.equals(property.getId()) && !concepts.contains(Kind.BREAKDOWN, propertyValue)) {
             missingBreakdowns.add(colValue);
         }
-        if (UNIT.equals(property.getId()) && !existingUnits.contains(propertyValue)) {
+        if (UNIT.equals(property.getId()) && !concepts.contains(Kind.UNIT, propertyValue)) {
             missingUnits.add(colValue);
         }
-        if (REF_AREA.equals(property.getId()) && !existingRefAreas.contains(propertyValue)) {
+        if (REF_AREA.equals(property.getId()) && !concepts.contains(Kind.REF_AREA, propertyValue)) {
             missingRefAreas.add(colValue);
         }
     }
@@ -877,10 +813,7 @@ public final class ExportRunner extends Thread {
      */
     private void loadExistingConcepts() throws DAOException {
 
-        existingIndicators = getDao().getIndicators().keySet();
-        existingBreakdowns = getDao().getBreakdowns().keySet();
-        existingUnits = getDao().getUnits().keySet();
-        existingRefAreas = getDao().getRefAreas().keySet();
+        concepts = ConceptIndex.getCurrent();
     }
 
     /**
@@ -31,6 +31,7 @@ import eionet.cr.dao.DAOException;
 import eionet.cr.dao.DAOFactory;
 import eionet.cr.dao.StagingDatabaseDAO;
 import eionet.cr.dto.StagingDatabaseDTO;
+import eionet.cr.staging.imp.csv.CSVImporter;
 import eionet.cr.staging.imp.msaccess.MSAccessImporter;
 import eionet.cr.util.LogUtil;
 
@@ -123,11 +124,27 @@ public final class ImportRunner extends Thread {
         DAOFactory.get().getDao(StagingDatabaseDAO.class).createDatabase(dbDTO.getName());
 
         // Populate the database from the given file.
-        // TODO Use a factory mechanism to obtain a particular ImporterIF implementation.
-        ImporterIF importer = new MSAccessImporter(importLogger);
+        ImporterIF importer = createImporter(dbFile, importLogger);
         importer.doImport(dbFile, dbDTO.getName());
     }
 
+    /**
+     * Returns the {@link ImporterIF} implementation for the given file's format: CSV/TSV files are recognized by their extension,
+     * anything else is expected to be an MS Access file.
+     *
+     * @param dbFile The file from which the database is created.
+     * @param importLogger Logger that should be used by the importer.
+     * @return The importer.
+     */
+    private static ImporterIF createImporter(File dbFile, Logger importLogger) {
+
+        if (CSVImporter.isCSVFile(dbFile)) {
+            return new CSVImporter(importLogger);
+        } else {
+            return new MSAccessImporter(importLogger);
+        }
+    }
+
     /**
      * Convenience method that creates an instance of {@link ImportRunner} for the given database from given file, and then starts
      * it.
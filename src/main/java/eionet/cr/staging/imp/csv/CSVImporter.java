@@ -0,0 +1,609 @@
+package eionet.cr.staging.imp.csv;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+import au.com.bytecode.opencsv.CSVReader;
+import eionet.cr.config.GeneralConfig;
+import eionet.cr.staging.imp.ImportException;
+import eionet.cr.staging.imp.ImporterIF;
+import eionet.cr.staging.util.VirtuosoUtil;
+import eionet.cr.util.LogUtil;
+import eionet.cr.util.NamedDaemonThreadFactory;
+import eionet.cr.util.sesame.SesameUtil;
+import eionet.cr.util.sql.SQLUtil;
+import eionet.cr.web.util.CharsetToolkit;
+
+/**
+ * An implementation of {@link ImporterIF} that imports a CSV or TSV file into one table of the staging database, named after
+ * the file. The file's first record must be the header with the column names. The separator (comma, tab or semicolon) is the one
+ * that occurs most often in the header.
+ * <p>
+ * The file is streamed, so that files of gigabytes can be imported: the types of the columns are inferred from the first
+ * {@link #SAMPLE_SIZE} records, the table is created, and the records are inserted in batches over as many connections as there
+ * are import threads configured, with Virtuoso's transaction log switched off. Only the sample and the batches waiting to be
+ * inserted are held in memory. A value after the sample that does not fit its column's inferred type widens the column to the
+ * value's type (e.g. from integer to text), after the rows before it have been inserted.
+ *
+ * @author jaanus
+ */
+public class CSVImporter implements ImporterIF {
+
+    /** */
+    private static final Logger LOGGER = Logger.getLogger(CSVImporter.class);
+
+    /** Number of records that the types of the columns are inferred from. */
+    static final int SAMPLE_SIZE = 10000;
+
+    /** */
+    private static final int INSERT_BATCH_SIZE = 10000;
+
+    /** Number of records after which the progress is logged. */
+    private static final int PROGRESS_INTERVAL = 1000000;
+
+    /** Prefix of the names of the threads that insert the batches concurrently. */
+    private static final String THREAD_NAME_PREFIX = "csv-import-";
+
+    /** Minutes to wait for the concurrent batch inserts to stop when they are interrupted. */
+    private static final int WORKERS_TERMINATION_MINUTES = 5;
+
+    /** Size of the read buffer, and the maximum length of the header line that the separator is detected from. */
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+    /** */
+    private static final String[] EXTENSIONS = {".csv", ".tsv", ".tab"};
+
+    /** Possible separators, the first one is the default. */
+    private static final char[] SEPARATORS = {',', '\t', ';'};
+
+    /** For logging the import log messages. */
+    private Logger importLogger;
+
+    /** Number of records read so far, not counting the header and blank lines. */
+    private int recordCount;
+
+    /**
+     * Constructs a new instance with the given import logger.
+     *
+     * @param importLogger the import logger
+     */
+    public CSVImporter(Logger importLogger) {
+
+        this.importLogger = importLogger;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see eionet.cr.staging.imp.ImporterIF#doImport(java.io.File, java.lang.String)
+     */
+    @Override
+    public void doImport(File file, String dbName) throws ImportException {
+
+        CSVReader csvReader = null;
+        BatchInserter inserter = null;
+        try {
+            csvReader = openReader(file);
+            String[] header = csvReader.readNext();
+            if (header == null) {
+                throw new ImportException("Found no header in file " + file.getName());
+            }
+
+            List<String> columnNames = columnNames(header);
+            List<String[]> sample = new ArrayList<String[]>();
+            String[] record = null;
+            while (sample.size() < SAMPLE_SIZE && (record = readRecord(csvReader)) != null) {
+                sample.add(record);
+            }
+            List<ColumnType> columnTypes = inferTypes(columnNames.size(), sample);
+
+            String tableName = VirtuosoUtil.sanitizedDatabaseName(StringUtils.substringBeforeLast(file.getName(), "."));
+            LogUtil.info("Importing file " + file.getName() + " into table " + tableName + " of " + columnNames.size()
+                    + " columns", LOGGER, importLogger);
+
+            long started = System.currentTimeMillis();
+            inserter = new BatchInserter(dbName, tableName, columnNames, columnTypes);
+            recordCount = 0;
+            for (String[] sampleRecord : sample) {
+                inserter.add(sampleRecord, ++recordCount);
+            }
+            sample = null;
+            while ((record = readRecord(csvReader)) != null) {
+                inserter.add(record, ++recordCount);
+                if (recordCount % PROGRESS_INTERVAL == 0) {
+                    LogUtil.info("Read " + recordCount + " records", LOGGER, importLogger);
+                }
+            }
+            inserter.finish();
+            VirtuosoUtil.logImportRate(recordCount, tableName, started, LOGGER, importLogger);
+        } catch (IOException e) {
+            throw new ImportException("Failed to read file " + file.getName(), e);
+        } finally {
+            if (inserter != null) {
+                inserter.close();
+            }
+            close(csvReader);
+        }
+    }
+
+    /**
+     * Reads the next record, skipping blank lines.
+     *
+     * @param csvReader the CSV reader
+     * @return the record, or null at the end of the file
+     * @throws IOException if reading fails
+     */
+    private String[] readRecord(CSVReader csvReader) throws IOException {
+
+        String[] record = csvReader.readNext();
+        while (record != null && record.length == 1 && StringUtils.isBlank(record[0])) {
+            record = csvReader.readNext();
+        }
+        return record;
+    }
+
+    /**
+     * Opens a reader of the given file in its guessed encoding, with the separator detected from the first line.
+     *
+     * @param file the file
+     * @return the reader
+     * @throws IOException if reading fails
+     */
+    private static CSVReader openReader(File file) throws IOException {
+
+        Charset charset = CharsetToolkit.guessEncoding(file, 4096, Charset.forName("UTF-8"));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset), READ_BUFFER_SIZE);
+        try {
+            reader.mark(READ_BUFFER_SIZE);
+            char separator = detectSeparator(reader.readLine());
+            reader.reset();
+            return new CSVReader(reader, separator);
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the separator that occurs most often in the given line outside quotes, or comma if none does.
+     *
+     * @param line the line, may be null
+     * @return the separator
+     */
+    static char detectSeparator(String line) {
+
+        int[] counts = new int[SEPARATORS.length];
+        if (line != null) {
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '"') {
+                    quoted = !quoted;
+                }
+                for (int j = 0; !quoted && j < SEPARATORS.length; j++) {
+                    if (c == SEPARATORS[j]) {
+                        counts[j]++;
+                    }
+                }
+            }
+        }
+
+        int best = 0;
+        for (int j = 1; j < SEPARATORS.length; j++) {
+            if (counts[j] > counts[best]) {
+                best = j;
+            }
+        }
+        return SEPARATORS[best];
+    }
+
+    /**
+     * Returns the column names of the given header, where blank names are replaced by "column_N", and names that would be equal
+     * in Virtuoso get a numeric suffix.
+     *
+     * @param header the header
+     * @return the column names
+     */
+    static List<String> columnNames(String[] header) {
+
+        List<String> columnNames = new ArrayList<String>();
+        Set<String> sanitizedNames = new HashSet<String>();
+        for (int i = 0; i < header.length; i++) {
+
+            String name = StringUtils.remove(StringUtils.remove(header[i], '\uFEFF'), '"').trim();
+            if (name.length() == 0) {
+                name = "column_" + (i + 1);
+            }
+
+            String uniqueName = name;
+            for (int suffix = 2; !sanitizedNames.add(uniqueName.replaceAll("\\s+", "_").toLowerCase(Locale.ENGLISH)); suffix++) {
+                uniqueName = name + "_" + suffix;
+            }
+            columnNames.add(uniqueName);
+        }
+        return columnNames;
+    }
+
+    /**
+     * Infers the types of the columns from the given records. Blank values are ignored, and columns without any other values are
+     * text.
+     *
+     * @param columnCount number of columns
+     * @param records the records
+     * @return the types of the columns
+     */
+    static List<ColumnType> inferTypes(int columnCount, List<String[]> records) {
+
+        ColumnType[] types = new ColumnType[columnCount];
+        for (String[] record : records) {
+            for (int i = 0; i < columnCount && i < record.length; i++) {
+                if (types[i] != ColumnType.VARCHAR && StringUtils.isNotBlank(record[i])) {
+                    types[i] = ColumnType.of(record[i]).widen(types[i]);
+                }
+            }
+        }
+
+        List<ColumnType> result = new ArrayList<ColumnType>();
+        for (ColumnType type : types) {
+            result.add(type == null ? ColumnType.VARCHAR : type);
+        }
+        return result;
+    }
+
+    /**
+     * Converts the values of the given record to the given column types. Blank values are nulls, and so are the values of
+     * missing trailing columns.
+     *
+     * @param record the record
+     * @param recordNum the record's number in the file, for error messages
+     * @param columnNames the column names, for error messages
+     * @param columnTypes the column types
+     * @return the converted values
+     * @throws ImportException if the record has more values than columns, or a value does not fit its column's type (see
+     *             {@link BatchInserter#add(String[], int)} for widening the columns first)
+     */
+    static Object[] toValues(String[] record, int recordNum, List<String> columnNames, List<ColumnType> columnTypes)
+            throws ImportException {
+
+        for (int i = columnTypes.size(); i < record.length; i++) {
+            if (StringUtils.isNotBlank(record[i])) {
+                throw new ImportException("Record #" + recordNum + " has " + record.length + " values, but the header has only "
+                        + columnTypes.size() + " columns");
+            }
+        }
+
+        Object[] values = new Object[columnTypes.size()];
+        for (int i = 0; i < values.length && i < record.length; i++) {
+            if (StringUtils.isNotBlank(record[i])) {
+                try {
+                    values[i] = columnTypes.get(i).parse(record[i]);
+                } catch (NumberFormatException e) {
+                    throw new ImportException(String.format(
+                            "Value \"%s\" of column %s in record #%d does not fit the column's type %s", record[i],
+                            columnNames.get(i), recordNum, columnTypes.get(i).getSqlType()));
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Close.
+     *
+     * @param csvReader the CSV reader
+     */
+    private static void close(CSVReader csvReader) {
+        if (csvReader != null) {
+            try {
+                csvReader.close();
+            } catch (IOException e) {
+                // Deliberately ignore closing exceptions
+            }
+        }
+    }
+
+    /**
+     * @param file the file
+     * @return true if the file has the extension of a CSV or TSV file
+     */
+    public static boolean isCSVFile(File file) {
+
+        String name = file.getName().toLowerCase(Locale.ENGLISH);
+        for (String extension : EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Opens a connection that the records are inserted over.
+     *
+     * @return the connection
+     * @throws SQLException if opening the connection fails
+     */
+    Connection openConnection() throws SQLException {
+        return SesameUtil.getSQLConnection();
+    }
+
+    /**
+     * Creates the table and inserts the converted records in batches, over connections in bulk load mode (see
+     * {@link VirtuosoUtil#startBulkLoad(Connection)}). If more than one import thread is configured, the batches are inserted
+     * concurrently, each over a connection free at the time.
+     */
+    class BatchInserter {
+
+        /** */
+        private final String dbName;
+
+        /** */
+        private final String tableName;
+
+        /** */
+        private final String dbUser;
+
+        /** */
+        private final List<String> columnNames;
+
+        /** Current types of the columns, widened when a value does not fit. */
+        private final List<ColumnType> columnTypes;
+
+        /** */
+        private final String insertSql;
+
+        /** */
+        private final int threads;
+
+        /** All connections opened, for closing them. */
+        private final List<Connection> connections = new ArrayList<Connection>();
+
+        /** Connections not inserting a batch at the moment. */
+        private final BlockingQueue<Connection> freeConnections;
+
+        /** */
+        private final ExecutorService executor;
+
+        /** */
+        private final LinkedList<Future<Object>> pendingBatches = new LinkedList<Future<Object>>();
+
+        /** */
+        private List<Object[]> batch = new ArrayList<Object[]>(INSERT_BATCH_SIZE);
+
+        /**
+         * Creates the table and opens the connections.
+         *
+         * @param dbName the db name
+         * @param tableName the table name
+         * @param columnNames the column names
+         * @param columnTypes the column types
+         * @throws ImportException if creating the table fails
+         */
+        BatchInserter(String dbName, String tableName, List<String> columnNames, List<ColumnType> columnTypes)
+                throws ImportException {
+
+            this.dbName = dbName;
+            this.tableName = tableName;
+            this.columnNames = columnNames;
+            this.columnTypes = new ArrayList<ColumnType>(columnTypes);
+            this.threads = Math.max(1, GeneralConfig.getIntProperty(GeneralConfig.STAGING_IMPORT_THREADS, 1));
+            this.freeConnections = new ArrayBlockingQueue<Connection>(threads);
+            this.executor =
+                    threads == 1 ? null : Executors.newFixedThreadPool(threads, new NamedDaemonThreadFactory(THREAD_NAME_PREFIX));
+
+            List<String> sqlTypes = new ArrayList<String>();
+            for (ColumnType columnType : columnTypes) {
+                sqlTypes.add(columnType.getSqlType());
+            }
+
+            try {
+                for (int i = 0; i < threads; i++) {
+                    Connection conn = openConnection();
+                    connections.add(conn);
+                    VirtuosoUtil.startBulkLoad(conn);
+                    freeConnections.add(conn);
+                }
+
+                Connection conn = connections.get(0);
+                dbUser = conn.getMetaData().getUserName();
+                String sql = VirtuosoUtil.createTableStatement(tableName, columnNames, sqlTypes, dbName, dbUser);
+                LogUtil.debug("Creating table:\n" + sql, LOGGER, importLogger);
+                SQLUtil.executeUpdate(sql, conn);
+                insertSql = VirtuosoUtil.parameterizedInsertStatement(tableName, columnNames, dbName, dbUser);
+            } catch (SQLException e) {
+                close();
+                throw new ImportException("Failed to create table " + tableName, e);
+            }
+        }
+
+        /**
+         * Converts the given record and adds it to the current batch, inserting the batch if it is full. Columns that values of
+         * the record do not fit are widened first.
+         *
+         * @param record the record
+         * @param recordNum the record's number in the file
+         * @throws ImportException if converting the record, widening a column or inserting a batch fails
+         */
+        void add(String[] record, int recordNum) throws ImportException {
+
+            for (int i = 0; i < columnTypes.size() && i < record.length; i++) {
+                if (StringUtils.isNotBlank(record[i]) && !columnTypes.get(i).accepts(record[i])) {
+                    widen(i, ColumnType.of(record[i]).widen(columnTypes.get(i)), recordNum);
+                }
+            }
+            batch.add(toValues(record, recordNum, columnNames, columnTypes));
+            if (batch.size() == INSERT_BATCH_SIZE) {
+                submit(batch);
+                batch = new ArrayList<Object[]>(INSERT_BATCH_SIZE);
+            }
+        }
+
+        /**
+         * Inserts the last batch and waits until all batches are inserted.
+         *
+         * @throws ImportException if inserting any of the batches fails
+         */
+        void finish() throws ImportException {
+
+            if (!batch.isEmpty()) {
+                submit(batch);
+                batch = new ArrayList<Object[]>(INSERT_BATCH_SIZE);
+            }
+            while (!pendingBatches.isEmpty()) {
+                await(pendingBatches.removeFirst());
+            }
+        }
+
+        /**
+         * Inserts the rows added so far, and changes the type of the given column to the given one, converting its values.
+         *
+         * @param column index of the column
+         * @param type the new type
+         * @param recordNum number of the record whose value does not fit the column's current type
+         * @throws ImportException if inserting the rows or changing the column fails
+         */
+        private void widen(int column, ColumnType type, int recordNum) throws ImportException {
+
+            finish();
+            String columnName = columnNames.get(column);
+            LogUtil.info(String.format("Changing the type of column %s from %s to %s, for the value in record #%d", columnName,
+                    columnTypes.get(column).getSqlType(), type.getSqlType(), recordNum), LOGGER, importLogger);
+            String sql = VirtuosoUtil.alterColumnTypeStatement(tableName, columnName, type.getSqlType(), dbName, dbUser);
+            try {
+                SQLUtil.executeUpdate(sql, connections.get(0));
+            } catch (SQLException e) {
+                throw new ImportException("Failed to change the type of column " + columnName, e);
+            }
+            columnTypes.set(column, type);
+        }
+
+        /**
+         * Stops inserting, switches the transaction log back on and closes the connections.
+         */
+        void close() {
+
+            if (executor != null) {
+                // Interrupt the inserts on failure, and wait until they have returned their connections.
+                executor.shutdownNow();
+                try {
+                    if (!executor.awaitTermination(WORKERS_TERMINATION_MINUTES, TimeUnit.MINUTES)) {
+                        LogUtil.warn("Record inserts did not stop in " + WORKERS_TERMINATION_MINUTES + " minutes", LOGGER,
+                                importLogger);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            for (Connection conn : connections) {
+                VirtuosoUtil.closeBulkLoadConnection(conn);
+            }
+        }
+
+        /**
+         * Inserts the given batch, in the current thread if only one import thread is configured, otherwise in the executor,
+         * keeping at most twice as many batches pending as there are threads.
+         *
+         * @param rows the batch
+         * @throws ImportException if inserting this or an earlier batch fails
+         */
+        private void submit(final List<Object[]> rows) throws ImportException {
+
+            if (executor == null) {
+                insert(rows);
+                return;
+            }
+
+            pendingBatches.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws ImportException {
+                    insert(rows);
+                    return null;
+                }
+            }));
+            if (pendingBatches.size() > threads * 2) {
+                await(pendingBatches.removeFirst());
+            }
+        }
+
+        /**
+         * Waits until the given batch is inserted.
+         *
+         * @param future the batch's future
+         * @throws ImportException if inserting the batch failed
+         */
+        private void await(Future<Object> future) throws ImportException {
+
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                throw new ImportException("Interrupted while inserting the records", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ImportException) {
+                    throw (ImportException) e.getCause();
+                }
+                throw new ImportException("Failed to insert the records", e.getCause());
+            }
+        }
+
+        /**
+         * Inserts the given rows over a free connection.
+         *
+         * @param rows the rows
+         * @throws ImportException if inserting fails
+         */
+        private void insert(List<Object[]> rows) throws ImportException {
+
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            try {
+                conn = freeConnections.take();
+                stmt = conn.prepareStatement(insertSql);
+                for (Object[] row : rows) {
+                    for (int i = 0; i < row.length; i++) {
+                        if (row[i] == null) {
+                            stmt.setNull(i + 1, Types.OTHER);
+                        } else {
+                            stmt.setObject(i + 1, row[i]);
+                        }
+                    }
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            } catch (InterruptedException e) {
+                throw new ImportException("Interrupted while waiting for a connection", e);
+            } catch (SQLException e) {
+                throw new ImportException("Failed to insert the records", e);
+            } finally {
+                SQLUtil.close(stmt);
+                if (conn != null) {
+                    freeConnections.add(conn);
+                }
+            }
+        }
+    }
+}
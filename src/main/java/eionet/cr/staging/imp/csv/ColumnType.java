@@ -0,0 +1,119 @@
+package eionet.cr.staging.imp.csv;
+
+import java.util.regex.Pattern;
+
+/**
+ * Types of the columns of staging tables imported from CSV files, from the narrowest to the widest. Numbers with leading zeros
+ * are considered text, so that codes like "007" are not changed by the import.
+ *
+ * @author jaanus
+ */
+enum ColumnType {
+
+    /** */
+    INTEGER("INTEGER"),
+
+    /** */
+    BIGINT("BIGINT"),
+
+    /** */
+    DOUBLE("DOUBLE PRECISION"),
+
+    /** */
+    VARCHAR("VARCHAR");
+
+    /** */
+    private static final Pattern INTEGER_PATTERN = Pattern.compile("[+-]?(0|[1-9][0-9]*)");
+
+    /** */
+    private static final Pattern DECIMAL_PATTERN =
+            Pattern.compile("[+-]?((0|[1-9][0-9]*)(\\.[0-9]*)?|\\.[0-9]+)([eE][+-]?[0-9]+)?");
+
+    /** The type's name in Virtuoso. */
+    private final String sqlType;
+
+    /**
+     * Enum constructor.
+     *
+     * @param sqlType The type's name in Virtuoso.
+     */
+    private ColumnType(String sqlType) {
+        this.sqlType = sqlType;
+    }
+
+    /**
+     * @return The type's name in Virtuoso.
+     */
+    String getSqlType() {
+        return sqlType;
+    }
+
+    /**
+     * Returns the narrowest type of the given non-blank value.
+     *
+     * @param value The value.
+     * @return The type.
+     */
+    static ColumnType of(String value) {
+
+        String trimmed = value.trim();
+        if (INTEGER_PATTERN.matcher(trimmed).matches()) {
+            try {
+                Integer.parseInt(trimmed);
+                return INTEGER;
+            } catch (NumberFormatException e) {
+                try {
+                    Long.parseLong(trimmed);
+                    return BIGINT;
+                } catch (NumberFormatException e2) {
+                    return VARCHAR;
+                }
+            }
+        } else if (DECIMAL_PATTERN.matcher(trimmed).matches()) {
+            return DOUBLE;
+        } else {
+            return VARCHAR;
+        }
+    }
+
+    /**
+     * @param other Another type, or null.
+     * @return The wider one of this and the other type.
+     */
+    ColumnType widen(ColumnType other) {
+        return other == null || other.ordinal() < ordinal() ? this : other;
+    }
+
+    /**
+     * @param value A non-blank value.
+     * @return True if the value can be converted to this type.
+     */
+    boolean accepts(String value) {
+        return this == VARCHAR || of(value).widen(this) == this;
+    }
+
+    /**
+     * Converts the given non-blank value to this type.
+     *
+     * @param value The value.
+     * @return The converted value.
+     * @throws NumberFormatException If the value is not of this type.
+     */
+    Object parse(String value) {
+
+        if (!accepts(value)) {
+            throw new NumberFormatException("Not a value of type " + sqlType + ": " + value);
+        }
+
+        switch (this) {
+        case INTEGER:
+            return Integer.valueOf(value.trim());
+        case BIGINT:
+            return Long.valueOf(value.trim());
+        case DOUBLE:
+            return Double.valueOf(value.trim());
+        default:
+            return value;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * This package contains classes specific to importing staging databases from CSV and TSV files.
+ */
+package eionet.cr.staging.imp.csv;
@@ -23,21 +23,37 @@ package eionet.cr.staging.imp.msaccess;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 
 import com.healthmarketscience.jackcess.Database;
 import com.healthmarketscience.jackcess.Table;
 
+import eionet.cr.config.GeneralConfig;
 import eionet.cr.staging.imp.ImportException;
 import eionet.cr.staging.imp.ImporterIF;
+import eionet.cr.staging.util.VirtuosoUtil;
 import eionet.cr.util.LogUtil;
+import eionet.cr.util.NamedDaemonThreadFactory;
 
 // TODO: Auto-generated Javadoc
 /**
  * An implementation of {@link ImporterIF} that is capable of importing MS Access files.
+ * <p>
+ * If more than one import thread is configured, the tables are created first, and then their rows are imported concurrently,
+ * each table by its own {@link VirtuosoHandler} in bulk load mode, with its own connection and its own read-only instance of the
+ * MS Access database. Otherwise the tables are imported one by one with a single handler. The rows stop being imported when the
+ * importing thread is interrupted.
  *
  * @author jaanus
  */
@@ -46,6 +62,12 @@ public class MSAccessImporter implements ImporterIF {
     /** */
     private static final Logger LOGGER = Logger.getLogger(MSAccessImporter.class);
 
+    /** Prefix of the names of the threads that import the rows of the tables concurrently. */
+    private static final String THREAD_NAME_PREFIX = "msaccess-import-";
+
+    /** Minutes to wait for the concurrent table imports to stop when they are interrupted. */
+    private static final int WORKERS_TERMINATION_MINUTES = 5;
+
     /** For logging the import log messages. */
     private Logger importLogger;
 
@@ -77,9 +99,9 @@ public class MSAccessImporter implements ImporterIF {
         Database database = null;
         MSAccessImportHandlerIF handler = null;
         try {
-            database = openDatabase(file);
+            database = openDatabase(file, false);
             // TODO Use a factory mechanism to obtain a particular ImportHanderID implementation.
-            handler = new VirtuosoHandler(dbName, importLogger);
+            handler = createHandler(dbName, false);
 
             Set<String> tableNames = getTableNames(database);
             if (tableNames == null || tableNames.isEmpty()) {
@@ -87,6 +109,9 @@ public class MSAccessImporter implements ImporterIF {
                 return;
             }
 
+            int threads = Math.max(1, GeneralConfig.getIntProperty(GeneralConfig.STAGING_IMPORT_THREADS, 1));
+            boolean concurrent = threads > 1 && tableNames.size() > 1 && !structOnly;
+
             for (String tableName : tableNames) {
 
                 Table table = getTable(database, tableName);
@@ -94,24 +119,136 @@ public class MSAccessImporter implements ImporterIF {
                     handler.newTable(table);
                 }
 
-                if (!structOnly) {
+                if (!structOnly && !concurrent) {
+                    importRows(table, handler);
+                }
+            }
+
+            handler.endOfFile();
 
-                    LogUtil.info("Going to process the " + table.getRowCount() + " rows of table " + tableName, LOGGER,
-                            importLogger);
+            if (concurrent) {
+                importRowsConcurrently(file, dbName, tableNames, threads);
+            }
+        } finally {
+            if (handler != null) {
+                handler.close();
+            }
+            close(database);
+        }
+    }
+
+    /**
+     * Imports the rows of the given table with the given handler, and logs the import speed. Checks between the rows whether
+     * the current thread has been interrupted.
+     *
+     * @param table
+     *            the table
+     * @param handler
+     *            the handler
+     * @throws ImportException
+     *             the import exception
+     */
+    private void importRows(Table table, MSAccessImportHandlerIF handler) throws ImportException {
+
+        String tableName = table.getName();
+        LogUtil.info("Going to process the " + table.getRowCount() + " rows of table " + tableName, LOGGER, importLogger);
 
-                    int rowNum = 0;
-                    for (Map<String, Object> row : table) {
-                        try {
-                            rowNum++;
-                            handler.processRow(table, row);
-                        } catch (ImportException e) {
-                            LogUtil.error(e.getClass().getSimpleName() + " at row #" + rowNum, LOGGER, importLogger);
-                            throw e;
-                        }
+        long started = System.currentTimeMillis();
+        int rowNum = 0;
+        for (Map<String, Object> row : table) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new ImportException("Interrupted after " + rowNum + " rows of table " + tableName);
+            }
+            try {
+                rowNum++;
+                handler.processRow(table, row);
+            } catch (ImportException e) {
+                LogUtil.error(e.getClass().getSimpleName() + " at row #" + rowNum + " of table " + tableName, LOGGER,
+                        importLogger);
+                throw e;
+            }
+        }
+
+        VirtuosoUtil.logImportRate(rowNum, tableName, started, LOGGER, importLogger);
+    }
+
+    /**
+     * Imports the rows of the given tables concurrently, each table with its own handler in bulk load mode, and its own read-only
+     * instance of the MS Access database. The tables must exist already.
+     *
+     * @param file
+     *            the MS Access file
+     * @param dbName
+     *            the staging database's name
+     * @param tableNames
+     *            names of the tables
+     * @param threads
+     *            maximum number of tables imported at once
+     * @throws ImportException
+     *             if importing any of the tables fails
+     */
+    private void importRowsConcurrently(final File file, final String dbName, Set<String> tableNames, int threads)
+            throws ImportException {
+
+        int workerCount = Math.min(threads, tableNames.size());
+        LogUtil.info("Importing the rows of " + tableNames.size() + " tables with " + workerCount + " concurrent workers", LOGGER,
+                importLogger);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount, new NamedDaemonThreadFactory(THREAD_NAME_PREFIX));
+        try {
+            List<Future<Object>> futures = new ArrayList<Future<Object>>();
+            for (final String tableName : tableNames) {
+                futures.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() throws ImportException {
+                        importTableRows(file, dbName, tableName);
+                        return null;
                     }
+                }));
+            }
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            throw new ImportException("Interrupted while importing the tables", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ImportException) {
+                throw (ImportException) e.getCause();
+            }
+            throw new ImportException("Failed to import the tables", e.getCause());
+        } finally {
+            // Interrupt the other workers on failure, and wait until they have stopped between rows and closed their connections.
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(WORKERS_TERMINATION_MINUTES, TimeUnit.MINUTES)) {
+                    LogUtil.warn("Table import workers did not stop in " + WORKERS_TERMINATION_MINUTES + " minutes", LOGGER,
+                            importLogger);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+        }
+    }
 
+    /**
+     * Imports the rows of the given table, with a new handler in bulk load mode and a new read-only instance of the database.
+     *
+     * @param file
+     *            the MS Access file
+     * @param dbName
+     *            the staging database's name
+     * @param tableName
+     *            the table's name
+     * @throws ImportException
+     *             the import exception
+     */
+    private void importTableRows(File file, String dbName, String tableName) throws ImportException {
+
+        Database database = null;
+        MSAccessImportHandlerIF handler = createHandler(dbName, true);
+        try {
+            database = openDatabase(file, true);
+            importRows(getTable(database, tableName), handler);
             handler.endOfFile();
         } finally {
             handler.close();
@@ -119,6 +256,19 @@ public class MSAccessImporter implements ImporterIF {
         }
     }
 
+    /**
+     * Creates the handler that the tables and rows are imported with.
+     *
+     * @param dbName
+     *            the staging database's name
+     * @param bulkLoad
+     *            true if the handler imports the rows of one table in bulk load mode
+     * @return the handler
+     */
+    MSAccessImportHandlerIF createHandler(String dbName, boolean bulkLoad) {
+        return new VirtuosoHandler(dbName, importLogger, bulkLoad);
+    }
+
     /**
      * Gets the table.
      *
@@ -161,13 +311,15 @@ public class MSAccessImporter implements ImporterIF {
      *
      * @param file
      *            the file
+     * @param readOnly
+     *            true if the database should be opened read-only
      * @return the database
      * @throws ImportException
      *             the import exception
      */
-    private Database openDatabase(File file) throws ImportException {
+    private Database openDatabase(File file, boolean readOnly) throws ImportException {
         try {
-            Database database = Database.open(file);
+            Database database = Database.open(file, readOnly);
             if (database == null) {
                 throw new ImportException("Failed to open database at this file: " + file);
             }
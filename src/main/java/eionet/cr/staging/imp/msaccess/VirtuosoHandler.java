@@ -57,6 +57,9 @@ public class VirtuosoHandler implements MSAccessImportHandlerIF {
     /** */
     private Logger importLogger;
 
+    /** If true, the connection inserts without transaction logging, committing every row, see {@link #getConnection()}. */
+    private boolean bulkLoad;
+
     /**
      * Instantiates a new virtuoso handler.
      *
@@ -64,6 +67,18 @@ public class VirtuosoHandler implements MSAccessImportHandlerIF {
      * @param importLogger the import logger
      */
     public VirtuosoHandler(String dbName, Logger importLogger) {
+        this(dbName, importLogger, false);
+    }
+
+    /**
+     * Instantiates a new virtuoso handler, optionally in bulk load mode, where Virtuoso's transaction log is switched off for the
+     * handler's connection, see {@link VirtuosoUtil#startBulkLoad(Connection)}.
+     *
+     * @param dbName the db name
+     * @param importLogger the import logger
+     * @param bulkLoad true for bulk load mode
+     */
+    public VirtuosoHandler(String dbName, Logger importLogger, boolean bulkLoad) {
 
         if (StringUtils.isBlank(dbName)) {
             throw new IllegalArgumentException("Database name must not be blank!");
@@ -71,6 +86,7 @@ public class VirtuosoHandler implements MSAccessImportHandlerIF {
 
         this.dbName = dbName;
         this.importLogger = importLogger;
+        this.bulkLoad = bulkLoad;
     }
 
     /*
@@ -107,9 +123,8 @@ public class VirtuosoHandler implements MSAccessImportHandlerIF {
                 SQLUtil.close(currRowInsertStmt);
                 currColumnsOrder = new ArrayList<String>(row.keySet());
                 stmtCounter = 0;
-                currRowInsertStmt =
-                        conn.prepareStatement(VirtuosoUtil.parameterizedInsertStatement(tableName, currColumnsOrder, dbName,
-                                getDbUser()));
+                String insertSql = VirtuosoUtil.parameterizedInsertStatement(tableName, currColumnsOrder, dbName, getDbUser());
+                currRowInsertStmt = getConnection().prepareStatement(insertSql);
                 prevTableName = tableName;
             }
 
@@ -157,7 +172,12 @@ public class VirtuosoHandler implements MSAccessImportHandlerIF {
      */
     @Override
     public void close() {
-        SQLUtil.close(conn);
+
+        if (bulkLoad) {
+            VirtuosoUtil.closeBulkLoadConnection(conn);
+        } else {
+            SQLUtil.close(conn);
+        }
     }
 
     /**
@@ -168,11 +188,24 @@ public class VirtuosoHandler implements MSAccessImportHandlerIF {
      */
     private Connection getConnection() throws SQLException {
         if (conn == null) {
-            conn = SesameUtil.getSQLConnection();
+            conn = openConnection();
+            if (bulkLoad) {
+                VirtuosoUtil.startBulkLoad(conn);
+            }
         }
         return conn;
     }
 
+    /**
+     * Opens the underlying SQL connection.
+     *
+     * @return The connection.
+     * @throws SQLException When SQL error happens.
+     */
+    Connection openConnection() throws SQLException {
+        return SesameUtil.getSQLConnection();
+    }
+
     /**
      * Lazy getter for the underlying SQL connection's user.
      *
@@ -0,0 +1,308 @@
+package eionet.cr.staging.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import eionet.cr.config.GeneralConfig;
+import eionet.cr.dao.DAOException;
+import eionet.cr.dao.DAOFactory;
+import eionet.cr.dao.StagingDatabaseDAO;
+import eionet.cr.util.Hashes;
+import eionet.cr.util.sesame.SPARQLResultCache;
+
+/**
+ * Shared in-memory index of the concepts (codelist items) that the values of RDF exports from staging databases are checked
+ * against, so that test runs and exports do not query the triple store for the same codelists again and again. The concepts of
+ * every {@link Kind} are kept as sorted arrays of hashes of their URIs, one array per graph that has the concepts' notations.
+ * <p>
+ * The index stays valid while the versions of its graphs (see {@link SPARQLResultCache#getGraphVersions(Collection)}) do not
+ * change. When a harvest of a codelist or any other change reported to {@link SPARQLResultCache#invalidate(Collection)} changes
+ * one of them, only the concepts of the changed graphs are queried again. When such a change is reported for a graph that the
+ * index does not know, e.g. a codelist harvested for the first time, the index is rebuilt, as it is when it gets older than the
+ * configured number of seconds, or after {@link #invalidate()}.
+ *
+ * @author jaanus
+ */
+public final class ConceptIndex {
+
+    /**
+     * Kinds of concepts.
+     */
+    public enum Kind {
+        INDICATOR, BREAKDOWN, UNIT, REF_AREA
+    }
+
+    /** */
+    private static final Logger LOGGER = Logger.getLogger(ConceptIndex.class);
+
+    /** */
+    private static final long[] NO_HASHES = new long[0];
+
+    /** The current index, if built and caching is switched on. */
+    private static ConceptIndex current;
+
+    /** Time when the index was fully built. */
+    private final long builtAt;
+
+    /** Hashes of the concepts' URIs, by kinds and graphs. */
+    private final Map<Kind, Map<String, long[]>> uriHashes = new EnumMap<Kind, Map<String, long[]>>(Kind.class);
+
+    /** Versions of the graphs at the time their concepts were read. */
+    private final Map<String, String> graphVersions = new HashMap<String, String>();
+
+    /** Store version (see {@link SPARQLResultCache#getStoreVersion()}) when the index was last found to be up to date. */
+    private long checkedStoreVersion;
+
+    /**
+     * Class constructor, used by {@link Builder#build(ConceptIndex)}.
+     *
+     * @param builder The builder.
+     * @param base Index whose concepts are kept for the graphs that the builder has not read, or null.
+     */
+    private ConceptIndex(Builder builder, ConceptIndex base) {
+
+        this.builtAt = base == null ? System.currentTimeMillis() : base.builtAt;
+        this.checkedStoreVersion = base == null ? builder.storeVersion : base.checkedStoreVersion;
+        for (Kind kind : Kind.values()) {
+            uriHashes.put(kind, merge(base == null ? null : base.uriHashes.get(kind), builder.uris.get(kind), builder.graphs));
+        }
+
+        if (base != null) {
+            graphVersions.putAll(base.graphVersions);
+        }
+        for (String graphUri : builder.graphs) {
+            graphVersions.put(graphUri, builder.graphVersions.get(graphUri));
+        }
+    }
+
+    /**
+     * Returns the current index, bringing it up to date first. If caching is switched off, the index is built from scratch.
+     *
+     * @return The index.
+     * @throws DAOException If querying the concepts fails.
+     */
+    public static synchronized ConceptIndex getCurrent() throws DAOException {
+
+        int seconds = GeneralConfig.getIntProperty(GeneralConfig.STAGING_CONCEPT_INDEX_SECONDS, 0);
+        if (seconds <= 0) {
+            return load(null, null);
+        }
+
+        if (current == null || System.currentTimeMillis() - current.builtAt > seconds * 1000L) {
+            current = load(null, null);
+        } else {
+            long storeVersion = SPARQLResultCache.getStoreVersion();
+            Set<String> changedGraphs = current.getChangedGraphs();
+            if (changedGraphs == null) {
+                current = load(null, null);
+            } else if (!changedGraphs.isEmpty()) {
+                current = load(current, changedGraphs);
+            } else {
+                current.checkedStoreVersion = storeVersion;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Makes the next {@link #getCurrent()} rebuild the index from scratch, e.g. after concepts have been added to a graph that
+     * the index may not know yet.
+     */
+    public static synchronized void invalidate() {
+        current = null;
+    }
+
+    /**
+     * @param kind Kind of the concept.
+     * @param conceptUri URI of the concept.
+     * @return True if such a concept exists.
+     */
+    public boolean contains(Kind kind, String conceptUri) {
+        return contains(uriHashes.get(kind), conceptUri);
+    }
+
+    /**
+     * Queries the concepts of all graphs, or of the given graphs only.
+     *
+     * @param base Index whose concepts are kept for the graphs that are not queried, null to query all graphs.
+     * @param graphUris Graphs to query if the base index is given.
+     * @return The index.
+     * @throws DAOException If querying the concepts fails.
+     */
+    private static ConceptIndex load(ConceptIndex base, Set<String> graphUris) throws DAOException {
+
+        long started = System.currentTimeMillis();
+        StagingDatabaseDAO dao = DAOFactory.get().getDao(StagingDatabaseDAO.class);
+        Builder builder = new Builder();
+        for (Kind kind : Kind.values()) {
+            if (base == null) {
+                dao.loadConcepts(kind, null, builder);
+            } else {
+                for (String graphUri : graphUris) {
+                    builder.addGraph(graphUri);
+                    dao.loadConcepts(kind, graphUri, builder);
+                }
+            }
+        }
+
+        ConceptIndex index = builder.build(base);
+        LOGGER.debug("Loaded the concepts of " + builder.graphs.size() + " graphs in " + (System.currentTimeMillis() - started)
+                + " ms");
+        return index;
+    }
+
+    /**
+     * @return Graphs whose versions have changed since their concepts were read, or null if the index must be rebuilt because
+     *         a graph that it does not know has changed since it was last found to be up to date.
+     */
+    Set<String> getChangedGraphs() {
+
+        Set<String> newGraphs = SPARQLResultCache.getGraphsChangedSince(checkedStoreVersion);
+        newGraphs.removeAll(graphVersions.keySet());
+        if (!newGraphs.isEmpty()) {
+            return null;
+        }
+
+        Set<String> changedGraphs = new HashSet<String>();
+        for (Map.Entry<String, String> entry : graphVersions.entrySet()) {
+            if (!entry.getValue().equals(SPARQLResultCache.getGraphVersions(Collections.singleton(entry.getKey())))) {
+                changedGraphs.add(entry.getKey());
+            }
+        }
+        return changedGraphs;
+    }
+
+    /**
+     * @param hashesByGraphs Sorted hashes by graphs.
+     * @param value The value to look for.
+     * @return True if the value's hash is in any of the graphs.
+     */
+    private static boolean contains(Map<String, long[]> hashesByGraphs, String value) {
+
+        if (value == null) {
+            return false;
+        }
+        long hash = Hashes.spoHash(value);
+        for (long[] hashes : hashesByGraphs.values()) {
+            if (Arrays.binarySearch(hashes, hash) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param base Sorted hashes by graphs, or null.
+     * @param read Hashes read by the builder, by graphs.
+     * @param readGraphs Graphs read by the builder, whose hashes in the base are replaced.
+     * @return The merged sorted hashes by graphs.
+     */
+    private static Map<String, long[]> merge(Map<String, long[]> base, Map<String, Set<Long>> read, Set<String> readGraphs) {
+
+        Map<String, long[]> result = new HashMap<String, long[]>();
+        if (base != null) {
+            result.putAll(base);
+            result.keySet().removeAll(readGraphs);
+        }
+        for (Map.Entry<String, Set<Long>> entry : read.entrySet()) {
+
+            long[] hashes = NO_HASHES;
+            if (!entry.getValue().isEmpty()) {
+                hashes = new long[entry.getValue().size()];
+                int i = 0;
+                for (Long hash : entry.getValue()) {
+                    hashes[i++] = hash.longValue();
+                }
+                Arrays.sort(hashes);
+            }
+            result.put(entry.getKey(), hashes);
+        }
+        return result;
+    }
+
+    /**
+     * Collects the concepts that an index is built of.
+     */
+    public static class Builder {
+
+        /** */
+        private final Map<Kind, Map<String, Set<Long>>> uris = new EnumMap<Kind, Map<String, Set<Long>>>(Kind.class);
+
+        /** */
+        private final Set<String> graphs = new HashSet<String>();
+
+        /** Versions of the graphs when they were first added, so that changes during the reading are not missed. */
+        private final Map<String, String> graphVersions = new HashMap<String, String>();
+
+        /** Store version when the reading started, so that changes during the reading are not missed. */
+        private final long storeVersion = SPARQLResultCache.getStoreVersion();
+
+        /**
+         * Class constructor.
+         */
+        public Builder() {
+
+            for (Kind kind : Kind.values()) {
+                uris.put(kind, new HashMap<String, Set<Long>>());
+            }
+        }
+
+        /**
+         * Adds a concept.
+         *
+         * @param kind Kind of the concept.
+         * @param graphUri The graph that has the concept's notation.
+         * @param conceptUri URI of the concept.
+         */
+        public void add(Kind kind, String graphUri, String conceptUri) {
+
+            addGraph(graphUri);
+            add(uris.get(kind), graphUri, conceptUri);
+        }
+
+        /**
+         * Marks the given graph as read, also if it has no concepts.
+         *
+         * @param graphUri The graph.
+         */
+        public void addGraph(String graphUri) {
+
+            if (graphs.add(graphUri)) {
+                graphVersions.put(graphUri, SPARQLResultCache.getGraphVersions(Collections.singleton(graphUri)));
+            }
+        }
+
+        /**
+         * @param base Index whose concepts are kept for the graphs that this builder has not read, or null.
+         * @return The index.
+         */
+        public ConceptIndex build(ConceptIndex base) {
+            return new ConceptIndex(this, base);
+        }
+
+        /**
+         * @param hashesByGraphs Hashes by graphs.
+         * @param graphUri The graph.
+         * @param value The value whose hash is added.
+         */
+        private static void add(Map<String, Set<Long>> hashesByGraphs, String graphUri, String value) {
+
+            Set<Long> hashes = hashesByGraphs.get(graphUri);
+            if (hashes == null) {
+                hashes = new HashSet<Long>();
+                hashesByGraphs.put(graphUri, hashes);
+            }
+            if (value != null) {
+                hashes.add(Long.valueOf(Hashes.spoHash(value)));
+            }
+        }
+    }
+}
@@ -23,6 +23,9 @@ package eionet.cr.staging.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -34,6 +37,10 @@ import com.healthmarketscience.jackcess.Index;
 import com.healthmarketscience.jackcess.IndexData.ColumnDescriptor;
 import com.healthmarketscience.jackcess.Table;
 import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+import eionet.cr.util.LogUtil;
+import eionet.cr.util.sql.SQLUtil;
 
 // TODO: Auto-generated Javadoc
 /**
@@ -43,6 +50,9 @@ import org.apache.commons.lang.StringUtils;
  */
 public final class VirtuosoUtil {
 
+    /** */
+    private static final Logger LOGGER = Logger.getLogger(VirtuosoUtil.class);
+
     /** */
     public static final Map<DataType, String> JACKCESS_TO_VIRTUOSO_DATATYPES = new HashMap<DataType, String>();
 
@@ -126,6 +136,53 @@ public final class VirtuosoUtil {
         return sb.toString();
     }
 
+    /**
+     * Creates the table statement for a table of the given columns and Virtuoso data types, e.g. one inferred from a CSV file.
+     *
+     * @param tableName the table name
+     * @param columnNames the column names
+     * @param columnTypes the columns' data types, in the order of the column names
+     * @param dbName the db name
+     * @param dbUser the db user
+     * @return the string
+     */
+    public static String createTableStatement(String tableName, List<String> columnNames, List<String> columnTypes, String dbName,
+            String dbUser) {
+
+        StringBuilder sb = new StringBuilder("CREATE TABLE ");
+        sb.append(fullyQualifiedSanitizedTableName(tableName, dbName, dbUser)).append(" (\n");
+
+        for (int i = 0; i < columnNames.size(); i++) {
+
+            sb.append("    ").append(sanitizeColumnName(columnNames.get(i))).append(" ").append(columnTypes.get(i));
+            if (i + 1 < columnNames.size()) {
+                sb.append(",");
+            }
+            sb.append("\n");
+        }
+
+        sb.append(")");
+
+        return sb.toString();
+    }
+
+    /**
+     * Statement that changes the data type of the given column, converting its values.
+     *
+     * @param tableName the table name
+     * @param columnName the column name
+     * @param columnType the column's new data type
+     * @param dbName the db name
+     * @param dbUser the db user
+     * @return the string
+     */
+    public static String alterColumnTypeStatement(String tableName, String columnName, String columnType, String dbName,
+            String dbUser) {
+
+        return "ALTER TABLE " + fullyQualifiedSanitizedTableName(tableName, dbName, dbUser) + " MODIFY COLUMN "
+                + sanitizeColumnName(columnName) + " " + columnType;
+    }
+
     /**
      * Parameterized insert statement.
      *
@@ -231,4 +288,67 @@ public final class VirtuosoUtil {
 
         return result == null ? "VARCHAR(255)" : result;
     }
+
+    /**
+     * Puts the given connection into bulk load mode, where Virtuoso's transaction log is switched off and every row is committed
+     * as soon as it is inserted. Rows inserted in bulk load mode cannot be rolled back, which is fine for a new staging database
+     * that is discarded if its import fails. The connection must be closed with {@link #closeBulkLoadConnection(Connection)}.
+     *
+     * @param conn the connection
+     * @throws SQLException if switching the transaction log off fails
+     */
+    public static void startBulkLoad(Connection conn) throws SQLException {
+        execute("log_enable(2, 1)", conn);
+    }
+
+    /**
+     * Switches the transaction log of the given connection back on, and closes the connection. A failure to switch the log on
+     * is only logged.
+     *
+     * @param conn the connection, may be null
+     */
+    public static void closeBulkLoadConnection(Connection conn) {
+
+        if (conn != null) {
+            try {
+                execute("log_enable(1, 1)", conn);
+            } catch (SQLException e) {
+                LOGGER.warn("Failed to switch the transaction log back on", e);
+            }
+            SQLUtil.close(conn);
+        }
+    }
+
+    /**
+     * Logs the number of rows imported into the given table of a staging database, and the speed of the import.
+     *
+     * @param rowCount number of rows imported
+     * @param tableName the table name
+     * @param started time when the import of the rows started
+     * @param loggers the loggers
+     */
+    public static void logImportRate(int rowCount, String tableName, long started, Logger... loggers) {
+
+        long millis = Math.max(1L, System.currentTimeMillis() - started);
+        LogUtil.info(String.format("Processed %d rows of table %s in %d ms (%d rows/s)", rowCount, tableName, millis,
+                rowCount * 1000L / millis), loggers);
+    }
+
+    /**
+     * Executes the given SQL statement in the given connection.
+     *
+     * @param sql the statement
+     * @param conn the connection
+     * @throws SQLException if executing fails
+     */
+    private static void execute(String sql, Connection conn) throws SQLException {
+
+        Statement stmt = null;
+        try {
+            stmt = conn.createStatement();
+            stmt.execute(sql);
+        } finally {
+            SQLUtil.close(stmt);
+        }
+    }
 }
@@ -271,6 +271,19 @@ public class Bindings {
         }
     }
 
+    /**
+     * Returns a copy of these bindings, so that bindings can be added for a query without adding them to the queries that these
+     * bindings are used with.
+     *
+     * @return the copy
+     */
+    public Bindings copy() {
+
+        Bindings copy = new Bindings();
+        copy.bindings.putAll(bindings);
+        return copy;
+    }
+
     /**
      * Returns bindings.
      *
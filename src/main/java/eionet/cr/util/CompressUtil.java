@@ -5,14 +5,17 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
 import org.apache.commons.compress.compressors.CompressorInputStream;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.apache.commons.compress.compressors.FileNameUtil;
@@ -78,8 +81,8 @@ public class CompressUtil {
         FileOutputStream outputStream = null;
         CompressorInputStream comprInputStream = null;
         try {
-            comprInputStream =
-                    new CompressorStreamFactory().createCompressorInputStream(new BufferedInputStream(new FileInputStream(file)));
+            InputStream fileInputStream = new BufferedInputStream(new FileInputStream(file));
+            comprInputStream = concatenatedStreamFactory().createCompressorInputStream(fileInputStream);
 
             outputStream = new FileOutputStream(toFile);
             org.apache.commons.compress.utils.IOUtils.copy(comprInputStream, outputStream);
@@ -169,4 +172,49 @@ public class CompressUtil {
             IOUtils.closeQuietly(archiveInputStream);
         }
     }
+
+    /**
+     * Returns a stream that uncompresses the given stream on the fly if the latter starts with the magic bytes of a supported
+     * compression format (gzip, bzip2, etc). Otherwise returns the given stream itself, positioned where it was.
+     *
+     * @param inputStream
+     *            - the stream in question, must support mark/reset (e.g. a {@link BufferedInputStream})
+     * @return
+     */
+    public static InputStream uncompressing(InputStream inputStream) {
+
+        try {
+            return concatenatedStreamFactory().createCompressorInputStream(inputStream);
+        } catch (CompressorException e) {
+            return inputStream;
+        }
+    }
+
+    /**
+     * @return A compressor stream factory whose streams decompress concatenated streams too, e.g. all members of a multi-member
+     *         gzip file.
+     */
+    private static CompressorStreamFactory concatenatedStreamFactory() {
+
+        CompressorStreamFactory factory = new CompressorStreamFactory();
+        factory.setDecompressConcatenated(true);
+        return factory;
+    }
+
+    /**
+     * Returns an archive stream over the given stream if the latter starts with the signature of a supported archive format (zip,
+     * tar, etc). Otherwise returns null, and the given stream is positioned where it was.
+     *
+     * @param inputStream
+     *            - the stream in question, must support mark/reset (e.g. a {@link BufferedInputStream})
+     * @return
+     */
+    public static ArchiveInputStream archiveOrNull(InputStream inputStream) {
+
+        try {
+            return new ArchiveStreamFactory().createArchiveInputStream(inputStream);
+        } catch (ArchiveException e) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,40 @@
+package eionet.cr.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates daemon threads named by the given prefix and a sequence number, so that the worker threads of a pool are recognizable
+ * in logs and thread dumps.
+ *
+ * @author jaanus
+ */
+public class NamedDaemonThreadFactory implements ThreadFactory {
+
+    /** */
+    private final String namePrefix;
+
+    /** */
+    private final AtomicInteger counter = new AtomicInteger();
+
+    /**
+     * Class constructor.
+     *
+     * @param namePrefix Prefix of the names of the threads.
+     */
+    public NamedDaemonThreadFactory(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+     */
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, namePrefix + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -21,6 +21,8 @@
 package eionet.cr.util.sesame;
 
 import java.util.Collection;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -43,6 +45,10 @@ public final class SPARQLQueryUtil {
      */
     public static final String INFERENCE_DEF = "DEFINE input:inference";
 
+    /** Virtuoso-specific "define" pragmas at the start of a query, which Sesame's parser does not understand. */
+    private static final Pattern DEFINES_PATTERN = Pattern.compile(
+            "^\\s*(define\\s+\\S+\\s+('[^']*'|\"[^\"]*\"|<[^>]*>|\\S+)\\s*)+", Pattern.CASE_INSENSITIVE);
+
     /**
      * Hide utility class constructor.
      */
@@ -208,4 +214,28 @@ public final class SPARQLQueryUtil {
 
         return tmpQuery;
     }
+
+    /**
+     * Removes Virtuoso's "define" pragmas (e.g. {@link #INFERENCE_DEF}) from the start of the given query, so that it can be parsed
+     * by Sesame's SPARQL parser.
+     *
+     * @param query SPARQL query
+     * @return the query without leading defines
+     */
+    public static String removeDefines(String query) {
+        return query == null ? null : DEFINES_PATTERN.matcher(query).replaceFirst("");
+    }
+
+    /**
+     * Returns Virtuoso's "define" pragmas (e.g. {@link #INFERENCE_DEF}) at the start of the given query, so that they can be
+     * moved to the start of an enclosing query.
+     *
+     * @param query SPARQL query
+     * @return the leading defines, or empty string if there are none
+     */
+    public static String getDefines(String query) {
+
+        Matcher matcher = query == null ? null : DEFINES_PATTERN.matcher(query);
+        return matcher != null && matcher.find() ? matcher.group() : "";
+    }
 }
@@ -0,0 +1,506 @@
+package eionet.cr.util.sesame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.openrdf.model.Resource;
+import org.openrdf.query.Dataset;
+import org.openrdf.query.algebra.Service;
+import org.openrdf.query.algebra.StatementPattern;
+import org.openrdf.query.algebra.Var;
+import org.openrdf.query.algebra.helpers.QueryModelVisitorBase;
+import org.openrdf.query.parser.ParsedQuery;
+import org.openrdf.query.parser.sparql.SPARQLParser;
+
+import eionet.cr.config.GeneralConfig;
+
+/**
+ * Cache of serialized SPARQL endpoint results, kept in the "sparqlResultCache" of ehcache.xml, which bounds it by bytes in memory
+ * and overflows it to disk.
+ * <p>
+ * The key of a result is made of the whitespace-normalized query, the output format, the protocol's default and named graphs,
+ * the inferencing flag and the current versions of the graphs that the query reads. A graph's version is bumped by
+ * {@link #invalidate(Collection)} whenever a harvest, an RDF export or a deletion of observations changes the graph, so that
+ * results of queries reading it are never served again and are left for the cache to evict. The graphs read by a query are
+ * found from its FROM and FROM NAMED clauses, the protocol's graphs, or its GRAPH clauses with a constant IRI. A query that
+ * reads the default graph without a dataset reads all graphs, and its results are invalidated by a change in any graph.
+ * Queries with a SERVICE clause or non-deterministic functions are never cached.
+ *
+ * @author jaanus
+ */
+public final class SPARQLResultCache {
+
+    /** Name of the cache in ehcache.xml. */
+    public static final String CACHE_NAME = "sparqlResultCache";
+
+    /** */
+    private static final Logger LOGGER = Logger.getLogger(SPARQLResultCache.class);
+
+    /** Functions that return a different value on every call. */
+    private static final Pattern NON_DETERMINISTIC_PATTERN = Pattern.compile(
+            "\\b(now|rand|uuid|struuid|bnode)\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+    /** Versions of graphs, bumped whenever the graph changes. Graphs that never changed have version 0. */
+    private static final ConcurrentMap<String, AtomicLong> GRAPH_VERSIONS = new ConcurrentHashMap<String, AtomicLong>();
+
+    /** Version of the whole triple store, bumped whenever any graph changes. */
+    private static final AtomicLong STORE_VERSION = new AtomicLong();
+
+    /** Store versions at which the graphs last changed, i.e. the store versions just before the changes were registered. */
+    private static final ConcurrentMap<String, Long> GRAPH_CHANGES = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * Hide utility class constructor.
+     */
+    private SPARQLResultCache() {
+        // Just an empty private constructor to avoid instantiating this utility class.
+    }
+
+    /**
+     * Returns the cache key of the given query's result, or null if the query's result should not be cached, i.e. if caching is
+     * switched off, or the query cannot be parsed, or it uses a remote service or a non-deterministic function.
+     *
+     * @param query The query, as it will be executed.
+     * @param format Output format of the result.
+     * @param defaultGraphUris The protocol's default-graph-uri parameters, may be null.
+     * @param namedGraphUris The protocol's named-graph-uri parameters, may be null.
+     * @param useInferencing True if the query is executed with inferencing.
+     * @return The key, or null.
+     */
+    public static String getKey(String query, String format, String[] defaultGraphUris, String[] namedGraphUris,
+            boolean useInferencing) {
+
+        if (getCache() == null || StringUtils.isBlank(query)) {
+            return null;
+        }
+
+        String normalized = normalize(query);
+        if (NON_DETERMINISTIC_PATTERN.matcher(normalized).find()) {
+            return null;
+        }
+
+        GraphCollector collector = collectGraphs(query, null);
+        if (collector == null || collector.usesService) {
+            return null;
+        }
+
+        if (defaultGraphUris != null || namedGraphUris != null) {
+            collector.graphs.addAll(defaultGraphUris == null ? Arrays.<String> asList() : Arrays.asList(defaultGraphUris));
+            collector.graphs.addAll(namedGraphUris == null ? Arrays.<String> asList() : Arrays.asList(namedGraphUris));
+            collector.readsAll = false;
+        }
+
+        StringBuilder key = new StringBuilder(format).append('\n').append(useInferencing).append('\n');
+        key.append(defaultGraphUris == null ? "" : StringUtils.join(defaultGraphUris, ' ')).append('\n');
+        key.append(namedGraphUris == null ? "" : StringUtils.join(namedGraphUris, ' ')).append('\n');
+        key.append(useInferencing ? "*=" + STORE_VERSION.get() : collector.getVersions());
+        key.append('\n').append(normalized);
+
+        return DigestUtils.sha256Hex(key.toString());
+    }
+
+    /**
+     * @param key Key returned by {@link #getKey(String, String, String[], String[], boolean)}.
+     * @return The cached result, or null if there is none.
+     */
+    public static CachedResult get(String key) {
+
+        Cache cache = getCache();
+        Element element = key == null || cache == null ? null : cache.get(key);
+        return element == null ? null : (CachedResult) element.getObjectValue();
+    }
+
+    /**
+     * Wraps the given output stream into one that also captures what is written, up to the configured maximum size of a cached
+     * result.
+     *
+     * @param out The output stream to wrap.
+     * @return The capturing stream.
+     */
+    public static CapturingOutputStream capture(OutputStream out) {
+        return new CapturingOutputStream(out, GeneralConfig.getIntProperty(GeneralConfig.SPARQL_RESULT_CACHE_MAX_ENTRY_BYTES, 0));
+    }
+
+    /**
+     * Caches the result captured by the given stream, unless it exceeded the maximum size.
+     *
+     * @param key Key returned by {@link #getKey(String, String, String[], String[], boolean)}.
+     * @param contentType Content type of the result.
+     * @param captured The stream that captured the result.
+     */
+    public static void put(String key, String contentType, CapturingOutputStream captured) {
+
+        Cache cache = getCache();
+        byte[] bytes = captured.getCapturedBytes();
+        if (key != null && cache != null && bytes != null) {
+            cache.put(new Element(key, new CachedResult(contentType, bytes)));
+        }
+    }
+
+    /**
+     * Invalidates the cached results of all queries that read any of the given graphs, or read all graphs.
+     *
+     * @param graphUris URIs of the graphs that changed.
+     */
+    public static void invalidate(Collection<String> graphUris) {
+
+        long storeVersion = STORE_VERSION.get();
+        for (String graphUri : graphUris) {
+            if (graphUri != null) {
+                GRAPH_CHANGES.put(graphUri, storeVersion);
+                AtomicLong version = GRAPH_VERSIONS.get(graphUri);
+                if (version == null) {
+                    AtomicLong newVersion = new AtomicLong();
+                    version = GRAPH_VERSIONS.putIfAbsent(graphUri, newVersion);
+                    version = version == null ? newVersion : version;
+                }
+                version.incrementAndGet();
+            }
+        }
+        STORE_VERSION.incrementAndGet();
+    }
+
+    /**
+     * Same as {@link #invalidate(Collection)}.
+     *
+     * @param graphUris URIs of the graphs that changed.
+     */
+    public static void invalidate(String... graphUris) {
+        invalidate(Arrays.asList(graphUris));
+    }
+
+    /**
+     * Returns the version of the whole triple store, which is bumped by {@link #invalidate(Collection)} whenever any graph
+     * changes. Other caches of query results can make it part of their keys.
+     *
+     * @return The version.
+     */
+    public static long getStoreVersion() {
+        return STORE_VERSION.get();
+    }
+
+    /**
+     * Returns the current versions of the graphs that the given query reads, so that caches of other query results can make them
+     * part of their keys and have the results invalidated by {@link #invalidate(Collection)} like the results of this cache. A
+     * query reading a graph given by a variable is taken to read the graph that the variable is bound to. If the graphs cannot
+     * be told, e.g. because the query uses Virtuoso's built-in functions that the parser does not know, the version of the whole
+     * triple store is returned.
+     *
+     * @param query The query.
+     * @param bindings Values of the query's variables by their names, may be null.
+     * @return The versions.
+     */
+    public static String getDataVersions(String query, Map<String, ?> bindings) {
+
+        GraphCollector collector = collectGraphs(query, bindings);
+        return collector == null ? "*=" + STORE_VERSION.get() : collector.getVersions();
+    }
+
+    /**
+     * Returns the current versions of the given graphs, for keys of cached data that is read from these graphs only.
+     *
+     * @param graphUris URIs of the graphs.
+     * @return The versions, in the order of the graphs' URIs.
+     */
+    public static String getGraphVersions(Collection<String> graphUris) {
+
+        StringBuilder versions = new StringBuilder();
+        for (String graph : new TreeSet<String>(graphUris)) {
+            AtomicLong version = GRAPH_VERSIONS.get(graph);
+            versions.append(graph).append('=').append(version == null ? 0L : version.get()).append(' ');
+        }
+        return versions.toString();
+    }
+
+    /**
+     * Returns the graphs that changed after the triple store had the given version (see {@link #getStoreVersion()}), so that
+     * caches of data read from all graphs can tell whether the graphs they were not built from have changed.
+     *
+     * @param storeVersion The store version.
+     * @return URIs of the changed graphs, as a new modifiable set.
+     */
+    public static Set<String> getGraphsChangedSince(long storeVersion) {
+
+        Set<String> graphs = new HashSet<String>();
+        for (Map.Entry<String, Long> entry : GRAPH_CHANGES.entrySet()) {
+            if (entry.getValue().longValue() >= storeVersion) {
+                graphs.add(entry.getKey());
+            }
+        }
+        return graphs;
+    }
+
+    /**
+     * Parses the given query and collects the graphs it reads.
+     *
+     * @param query The query.
+     * @param bindings Values of the query's variables by their names, may be null.
+     * @return The collector, or null if the query cannot be parsed.
+     */
+    private static GraphCollector collectGraphs(String query, Map<String, ?> bindings) {
+
+        GraphCollector collector = new GraphCollector(bindings);
+        try {
+            String baseUri = GeneralConfig.getProperty(GeneralConfig.APPLICATION_HOME_URL) + "/sparql";
+            ParsedQuery parsedQuery = new SPARQLParser().parseQuery(SPARQLQueryUtil.removeDefines(query), baseUri);
+            parsedQuery.getTupleExpr().visit(collector);
+            Dataset dataset = parsedQuery.getDataset();
+            if (dataset != null) {
+                collector.add(dataset.getDefaultGraphs());
+                collector.add(dataset.getNamedGraphs());
+                collector.readsAll = false;
+            }
+        } catch (Exception e) {
+            LOGGER.trace("Cannot tell the graphs of an unparseable query: " + e);
+            return null;
+        }
+        return collector;
+    }
+
+    /**
+     * Collapses whitespace outside of string literals, so that queries differing only by layout share the cached result.
+     *
+     * @param query The query.
+     * @return The normalized query.
+     */
+    public static String normalize(String query) {
+
+        StringBuilder sb = new StringBuilder(query.length());
+        char quote = 0;
+        boolean space = false;
+        for (int i = 0; i < query.length(); i++) {
+
+            char c = query.charAt(i);
+            if (quote != 0) {
+                sb.append(c);
+                if (c == '\\' && i + 1 < query.length()) {
+                    sb.append(query.charAt(++i));
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (Character.isWhitespace(c)) {
+                space = true;
+            } else {
+                if (space && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                space = false;
+                sb.append(c);
+                if (c == '"' || c == '\'') {
+                    quote = c;
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The cache, or null if it is not configured or caching is switched off.
+     */
+    private static Cache getCache() {
+
+        if (GeneralConfig.getIntProperty(GeneralConfig.SPARQL_RESULT_CACHE_MAX_ENTRY_BYTES, 0) <= 0) {
+            return null;
+        }
+        return CacheManager.getInstance().getCache(CACHE_NAME);
+    }
+
+    /**
+     * A cached result: its content type and serialized bytes.
+     */
+    public static class CachedResult implements Serializable {
+
+        /** */
+        private static final long serialVersionUID = 1L;
+
+        /** */
+        private final String contentType;
+
+        /** */
+        private final byte[] bytes;
+
+        /**
+         * Class constructor.
+         *
+         * @param contentType Content type of the result.
+         * @param bytes Serialized result.
+         */
+        public CachedResult(String contentType, byte[] bytes) {
+            this.contentType = contentType;
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return the contentType
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @return the bytes
+         */
+        public byte[] getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * An output stream that writes everything to the wrapped stream, and keeps a copy of it as long as it fits into the maximum.
+     */
+    public static class CapturingOutputStream extends FilterOutputStream {
+
+        /** */
+        private final int maxBytes;
+
+        /** The copy, null once the maximum has been exceeded. */
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        /**
+         * Class constructor.
+         *
+         * @param out The stream to wrap.
+         * @param maxBytes Maximum number of bytes to keep a copy of.
+         */
+        public CapturingOutputStream(OutputStream out, int maxBytes) {
+            super(out);
+            this.maxBytes = maxBytes;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.io.FilterOutputStream#write(int)
+         */
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (copy != null) {
+                copy.write(b);
+                checkSize();
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.io.FilterOutputStream#write(byte[], int, int)
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+                checkSize();
+            }
+        }
+
+        /**
+         * Drops the copy if it has grown over the maximum.
+         */
+        private void checkSize() {
+            if (copy.size() > maxBytes) {
+                copy = null;
+            }
+        }
+
+        /**
+         * @return The bytes written, or null if they exceeded the maximum.
+         */
+        public byte[] getCapturedBytes() {
+            return copy == null ? null : copy.toByteArray();
+        }
+    }
+
+    /**
+     * Collects the graphs that a query's GRAPH clauses read, and notes if it reads the default graph or any variable graph.
+     */
+    private static class GraphCollector extends QueryModelVisitorBase<RuntimeException> {
+
+        /** */
+        private final Set<String> graphs = new TreeSet<String>();
+
+        /** */
+        private boolean readsAll;
+
+        /** */
+        private boolean usesService;
+
+        /** Values of the query's variables, may be null. */
+        private final Map<String, ?> bindings;
+
+        /**
+         * @param bindings Values of the query's variables by their names, may be null.
+         */
+        GraphCollector(Map<String, ?> bindings) {
+            this.bindings = bindings;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.openrdf.query.algebra.helpers.QueryModelVisitorBase#meet(org.openrdf.query.algebra.StatementPattern)
+         */
+        @Override
+        public void meet(StatementPattern node) {
+
+            Var context = node.getContextVar();
+            Object boundValue = context == null || bindings == null ? null : bindings.get(context.getName());
+            if (context != null && context.hasValue()) {
+                graphs.add(context.getValue().stringValue());
+            } else if (boundValue instanceof URI) {
+                graphs.add(boundValue.toString());
+            } else {
+                readsAll = true;
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.openrdf.query.algebra.helpers.QueryModelVisitorBase#meet(org.openrdf.query.algebra.Service)
+         */
+        @Override
+        public void meet(Service node) {
+            usesService = true;
+        }
+
+        /**
+         * @param uris Graphs to add.
+         */
+        private void add(Collection<? extends Resource> uris) {
+            for (Resource uri : uris) {
+                graphs.add(uri.stringValue());
+            }
+        }
+
+        /**
+         * @return Current versions of the collected graphs, or the version of the whole store if all graphs are read.
+         */
+        private String getVersions() {
+
+            return readsAll ? "*=" + STORE_VERSION.get() : getGraphVersions(graphs);
+        }
+    }
+}
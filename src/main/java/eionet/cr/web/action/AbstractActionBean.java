@@ -77,7 +77,7 @@ public abstract class AbstractActionBean implements ActionBean {
     private CRActionBeanContext context;
 
     /** */
-    private final Harvest currentQueuedHarvest = CurrentHarvests.getQueuedHarvest();
+    private final List<Harvest> currentQueuedHarvests = CurrentHarvests.getQueuedHarvests();
 
     /** */
     protected DAOFactory factory = DAOFactory.get();
@@ -278,7 +278,15 @@ public abstract class AbstractActionBean implements ActionBean {
      * @return
      */
     public Harvest getCurrentQueuedHarvest() {
-        return currentQueuedHarvest;
+        return currentQueuedHarvests.isEmpty() ? null : currentQueuedHarvests.get(0);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public List<Harvest> getCurrentQueuedHarvests() {
+        return currentQueuedHarvests;
     }
 
     /**
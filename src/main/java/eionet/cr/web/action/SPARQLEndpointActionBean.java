@@ -1,7 +1,10 @@
 package eionet.cr.web.action;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -10,6 +13,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import net.sourceforge.stripes.action.DefaultHandler;
@@ -21,20 +25,24 @@ import net.sourceforge.stripes.action.StreamingResolution;
 import net.sourceforge.stripes.action.UrlBinding;
 import net.sourceforge.stripes.validation.ValidationMethod;
 
+import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.openrdf.OpenRDFException;
 import org.openrdf.model.vocabulary.XMLSchema;
 import org.openrdf.query.BooleanQuery;
 import org.openrdf.query.GraphQuery;
+import org.openrdf.query.GraphQueryResult;
 import org.openrdf.query.MalformedQueryException;
 import org.openrdf.query.Query;
 import org.openrdf.query.QueryLanguage;
 import org.openrdf.query.TupleQuery;
 import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.parser.ParsedQuery;
 import org.openrdf.query.parser.sparql.SPARQLParser;
-import org.openrdf.query.resultio.text.csv.SPARQLResultsCSVWriter;
+import org.openrdf.query.resultio.binary.BinaryQueryResultWriter;
 import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.rio.binary.BinaryRDFWriter;
 import org.openrdf.rio.rdfxml.RDFXMLWriter;
 
 import eionet.cr.common.Predicates;
@@ -53,14 +61,18 @@ import eionet.cr.util.Hashes;
 import eionet.cr.util.Util;
 import eionet.cr.util.export.ExportFormat;
 import eionet.cr.util.sesame.SPARQLQueryUtil;
+import eionet.cr.util.sesame.SPARQLResultCache;
 import eionet.cr.util.sesame.SesameConnectionProvider;
 import eionet.cr.util.sesame.SesameUtil;
 import eionet.cr.web.action.factsheet.FactsheetActionBean;
 import eionet.cr.web.security.CRUser;
+import eionet.cr.web.sparqlClient.helpers.CRCsvWriter;
+import eionet.cr.web.sparqlClient.helpers.CRHtmlWriter;
 import eionet.cr.web.sparqlClient.helpers.CRJsonWriter;
 import eionet.cr.web.sparqlClient.helpers.CRXmlSchemaWriter;
 import eionet.cr.web.sparqlClient.helpers.CRXmlWriter;
 import eionet.cr.web.sparqlClient.helpers.QueryResult;
+import eionet.cr.web.util.SPARQLAdmissionControl;
 import eionet.cr.web.util.ServletOutputLazyStream;
 
 /**
@@ -80,11 +92,15 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
     /** */
     private static final String DEFAULT_STREAMING_RESPONSE_MIME_TYPE = "application/sparql-results+xml";
 
+    /** Buffer size of the binary formats' output, whose writers write every value in many small pieces. */
+    private static final int BINARY_BUFFER_SIZE = 32 * 1024;
+
     /** The endpoint's internal conventional output formats. */
     private static final String FORMAT_XML = "xml";
     private static final String FORMAT_XML_SCHEMA = "xml_schema";
     private static final String FORMAT_JSON = "json";
     private static final String FORMAT_CSV = "csv";
+    private static final String FORMAT_BINARY = "brt";
     private static final String FORMAT_HTML = "html";
     private static final String FORMAT_HTML_PLUS = "html+";
 
@@ -142,6 +158,15 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
     private QueryResult result;
     private String resultAsk;
 
+    /** HTML format of the result that is streamed into the form page, null if the result is not streamed. */
+    private String streamHtmlFormat;
+
+    /** True once the HTML result has been streamed into the form page, never cleared. */
+    private boolean htmlStreamed;
+
+    /** Writer of the streamed HTML result, null if the result is not streamed. */
+    private CRHtmlWriter htmlWriter;
+
     /** */
     private SPARQLParser parser = new SPARQLParser();
 
@@ -454,18 +479,9 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
 
             String acceptHeader = getContext().getRequest().getHeader("Accept");
             LOGGER.trace("Accept header: " + acceptHeader);
-            if (StringUtils.isNotBlank(acceptHeader)) {
-
-                String[] split = StringUtils.split(acceptHeader, ',');
-                for (int i = 0; i < split.length; i++) {
-
-                    String s = StringUtils.substringBefore(split[i], ";").trim();
-                    if (SUPPORTED_MIME_TYPES.contains(s)) {
-                        mimeType = s;
-                        LOGGER.trace("Going for this MIME type (from Accept header): " + mimeType);
-                        break;
-                    }
-                }
+            mimeType = getAcceptedMimeType(acceptHeader);
+            if (mimeType != null) {
+                LOGGER.trace("Going for this MIME type (from Accept header): " + mimeType);
             }
         }
         if (StringUtils.isBlank(mimeType)) {
@@ -485,6 +501,9 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
             }
         } else if (STREAMING_MIME_TYPES_TO_INTERNAL_FORMATS.containsKey(mimeType)) {
             resolution = executeStreamingQuery(mimeType);
+        } else if (isWebBrowser()) {
+            // The result is streamed into the form page while it renders, see writeHtmlResult(Writer).
+            streamHtmlFormat = mimeType.equals("text/html+") ? FORMAT_HTML_PLUS : FORMAT_HTML;
         } else {
             executeQuery(mimeType.equals("text/html+") ? FORMAT_HTML_PLUS : FORMAT_HTML, null, getContext().getResponse());
         }
@@ -497,6 +516,73 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
         return resolution;
     }
 
+    /**
+     * Returns the first MIME type in the given "Accept" header that the endpoint supports. Quality weights are ignored.
+     *
+     * @param acceptHeader The header's value, may be null.
+     * @return The MIME type, or null if none is supported.
+     */
+    static String getAcceptedMimeType(String acceptHeader) {
+
+        if (StringUtils.isNotBlank(acceptHeader)) {
+            for (String range : StringUtils.split(acceptHeader, ',')) {
+                String mimeType = StringUtils.substringBefore(range, ";").trim();
+                if (SUPPORTED_MIME_TYPES.contains(mimeType)) {
+                    return mimeType;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param mimeType A MIME type.
+     * @return The endpoint's internal format that the MIME type is streamed in, or null if it is not streamed.
+     */
+    static String getStreamingFormat(String mimeType) {
+        return STREAMING_MIME_TYPES_TO_INTERNAL_FORMATS.get(mimeType);
+    }
+
+    /**
+     * Writes the given SELECT query's result in Sesame's binary tuple format.
+     *
+     * @param result The result, not closed here.
+     * @param out Stream to write into.
+     * @throws OpenRDFException if reading the result or writing fails.
+     * @throws IOException if flushing the output fails.
+     */
+    static void writeBinary(TupleQueryResult result, OutputStream out) throws OpenRDFException, IOException {
+
+        BufferedOutputStream bufferedStream = new BufferedOutputStream(out, BINARY_BUFFER_SIZE);
+        BinaryQueryResultWriter writer = new BinaryQueryResultWriter(bufferedStream);
+        writer.startQueryResult(result.getBindingNames());
+        while (result.hasNext()) {
+            writer.handleSolution(result.next());
+        }
+        writer.endQueryResult();
+        bufferedStream.flush();
+    }
+
+    /**
+     * Writes the given CONSTRUCT query's result in Sesame's binary RDF format.
+     *
+     * @param result The result, not closed here.
+     * @param out Stream to write into.
+     * @throws OpenRDFException if reading the result or writing fails.
+     * @throws IOException if flushing the output fails.
+     */
+    static void writeBinary(GraphQueryResult result, OutputStream out) throws OpenRDFException, IOException {
+
+        BufferedOutputStream bufferedStream = new BufferedOutputStream(out, BINARY_BUFFER_SIZE);
+        BinaryRDFWriter writer = new BinaryRDFWriter(bufferedStream);
+        writer.startRDF();
+        while (result.hasNext()) {
+            writer.handleStatement(result.next());
+        }
+        writer.endRDF();
+        bufferedStream.flush();
+    }
+
     /**
      * Gets the default-graph-uri and named-graph-uri parameters from request and stores them into ActionBean properties. See SPARQL
      * protocol specifications for more.
@@ -541,7 +627,8 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
      */
     private Resolution executeStreamingQuery(String mimeType) {
 
-        final String internalFormat = STREAMING_MIME_TYPES_TO_INTERNAL_FORMATS.get(mimeType);
+        final String internalFormat = getStreamingFormat(mimeType);
+        final boolean gzip = ServletOutputLazyStream.acceptsGzip(getContext().getRequest().getHeader("Accept-Encoding"));
         StreamingResolution resolution = new StreamingResolution(mimeType) {
             @Override
             public void stream(HttpServletResponse response) throws Exception {
@@ -549,7 +636,8 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
                 ServletOutputLazyStream outputStream = null;
                 try {
                     // Look at ServletOutputLazyStream JavaDoc for why use it here.
-                    outputStream = new ServletOutputLazyStream(response);
+                    response.addHeader("Vary", "Accept-Encoding");
+                    outputStream = new ServletOutputLazyStream(response, gzip);
                     executeQuery(internalFormat == null ? FORMAT_XML : internalFormat, outputStream, response);
                     if (errorCode > 0) {
                         if (StringUtils.isBlank(errorMessage)) {
@@ -593,12 +681,43 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
             outputFormat = FORMAT_XML;
         }
 
+        // Results streamed to browsers are indented, to machine clients not.
+        boolean prettyPrint = outputStream != null && isWebBrowser();
+
+        // Streamed results are served from the result cache if possible, otherwise captured for it while streamed.
+        String cacheKey = outputStream == null ? null : SPARQLResultCache.getKey(query, prettyPrint ? outputFormat + "+pretty"
+                : outputFormat, defaultGraphUris, namedGraphUris, useInferencing);
+        SPARQLResultCache.CachedResult cachedResult = SPARQLResultCache.get(cacheKey);
+        if (cachedResult != null) {
+            try {
+                response.setContentType(cachedResult.getContentType());
+                outputStream.write(cachedResult.getBytes());
+            } catch (IOException e) {
+                LOGGER.warn("Failed writing cached result of the query: " + e);
+            }
+            return;
+        }
+        SPARQLResultCache.CapturingOutputStream capturingStream = null;
+        if (cacheKey != null) {
+            capturingStream = SPARQLResultCache.capture(outputStream);
+            outputStream = capturingStream;
+        }
+
+        // Admit the query by its caller and estimated cost before it takes a repository connection.
+        SPARQLAdmissionControl.Ticket ticket = admitQuery(response);
+        if (ticket == null) {
+            return;
+        }
+
         RepositoryConnection conn = null;
         try {
             conn = SesameConnectionProvider.getReadOnlyRepositoryConnection();
 
             Query queryObject = conn.prepareQuery(QueryLanguage.SPARQL, query);
             SesameUtil.setDatasetParameters(queryObject, conn, defaultGraphUris, namedGraphUris);
+            if (ticket.getMaxQuerySeconds() > 0) {
+                queryObject.setMaxQueryTime(ticket.getMaxQuerySeconds());
+            }
 
             TupleQueryResult queryResult = null;
             try {
@@ -608,7 +727,9 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
 
                     isAskQuery = true;
                     Boolean askResult = ((BooleanQuery) queryObject).evaluate();
-                    if (outputFormat.equals(FORMAT_XML)) {
+                    if (outputFormat.equals(FORMAT_XML) || outputFormat.equals(FORMAT_BINARY)) {
+
+                        // The binary format has no boolean results, so ASK results always go in XML.
 
                         response.setContentType("text/xml");
 
@@ -646,6 +767,10 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
                         writer.write("}");
                         writer.flush();
 
+                    } else if (outputFormat.equals(FORMAT_HTML) && htmlWriter != null) {
+
+                        htmlWriter.write(askResult.booleanValue());
+
                     } else if (outputFormat.equals(FORMAT_HTML)) {
 
                         response.setContentType("text/html");
@@ -656,17 +781,39 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
 
                     // Evaluate CONSTRUCT query.
 
-                    if (!outputFormat.equals(FORMAT_HTML)) {
+                    if (outputFormat.equals(FORMAT_BINARY)) {
+
+                        response.setContentType("application/x-binary-rdf");
+                        GraphQueryResult statements = ((GraphQuery) queryObject).evaluate();
+                        try {
+                            writeBinary(statements, outputStream);
+                        } finally {
+                            statements.close();
+                        }
+
+                    } else if (!outputFormat.equals(FORMAT_HTML)) {
 
                         response.setContentType("application/rdf+xml");
                         RDFXMLWriter writer = new RDFXMLWriter(outputStream);
                         ((GraphQuery) queryObject).evaluate(writer);
 
+                    } else if (htmlWriter != null) {
+
+                        long startTime = System.currentTimeMillis();
+                        GraphQueryResult statements = ((GraphQuery) queryObject).evaluate();
+                        try {
+                            htmlWriter.write(statements);
+                        } finally {
+                            statements.close();
+                        }
+                        executionTime = System.currentTimeMillis() - startTime;
+
                     } else {
                         response.setContentType("text/html");
 
                         long startTime = System.currentTimeMillis();
                         TupleQuery resultsTable = conn.prepareTupleQuery(QueryLanguage.SPARQL, query);
+                        resultsTable.setMaxQueryTime(queryObject.getMaxQueryTime());
                         TupleQueryResult bindings = resultsTable.evaluate();
                         executionTime = System.currentTimeMillis() - startTime;
                         if (bindings != null) {
@@ -681,6 +828,7 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
 
                         response.setContentType("text/xml");
                         CRXmlWriter sparqlWriter = new CRXmlWriter(outputStream);
+                        sparqlWriter.setPrettyPrint(prettyPrint);
                         ((TupleQuery) queryObject).evaluate(sparqlWriter);
 
                     } else if (outputFormat.equals(FORMAT_XML_SCHEMA)) {
@@ -693,14 +841,29 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
 
                         response.setContentType("application/json");
                         CRJsonWriter sparqlWriter = new CRJsonWriter(outputStream);
+                        sparqlWriter.setPrettyPrint(prettyPrint);
                         ((TupleQuery) queryObject).evaluate(sparqlWriter);
 
+                    } else if (outputFormat.equals(FORMAT_BINARY)) {
+
+                        response.setContentType("application/x-binary-rdf-results-table");
+                        queryResult = ((TupleQuery) queryObject).evaluate();
+                        writeBinary(queryResult, outputStream);
+
                     } else if (outputFormat != null && outputFormat.equals(FORMAT_CSV)) {
 
                         response.setContentType("text/csv");
-                        SPARQLResultsCSVWriter sparqlWriter = new SPARQLResultsCSVWriter(outputStream);
+                        CRCsvWriter sparqlWriter = new CRCsvWriter(outputStream);
                         ((TupleQuery) queryObject).evaluate(sparqlWriter);
 
+                    } else if (htmlWriter != null
+                            && (outputFormat.equals(FORMAT_HTML) || outputFormat.equals(FORMAT_HTML_PLUS))) {
+
+                        long startTime = System.currentTimeMillis();
+                        queryResult = ((TupleQuery) queryObject).evaluate();
+                        htmlWriter.write(queryResult);
+                        executionTime = System.currentTimeMillis() - startTime;
+
                     } else if (outputFormat.equals(FORMAT_HTML) || outputFormat.equals(FORMAT_HTML_PLUS)) {
 
                         response.setContentType("text/html");
@@ -715,6 +878,10 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
             } finally {
                 SesameUtil.close(queryResult);
             }
+
+            if (capturingStream != null) {
+                SPARQLResultCache.put(cacheKey, response.getContentType(), capturingStream);
+            }
         } catch (Exception e) {
 
             // Add feedback message to user (ignored when client is not a browser)
@@ -725,7 +892,86 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
 
         } finally {
             SesameUtil.close(conn);
+            ticket.release();
+        }
+    }
+
+    /**
+     * Executes the {@link #query} and writes its result into the given writer as it comes from the repository, followed by
+     * the same messages that the form page shows for a materialized result. Does nothing if the result is not to be streamed,
+     * see {@link #isStreamHtml()}.
+     *
+     * @param out The writer of the form page.
+     * @throws IOException if writing fails.
+     */
+    public void writeHtmlResult(Writer out) throws IOException {
+
+        if (streamHtmlFormat == null) {
+            return;
+        }
+
+        htmlWriter =
+                new CRHtmlWriter(out, getContext().getRequest().getContextPath(), streamHtmlFormat.equals(FORMAT_HTML_PLUS));
+        htmlStreamed = true;
+        try {
+            executeQuery(streamHtmlFormat, null, getContext().getResponse());
+        } finally {
+            streamHtmlFormat = null;
+        }
+
+        if (errorCode != 0) {
+            String message = StringUtils.defaultIfEmpty(errorMessage, "Failure when executing the query");
+            out.write("<div class=\"error-msg\">" + StringEscapeUtils.escapeXml(message) + "</div>");
+        } else if (!isAskQuery && htmlWriter.getRowCount() == 0) {
+            out.write("<div class=\"system-msg\">The query gave no results!</div>");
+        } else if (!isAskQuery) {
+            if (!htmlWriter.isAllRowsWritten()) {
+                out.write("<div class=\"important-msg\">The query result exceeded maximum allowed row count."
+                        + " Displaying only first rows. Please run a more detailed query.</div>");
+            }
+            out.write("<br/>Done. -- " + executionTime + " ms.");
+        }
+        out.flush();
+    }
+
+    /**
+     * @return True if the HTML result is streamed into the form page by {@link #writeHtmlResult(Writer)}, also after it has
+     *         been written.
+     */
+    public boolean isStreamHtml() {
+        return streamHtmlFormat != null || htmlStreamed;
+    }
+
+    /**
+     * Admits the {@link #query} by {@link SPARQLAdmissionControl}. If rejected, sets {@link #errorCode} and {@link #errorMessage}
+     * to "service unavailable" and tells the client when to retry.
+     *
+     * @param response Servlet response.
+     * @return The query's ticket, or null if the query was rejected.
+     */
+    private SPARQLAdmissionControl.Ticket admitQuery(HttpServletResponse response) {
+
+        ParsedQuery parsedQuery = null;
+        try {
+            parsedQuery =
+                    parser.parseQuery(SPARQLQueryUtil.removeDefines(query),
+                            GeneralConfig.getProperty(GeneralConfig.APPLICATION_HOME_URL) + "/sparql");
+        } catch (Exception e) {
+            // Virtuoso-specific syntax is not understood by the parser, such queries are given the cost of an unknown query.
+        }
+
+        SPARQLAdmissionControl admissionControl = SPARQLAdmissionControl.getInstance();
+        HttpServletRequest request = getContext().getRequest();
+        SPARQLAdmissionControl.Ticket ticket =
+                admissionControl.admit(admissionControl.getCallerClass(request, getUser() != null),
+                        admissionControl.getClientIp(request), SPARQLAdmissionControl.estimateCost(parsedQuery));
+        if (ticket == null) {
+            errorCode = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+            errorMessage = "Too many queries are running, please try again later";
+            response.setHeader("Retry-After", String.valueOf(admissionControl.getRetryAfterSeconds()));
+            addWarningMessage(errorMessage);
         }
+        return ticket;
     }
 
     /**
@@ -1246,7 +1492,8 @@ public class SPARQLEndpointActionBean extends AbstractActionBean {
         map.put("application/rdf+xml", FORMAT_XML);
         map.put("application/xml", FORMAT_XML);
         map.put("text/xml", FORMAT_XML);
-        map.put("application/x-binary-rdf-results-table", FORMAT_XML);
+        map.put("application/x-binary-rdf-results-table", FORMAT_BINARY);
+        map.put("application/x-binary-rdf", FORMAT_BINARY);
         map.put("text/csv", FORMAT_CSV);
         map.put("application/csv", FORMAT_CSV);
         map.put("text/comma-separated-values", FORMAT_CSV);
@@ -130,7 +130,7 @@ public class SimpleSearchActionBean extends AbstractSearchActionBean<SubjectDTO>
                 queryString = result.getQuery();
 
                 int exactRowCountLimit = DAOFactory.get().getDao(SearchDAO.class).getExactRowCountLimit();
-                exactCount = exactRowCountLimit <= 0 || matchCount <= exactRowCountLimit;
+                exactCount = result.isExactMatchCount() && (exactRowCountLimit <= 0 || matchCount <= exactRowCountLimit);
             }
 
             setLastModifiedDates(resultList);
@@ -317,7 +317,7 @@ public class TypeSearchActionBean extends AbstractSearchActionBean<SubjectDTO> {
                 matchCount = searchResult.getMatchCount();
                 queryString = searchResult.getQuery();
                 int exactRowCountLimit = DAOFactory.get().getDao(SearchDAO.class).getExactRowCountLimit();
-                exactCount = exactRowCountLimit <= 0 || matchCount <= exactRowCountLimit;
+                exactCount = searchResult.isExactMatchCount() && (exactRowCountLimit <= 0 || matchCount <= exactRowCountLimit);
             }
 
             // cache result list.
@@ -21,15 +21,23 @@
 
 package eionet.cr.web.action.admin;
 
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.util.Date;
 import java.util.List;
 
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
 import net.sourceforge.stripes.action.DefaultHandler;
+import net.sourceforge.stripes.action.ErrorResolution;
 import net.sourceforge.stripes.action.ForwardResolution;
 import net.sourceforge.stripes.action.Resolution;
+import net.sourceforge.stripes.action.StreamingResolution;
 import net.sourceforge.stripes.action.UrlBinding;
 import eionet.cr.dao.DAOException;
 import eionet.cr.dao.DAOFactory;
 import eionet.cr.dao.HarvestDAO;
+import eionet.cr.dto.HarvestPhaseDTO;
 import eionet.cr.dto.HarvestStatDTO;
 import eionet.cr.web.action.AbstractActionBean;
 import eionet.cr.web.action.HarvestActionBean;
@@ -69,6 +77,48 @@ public class HarvestStatsActionBean extends AbstractActionBean {
         return new ForwardResolution("/pages/admin/harvestStats.jsp");
     }
 
+    /**
+     * Returns the statistics of the last harvests as JSON, for monitoring tools. Every harvest has its phases' duration and
+     * throughput, by phase name.
+     *
+     * @return
+     * @throws DAOException
+     */
+    public Resolution json() throws DAOException {
+
+        if (getUser() == null || !getUser().isAdministrator()) {
+            return new ErrorResolution(HttpURLConnection.HTTP_FORBIDDEN);
+        }
+
+        JSONArray harvests = new JSONArray();
+        for (HarvestStatDTO harvestStat : DAOFactory.get().getDao(HarvestDAO.class).getLastHarvestStats(HARVEST_STATS_LIMIT)) {
+
+            JSONObject harvest = new JSONObject();
+            harvest.put("harvestId", harvestStat.getHarvestId());
+            harvest.put("sourceUrl", harvestStat.getSourceUrl());
+            Date started = harvestStat.getDatetimeStarted();
+            Date finished = harvestStat.getDatetimeFinished();
+            harvest.put("started", started == null ? null : Long.valueOf(started.getTime()));
+            harvest.put("finished", finished == null ? null : Long.valueOf(finished.getTime()));
+            harvest.put("statements", harvestStat.getTotalStatements());
+
+            JSONObject phases = new JSONObject();
+            for (HarvestPhaseDTO phaseDTO : harvestStat.getPhases().values()) {
+                JSONObject phase = new JSONObject();
+                phase.put("durationMicros", phaseDTO.getDurationMicros());
+                phase.put("bytes", phaseDTO.getBytes());
+                phase.put("triples", phaseDTO.getTriples());
+                phase.put("bytesPerSecond", phaseDTO.getBytesPerSecond());
+                phase.put("triplesPerSecond", phaseDTO.getTriplesPerSecond());
+                phases.put(phaseDTO.getPhase(), phase);
+            }
+            harvest.put("phases", phases);
+            harvests.add(harvest);
+        }
+
+        return new StreamingResolution("application/json", new StringReader(harvests.toString()));
+    }
+
     /**
      * @return the adminLoggedIn
      */
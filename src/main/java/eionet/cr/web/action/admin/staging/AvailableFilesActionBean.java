@@ -48,6 +48,7 @@ import org.apache.commons.lang.math.NumberUtils;
 
 import eionet.cr.staging.AvailableFile;
 import eionet.cr.staging.FileDownloader;
+import eionet.cr.staging.imp.csv.CSVImporter;
 import eionet.cr.staging.imp.msaccess.MSAccessImporter;
 import eionet.cr.util.CompressUtil;
 import eionet.cr.util.FileDeletionJob;
@@ -214,8 +215,9 @@ public class AvailableFilesActionBean extends AbstractActionBean {
 
         if (isCompressedFile() || isArchiveFile()) {
             return list();
-        } else if (!MSAccessImporter.isMSAccessFile(selectedFile)) {
-            addWarningMessage("The selected file is not compressed or archive, and it is not a MicrosoftAccess file either!");
+        } else if (!CSVImporter.isCSVFile(selectedFile) && !MSAccessImporter.isMSAccessFile(selectedFile)) {
+            addWarningMessage("The selected file is not compressed or archive, "
+                    + "and it is not a MicrosoftAccess or CSV/TSV file either!");
             return new RedirectResolution(getClass());
         } else {
             return new RedirectResolution(StagingDatabaseActionBean.class, "add").addParameter("fileName", selectedFileName);
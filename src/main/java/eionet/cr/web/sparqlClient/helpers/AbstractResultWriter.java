@@ -0,0 +1,184 @@
+package eionet.cr.web.sparqlClient.helpers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.openrdf.query.QueryResultHandlerException;
+import org.openrdf.query.resultio.QueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultWriter;
+import org.openrdf.rio.RioSetting;
+import org.openrdf.rio.WriterConfig;
+
+/**
+ * Base class of the SPARQL endpoint's {@link TupleQueryResultWriter}s that write into a {@link ResultOutputBuffer}. Indentation
+ * and newlines are added only if pretty-printing is on, which is meant for human readers, machine clients get the compact
+ * output.
+ *
+ * @author jaanus
+ */
+public abstract class AbstractResultWriter implements TupleQueryResultWriter {
+
+    /** */
+    protected final ResultOutputBuffer buffer;
+
+    /** */
+    private boolean prettyPrint;
+
+    /** */
+    private WriterConfig writerConfig = new WriterConfig();
+
+    /**
+     * Class constructor.
+     *
+     * @param out Stream to write into.
+     */
+    protected AbstractResultWriter(OutputStream out) {
+        this.buffer = new ResultOutputBuffer(out, ResultOutputBuffer.DEFAULT_SIZE);
+    }
+
+    /**
+     * Enables/disables addition of indentation characters and newlines. By default, pretty-printing is off. This method has to be
+     * used before writing starts.
+     *
+     * @param prettyPrint True to pretty-print.
+     */
+    public void setPrettyPrint(boolean prettyPrint) {
+        this.prettyPrint = prettyPrint;
+    }
+
+    /**
+     * @return True if pretty-printing is on.
+     */
+    public boolean isPrettyPrint() {
+        return prettyPrint;
+    }
+
+    /**
+     * Starts a new line with the given indentation, if pretty-printing is on.
+     *
+     * @param level Indentation level.
+     * @throws IOException if writing fails.
+     */
+    protected void newLine(int level) throws IOException {
+
+        if (prettyPrint) {
+            buffer.append('\n');
+            for (int i = 0; i < level; i++) {
+                buffer.append('\t');
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.openrdf.query.QueryResultHandler#handleBoolean(boolean)
+     */
+    @Override
+    public void handleBoolean(boolean value) throws QueryResultHandlerException {
+        // Boolean results of ASK queries are written by the SPARQL endpoint itself.
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.openrdf.query.QueryResultHandler#handleLinks(java.util.List)
+     */
+    @Override
+    public void handleLinks(List<String> links) throws QueryResultHandlerException {
+        // Links are not written.
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.openrdf.query.resultio.QueryResultWriter#getQueryResultFormat()
+     */
+    @Override
+    public QueryResultFormat getQueryResultFormat() {
+        return getTupleQueryResultFormat();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.openrdf.query.resultio.QueryResultWriter#handleNamespace(java.lang.String, java.lang.String)
+     */
+    @Override
+    public void handleNamespace(String prefix, String uri) throws QueryResultHandlerException {
+        // Namespaces are not written.
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.openrdf.query.resultio.QueryResultWriter#startDocument()
+     */
+    @Override
+    public void startDocument() throws QueryResultHandlerException {
+        // The document is started by startQueryResult.
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.openrdf.query.resultio.QueryResultWriter#handleStylesheet(java.lang.String)
+     */
+    @Override
+    public void handleStylesheet(String stylesheetUrl) throws QueryResultHandlerException {
+        // Stylesheets are not written.
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.openrdf.query.resultio.QueryResultWriter#startHeader()
+     */
+    @Override
+    public void startHeader() throws QueryResultHandlerException {
+        // The header is written by startQueryResult.
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.openrdf.query.resultio.QueryResultWriter#endHeader()
+     */
+    @Override
+    public void endHeader() throws QueryResultHandlerException {
+        // The header is written by startQueryResult.
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.openrdf.query.resultio.QueryResultWriter#setWriterConfig(org.openrdf.rio.WriterConfig)
+     */
+    @Override
+    public void setWriterConfig(WriterConfig config) {
+        this.writerConfig = config;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.openrdf.query.resultio.QueryResultWriter#getWriterConfig()
+     */
+    @Override
+    public WriterConfig getWriterConfig() {
+        return writerConfig;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.openrdf.query.resultio.QueryResultWriter#getSupportedSettings()
+     */
+    @Override
+    public Collection<RioSetting<?>> getSupportedSettings() {
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,103 @@
+package eionet.cr.web.sparqlClient.helpers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResultHandlerException;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+
+/**
+ * Writes tuple query results in the <a href="http://www.w3.org/TR/sparql11-results-csv-tsv/">SPARQL 1.1 Query Results CSV
+ * Format</a>: a header line with the variable names, then one line per solution, values without type or language, blank nodes
+ * as "_:" and their id, unbound values as empty fields. Lines end with CRLF.
+ *
+ * @author jaanus
+ */
+public class CRCsvWriter extends AbstractResultWriter {
+
+    /** */
+    private List<String> bindingNames;
+
+    /**
+     * Class constructor.
+     *
+     * @param out Stream to write into.
+     */
+    public CRCsvWriter(OutputStream out) {
+        super(out);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.openrdf.query.resultio.TupleQueryResultWriter#getTupleQueryResultFormat()
+     */
+    @Override
+    public final TupleQueryResultFormat getTupleQueryResultFormat() {
+        return TupleQueryResultFormat.CSV;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.openrdf.query.QueryResultHandler#startQueryResult(java.util.List)
+     */
+    @Override
+    public void startQueryResult(List<String> bindingNames) throws TupleQueryResultHandlerException {
+        this.bindingNames = bindingNames;
+        try {
+            for (int i = 0; i < bindingNames.size(); i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                buffer.appendCsv(bindingNames.get(i));
+            }
+            buffer.append("\r\n");
+        } catch (IOException e) {
+            throw new TupleQueryResultHandlerException(e);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.openrdf.query.QueryResultHandler#handleSolution(org.openrdf.query.BindingSet)
+     */
+    @Override
+    public void handleSolution(BindingSet bindingSet) throws TupleQueryResultHandlerException {
+        try {
+            for (int i = 0; i < bindingNames.size(); i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                Value value = bindingSet.getValue(bindingNames.get(i));
+                if (value instanceof BNode) {
+                    buffer.append("_:").appendCsv(((BNode) value).getID());
+                } else if (value != null) {
+                    buffer.appendCsv(value.stringValue());
+                }
+            }
+            buffer.append("\r\n");
+        } catch (IOException e) {
+            throw new TupleQueryResultHandlerException(e);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.openrdf.query.QueryResultHandler#endQueryResult()
+     */
+    @Override
+    public void endQueryResult() throws TupleQueryResultHandlerException {
+        try {
+            buffer.flush();
+        } catch (IOException e) {
+            throw new TupleQueryResultHandlerException(e);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package eionet.cr.web.sparqlClient.helpers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang.StringEscapeUtils;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Statement;
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.GraphQueryResult;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.TupleQueryResult;
+
+/**
+ * Writes SPARQL query results into an HTML table row by row, as they come from the repository, so that the page starts
+ * rendering before the whole result has been read, and no row is kept in memory. The table looks like the one of the SPARQL
+ * endpoint's form page, literals are escaped and resources are linked to their factsheets.
+ *
+ * @author jaanus
+ */
+public class CRHtmlWriter {
+
+    /** Column names of a CONSTRUCT query's result. */
+    private static final List<String> STATEMENT_COLUMNS = Arrays.asList("subject", "predicate", "object");
+
+    /** The output is flushed after every this many rows. */
+    private static final int FLUSH_ROWS = 100;
+
+    /** */
+    private final Writer writer;
+
+    /** */
+    private final String contextPath;
+
+    /** */
+    private final boolean virtuosoFormat;
+
+    /** */
+    private final int maxRows;
+
+    /** */
+    private int rowCount;
+
+    /** */
+    private boolean allRowsWritten = true;
+
+    /**
+     * Class constructor, writing up to the same maximum number of rows as {@link QueryResult}.
+     *
+     * @param writer Writer to write into.
+     * @param contextPath Context path of the factsheet links.
+     * @param virtuosoFormat When true, literals have language and type added at the end of the value.
+     */
+    public CRHtmlWriter(Writer writer, String contextPath, boolean virtuosoFormat) {
+        this(writer, contextPath, virtuosoFormat, QueryResult.MAX_ROWS_COUNT);
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param writer Writer to write into.
+     * @param contextPath Context path of the factsheet links.
+     * @param virtuosoFormat When true, literals have language and type added at the end of the value.
+     * @param maxRows Maximum number of rows to write, the rest of the result is skipped.
+     */
+    public CRHtmlWriter(Writer writer, String contextPath, boolean virtuosoFormat, int maxRows) {
+
+        this.writer = writer;
+        this.contextPath = contextPath == null ? "" : contextPath;
+        this.virtuosoFormat = virtuosoFormat;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Writes the given SELECT query's result.
+     *
+     * @param result The result.
+     * @throws QueryEvaluationException if reading the result fails.
+     * @throws IOException if writing fails.
+     */
+    public void write(TupleQueryResult result) throws QueryEvaluationException, IOException {
+
+        List<String> columns = result.getBindingNames();
+        Value[] values = new Value[columns.size()];
+        while (result.hasNext()) {
+
+            if (!startRow(columns)) {
+                break;
+            }
+            BindingSet bindingSet = result.next();
+            for (int i = 0; i < values.length; i++) {
+                values[i] = bindingSet.getValue(columns.get(i));
+            }
+            writeRow(values);
+        }
+        endTable();
+    }
+
+    /**
+     * Writes the given CONSTRUCT query's result, one triple per row.
+     *
+     * @param result The result.
+     * @throws QueryEvaluationException if reading the result fails.
+     * @throws IOException if writing fails.
+     */
+    public void write(GraphQueryResult result) throws QueryEvaluationException, IOException {
+
+        Value[] values = new Value[STATEMENT_COLUMNS.size()];
+        while (result.hasNext()) {
+
+            if (!startRow(STATEMENT_COLUMNS)) {
+                break;
+            }
+            Statement statement = result.next();
+            values[0] = statement.getSubject();
+            values[1] = statement.getPredicate();
+            values[2] = statement.getObject();
+            writeRow(values);
+        }
+        endTable();
+    }
+
+    /**
+     * Writes the given ASK query's result.
+     *
+     * @param result The result.
+     * @throws IOException if writing fails.
+     */
+    public void write(boolean result) throws IOException {
+
+        writer.write("<br/>");
+        writer.write(String.valueOf(result));
+    }
+
+    /**
+     * @return Number of rows written.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return False if the result had more rows than allowed, and only the first ones were written.
+     */
+    public boolean isAllRowsWritten() {
+        return allRowsWritten;
+    }
+
+    /**
+     * Starts a new row, writing the table's header first if this is the first row.
+     *
+     * @param columns Column names.
+     * @return False if the maximum number of rows has been written already.
+     * @throws IOException if writing fails.
+     */
+    private boolean startRow(List<String> columns) throws IOException {
+
+        if (rowCount >= maxRows) {
+            allRowsWritten = false;
+            return false;
+        }
+        if (rowCount == 0) {
+            writer.write("<table class=\"datatable\" id=\"listItem\">\n<thead><tr>");
+            for (String column : columns) {
+                writer.write("<th>");
+                writer.write(StringEscapeUtils.escapeXml(column));
+                writer.write("</th>");
+            }
+            writer.write("</tr></thead>\n<tbody>\n");
+        }
+        rowCount++;
+        return true;
+    }
+
+    /**
+     * @param values The row's values, null where unbound.
+     * @throws IOException if writing fails.
+     */
+    private void writeRow(Value[] values) throws IOException {
+
+        writer.write(rowCount % 2 == 1 ? "<tr class=\"odd\">" : "<tr class=\"even\">");
+        for (Value value : values) {
+
+            writer.write("<td>");
+            if (value instanceof Literal) {
+                writer.write(StringEscapeUtils.escapeXml(QueryResult.getValueString(value, virtuosoFormat)));
+            } else if (value != null) {
+                String escaped = StringEscapeUtils.escapeXml(value.stringValue());
+                writer.write("<a href=\"");
+                writer.write(contextPath);
+                writer.write("/factsheet.action?uri=");
+                writer.write(URLEncoder.encode(value.stringValue(), "UTF-8"));
+                writer.write("\">");
+                writer.write(escaped);
+                writer.write("</a>");
+            }
+            writer.write("</td>");
+        }
+        writer.write("</tr>\n");
+
+        if (rowCount % FLUSH_ROWS == 0) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Closes the table if any rows were written.
+     *
+     * @throws IOException if writing fails.
+     */
+    private void endTable() throws IOException {
+
+        if (rowCount > 0) {
+            writer.write("</tbody>\n</table>\n");
+        }
+        writer.flush();
+    }
+}
@@ -1,16 +1,7 @@
 package eionet.cr.web.sparqlClient.helpers;
 
-import info.aduna.io.IndentingWriter;
-import info.aduna.text.StringUtil;
-
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.nio.charset.Charset;
-import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 
 import org.openrdf.model.BNode;
@@ -19,13 +10,8 @@ import org.openrdf.model.URI;
 import org.openrdf.model.Value;
 import org.openrdf.query.Binding;
 import org.openrdf.query.BindingSet;
-import org.openrdf.query.QueryResultHandlerException;
 import org.openrdf.query.TupleQueryResultHandlerException;
-import org.openrdf.query.resultio.QueryResultFormat;
 import org.openrdf.query.resultio.TupleQueryResultFormat;
-import org.openrdf.query.resultio.TupleQueryResultWriter;
-import org.openrdf.rio.RioSetting;
-import org.openrdf.rio.WriterConfig;
 
 /**
  * JSON writer.
@@ -33,10 +19,7 @@ import org.openrdf.rio.WriterConfig;
  * @author altnyris
  *
  */
-public class CRJsonWriter implements TupleQueryResultWriter {
-
-    /** */
-    private IndentingWriter writer;
+public class CRJsonWriter extends AbstractResultWriter {
 
     /** */
     private boolean firstTupleWritten;
@@ -48,9 +31,7 @@ public class CRJsonWriter implements TupleQueryResultWriter {
      * @param out
      */
     public CRJsonWriter(OutputStream out) {
-        Writer w = new OutputStreamWriter(out, Charset.forName("UTF-8"));
-        w = new BufferedWriter(w, 1024);
-        writer = new IndentingWriter(w);
+        super(out);
     }
 
     /*
@@ -71,22 +52,33 @@ public class CRJsonWriter implements TupleQueryResultWriter {
     @Override
     public void startQueryResult(List<String> columnHeaders) throws TupleQueryResultHandlerException {
         try {
-            openBraces();
+            buffer.append('{');
 
             // Write header
+            newLine(1);
             writeKey("head");
-            openBraces();
-            writeKeyValue("vars", columnHeaders);
-            closeBraces();
-
-            writeComma();
+            buffer.append('{');
+            newLine(2);
+            writeKey("vars");
+            buffer.append('[');
+            for (int i = 0; i < columnHeaders.size(); i++) {
+                if (i > 0) {
+                    writeSeparator();
+                }
+                writeString(columnHeaders.get(i));
+            }
+            buffer.append(']');
+            newLine(1);
+            buffer.append('}');
 
             // Write results
+            buffer.append(',');
+            newLine(1);
             writeKey("results");
-            openBraces();
-
+            buffer.append('{');
+            newLine(2);
             writeKey("bindings");
-            openArray();
+            buffer.append('[');
 
             firstTupleWritten = false;
         } catch (IOException e) {
@@ -102,10 +94,13 @@ public class CRJsonWriter implements TupleQueryResultWriter {
     @Override
     public void endQueryResult() throws TupleQueryResultHandlerException {
         try {
-            closeArray(); // bindings array
-            closeBraces(); // results braces
-            closeBraces(); // root braces
-            writer.flush();
+            newLine(2);
+            buffer.append(']'); // bindings array
+            newLine(1);
+            buffer.append('}'); // results braces
+            newLine(0);
+            buffer.append('}'); // root braces
+            buffer.flush();
         } catch (IOException e) {
             throw new TupleQueryResultHandlerException(e);
         }
@@ -120,27 +115,29 @@ public class CRJsonWriter implements TupleQueryResultWriter {
     public void handleSolution(BindingSet bindingSet) throws TupleQueryResultHandlerException {
         try {
             if (firstTupleWritten) {
-                writeComma();
+                buffer.append(',');
             } else {
                 firstTupleWritten = true;
             }
-
-            openBraces(); // start of new solution
-
-            Iterator<Binding> bindingIter = bindingSet.iterator();
-            while (bindingIter.hasNext()) {
-                Binding binding = bindingIter.next();
-
-                writeKeyValue(binding.getName(), binding.getValue());
-
-                if (bindingIter.hasNext()) {
-                    writeComma();
+            newLine(3);
+            buffer.append('{'); // start of new solution
+
+            boolean firstBindingWritten = false;
+            for (Binding binding : bindingSet) {
+                if (binding.getValue() != null) {
+                    if (firstBindingWritten) {
+                        buffer.append(',');
+                    } else {
+                        firstBindingWritten = true;
+                    }
+                    newLine(4);
+                    writeKey(binding.getName());
+                    writeValue(binding.getValue());
                 }
             }
 
-            closeBraces(); // end solution
-
-            writer.flush();
+            newLine(3);
+            buffer.append('}'); // end solution
         } catch (IOException e) {
             throw new TupleQueryResultHandlerException(e);
         }
@@ -148,36 +145,52 @@ public class CRJsonWriter implements TupleQueryResultWriter {
 
     /**
      *
-     * @param key
-     * @param value
-     * @throws IOException
-     */
-    private void writeKeyValue(String key, String value) throws IOException {
-        writeKey(key);
-        writeString(value);
-    }
-
-    /**
-     *
-     * @param key
      * @param value
      * @throws IOException
      * @throws TupleQueryResultHandlerException
      */
-    private void writeKeyValue(String key, Value value) throws IOException, TupleQueryResultHandlerException {
-        writeKey(key);
-        writeValue(value);
+    private void writeValue(Value value) throws IOException, TupleQueryResultHandlerException {
+        buffer.append('{');
+        if (value instanceof URI) {
+            writeKeyValue("type", "uri");
+            writeSeparator();
+            writeKeyValue("value", value.stringValue());
+        } else if (value instanceof BNode) {
+            writeKeyValue("type", "bnode");
+            writeSeparator();
+            writeKeyValue("value", ((BNode) value).getID());
+        } else if (value instanceof Literal) {
+            Literal lit = (Literal) value;
+
+            if (lit.getDatatype() != null) {
+                writeKeyValue("type", "typed-literal");
+                writeSeparator();
+                writeKeyValue("datatype", lit.getDatatype().stringValue());
+            } else {
+                writeKeyValue("type", "literal");
+                if (lit.getLanguage() != null) {
+                    writeSeparator();
+                    writeKeyValue("xml:lang", lit.getLanguage());
+                }
+            }
+
+            writeSeparator();
+            writeKeyValue("value", lit.getLabel());
+        } else {
+            throw new TupleQueryResultHandlerException("Unknown Value object type: " + value.getClass());
+        }
+        buffer.append('}');
     }
 
     /**
      *
      * @param key
-     * @param array
+     * @param value
      * @throws IOException
      */
-    private void writeKeyValue(String key, Iterable<String> array) throws IOException {
+    private void writeKeyValue(String key, String value) throws IOException {
         writeKey(key);
-        writeArray(array);
+        writeString(value);
     }
 
     /**
@@ -187,49 +200,7 @@ public class CRJsonWriter implements TupleQueryResultWriter {
      */
     private void writeKey(String key) throws IOException {
         writeString(key);
-        writer.write(": ");
-    }
-
-    /**
-     *
-     * @param value
-     * @throws IOException
-     * @throws TupleQueryResultHandlerException
-     */
-    private void writeValue(Value value) throws IOException, TupleQueryResultHandlerException {
-        writer.write("{ ");
-        if (value != null) {
-            if (value instanceof URI) {
-                writeKeyValue("type", "uri");
-                writer.write(", ");
-                writeKeyValue("value", ((URI) value).toString());
-            } else if (value instanceof BNode) {
-                writeKeyValue("type", "bnode");
-                writer.write(", ");
-                writeKeyValue("value", ((BNode) value).getID());
-            } else if (value instanceof Literal) {
-                Literal lit = (Literal) value;
-
-                if (lit.getDatatype() != null) {
-                    writeKeyValue("type", "typed-literal");
-                    writer.write(", ");
-                    writeKeyValue("datatype", lit.getDatatype().toString());
-                } else {
-                    writeKeyValue("type", "literal");
-                    if (lit.getLanguage() != null) {
-                        writer.write(", ");
-                        writeKeyValue("xml:lang", lit.getLanguage());
-                    }
-                }
-
-                writer.write(", ");
-                writeKeyValue("value", lit.getLabel());
-            } else {
-                throw new TupleQueryResultHandlerException("Unknown Value object type: " + value.getClass());
-            }
-        }
-
-        writer.write(" }");
+        buffer.append(isPrettyPrint() ? ": " : ":");
     }
 
     /**
@@ -238,151 +209,13 @@ public class CRJsonWriter implements TupleQueryResultWriter {
      * @throws IOException
      */
     private void writeString(String value) throws IOException {
-        // Escape special characters
-        value = StringUtil.gsub("\\", "\\\\", value);
-        value = StringUtil.gsub("\"", "\\\"", value);
-        value = StringUtil.gsub("/", "\\/", value);
-        value = StringUtil.gsub("\b", "\\b", value);
-        value = StringUtil.gsub("\f", "\\f", value);
-        value = StringUtil.gsub("\n", "\\n", value);
-        value = StringUtil.gsub("\r", "\\r", value);
-        value = StringUtil.gsub("\t", "\\t", value);
-
-        writer.write("\"");
-        writer.write(value);
-        writer.write("\"");
+        buffer.append('"').appendJson(value).append('"');
     }
 
     /**
-     *
-     * @param array
      * @throws IOException
      */
-    private void writeArray(Iterable<String> array) throws IOException {
-        writer.write("[ ");
-
-        Iterator<String> iter = array.iterator();
-        while (iter.hasNext()) {
-            String value = iter.next();
-
-            writeString(value);
-
-            if (iter.hasNext()) {
-                writer.write(", ");
-            }
-        }
-
-        writer.write(" ]");
+    private void writeSeparator() throws IOException {
+        buffer.append(isPrettyPrint() ? ", " : ",");
     }
-
-    /**
-     * @throws IOException
-     */
-    private void openArray() throws IOException {
-        writer.write("[");
-        writer.writeEOL();
-        writer.increaseIndentation();
-    }
-
-    /**
-     * @throws IOException
-     */
-    private void closeArray() throws IOException {
-        writer.writeEOL();
-        writer.decreaseIndentation();
-        writer.write("]");
-    }
-
-    /**
-     * @throws IOException
-     */
-    private void openBraces() throws IOException {
-        writer.write("{");
-        writer.writeEOL();
-        writer.increaseIndentation();
-    }
-
-    /**
-     * @throws IOException
-     */
-    private void closeBraces() throws IOException {
-        writer.writeEOL();
-        writer.decreaseIndentation();
-        writer.write("}");
-    }
-
-    /**
-     * @throws IOException
-     */
-    private void writeComma() throws IOException {
-        writer.write(", ");
-        writer.writeEOL();
-    }
-
-    @Override
-    public void handleBoolean(boolean paramBoolean) throws QueryResultHandlerException {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public void handleLinks(List<String> paramList) throws QueryResultHandlerException {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public QueryResultFormat getQueryResultFormat() {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
-    @Override
-    public void handleNamespace(String paramString1, String paramString2) throws QueryResultHandlerException {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public void startDocument() throws QueryResultHandlerException {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public void handleStylesheet(String paramString) throws QueryResultHandlerException {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public void startHeader() throws QueryResultHandlerException {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public void endHeader() throws QueryResultHandlerException {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public void setWriterConfig(WriterConfig paramWriterConfig) {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public WriterConfig getWriterConfig() {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
-    @Override
-    public Collection<RioSetting<?>> getSupportedSettings() {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
 }
@@ -14,11 +14,9 @@ import static eionet.cr.web.sparqlClient.helpers.SPARQLResultsXMLConstants.ROOT_
 import static eionet.cr.web.sparqlClient.helpers.SPARQLResultsXMLConstants.URI_TAG;
 import static eionet.cr.web.sparqlClient.helpers.SPARQLResultsXMLConstants.VAR_NAME_ATT;
 import static eionet.cr.web.sparqlClient.helpers.SPARQLResultsXMLConstants.VAR_TAG;
-import info.aduna.xml.XMLWriter;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Collection;
 import java.util.List;
 
 import org.openrdf.model.BNode;
@@ -27,40 +25,22 @@ import org.openrdf.model.URI;
 import org.openrdf.model.Value;
 import org.openrdf.query.Binding;
 import org.openrdf.query.BindingSet;
-import org.openrdf.query.QueryResultHandlerException;
 import org.openrdf.query.TupleQueryResultHandlerException;
-import org.openrdf.query.resultio.QueryResultFormat;
 import org.openrdf.query.resultio.TupleQueryResultFormat;
 import org.openrdf.query.resultio.TupleQueryResultWriter;
-import org.openrdf.rio.RioSetting;
-import org.openrdf.rio.WriterConfig;
 
 /**
  * A {@link TupleQueryResultWriter} that writes tuple query results in the <a href="http://www.w3.org/TR/rdf-sparql-XMLres/">SPARQL
  * Query Results XML Format</a>.
  */
-public class CRXmlWriter implements TupleQueryResultWriter {
-
-    /*-----------*
-     * Variables *
-     *-----------*/
-
-    /**
-     * XMLWriter to write XML to.
-     */
-    private XMLWriter xmlWriter;
+public class CRXmlWriter extends AbstractResultWriter {
 
     /*--------------*
      * Constructors *
      *--------------*/
 
     public CRXmlWriter(OutputStream out) {
-        this(new XMLWriter(out));
-    }
-
-    public CRXmlWriter(XMLWriter xmlWriter) {
-        this.xmlWriter = xmlWriter;
-        this.xmlWriter.setPrettyPrint(true);
+        super(out);
     }
 
     /*---------*
@@ -77,15 +57,6 @@ public class CRXmlWriter implements TupleQueryResultWriter {
         return TupleQueryResultFormat.SPARQL;
     }
 
-    /**
-     * Enables/disables addition of indentation characters and newlines in the XML document. By default, pretty-printing is set to
-     * <tt>true</tt>. If set to <tt>false</tt>, no indentation and newlines are added to the XML document. This method has to be
-     * used before writing starts (that is, before {@link #startQueryResult(List)} is called).
-     */
-    public void setPrettyPrint(boolean prettyPrint) {
-        xmlWriter.setPrettyPrint(prettyPrint);
-    }
-
     /*
      * (non-Javadoc)
      *
@@ -94,21 +65,25 @@ public class CRXmlWriter implements TupleQueryResultWriter {
     @Override
     public void startQueryResult(List<String> bindingNames) throws TupleQueryResultHandlerException {
         try {
-            xmlWriter.startDocument();
-
-            xmlWriter.setAttribute("xmlns", NAMESPACE);
-            xmlWriter.startTag(ROOT_TAG);
+            buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            newLine(0);
+            buffer.append('<').append(ROOT_TAG).append(" xmlns=\"").append(NAMESPACE).append("\">");
 
             // Write header
-            xmlWriter.startTag(HEAD_TAG);
+            newLine(1);
+            buffer.append('<').append(HEAD_TAG).append('>');
             for (String name : bindingNames) {
-                xmlWriter.setAttribute(VAR_NAME_ATT, name);
-                xmlWriter.emptyElement(VAR_TAG);
+                newLine(2);
+                buffer.append('<').append(VAR_TAG);
+                writeAttribute(VAR_NAME_ATT, name);
+                buffer.append("/>");
             }
-            xmlWriter.endTag(HEAD_TAG);
+            newLine(1);
+            buffer.append("</").append(HEAD_TAG).append('>');
 
             // Write start of results
-            xmlWriter.startTag(RESULT_SET_TAG);
+            newLine(1);
+            buffer.append('<').append(RESULT_SET_TAG).append('>');
         } catch (IOException e) {
             throw new TupleQueryResultHandlerException(e);
         }
@@ -122,10 +97,12 @@ public class CRXmlWriter implements TupleQueryResultWriter {
     @Override
     public void endQueryResult() throws TupleQueryResultHandlerException {
         try {
-            xmlWriter.endTag(RESULT_SET_TAG);
-            xmlWriter.endTag(ROOT_TAG);
-
-            xmlWriter.endDocument();
+            newLine(1);
+            buffer.append("</").append(RESULT_SET_TAG).append('>');
+            newLine(0);
+            buffer.append("</").append(ROOT_TAG).append('>');
+            newLine(0);
+            buffer.flush();
         } catch (IOException e) {
             throw new TupleQueryResultHandlerException(e);
         }
@@ -139,20 +116,24 @@ public class CRXmlWriter implements TupleQueryResultWriter {
     @Override
     public void handleSolution(BindingSet bindingSet) throws TupleQueryResultHandlerException {
         try {
-            xmlWriter.startTag(RESULT_TAG);
+            newLine(2);
+            buffer.append('<').append(RESULT_TAG).append('>');
 
             for (Binding binding : bindingSet) {
                 if (binding.getValue() != null) {
-                    xmlWriter.setAttribute(BINDING_NAME_ATT, binding.getName());
-                    xmlWriter.startTag(BINDING_TAG);
+                    newLine(3);
+                    buffer.append('<').append(BINDING_TAG);
+                    writeAttribute(BINDING_NAME_ATT, binding.getName());
+                    buffer.append('>');
 
                     writeValue(binding.getValue());
 
-                    xmlWriter.endTag(BINDING_TAG);
+                    buffer.append("</").append(BINDING_TAG).append('>');
                 }
             }
 
-            xmlWriter.endTag(RESULT_TAG);
+            newLine(2);
+            buffer.append("</").append(RESULT_TAG).append('>');
         } catch (IOException e) {
             throw new TupleQueryResultHandlerException(e);
         }
@@ -166,114 +147,45 @@ public class CRXmlWriter implements TupleQueryResultWriter {
      */
     private void writeValue(Value value) throws IOException {
         if (value instanceof URI) {
-            writeURI((URI) value);
+            writeTextElement(URI_TAG, value.stringValue());
         } else if (value instanceof BNode) {
-            writeBNode((BNode) value);
+            writeTextElement(BNODE_TAG, ((BNode) value).getID());
         } else if (value instanceof Literal) {
             writeLiteral((Literal) value);
         }
     }
 
     /**
-     * Utility method for writing the given {@link URI}.
+     * Utility method for writing the given {@link Literal}.
      *
-     * @param value The given {@link URI}.
+     * @param literal The given {@link Literal}.
      * @throws IOException
      */
-    private void writeURI(URI uri) throws IOException {
-        xmlWriter.textElement(URI_TAG, uri.toString());
+    private void writeLiteral(Literal literal) throws IOException {
+        buffer.append('<').append(LITERAL_TAG);
+        if (literal.getLanguage() != null) {
+            writeAttribute(LITERAL_LANG_ATT, literal.getLanguage());
+        } else if (literal.getDatatype() != null) {
+            writeAttribute(LITERAL_DATATYPE_ATT, literal.getDatatype().stringValue());
+        }
+        buffer.append('>').appendXml(literal.getLabel()).append("</").append(LITERAL_TAG).append('>');
     }
 
     /**
-     * Utility method for writing the given {@link BNode}.
-     *
-     * @param bNode The given {@link BNode}.
+     * @param name Element name.
+     * @param text Element text, to be escaped.
      * @throws IOException
      */
-    private void writeBNode(BNode bNode) throws IOException {
-        xmlWriter.textElement(BNODE_TAG, bNode.getID());
+    private void writeTextElement(String name, String text) throws IOException {
+        buffer.append('<').append(name).append('>').appendXml(text).append("</").append(name).append('>');
     }
 
     /**
-     * Utility method for writing the given {@link Literal}.
-     *
-     * @param bNode The given {@link Literal}.
+     * @param name Attribute name.
+     * @param value Attribute value, to be escaped.
      * @throws IOException
      */
-    private void writeLiteral(Literal literal) throws IOException {
-        if (literal.getLanguage() != null) {
-            xmlWriter.setAttribute(LITERAL_LANG_ATT, literal.getLanguage());
-        } else if (literal.getDatatype() != null) {
-            URI datatype = literal.getDatatype();
-            xmlWriter.setAttribute(LITERAL_DATATYPE_ATT, datatype.toString());
-        }
-
-        xmlWriter.textElement(LITERAL_TAG, literal.getLabel());
-    }
-
-    @Override
-    public void handleBoolean(boolean paramBoolean) throws QueryResultHandlerException {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public void handleLinks(List<String> paramList) throws QueryResultHandlerException {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public QueryResultFormat getQueryResultFormat() {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
-    @Override
-    public void handleNamespace(String paramString1, String paramString2) throws QueryResultHandlerException {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public void startDocument() throws QueryResultHandlerException {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public void handleStylesheet(String paramString) throws QueryResultHandlerException {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public void startHeader() throws QueryResultHandlerException {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public void endHeader() throws QueryResultHandlerException {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public void setWriterConfig(WriterConfig paramWriterConfig) {
-        // TODO Auto-generated method stub
-
-    }
-
-    @Override
-    public WriterConfig getWriterConfig() {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
-    @Override
-    public Collection<RioSetting<?>> getSupportedSettings() {
-        // TODO Auto-generated method stub
-        return null;
+    private void writeAttribute(String name, String value) throws IOException {
+        buffer.append(' ').append(name).append("=\"").appendXml(value).append('"');
     }
 }
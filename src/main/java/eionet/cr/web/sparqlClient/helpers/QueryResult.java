@@ -38,7 +38,7 @@ public class QueryResult {
     /**
      * Maximum Rows count that is returned in HTML.
      */
-    private static final int MAX_ROWS_COUNT = GeneralConfig.getIntProperty(GeneralConfig.SPARQLENDPOINT_MAX_ROWS_COUNT,
+    static final int MAX_ROWS_COUNT = GeneralConfig.getIntProperty(GeneralConfig.SPARQLENDPOINT_MAX_ROWS_COUNT,
             DEFAULT_MAX_ROWS_COUNT);
 
     /** */
@@ -88,27 +88,7 @@ public class QueryResult {
             Value value = bindingSet.getValue(variable);
 
             if (value != null) {
-
-                String valueString = value.stringValue();
-                if (value instanceof Literal) {
-                    if (virtuosoFormat) {
-                        if (((Literal) value).getLanguage() != null) {
-                            valueString = "\"" + valueString + "\"@" + ((Literal) value).getLanguage();
-                        }
-                        if (((Literal) value).getDatatype() != null) {
-                            String type = ((Literal) value).getDatatype().stringValue();
-                            type = type.replaceFirst("http://www.w3.org/2001/XMLSchema#", "xsd:");
-                            if (!type.startsWith("xsd:")) {
-                                type = "<" + type + ">";
-                            }
-
-                            valueString = "\"" + valueString + "\"^^" + type;
-                        }
-                    }
-                    resultValue = new ResultValue(valueString, true);
-                } else {
-                    resultValue = new ResultValue(valueString, false);
-                }
+                resultValue = new ResultValue(getValueString(value, virtuosoFormat), value instanceof Literal);
             }
 
             map.put(variable, resultValue);
@@ -120,6 +100,33 @@ public class QueryResult {
         rows.add(map);
     }
 
+    /**
+     * Returns the string of the given value as displayed in the HTML results.
+     *
+     * @param value The value.
+     * @param virtuosoFormat When true, literals have language and type added at the end of the value.
+     * @return The string.
+     */
+    static String getValueString(Value value, boolean virtuosoFormat) {
+
+        String valueString = value.stringValue();
+        if (value instanceof Literal && virtuosoFormat) {
+            if (((Literal) value).getLanguage() != null) {
+                valueString = "\"" + valueString + "\"@" + ((Literal) value).getLanguage();
+            }
+            if (((Literal) value).getDatatype() != null) {
+                String type = ((Literal) value).getDatatype().stringValue();
+                type = type.replaceFirst("http://www.w3.org/2001/XMLSchema#", "xsd:");
+                if (!type.startsWith("xsd:")) {
+                    type = "<" + type + ">";
+                }
+
+                valueString = "\"" + valueString + "\"^^" + type;
+            }
+        }
+        return valueString;
+    }
+
     /**
      *
      */
@@ -0,0 +1,278 @@
+package eionet.cr.web.sparqlClient.helpers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A reusable byte buffer that the SPARQL result writers encode and escape their output into, so that no intermediate strings
+ * or writers are created per value. Strings are encoded into UTF-8 directly. When the buffer fills up, its content is written
+ * into the underlying stream and the stream is flushed, so the client receives the result in chunks of the buffer's size.
+ *
+ * @author jaanus
+ */
+public final class ResultOutputBuffer {
+
+    /** Default size of the buffer, i.e. of the chunks sent to the client. */
+    public static final int DEFAULT_SIZE = 32 * 1024;
+
+    /** Longest byte sequence that one character can be written as: an escaped JSON character. */
+    private static final int MAX_CHAR_BYTES = 6;
+
+    /** */
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    /** */
+    private final OutputStream out;
+
+    /** */
+    private final byte[] buf;
+
+    /** */
+    private int pos;
+
+    /**
+     * Class constructor.
+     *
+     * @param out Stream to write into.
+     * @param size Size of the buffer.
+     */
+    public ResultOutputBuffer(OutputStream out, int size) {
+
+        this.out = out;
+        this.buf = new byte[Math.max(size, 2 * MAX_CHAR_BYTES)];
+    }
+
+    /**
+     * Appends the given string without escaping.
+     *
+     * @param s The string.
+     * @return This buffer.
+     * @throws IOException if writing into the stream fails.
+     */
+    public ResultOutputBuffer append(String s) throws IOException {
+
+        for (int i = 0; i < s.length();) {
+            i += appendChar(s, i);
+        }
+        return this;
+    }
+
+    /**
+     * Appends the given character, which must be ASCII.
+     *
+     * @param c The character.
+     * @return This buffer.
+     * @throws IOException if writing into the stream fails.
+     */
+    public ResultOutputBuffer append(char c) throws IOException {
+
+        ensure(1);
+        buf[pos++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Appends the given string escaped for a JSON string, without the quotes.
+     *
+     * @param s The string.
+     * @return This buffer.
+     * @throws IOException if writing into the stream fails.
+     */
+    public ResultOutputBuffer appendJson(String s) throws IOException {
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    appendEscape('"');
+                    break;
+                case '\\':
+                    appendEscape('\\');
+                    break;
+                case '/':
+                    appendEscape('/');
+                    break;
+                case '\b':
+                    appendEscape('b');
+                    break;
+                case '\f':
+                    appendEscape('f');
+                    break;
+                case '\n':
+                    appendEscape('n');
+                    break;
+                case '\r':
+                    appendEscape('r');
+                    break;
+                case '\t':
+                    appendEscape('t');
+                    break;
+                default:
+                    if (c < ' ') {
+                        ensure(MAX_CHAR_BYTES);
+                        buf[pos++] = '\\';
+                        buf[pos++] = 'u';
+                        buf[pos++] = '0';
+                        buf[pos++] = '0';
+                        buf[pos++] = HEX[c >> 4];
+                        buf[pos++] = HEX[c & 0xF];
+                    } else {
+                        i += appendChar(s, i) - 1;
+                    }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Appends the given string escaped for XML text and attribute values. Characters not allowed in XML are skipped.
+     *
+     * @param s The string.
+     * @return This buffer.
+     * @throws IOException if writing into the stream fails.
+     */
+    public ResultOutputBuffer appendXml(String s) throws IOException {
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '&':
+                    append("&amp;");
+                    break;
+                case '<':
+                    append("&lt;");
+                    break;
+                case '>':
+                    append("&gt;");
+                    break;
+                case '"':
+                    append("&quot;");
+                    break;
+                case '\r':
+                    append("&#xD;");
+                    break;
+                default:
+                    if (c >= ' ' || c == '\n' || c == '\t') {
+                        i += appendChar(s, i) - 1;
+                    }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Appends the given string as a CSV field, quoted if it contains a quote, comma or line break.
+     *
+     * @param s The string.
+     * @return This buffer.
+     * @throws IOException if writing into the stream fails.
+     */
+    public ResultOutputBuffer appendCsv(String s) throws IOException {
+
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == '"' || c == ',' || c == '\n' || c == '\r';
+        }
+
+        if (!quote) {
+            return append(s);
+        }
+        append('"');
+        for (int i = 0; i < s.length();) {
+            if (s.charAt(i) == '"') {
+                append('"');
+            }
+            i += appendChar(s, i);
+        }
+        return append('"');
+    }
+
+    /**
+     * Writes the buffer's content into the stream and flushes the stream.
+     *
+     * @throws IOException if writing into the stream fails.
+     */
+    public void flush() throws IOException {
+
+        drain();
+        out.flush();
+    }
+
+    /**
+     * @return Number of bytes in the buffer, not yet written into the stream.
+     */
+    public int size() {
+        return pos;
+    }
+
+    /**
+     * Appends the UTF-8 encoding of the character at the given index. A high surrogate is encoded together with the low surrogate
+     * following it, and a lone surrogate as '?'.
+     *
+     * @param s The string.
+     * @param i The character's index.
+     * @return Number of characters consumed, 2 for a surrogate pair, 1 otherwise.
+     * @throws IOException if writing into the stream fails.
+     */
+    private int appendChar(String s, int i) throws IOException {
+
+        char c = s.charAt(i);
+        ensure(MAX_CHAR_BYTES);
+        if (c < 0x80) {
+            buf[pos++] = (byte) c;
+        } else if (c < 0x800) {
+            buf[pos++] = (byte) (0xC0 | (c >> 6));
+            buf[pos++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(i + 1));
+            buf[pos++] = (byte) (0xF0 | (cp >> 18));
+            buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+            return 2;
+        } else if (Character.isSurrogate(c)) {
+            buf[pos++] = '?';
+        } else {
+            buf[pos++] = (byte) (0xE0 | (c >> 12));
+            buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[pos++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return 1;
+    }
+
+    /**
+     * @param c Character to append after a backslash.
+     * @throws IOException if writing into the stream fails.
+     */
+    private void appendEscape(char c) throws IOException {
+
+        ensure(2);
+        buf[pos++] = '\\';
+        buf[pos++] = (byte) c;
+    }
+
+    /**
+     * Makes room for the given number of bytes, sending the buffer's content to the client if needed.
+     *
+     * @param n Number of bytes.
+     * @throws IOException if writing into the stream fails.
+     */
+    private void ensure(int n) throws IOException {
+
+        if (pos + n > buf.length) {
+            flush();
+        }
+    }
+
+    /**
+     * @throws IOException if writing into the stream fails.
+     */
+    private void drain() throws IOException {
+
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+}
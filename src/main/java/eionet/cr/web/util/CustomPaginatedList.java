@@ -20,6 +20,9 @@ public class CustomPaginatedList<T> implements PaginatedList {
     private String sortCriterion;
     private SortOrderEnum sortDirection;
 
+    /** False if the full list size is an estimate, because the exact size is still being counted. */
+    private boolean exactFullListSize = true;
+
     /**
      * Default constructor, that simply calls super().
      */
@@ -40,6 +43,7 @@ public class CustomPaginatedList<T> implements PaginatedList {
         int totalMatchCount = searchResult == null ? 0 : searchResult.getMatchCount();
 
         fullListSize = totalMatchCount > 0 ? totalMatchCount : itemsSize;
+        exactFullListSize = searchResult == null || searchResult.isExactMatchCount();
         list = items;
         objectsPerPage = pageSize;
         if (actionBean != null) {
@@ -119,6 +123,20 @@ public class CustomPaginatedList<T> implements PaginatedList {
         return sortDirection;
     }
 
+    /**
+     * @return false if the full list size is an estimate
+     */
+    public boolean isExactFullListSize() {
+        return exactFullListSize;
+    }
+
+    /**
+     * @param exactFullListSize
+     */
+    public void setExactFullListSize(boolean exactFullListSize) {
+        this.exactFullListSize = exactFullListSize;
+    }
+
     /**
      * @param fullListSize
      */
@@ -0,0 +1,431 @@
+package eionet.cr.web.util;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.openrdf.query.algebra.Order;
+import org.openrdf.query.algebra.Regex;
+import org.openrdf.query.algebra.Slice;
+import org.openrdf.query.algebra.StatementPattern;
+import org.openrdf.query.algebra.helpers.QueryModelVisitorBase;
+import org.openrdf.query.parser.ParsedBooleanQuery;
+import org.openrdf.query.parser.ParsedQuery;
+
+import eionet.cr.config.GeneralConfig;
+import eionet.cr.util.Util;
+
+/**
+ * Admission control of the SPARQL endpoint's queries, so that heavy ad-hoc queries cannot take all connections of the read-only
+ * connection pool and starve the web UI and the harvester.
+ * <p>
+ * Callers are divided into anonymous, authenticated and internal ones. Each class has its own number of permits, and a query
+ * takes as many of them as its estimated cost, up to {@link #MAX_COST}. A query that cannot get its permits within the queue-time
+ * budget is rejected, as is a query from a client that already has the maximum number of queries running or queued. Internal
+ * callers (the configured internal hosts, always including the loopback addresses) are not limited per client. Queries of
+ * anonymous and authenticated callers are also given a maximum execution time.
+ * <p>
+ * A class without permits configured is not limited at all, so by default nothing changes.
+ *
+ * @author jaanus
+ */
+public final class SPARQLAdmissionControl {
+
+    /**
+     * Classes of callers, each with its own permits.
+     */
+    public enum CallerClass {
+
+        /** Callers that are not logged in. */
+        ANONYMOUS,
+        /** Callers that are logged in. */
+        AUTHENTICATED,
+        /** The application itself and other trusted hosts. */
+        INTERNAL;
+    }
+
+    /** Maximum estimated cost of a query, i.e. the maximum number of permits that a query takes. */
+    public static final int MAX_COST = 4;
+
+    /** Estimated cost of a query that could not be parsed. */
+    public static final int UNKNOWN_COST = 2;
+
+    /** Queries with more triple patterns than this are considered big joins. */
+    private static final int BIG_JOIN_PATTERNS = 8;
+
+    /** */
+    private static final Logger LOGGER = Logger.getLogger(SPARQLAdmissionControl.class);
+
+    /** */
+    private static SPARQLAdmissionControl instance;
+
+    /** Permits by caller class, classes without permits are not limited. */
+    private final Map<CallerClass, Semaphore> semaphores = new EnumMap<CallerClass, Semaphore>(CallerClass.class);
+
+    /** Number of permits by caller class. */
+    private final Map<CallerClass, Integer> permits = new EnumMap<CallerClass, Integer>(CallerClass.class);
+
+    /** Number of queries running or queued by client IP address. */
+    private final HashMap<String, Integer> clientQueries = new HashMap<String, Integer>();
+
+    /** Host and IP address patterns of internal callers. */
+    private final Set<String> internalHosts = new HashSet<String>();
+
+    /** Maximum number of queries that a non-internal client may have running or queued, 0 means no limit. */
+    private final int maxPerClient;
+
+    /** Maximum number of seconds that a query may wait for its permits. */
+    private final int queueSeconds;
+
+    /** Maximum execution time of non-internal queries in seconds, 0 means no limit. */
+    private final int maxQuerySeconds;
+
+    /**
+     * Class constructor.
+     *
+     * @param permits Number of permits by caller class, classes with 0 or not given are not limited.
+     * @param maxPerClient Maximum number of queries that a non-internal client may have running or queued, 0 means no limit.
+     * @param queueSeconds Maximum number of seconds that a query may wait for its permits.
+     * @param maxQuerySeconds Maximum execution time of non-internal queries in seconds, 0 means no limit.
+     * @param internalHosts Comma-separated host and IP address patterns of internal callers, may be blank.
+     */
+    public SPARQLAdmissionControl(Map<CallerClass, Integer> permits, int maxPerClient, int queueSeconds, int maxQuerySeconds,
+            String internalHosts) {
+
+        for (Map.Entry<CallerClass, Integer> entry : permits.entrySet()) {
+            if (entry.getValue() != null && entry.getValue().intValue() > 0) {
+                this.permits.put(entry.getKey(), entry.getValue());
+                this.semaphores.put(entry.getKey(), new Semaphore(entry.getValue().intValue(), true));
+            }
+        }
+        this.maxPerClient = Math.max(0, maxPerClient);
+        this.queueSeconds = Math.max(0, queueSeconds);
+        this.maxQuerySeconds = Math.max(0, maxQuerySeconds);
+
+        this.internalHosts.add("localhost");
+        this.internalHosts.add("127.0.0.1");
+        this.internalHosts.add("0:0:0:0:0:0:0:1");
+        this.internalHosts.add("::1");
+        if (StringUtils.isNotBlank(internalHosts)) {
+            for (String host : internalHosts.split("\\s*,\\s*")) {
+                if (StringUtils.isNotBlank(host)) {
+                    this.internalHosts.add(host.trim().toLowerCase());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the admission control configured in the general configuration file.
+     *
+     * @return The instance.
+     */
+    public static synchronized SPARQLAdmissionControl getInstance() {
+
+        if (instance == null) {
+            Map<CallerClass, Integer> permits = new EnumMap<CallerClass, Integer>(CallerClass.class);
+            permits.put(CallerClass.ANONYMOUS, GeneralConfig.getIntProperty(GeneralConfig.SPARQL_ADMISSION_PERMITS_ANONYMOUS, 0));
+            permits.put(CallerClass.AUTHENTICATED,
+                    GeneralConfig.getIntProperty(GeneralConfig.SPARQL_ADMISSION_PERMITS_AUTHENTICATED, 0));
+            permits.put(CallerClass.INTERNAL, GeneralConfig.getIntProperty(GeneralConfig.SPARQL_ADMISSION_PERMITS_INTERNAL, 0));
+            instance =
+                    new SPARQLAdmissionControl(permits, GeneralConfig.getIntProperty(GeneralConfig.SPARQL_ADMISSION_MAX_PER_CLIENT, 0),
+                            GeneralConfig.getIntProperty(GeneralConfig.SPARQL_ADMISSION_QUEUE_SECONDS, 10),
+                            GeneralConfig.getIntProperty(GeneralConfig.SPARQL_ADMISSION_MAX_QUERY_SECONDS, 0),
+                            GeneralConfig.getProperty(GeneralConfig.SPARQL_ADMISSION_INTERNAL_HOSTS));
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the IP address of the client that sent the given request, see {@link #getClientIp(String, String)}.
+     *
+     * @param request The request.
+     * @return The client's IP address.
+     */
+    public String getClientIp(HttpServletRequest request) {
+        return getClientIp(request.getRemoteAddr(), request.getHeader("X-Forwarded-For"));
+    }
+
+    /**
+     * Returns the IP address of the client, given the request's remote address and X-Forwarded-For header. If the request came
+     * from an internal host that forwarded it (e.g. a reverse proxy), the header is read from the right, and the first address
+     * that is not an internal host's is the client's. The addresses left of it are set by the client itself, so they cannot be
+     * trusted.
+     *
+     * @param remoteAddr The request's remote address.
+     * @param forwardedFor The request's X-Forwarded-For header, may be null.
+     * @return The client's IP address.
+     */
+    String getClientIp(String remoteAddr, String forwardedFor) {
+
+        String clientIp = remoteAddr;
+        if (StringUtils.isNotBlank(forwardedFor) && isInternal(remoteAddr)) {
+            String[] addresses = forwardedFor.split(",");
+            for (int i = addresses.length - 1; i >= 0 && isInternal(clientIp); i--) {
+                if (StringUtils.isNotBlank(addresses[i])) {
+                    clientIp = addresses[i].trim();
+                }
+            }
+        }
+        return clientIp;
+    }
+
+    /**
+     * Returns the class of the caller that sent the given request.
+     *
+     * @param request The request.
+     * @param authenticated True if the caller is logged in.
+     * @return The caller's class.
+     */
+    public CallerClass getCallerClass(HttpServletRequest request, boolean authenticated) {
+
+        if (isInternal(request.getRemoteAddr()) && StringUtils.isBlank(request.getHeader("X-Forwarded-For"))) {
+            return CallerClass.INTERNAL;
+        }
+        return authenticated ? CallerClass.AUTHENTICATED : CallerClass.ANONYMOUS;
+    }
+
+    /**
+     * Admits a query of the given cost from the given caller, waiting for the permits up to the queue-time budget.
+     *
+     * @param callerClass Class of the caller.
+     * @param clientIp IP address of the caller.
+     * @param cost Estimated cost of the query, see {@link #estimateCost(ParsedQuery)}.
+     * @return A ticket that must be released when the query is done, or null if the query was rejected.
+     */
+    public Ticket admit(CallerClass callerClass, String clientIp, int cost) {
+
+        String client = callerClass == CallerClass.INTERNAL || maxPerClient == 0 ? null : clientIp;
+        if (client != null) {
+            synchronized (clientQueries) {
+                Integer count = clientQueries.get(client);
+                int newCount = count == null ? 1 : count.intValue() + 1;
+                if (newCount > maxPerClient) {
+                    LOGGER.debug("Rejecting query of " + client + ", it already has " + count + " queries");
+                    return null;
+                }
+                clientQueries.put(client, Integer.valueOf(newCount));
+            }
+        }
+
+        Semaphore semaphore = semaphores.get(callerClass);
+        int required = semaphore == null ? 0 : Math.max(1, Math.min(cost, permits.get(callerClass).intValue()));
+        boolean acquired = false;
+        try {
+            acquired = semaphore == null || semaphore.tryAcquire(required, queueSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!acquired) {
+            LOGGER.debug("Rejecting " + callerClass + " query of cost " + cost + ", no permits within " + queueSeconds + " s");
+            releaseClient(client);
+            return null;
+        }
+        return new Ticket(semaphore, required, client, callerClass == CallerClass.INTERNAL ? 0 : maxQuerySeconds);
+    }
+
+    /**
+     * @return Number of seconds after which a rejected client should retry.
+     */
+    public int getRetryAfterSeconds() {
+        return Math.max(1, queueSeconds);
+    }
+
+    /**
+     * Estimates the cost of the given query between 1 and {@link #MAX_COST}. Triple patterns with unbound predicates, a missing
+     * LIMIT, and big joins, regular expressions or ordering each add to the cost.
+     *
+     * @param parsedQuery The parsed query, null if the query could not be parsed.
+     * @return The estimated cost.
+     */
+    public static int estimateCost(ParsedQuery parsedQuery) {
+
+        if (parsedQuery == null) {
+            return UNKNOWN_COST;
+        }
+
+        CostVisitor visitor = new CostVisitor();
+        parsedQuery.getTupleExpr().visit(visitor);
+
+        int cost = 1;
+        if (visitor.unboundPredicates) {
+            cost++;
+        }
+        if (!visitor.limited && !(parsedQuery instanceof ParsedBooleanQuery)) {
+            cost++;
+        }
+        if (visitor.patterns > BIG_JOIN_PATTERNS || visitor.regex || visitor.ordered) {
+            cost++;
+        }
+        return Math.min(MAX_COST, cost);
+    }
+
+    /**
+     * @param ip IP address.
+     * @return True if the given address is an internal host's.
+     */
+    private boolean isInternal(String ip) {
+
+        if (StringUtils.isNotBlank(ip)) {
+            for (String pattern : internalHosts) {
+                if (Util.wildCardMatch(ip, pattern)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param client IP address of the client whose query is done, null if the client is not counted.
+     */
+    private void releaseClient(String client) {
+
+        if (client != null) {
+            synchronized (clientQueries) {
+                Integer count = clientQueries.get(client);
+                if (count == null || count.intValue() <= 1) {
+                    clientQueries.remove(client);
+                } else {
+                    clientQueries.put(client, Integer.valueOf(count.intValue() - 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * The permits of an admitted query.
+     */
+    public final class Ticket {
+
+        /** */
+        private final Semaphore semaphore;
+
+        /** */
+        private final int required;
+
+        /** */
+        private final String client;
+
+        /** */
+        private final int maxQuerySeconds;
+
+        /** */
+        private boolean released;
+
+        /**
+         * Class constructor.
+         *
+         * @param semaphore The permits of the caller's class, null if not limited.
+         * @param required Number of permits taken.
+         * @param client The client's IP address, null if not counted.
+         * @param maxQuerySeconds Maximum execution time of the query in seconds, 0 means no limit.
+         */
+        private Ticket(Semaphore semaphore, int required, String client, int maxQuerySeconds) {
+            this.semaphore = semaphore;
+            this.required = required;
+            this.client = client;
+            this.maxQuerySeconds = maxQuerySeconds;
+        }
+
+        /**
+         * @return Maximum execution time of the query in seconds, 0 means no limit.
+         */
+        public int getMaxQuerySeconds() {
+            return maxQuerySeconds;
+        }
+
+        /**
+         * Gives the permits back. Calling it more than once has no effect.
+         */
+        public synchronized void release() {
+
+            if (!released) {
+                released = true;
+                if (semaphore != null) {
+                    semaphore.release(required);
+                }
+                releaseClient(client);
+            }
+        }
+    }
+
+    /**
+     * Collects the query features that the cost estimate is based on.
+     */
+    private static class CostVisitor extends QueryModelVisitorBase<RuntimeException> {
+
+        /** */
+        private int patterns;
+
+        /** */
+        private boolean unboundPredicates;
+
+        /** */
+        private boolean limited;
+
+        /** */
+        private boolean regex;
+
+        /** */
+        private boolean ordered;
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.openrdf.query.algebra.helpers.QueryModelVisitorBase#meet(org.openrdf.query.algebra.StatementPattern)
+         */
+        @Override
+        public void meet(StatementPattern node) {
+            patterns++;
+            if (!node.getPredicateVar().hasValue()) {
+                unboundPredicates = true;
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.openrdf.query.algebra.helpers.QueryModelVisitorBase#meet(org.openrdf.query.algebra.Slice)
+         */
+        @Override
+        public void meet(Slice node) {
+            if (node.hasLimit()) {
+                limited = true;
+            }
+            super.meet(node);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.openrdf.query.algebra.helpers.QueryModelVisitorBase#meet(org.openrdf.query.algebra.Regex)
+         */
+        @Override
+        public void meet(Regex node) {
+            regex = true;
+            super.meet(node);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.openrdf.query.algebra.helpers.QueryModelVisitorBase#meet(org.openrdf.query.algebra.Order)
+         */
+        @Override
+        public void meet(Order node) {
+            ordered = true;
+            super.meet(node);
+        }
+    }
+}
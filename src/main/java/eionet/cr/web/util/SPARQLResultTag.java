@@ -0,0 +1,56 @@
+package eionet.cr.web.util;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.servlet.jsp.JspException;
+import javax.servlet.jsp.JspWriter;
+import javax.servlet.jsp.tagext.BodyContent;
+import javax.servlet.jsp.tagext.TagSupport;
+
+import eionet.cr.web.action.SPARQLEndpointActionBean;
+
+/**
+ * Custom tag that streams the SPARQL endpoint's HTML result into the page, see
+ * {@link SPARQLEndpointActionBean#writeHtmlResult(Writer)}. If the tag is nested in a tag that buffers its body, the result is
+ * written into the buffer without flushing.
+ *
+ * @author jaanus
+ */
+public class SPARQLResultTag extends TagSupport {
+
+    /** */
+    private static final long serialVersionUID = 1L;
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.servlet.jsp.tagext.TagSupport#doEndTag()
+     */
+    @Override
+    public int doEndTag() throws JspException {
+
+        Object actionBean = pageContext.findAttribute("actionBean");
+        if (actionBean instanceof SPARQLEndpointActionBean) {
+
+            JspWriter out = pageContext.getOut();
+            Writer writer = out;
+            if (out instanceof BodyContent) {
+                writer = new FilterWriter(out) {
+                    @Override
+                    public void flush() {
+                        // Body content cannot be flushed.
+                    }
+                };
+            }
+
+            try {
+                ((SPARQLEndpointActionBean) actionBean).writeHtmlResult(writer);
+            } catch (IOException e) {
+                throw new JspException(e.toString(), e);
+            }
+        }
+        return EVAL_PAGE;
+    }
+}
@@ -23,23 +23,32 @@ package eionet.cr.web.util;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
 
 /**
  * An extension of {@link OutputStream} that wraps a given ServletResponse, and forwards all {@link OutputStream} method calls to
  * the same methods of {@link ServletOutputStream}. The point is that it does not initialize the latter before it is needed first
  * time. Hence the "lazy" in class name. Postponing this initialization to the latest possible moment allows clients of this class
  * to do things like response.sendError(int) as late as possible before the servlet output stream gets intialized, i.e. committed.
+ * <p>
+ * If so requested, the output is GZIP-compressed. The Content-Encoding header is then set when the stream gets initialized, so
+ * an error sent before that goes out uncompressed.
  *
  * @author jaanus
  */
 public class ServletOutputLazyStream extends OutputStream {
 
+    /** Size of the GZIP stream's buffer. */
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
     /** */
     private ServletResponse servletResponse;
-    private ServletOutputStream servletOutputStream;
+    private OutputStream servletOutputStream;
+    private boolean gzip;
 
     /**
      * Constructor.
@@ -47,11 +56,22 @@ public class ServletOutputLazyStream extends OutputStream {
      * @param servletResponse The ServletResponse to wrap.
      */
     public ServletOutputLazyStream(ServletResponse servletResponse) {
+        this(servletResponse, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param servletResponse The ServletResponse to wrap.
+     * @param gzip True if the output is to be GZIP-compressed, i.e. the client accepts that.
+     */
+    public ServletOutputLazyStream(ServletResponse servletResponse, boolean gzip) {
 
         if (servletResponse == null) {
             throw new IllegalArgumentException("The given ServletResponse must not be null!");
         }
         this.servletResponse = servletResponse;
+        this.gzip = gzip;
     }
 
     /*
@@ -91,7 +111,12 @@ public class ServletOutputLazyStream extends OutputStream {
      */
     @Override
     public void close() throws IOException {
-        getServletOutputStream().close();
+        if (servletOutputStream == null) {
+            // Nothing has been written, so don't start compressing now, the response may be an error already.
+            servletResponse.getOutputStream().close();
+        } else {
+            servletOutputStream.close();
+        }
     }
 
     /*
@@ -105,15 +130,62 @@ public class ServletOutputLazyStream extends OutputStream {
     }
 
     /**
-     * A "lazy" getter for the wrapped ServletResponse's output stream.
+     * A "lazy" getter for the wrapped ServletResponse's output stream, compressing if so requested.
      *
      * @return
      * @throws IOException
      */
-    private ServletOutputStream getServletOutputStream() throws IOException {
+    private OutputStream getServletOutputStream() throws IOException {
         if (servletOutputStream == null) {
-            servletOutputStream = servletResponse.getOutputStream();
+            ServletOutputStream outputStream = servletResponse.getOutputStream();
+            if (gzip && servletResponse instanceof HttpServletResponse && !servletResponse.isCommitted()) {
+                ((HttpServletResponse) servletResponse).setHeader("Content-Encoding", "gzip");
+                // Sync flush, so that flushing sends out what has been compressed so far.
+                servletOutputStream = new GZIPOutputStream(outputStream, GZIP_BUFFER_SIZE, true);
+            } else {
+                servletOutputStream = outputStream;
+            }
         }
         return servletOutputStream;
     }
+
+    /**
+     * Returns true if the given Accept-Encoding header accepts GZIP, i.e. it lists "gzip" (or "x-gzip", or failing these, "*")
+     * with a quality value above zero. A coding with "q=0" is one that the client refuses.
+     *
+     * @param acceptEncoding The Accept-Encoding header, may be null.
+     * @return True if GZIP is accepted.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Boolean gzip = null;
+        Boolean any = null;
+        for (String coding : acceptEncoding.split(",")) {
+
+            String[] params = coding.split(";");
+            String name = params[0].trim().toLowerCase();
+            boolean accepted = true;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim().toLowerCase();
+                if (param.startsWith("q=")) {
+                    try {
+                        accepted = Double.parseDouble(param.substring(2).trim()) > 0;
+                    } catch (NumberFormatException e) {
+                        accepted = false;
+                    }
+                }
+            }
+
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = gzip == null ? accepted : gzip || accepted;
+            } else if (name.equals("*")) {
+                any = accepted;
+            }
+        }
+        return gzip != null ? gzip : any != null && any;
+    }
 }
@@ -13,6 +13,7 @@
             <div id="operations">
                 <ul>
                     <li><stripes:link href="/admin">Back to Admin</stripes:link></li>
+                    <li><stripes:link href="/admin/harveststats" event="json">As JSON</stripes:link></li>
                 </ul>
             </div>
             <h1>Last 100 Harvests</h1>
@@ -38,6 +39,30 @@
                         <c:otherwise>&#126;&nbsp;<fmt:formatNumber type="number" pattern="0.000" value="${item.durationStatementsRatio}"/></c:otherwise>
                     </c:choose>
                 </display:column>
+                <display:column title="Download&nbsp;ms">
+                    <c:if test="${not empty item.phases['DOWNLOAD']}"><fmt:formatNumber type="number" pattern="0" value="${item.phases['DOWNLOAD'].durationMillis}"/></c:if>
+                </display:column>
+                <display:column title="Detection&nbsp;ms">
+                    <c:if test="${not empty item.phases['DETECTION']}"><fmt:formatNumber type="number" pattern="0" value="${item.phases['DETECTION'].durationMillis}"/></c:if>
+                </display:column>
+                <display:column title="Conversion&nbsp;ms">
+                    <c:if test="${not empty item.phases['CONVERSION']}"><fmt:formatNumber type="number" pattern="0" value="${item.phases['CONVERSION'].durationMillis}"/></c:if>
+                </display:column>
+                <display:column title="Loading&nbsp;ms">
+                    <c:if test="${not empty item.phases['LOADING']}"><fmt:formatNumber type="number" pattern="0" value="${item.phases['LOADING'].durationMillis}"/></c:if>
+                </display:column>
+                <display:column title="Graph&nbsp;swap&nbsp;ms">
+                    <c:if test="${not empty item.phases['GRAPH_SWAP']}"><fmt:formatNumber type="number" pattern="0" value="${item.phases['GRAPH_SWAP'].durationMillis}"/></c:if>
+                </display:column>
+                <display:column title="Scripts&nbsp;ms">
+                    <c:if test="${not empty item.phases['SCRIPTS']}"><fmt:formatNumber type="number" pattern="0" value="${item.phases['SCRIPTS'].durationMillis}"/></c:if>
+                </display:column>
+                <display:column title="Inference&nbsp;ms">
+                    <c:if test="${not empty item.phases['INFERENCE']}"><fmt:formatNumber type="number" pattern="0" value="${item.phases['INFERENCE'].durationMillis}"/></c:if>
+                </display:column>
+                <display:column title="Loaded triples/s">
+                    <c:if test="${not empty item.phases['LOADING'].triplesPerSecond}">${item.phases['LOADING'].triplesPerSecond}</c:if>
+                </display:column>
             </display:table>
         </c:when>
         <c:otherwise>
@@ -165,8 +165,8 @@
         <c:if test="${empty actionBean.availableFiles}">
             <div class="system-msg">
                 No files found! Use operations menu to upload or download one.<br/>
-                Although staging databases can be created from Microsoft Access files only, the system allows you to upload<br/>
-                or download files of any type. If they are zipped, you will later get a possibility to unzip them.
+                Although staging databases can be created from Microsoft Access and CSV/TSV files only, the system allows<br/>
+                you to upload or download files of any type. If they are zipped, you will later get a possibility to unzip them.
             </div>
         </c:if>
 
@@ -68,6 +68,10 @@
             <display:setProperty name="paging.banner.items_name" value="datasets"/>
             <display:setProperty name="paging.banner.all_items_found" value='<div class="pagebanner">{0} {1} found.</div>'/>
             <display:setProperty name="paging.banner.onepage" value=""/>
+            <c:if test="${actionBean.datasets != null && actionBean.datasets.exactFullListSize == false}">
+                <display:setProperty name="paging.banner.all_items_found" value='<div class="pagebanner">About {0} {1} found.</div>'/>
+                <display:setProperty name="paging.banner.some_items_found" value='<span class="pagebanner">About {0} {1} found, displaying {2} to {3}.</span>'/>
+            </c:if>
 
             <c:forEach items="${actionBean.availColumns}" var="column" varStatus="columnsLoopStatus">
 
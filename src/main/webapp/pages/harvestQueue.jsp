@@ -28,18 +28,18 @@
             </div>
         </c:if>
 
-        <c:if test="${not empty actionBean.currentQueuedHarvest}">
+        <c:forEach items="${actionBean.currentQueuedHarvests}" var="currentHarvest">
             <div class="advise-msg" style="margin-bottom:10px">
                 <c:choose>
                     <c:when test="${fn:endsWith(currentHarvest['class'].name, 'PushHarvest')}">Currently push-harvesting:</c:when>
                     <c:otherwise>Currently pull-harvesting:</c:otherwise>
-                </c:choose><stripes:link href="/source.action" title="${actionBean.currentQueuedHarvest.contextUrl}">
-<c:out value="${crfn:cutAtFirstLongToken(actionBean.currentQueuedHarvest.contextUrl,55)}"/>
+                </c:choose><stripes:link href="/source.action" title="${currentHarvest.contextUrl}">
+<c:out value="${crfn:cutAtFirstLongToken(currentHarvest.contextUrl,55)}"/>
 <stripes:param name="view" value=""/>
-<stripes:param name="harvestSource.url" value="${actionBean.currentQueuedHarvest.contextUrl}"/>
+<stripes:param name="harvestSource.url" value="${currentHarvest.contextUrl}"/>
 </stripes:link>
             </div>
-        </c:if>
+        </c:forEach>
 
         <div id="tabbedmenu">
             <ul>
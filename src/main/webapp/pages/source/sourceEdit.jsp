@@ -100,6 +100,18 @@
                         <stripes:checkbox name="harvestSource.sparqlEndpoint" id="chkEndpoint"/>
                     </td>
                 </tr>
+                <tr>
+                    <td><label class="question" for="chkBulkLoad">Use bulk loader:</label></td>
+                    <td>
+                        <stripes:checkbox name="harvestSource.bulkLoad" id="chkBulkLoad"/>
+                    </td>
+                </tr>
+                <tr>
+                    <td><label class="question" for="chkIncrementalLoad">Load only changes:</label></td>
+                    <td>
+                        <stripes:checkbox name="harvestSource.incrementalLoad" id="chkIncrementalLoad"/>
+                    </td>
+                </tr>
                 <tr>
                     <td colspan="2">
                         <c:if test="${actionBean.userOwner}">
@@ -165,6 +165,20 @@
                     </td>
                 </tr>
 
+                <tr>
+                    <th scope="row">Uses bulk loader</th>
+                    <td>
+                        <c:out value="${actionBean.harvestSource.bulkLoad ? 'yes' : 'no'}"/>
+                    </td>
+                </tr>
+
+                <tr>
+                    <th scope="row">Loads only changes</th>
+                    <td>
+                        <c:out value="${actionBean.harvestSource.incrementalLoad ? 'yes' : 'no'}"/>
+                    </td>
+                </tr>
+
                 <tr>
                     <td colspan="2" style="font-size:0.8em;">
                         <c:if test="${actionBean.noOfPostHarvestScripts == 0}">
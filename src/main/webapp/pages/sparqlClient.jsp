@@ -412,6 +412,7 @@ while (l--) {
                             <stripes:option value="application/sparql-results+xml" label="XML" />
                             <stripes:option value="application/x-ms-access-export+xml" label="XML with Schema" />
                             <stripes:option value="application/csv" label="CSV" />
+                            <stripes:option value="application/x-binary-rdf-results-table" label="Binary (Sesame)" />
                         </stripes:select>
                     </div>
                     <div style="position: absolute; top: 5px; left: 250px;">
@@ -438,50 +439,54 @@ while (l--) {
                         </c:otherwise>
                     </c:choose>
                 </div>
+            </crfn:form>
 
-                <div style="clear:both">
-                    <c:if test="${not empty actionBean.query && empty param.bookmark && empty param.fillfrom}">
-                        <c:if test="${actionBean.result.allRowsReturned == 'false'}">
-                            <div class="important-msg">The query result exceeded maximum allowed row count. Displaying only first rows. Please run a more detailed query.</div>
-                        </c:if>
-                        <c:choose>
-                            <c:when test="${not empty actionBean.result && not empty actionBean.result.rows}">
-                                <br />
-                                <display:table name="${actionBean.result.rows}" class="datatable"
-                                    pagesize="${actionBean.nrOfHits}" sort="list" id="listItem"
-                                    htmlId="listItem" requestURI="/sparql"
-                                    decorator="eionet.cr.web.sparqlClient.helpers.SparqlClientColumnDecorator">
-                                    <c:forEach var="cl" items="${actionBean.result.cols}">
-                                        <display:column property="map(${cl.property})"
-                                            title="${cl.title}" sortable="${cl.sortable}" />
-                                    </c:forEach>
-                                </display:table>
-                                <br/>Done. -- ${actionBean.executionTime} ms.
-                            </c:when>
-                            <c:when test="${actionBean.askQuery == 'true'}">
-                                <br/><c:out value="${actionBean.resultAsk}"/>
-                            </c:when>
-                            <c:otherwise>
-                                <div class="system-msg">The query gave no results!</div>
-                            </c:otherwise>
-                        </c:choose>
+            <div style="clear:both">
+                <c:if test="${not empty actionBean.query && empty param.bookmark && empty param.fillfrom}">
+                    <c:if test="${actionBean.result.allRowsReturned == 'false'}">
+                        <div class="important-msg">The query result exceeded maximum allowed row count. Displaying only first rows. Please run a more detailed query.</div>
                     </c:if>
+                    <c:choose>
+                        <c:when test="${actionBean.streamHtml}">
+                            <br />
+                            <crfn:sparqlResult/>
+                        </c:when>
+                        <c:when test="${not empty actionBean.result && not empty actionBean.result.rows}">
+                            <br />
+                            <display:table name="${actionBean.result.rows}" class="datatable"
+                                pagesize="${actionBean.nrOfHits}" sort="list" id="listItem"
+                                htmlId="listItem" requestURI="/sparql"
+                                decorator="eionet.cr.web.sparqlClient.helpers.SparqlClientColumnDecorator">
+                                <c:forEach var="cl" items="${actionBean.result.cols}">
+                                    <display:column property="map(${cl.property})"
+                                        title="${cl.title}" sortable="${cl.sortable}" />
+                                </c:forEach>
+                            </display:table>
+                            <br/>Done. -- ${actionBean.executionTime} ms.
+                        </c:when>
+                        <c:when test="${actionBean.askQuery == 'true'}">
+                            <br/><c:out value="${actionBean.resultAsk}"/>
+                        </c:when>
+                        <c:otherwise>
+                            <div class="system-msg">The query gave no results!</div>
+                        </c:otherwise>
+                    </c:choose>
+                </c:if>
 
-                    <c:if test="${empty actionBean.result || empty actionBean.result.rows}">
-                        <br/>
-                        <div class="advice-msg">
-                            On this page you can execute various SPARQL queries against the backend that CR is running on.
-                            For a more convenient use, you can insert common namespace prefixs into your query by selecting
-                            "Useful namespaces" in the Operations menu and clicking the namespaces in the opening pop-up window.
-                            The Operations menu also provides a list of shared bookmarked queries which you can select to
-                            pre-fill your query.<br/><br/>
-                            The output format of the query depends on the one you select from the above select box. In order
-                            to make the query use inference rules, turn on the relevant checkbox. A link to common useful
-                            SPARQL functions is also available below the Operations menu.
-                        </div>
-                    </c:if>
-                </div>
-            </crfn:form>
+                <c:if test="${(empty actionBean.result || empty actionBean.result.rows) && !actionBean.streamHtml}">
+                    <br/>
+                    <div class="advice-msg">
+                        On this page you can execute various SPARQL queries against the backend that CR is running on.
+                        For a more convenient use, you can insert common namespace prefixs into your query by selecting
+                        "Useful namespaces" in the Operations menu and clicking the namespaces in the opening pop-up window.
+                        The Operations menu also provides a list of shared bookmarked queries which you can select to
+                        pre-fill your query.<br/><br/>
+                        The output format of the query depends on the one you select from the above select box. In order
+                        to make the query use inference rules, turn on the relevant checkbox. A link to common useful
+                        SPARQL functions is also available below the Operations menu.
+                    </div>
+                </c:if>
+            </div>
         </div>
 
             <c:if test="${actionBean.userLoggedIn}">
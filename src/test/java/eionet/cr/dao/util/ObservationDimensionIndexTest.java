@@ -0,0 +1,165 @@
+package eionet.cr.dao.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import eionet.cr.dao.DAOException;
+import eionet.cr.util.Pair;
+import eionet.cr.util.sesame.SPARQLResultCache;
+import eionet.cr.web.util.ObservationFilter;
+
+/**
+ * Tests for {@link ObservationDimensionIndex}.
+ *
+ * @author jaanus
+ */
+public class ObservationDimensionIndexTest extends TestCase {
+
+    /** */
+    private ObservationDimensionIndex index;
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        ObservationDimensionIndex.Builder builder = new ObservationDimensionIndex.Builder();
+        builder.addCombination(new String[] {"ds1", "ind1", "2010", "total", "pc", "EU"});
+        builder.addCombination(new String[] {"ds1", "ind1", "2011", "total", "pc", "EU"});
+        builder.addCombination(new String[] {"ds1", "ind2", "2011", "total", "pc", "LV"});
+        builder.addCombination(new String[] {"ds2", "ind3", "2012", "total", null, "EE"});
+        builder.setLabel("ind1", "B indicator");
+        builder.setLabel("ind2", "A indicator");
+        builder.addCompletedDataset("ds1");
+        index = builder.build(0L);
+    }
+
+    /**
+     * Values of the preceding selections are required, blank selections require any value.
+     */
+    public void testGetFilterValues() {
+
+        Map<ObservationFilter, String> selections = new LinkedHashMap<ObservationFilter, String>();
+        selections.put(ObservationFilter.DATASET, "ds1");
+        assertEquals("[ind2|A indicator, ind1|B indicator]",
+                toString(index.getFilterValues(selections, ObservationFilter.INDICATOR, false)));
+
+        selections.put(ObservationFilter.INDICATOR, "ind1");
+        assertEquals("[2010|2010, 2011|2011]", toString(index.getFilterValues(selections, ObservationFilter.TIME_PERIOD, false)));
+
+        selections.put(ObservationFilter.DATASET, "ds2");
+        selections.put(ObservationFilter.INDICATOR, "");
+        selections.put(ObservationFilter.TIME_PERIOD, "");
+        selections.put(ObservationFilter.BREAKDOWN, "");
+        assertEquals("[]", toString(index.getFilterValues(selections, ObservationFilter.UNIT_MEASURE, true)));
+        selections.put(ObservationFilter.UNIT_MEASURE, "");
+        assertEquals("[]", toString(index.getFilterValues(selections, ObservationFilter.REF_AREA, true)));
+
+        selections.put(ObservationFilter.DATASET, "unknown");
+        assertTrue(index.getFilterValues(selections, ObservationFilter.INDICATOR, true).isEmpty());
+    }
+
+    /**
+     * Non-admins see the datasets that are not completed only when a dataset is selected.
+     */
+    public void testCompletedDatasets() {
+
+        assertEquals("[ds1|ds1]", toString(index.getFilterValues(null, ObservationFilter.DATASET, false)));
+        assertEquals("[ds1|ds1, ds2|ds2]", toString(index.getFilterValues(null, ObservationFilter.DATASET, true)));
+
+        Map<ObservationFilter, String> selections = new LinkedHashMap<ObservationFilter, String>();
+        selections.put(ObservationFilter.DATASET, "");
+        assertEquals(2, index.getFilterValues(selections, ObservationFilter.INDICATOR, false).size());
+        selections.put(ObservationFilter.DATASET, "ds2");
+        assertEquals("[ind3|ind3]", toString(index.getFilterValues(selections, ObservationFilter.INDICATOR, false)));
+
+        // Without selections, observations of any dataset are matched.
+        assertEquals(3, index.getFilterValues(null, ObservationFilter.REF_AREA, false).size());
+    }
+
+    /**
+     * The index is outdated by changes of the graphs it was built from, and of other graphs that have index data.
+     */
+    public void testIsCurrent() {
+
+        ObservationDimensionIndex.Loader loader = new ObservationDimensionIndex.Loader() {
+            @Override
+            public ObservationDimensionIndex.Builder load(int limit) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public boolean hasData(Collection<String> graphUris) {
+                return graphUris.contains("http://example.org/indexTest/new");
+            }
+        };
+
+        ObservationDimensionIndex.Builder builder = new ObservationDimensionIndex.Builder();
+        builder.setGraphs(Arrays.asList("http://example.org/indexTest/data"));
+        index = builder.build(SPARQLResultCache.getStoreVersion());
+        assertTrue(index.isCurrent(SPARQLResultCache.getStoreVersion(), loader));
+
+        SPARQLResultCache.invalidate("http://example.org/indexTest/other");
+        assertTrue(index.isCurrent(SPARQLResultCache.getStoreVersion(), loader));
+        SPARQLResultCache.invalidate("http://example.org/indexTest/data");
+        assertFalse(index.isCurrent(SPARQLResultCache.getStoreVersion(), loader));
+
+        builder.setGraphs(Arrays.asList("http://example.org/indexTest/data"));
+        index = builder.build(SPARQLResultCache.getStoreVersion());
+        SPARQLResultCache.invalidate("http://example.org/indexTest/new");
+        assertFalse(index.isCurrent(SPARQLResultCache.getStoreVersion(), loader));
+    }
+
+    /**
+     * The index is not built of more combinations than the maximum, and the loader is asked for one more than that.
+     *
+     * @throws DAOException
+     */
+    public void testMaxRows() throws DAOException {
+
+        final List<Integer> limits = new ArrayList<Integer>();
+        ObservationDimensionIndex.Loader loader = new ObservationDimensionIndex.Loader() {
+            @Override
+            public ObservationDimensionIndex.Builder load(int limit) {
+
+                limits.add(Integer.valueOf(limit));
+                ObservationDimensionIndex.Builder builder = new ObservationDimensionIndex.Builder();
+                for (int i = 0; i < 3 && (limit == 0 || i < limit); i++) {
+                    builder.addCombination(new String[] {"ds" + i, "ind1", "2010", "total", "pc", "EU"});
+                }
+                return builder;
+            }
+
+            @Override
+            public boolean hasData(Collection<String> graphUris) {
+                return false;
+            }
+        };
+
+        assertNull(ObservationDimensionIndex.load(loader, 0L, 2));
+        assertNotNull(ObservationDimensionIndex.load(loader, 0L, 3));
+        assertNotNull(ObservationDimensionIndex.load(loader, 0L, 0));
+        assertEquals(Arrays.asList(3, 4, 0), limits);
+    }
+
+    /**
+     * @param pairs Values and labels.
+     * @return The pairs as "value|label".
+     */
+    private static String toString(List<Pair<String, String>> pairs) {
+
+        List<String> strings = new ArrayList<String>();
+        for (Pair<String, String> pair : pairs) {
+            strings.add(pair.getLeft() + "|" + pair.getRight());
+        }
+        return strings.toString();
+    }
+}
@@ -1,6 +1,7 @@
 package eionet.cr.dao.virtuoso.helpers;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -106,6 +107,24 @@ public class VirtuosoFilteredSearchHelperTest {
         assertEquals(expected, paramStr);
     }
 
+    @Test
+    public void testToFullTextExpression() {
+
+        assertEquals("\"clrtap\"", VirtuosoFilteredSearchHelper.toFullTextExpression("clrtap"));
+        assertEquals("\"air\" and \"emis*\"", VirtuosoFilteredSearchHelper.toFullTextExpression(" air  emis* "));
+        assertEquals("\"gross domestic product\" and \"growth\"",
+                VirtuosoFilteredSearchHelper.toFullTextExpression("\"gross  domestic product\" growth"));
+        assertEquals("\"share of EU\"", VirtuosoFilteredSearchHelper.toFullTextExpression("\"share of EU\""));
+
+        // Values that the free-text index cannot match.
+        assertNull(VirtuosoFilteredSearchHelper.toFullTextExpression("EU"));
+        assertNull(VirtuosoFilteredSearchHelper.toFullTextExpression("emi*"));
+        assertNull(VirtuosoFilteredSearchHelper.toFullTextExpression("EU-27"));
+        assertNull(VirtuosoFilteredSearchHelper.toFullTextExpression("\"unclosed phrase"));
+        assertNull(VirtuosoFilteredSearchHelper.toFullTextExpression("\"\""));
+        assertNull(VirtuosoFilteredSearchHelper.toFullTextExpression("The \"and\" for"));
+    }
+
     private void checkQuery(String query, Bindings bindings) {
         RepositoryConnection conn = null;
         try {
@@ -3,6 +3,7 @@ package eionet.cr.dao.virtuoso.helpers;
 import java.util.ArrayList;
 
 import junit.framework.TestCase;
+import eionet.cr.dao.readers.SubjectsPageReader;
 import eionet.cr.util.SortOrder;
 import eionet.cr.util.SortingRequest;
 import eionet.cr.util.pagination.PagingRequest;
@@ -82,4 +83,50 @@ public class VirtuosoReferencesSearchHelperTest extends TestCase {
                 + "<http://www.w3.org/2000/01/rdf-schema#label> || (isURI(?o) && ?o=?sourceUri))}} ORDER BY ?s";
         assertEquals(expected, query);
     }
+
+    public static void testGetSubjectsPage() {
+        PagingRequest pagingRequest = PagingRequest.create(1);
+        SortingRequest sortingRequest = new SortingRequest(null, SortOrder.parse(SortOrder.ASCENDING.toString()));
+        String subjectUri = "http://cr.eionet.europa.eu/ontologies/contreg.rdf#tag";
+        // create query helper
+        VirtuosoReferencesSearchHelper helper = new VirtuosoReferencesSearchHelper(subjectUri, pagingRequest, sortingRequest);
+
+        String query = helper.getSubjectsPageQuery(helper.getQuery(null));
+        String expected = "select ?s ?pageP bif:either(isLiteral(?pageObj), bif:substring(str(?pageObj), 1, 800), ?pageObj) "
+                + "as ?pageO ?pageG where {{select distinct ?s where {?s ?p ?o. filter(isURI(?o) && ?o=?subjectUri)} "
+                + "limit 15 offset 0} optional {graph ?pageG {?s ?pageP ?pageObj . "
+                + "filter(?pageP = <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> || "
+                + "<http://www.w3.org/2000/01/rdf-schema#label> || (isURI(?pageObj) && ?pageObj=?subjectUri))}}}";
+        assertEquals(expected, query);
+    }
+
+    public static void testGetOrderedSubjectsPage() {
+        PagingRequest pagingRequest = PagingRequest.create(1);
+        String sortPredicate = ReferringPredicatesColumn.class.getSimpleName();
+        SortingRequest sortingRequest = new SortingRequest(sortPredicate, SortOrder.parse(SortOrder.DESCENDING.toString()));
+        String subjectUri = "http://cr.eionet.europa.eu/ontologies/contreg.rdf#tag";
+        // create query helper
+        VirtuosoReferencesSearchHelper helper = new VirtuosoReferencesSearchHelper(subjectUri, pagingRequest, sortingRequest);
+
+        String query = helper.getSubjectsPageQuery(helper.getQuery(null));
+        String expected = "select ?s ?pageP bif:either(isLiteral(?pageObj), bif:substring(str(?pageObj), 1, 800), ?pageObj) "
+                + "as ?pageO ?pageG where {{select ?s (max((bif:lcase(?o))) as ?pageOrd) where {?s ?p ?o. "
+                + "filter(isURI(?o) && ?o=?subjectUri)} group by ?s order by desc(?pageOrd) limit 15 offset 0} "
+                + "optional {graph ?pageG {?s ?pageP ?pageObj . "
+                + "filter(?pageP = <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> || "
+                + "<http://www.w3.org/2000/01/rdf-schema#label> || (isURI(?pageObj) && ?pageObj=?subjectUri))}}} "
+                + "order by desc(?pageOrd) ?s";
+        assertEquals(expected, query);
+        assertTrue(SubjectsPageReader.isOrderKept(helper.getQuery(null)));
+    }
+
+    /**
+     * Finder queries whose ordering the page query would lose are recognized, so that they can take the two-query path.
+     */
+    public static void testOrderKept() {
+        assertTrue(SubjectsPageReader.isOrderKept("select distinct ?s where {?s ?p ?o} order by desc(?o) limit 15 offset 0"));
+        assertTrue(SubjectsPageReader.isOrderKept("select distinct ?s where {?s ?p ?o} limit 15"));
+        assertFalse(SubjectsPageReader.isOrderKept("select distinct ?s where {?s ?p ?o} order by ?o ?p limit 15"));
+        assertFalse(SubjectsPageReader.isOrderKept("select ?s where {?s ?p ?o} ORDER BY ?o limit 15"));
+    }
 }
@@ -16,7 +16,8 @@ public class VirtuosoSearchBySourceHelperTest extends TestCase {
         VirtuosoSearchBySourceHelper helper = new VirtuosoSearchBySourceHelper(sourceUrl, pagingRequest, sortingRequest);
 
         String sparql = helper.getQuery(null);
-        String expected = "select distinct ?s from ?sourceUrl where {?s ?p ?o filter(!isBlank(?s)) optional {?s ?sortPredicate ?ord} } "
+        String expected = "select distinct ?s where {graph ?sourceUrl {?s ?p ?o filter(!isBlank(?s)) "
+                + "optional {?s ?sortPredicate ?ord} }} "
                 + "ORDER BY asc(bif:lcase(bif:either(bif:isnull(?ord), (bif:subseq "
                 + "(bif:replace (?s, '/', '#'), bif:strrchr (bif:replace (?s, '/', '#'), '#')+1)), ?ord))) limit 15 offset 0";
         assertEquals(expected, sparql);
@@ -0,0 +1,84 @@
+package eionet.cr.harvest.load;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Tests for {@link DecompressingContentLoader#containsRdf(File)}.
+ *
+ * @author jaanus
+ */
+public class DecompressingContentLoaderTest extends TestCase {
+
+    /** */
+    private static final String TURTLE = "@prefix ex: <http://example.org/> .\nex:a ex:b ex:c .\n";
+
+    /**
+     * @throws IOException
+     */
+    public void testGzip() throws IOException {
+
+        File file = File.createTempFile("test", ".ttl.gz");
+        try {
+            OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(file));
+            try {
+                outputStream.write(TURTLE.getBytes("UTF-8"));
+            } finally {
+                IOUtils.closeQuietly(outputStream);
+            }
+            assertTrue(DecompressingContentLoader.containsRdf(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * @throws IOException
+     */
+    public void testZip() throws IOException {
+
+        File file = File.createTempFile("test", ".zip");
+        try {
+            ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(file));
+            try {
+                outputStream.putNextEntry(new ZipEntry("readme.txt"));
+                outputStream.write("Not RDF".getBytes("UTF-8"));
+                outputStream.putNextEntry(new ZipEntry("data.ttl"));
+                outputStream.write(TURTLE.getBytes("UTF-8"));
+            } finally {
+                IOUtils.closeQuietly(outputStream);
+            }
+            assertTrue(DecompressingContentLoader.containsRdf(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * @throws IOException
+     */
+    public void testUncompressed() throws IOException {
+
+        File file = File.createTempFile("test", ".ttl");
+        try {
+            OutputStream outputStream = new FileOutputStream(file);
+            try {
+                outputStream.write(TURTLE.getBytes("UTF-8"));
+            } finally {
+                IOUtils.closeQuietly(outputStream);
+            }
+            assertFalse(DecompressingContentLoader.containsRdf(file));
+        } finally {
+            file.delete();
+        }
+    }
+}
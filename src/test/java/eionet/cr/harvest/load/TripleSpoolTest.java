@@ -0,0 +1,103 @@
+package eionet.cr.harvest.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.Statement;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.XMLSchema;
+
+/**
+ * Tests for {@link TripleSpool}.
+ *
+ * @author jaanus
+ */
+public class TripleSpoolTest extends TestCase {
+
+    /** */
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+
+    /** */
+    private static final String NS = "http://example.org/";
+
+    /**
+     * Only the removed and added triples must be reported, duplicates and unchanged triples not.
+     *
+     * @throws IOException
+     * @throws OpenRDFException
+     */
+    public void testDiff() throws IOException, OpenRDFException {
+
+        TripleSpool existing = new TripleSpool();
+        TripleSpool incoming = new TripleSpool();
+        File sortedExisting = null;
+        File sortedIncoming = null;
+        try {
+            existing.add(statement("a", "1"));
+            existing.add(statement("b", "2"));
+            existing.add(statement("c", "3"));
+
+            incoming.add(statement("c", "3"));
+            incoming.add(statement("a", "1"));
+            incoming.add(statement("a", "1"));
+            incoming.add(statement("b", "22"));
+
+            sortedExisting = existing.sort();
+            sortedIncoming = incoming.sort();
+
+            final List<String> removed = new ArrayList<String>();
+            final List<String> added = new ArrayList<String>();
+            TripleSpool.diff(sortedExisting, sortedIncoming, new TripleSpool.DiffHandler() {
+                @Override
+                public void removed(String line) {
+                    removed.add(line);
+                }
+
+                @Override
+                public void added(String line) {
+                    added.add(line);
+                }
+            });
+
+            assertEquals(1, removed.size());
+            assertEquals(statement("b", "2"), TripleSpool.parseLine(removed.get(0), VF));
+            assertEquals(1, added.size());
+            assertEquals(statement("b", "22"), TripleSpool.parseLine(added.get(0), VF));
+        } finally {
+            existing.delete();
+            incoming.delete();
+            if (sortedExisting != null) {
+                sortedExisting.delete();
+            }
+            if (sortedIncoming != null) {
+                sortedIncoming.delete();
+            }
+        }
+    }
+
+    /**
+     * Typed xsd:string literals must be spooled the same way as plain ones.
+     */
+    public void testStringLiteralsAreCanonical() {
+
+        Statement plain = VF.createStatement(VF.createURI(NS + "s"), VF.createURI(NS + "p"), VF.createLiteral("x"));
+        Statement typed =
+                VF.createStatement(VF.createURI(NS + "s"), VF.createURI(NS + "p"), VF.createLiteral("x", XMLSchema.STRING));
+        assertEquals(TripleSpool.toLine(plain), TripleSpool.toLine(typed));
+    }
+
+    /**
+     * @param subject
+     * @param object
+     * @return
+     */
+    private static Statement statement(String subject, String object) {
+        return VF.createStatement(VF.createURI(NS + subject), VF.createURI(NS + "value"), VF.createLiteral(object));
+    }
+}
@@ -0,0 +1,177 @@
+package eionet.cr.harvest.scheduled;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import eionet.cr.dao.DAOException;
+import eionet.cr.dto.HarvestProfileDTO;
+import eionet.cr.dto.HarvestSourceDTO;
+
+/**
+ * Tests for {@link AdaptiveHarvestScheduler}.
+ *
+ * @author jaanus
+ */
+public class AdaptiveHarvestSchedulerTest extends TestCase {
+
+    /** */
+    private static final long NOW = 1000000000000L;
+
+    /** */
+    private static final int HOUR_MILLIS = 3600000;
+
+    /** */
+    private final Map<Integer, HarvestProfileDTO> profiles = new HashMap<Integer, HarvestProfileDTO>();
+
+    /**
+     * Sources are packed into the budget by their cost, the most urgent one going in even if it alone exceeds the budget.
+     */
+    public void testBudget() {
+
+        List<HarvestSourceDTO> candidates = Arrays.asList(
+                source(1, 60, 5, 0), source(2, 60, 4, 0), source(3, 60, 3, 0), source(4, 60, 2, 0));
+        profile(1, 10, 10, 500d);
+        profile(2, 10, 10, 600d);
+        profile(3, 10, 10, 100d);
+        profile(4, 10, 10, 50d);
+
+        List<HarvestSourceDTO> selected = new AdaptiveHarvestScheduler(700d, 0).select(candidates, profiles, NOW);
+        assertEquals(3, selected.size());
+        assertEquals(Integer.valueOf(1), selected.get(0).getSourceId());
+        assertEquals(Integer.valueOf(3), selected.get(1).getSourceId());
+        assertEquals(Integer.valueOf(4), selected.get(2).getSourceId());
+
+        selected = new AdaptiveHarvestScheduler(100d, 0).select(candidates, profiles, NOW);
+        assertEquals(1, selected.size());
+
+        selected = new AdaptiveHarvestScheduler(3000d, 2).select(candidates, profiles, NOW);
+        assertEquals(2, selected.size());
+    }
+
+    /**
+     * A source that never changes is backed off unless it is a priority source, and more volatile sources go sooner.
+     */
+    public void testChangeRate() {
+
+        HarvestSourceDTO stale = source(1, 60, 3, 0);
+        HarvestSourceDTO stalePriority = source(2, 60, 3, 0);
+        stalePriority.setPrioritySource(true);
+        HarvestSourceDTO steady = source(3, 60, 2, 0);
+        HarvestSourceDTO volatile1 = source(4, 60, 2, 0);
+        profile(1, 10, 0, 1d);
+        profile(2, 10, 0, 1d);
+        profile(3, 10, 5, 1d);
+        profile(4, 10, 10, 1d);
+
+        List<HarvestSourceDTO> selected = new AdaptiveHarvestScheduler(3000d, 0).select(
+                Arrays.asList(stale, stalePriority, steady, volatile1), profiles, NOW);
+        assertEquals(3, selected.size());
+        assertEquals(Integer.valueOf(4), selected.get(0).getSourceId());
+        assertEquals(Integer.valueOf(3), selected.get(1).getSourceId());
+        assertEquals(Integer.valueOf(2), selected.get(2).getSourceId());
+
+        assertEquals(1d, AdaptiveHarvestScheduler.getBackoff(0.9d), 0d);
+        assertEquals(AdaptiveHarvestScheduler.MAX_BACKOFF, AdaptiveHarvestScheduler.getBackoff(0d), 0d);
+    }
+
+    /**
+     * Sources that will not be harvested anyway are returned without taking any budget.
+     */
+    public void testUnavailable() {
+
+        HarvestSourceDTO unavailable = source(1, 60, 5, 5);
+        HarvestSourceDTO available = source(2, 60, 2, 0);
+        profile(1, 10, 10, 1000d);
+        profile(2, 10, 10, 100d);
+
+        List<HarvestSourceDTO> selected =
+                new AdaptiveHarvestScheduler(100d, 1).select(Arrays.asList(unavailable, available), profiles, NOW);
+        assertEquals(2, selected.size());
+        assertEquals(Integer.valueOf(1), selected.get(0).getSourceId());
+        assertEquals(Integer.valueOf(2), selected.get(1).getSourceId());
+    }
+
+    /**
+     * Backed-off stale sources that fill the first page of candidates do not push out a volatile due source behind them.
+     *
+     * @throws DAOException
+     */
+    public void testPaging() throws DAOException {
+
+        final int pageSize = 4;
+        final List<HarvestSourceDTO> candidates = new ArrayList<HarvestSourceDTO>();
+        for (int i = 1; i <= pageSize + 2; i++) {
+            candidates.add(source(i, 60, 5, 0));
+            profile(i, 10, 0, 1d);
+        }
+        candidates.add(source(100, 60, 2, 0));
+        profile(100, 10, 10, 1d);
+
+        final List<Integer> offsets = new ArrayList<Integer>();
+        AdaptiveHarvestScheduler.CandidatePages pages = new AdaptiveHarvestScheduler.CandidatePages() {
+
+            @Override
+            public List<HarvestSourceDTO> getCandidates(int offset, int limit) {
+                offsets.add(Integer.valueOf(offset));
+                return candidates.subList(Math.min(offset, candidates.size()), Math.min(offset + limit, candidates.size()));
+            }
+
+            @Override
+            public Map<Integer, HarvestProfileDTO> getProfiles(List<HarvestSourceDTO> page) {
+                return profiles;
+            }
+        };
+
+        List<HarvestSourceDTO> selected =
+                new AdaptiveHarvestScheduler(3000d, 0).select(candidates.subList(0, pageSize), profiles, NOW);
+        assertTrue(selected.isEmpty());
+
+        selected = new AdaptiveHarvestScheduler(3000d, 0).select(pages, pageSize, 10, NOW);
+        assertEquals(1, selected.size());
+        assertEquals(Integer.valueOf(100), selected.get(0).getSourceId());
+        assertEquals(Arrays.asList(0, pageSize), offsets);
+
+        offsets.clear();
+        selected = new AdaptiveHarvestScheduler(3000d, 0).select(pages, pageSize, 1, NOW);
+        assertTrue(selected.isEmpty());
+        assertEquals(1, offsets.size());
+    }
+
+    /**
+     * @param id source id
+     * @param intervalMinutes harvest interval
+     * @param hoursAgo hours since the last harvest
+     * @param countUnavail unavailability count
+     * @return the source
+     */
+    private static HarvestSourceDTO source(int id, int intervalMinutes, int hoursAgo, int countUnavail) {
+
+        HarvestSourceDTO source = new HarvestSourceDTO();
+        source.setSourceId(Integer.valueOf(id));
+        source.setIntervalMinutes(Integer.valueOf(intervalMinutes));
+        source.setLastHarvest(new Date(NOW - (long) hoursAgo * HOUR_MILLIS));
+        source.setCountUnavail(Integer.valueOf(countUnavail));
+        return source;
+    }
+
+    /**
+     * @param id source id
+     * @param harvests number of harvests
+     * @param changed number of harvests that found changed content
+     * @param seconds average harvest duration
+     */
+    private void profile(int id, int harvests, int changed, double seconds) {
+
+        HarvestProfileDTO profile = new HarvestProfileDTO();
+        profile.setSourceId(id);
+        profile.setHarvests(harvests);
+        profile.setChangedHarvests(changed);
+        profile.setAvgDurationSeconds(seconds);
+        profiles.put(Integer.valueOf(id), profile);
+    }
+}
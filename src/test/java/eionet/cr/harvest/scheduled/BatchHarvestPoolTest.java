@@ -0,0 +1,105 @@
+package eionet.cr.harvest.scheduled;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import eionet.cr.dto.HarvestSourceDTO;
+
+/**
+ * Tests for {@link BatchHarvestPool}.
+ *
+ * @author jaanus
+ */
+public class BatchHarvestPoolTest extends TestCase {
+
+    /**
+     * All sources must be harvested exactly once, and never more than the per-host cap from the same host at a time.
+     *
+     * @throws InterruptedException
+     */
+    public void testPerHostCap() throws InterruptedException {
+
+        List<HarvestSourceDTO> sources = new ArrayList<HarvestSourceDTO>();
+        for (int i = 0; i < 10; i++) {
+            sources.add(source("http://slow.example.com/file" + i + ".rdf"));
+            sources.add(source("http://fast.example.org/file" + i + ".rdf"));
+        }
+
+        final Map<String, Integer> active = new HashMap<String, Integer>();
+        final Map<String, Integer> maxActive = new HashMap<String, Integer>();
+        final List<String> harvested = Collections.synchronizedList(new ArrayList<String>());
+
+        new BatchHarvestPool(4, 2).execute(sources, new BatchHarvestPool.SourceHarvester() {
+            @Override
+            public void harvest(HarvestSourceDTO sourceDTO) {
+
+                String host = sourceDTO.getUrl().substring(0, sourceDTO.getUrl().indexOf('/', 7));
+                synchronized (active) {
+                    int count = active.containsKey(host) ? active.get(host) + 1 : 1;
+                    active.put(host, count);
+                    if (!maxActive.containsKey(host) || maxActive.get(host) < count) {
+                        maxActive.put(host, count);
+                    }
+                }
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                harvested.add(sourceDTO.getUrl());
+                synchronized (active) {
+                    active.put(host, active.get(host) - 1);
+                }
+            }
+        });
+
+        assertEquals(sources.size(), harvested.size());
+        assertEquals(sources.size(), new HashSet<String>(harvested).size());
+        assertTrue(maxActive.get("http://slow.example.com") <= 2);
+        assertTrue(maxActive.get("http://fast.example.org") <= 2);
+    }
+
+    /**
+     * With one thread the sources must be harvested in the calling thread, in the given order.
+     *
+     * @throws InterruptedException
+     */
+    public void testSingleThreadKeepsOrder() throws InterruptedException {
+
+        List<HarvestSourceDTO> sources = new ArrayList<HarvestSourceDTO>();
+        sources.add(source("http://a.example.com/1"));
+        sources.add(source("http://b.example.com/2"));
+        sources.add(source("http://a.example.com/3"));
+
+        final Thread caller = Thread.currentThread();
+        final List<String> harvested = new ArrayList<String>();
+        new BatchHarvestPool(1, 1).execute(sources, new BatchHarvestPool.SourceHarvester() {
+            @Override
+            public void harvest(HarvestSourceDTO sourceDTO) {
+                assertSame(caller, Thread.currentThread());
+                harvested.add(sourceDTO.getUrl());
+            }
+        });
+
+        assertEquals(3, harvested.size());
+        assertEquals("http://a.example.com/1", harvested.get(0));
+        assertEquals("http://b.example.com/2", harvested.get(1));
+        assertEquals("http://a.example.com/3", harvested.get(2));
+    }
+
+    /**
+     *
+     * @param url
+     * @return
+     */
+    private static HarvestSourceDTO source(String url) {
+        HarvestSourceDTO dto = new HarvestSourceDTO();
+        dto.setUrl(url);
+        return dto;
+    }
+}
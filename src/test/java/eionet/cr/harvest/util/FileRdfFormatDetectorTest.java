@@ -0,0 +1,73 @@
+package eionet.cr.harvest.util;
+
+import java.io.UnsupportedEncodingException;
+
+import junit.framework.TestCase;
+
+import org.openrdf.rio.RDFFormat;
+
+import eionet.cr.harvest.util.FileRdfFormatDetector.Sniff;
+
+/**
+ * Tests for the prefix sniffing of {@link FileRdfFormatDetector}.
+ *
+ * @author jaanus
+ */
+public class FileRdfFormatDetectorTest extends TestCase {
+
+    /**
+     * @throws UnsupportedEncodingException
+     */
+    public void testTurtle() throws UnsupportedEncodingException {
+
+        assertEquals(Sniff.TURTLE, sniff("@prefix ex: <http://example.org/> .\nex:a ex:b ex:c .\n"));
+        assertEquals(Sniff.TURTLE, sniff("# comment\n\n@base <http://example.org/> .\n<a> <b> <c> .\n"));
+        assertEquals(Sniff.UNKNOWN, sniff("@prefix : <#> .\n{ :a :b :c } => { :a :d :c } .\n"));
+    }
+
+    /**
+     * @throws UnsupportedEncodingException
+     */
+    public void testNTriples() throws UnsupportedEncodingException {
+
+        String nTriples =
+                "<http://example.org/s> <http://example.org/p> <http://example.org/o> .\n"
+                        + "_:b1 <http://example.org/p> \"x y\"@en .\n"
+                        + "<http://example.org/s> <http://example.org/p> \"1\"^^<http://www.w3.org/2001/XMLSchema#int> .\n";
+        assertEquals(Sniff.TURTLE, sniff(nTriples));
+        assertEquals(RDFFormat.TURTLE, sniff(nTriples).getRdfFormat());
+    }
+
+    /**
+     * @throws UnsupportedEncodingException
+     */
+    public void testXml() throws UnsupportedEncodingException {
+
+        assertEquals(Sniff.RDFXML, sniff("<?xml version=\"1.0\"?>\n<!-- comment -->\n"
+                + "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\"></rdf:RDF>"));
+        assertEquals(Sniff.XML, sniff("<?xml version=\"1.0\"?>\n<root><child/></root>"));
+    }
+
+    /**
+     * @throws UnsupportedEncodingException
+     */
+    public void testBinaryAndUnknown() throws UnsupportedEncodingException {
+
+        assertEquals(Sniff.BINARY, sniff("%PDF-1.4"));
+        assertEquals(Sniff.BINARY, FileRdfFormatDetector.sniff(new byte[] {0x1F, (byte) 0x8B, 0x08, 0x00}, 4, true));
+        assertEquals(Sniff.UNKNOWN, sniff("just some text"));
+        byte[] utf16 = "<?xml version=\"1.0\" encoding=\"UTF-16BE\"?>".getBytes("UTF-16BE");
+        assertEquals(Sniff.UNKNOWN, FileRdfFormatDetector.sniff(utf16, utf16.length, true));
+        assertEquals(Sniff.UNKNOWN, sniff(""));
+    }
+
+    /**
+     * @param content
+     * @return
+     * @throws UnsupportedEncodingException
+     */
+    private static Sniff sniff(String content) throws UnsupportedEncodingException {
+        byte[] bytes = content.getBytes("UTF-8");
+        return FileRdfFormatDetector.sniff(bytes, bytes.length, true);
+    }
+}
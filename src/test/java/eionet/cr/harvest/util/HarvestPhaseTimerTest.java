@@ -0,0 +1,39 @@
+package eionet.cr.harvest.util;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+import eionet.cr.dto.HarvestPhaseDTO;
+import eionet.cr.harvest.util.HarvestPhaseTimer.Phase;
+
+/**
+ * Tests for {@link HarvestPhaseTimer}.
+ *
+ * @author jaanus
+ */
+public class HarvestPhaseTimerTest extends TestCase {
+
+    /**
+     * Repeated phases must be summed up, and phases returned in the order they happen.
+     */
+    public void testRecord() {
+
+        HarvestPhaseTimer timer = new HarvestPhaseTimer();
+        timer.record(Phase.LOADING, 2000000L, 100L, 10);
+        timer.record(Phase.DOWNLOAD, 1000000L, 100L, 0);
+        timer.record(Phase.LOADING, 3000000L, 200L, 20);
+
+        List<HarvestPhaseDTO> phases = timer.getPhases(7);
+        assertEquals(2, phases.size());
+        assertEquals(Phase.DOWNLOAD.name(), phases.get(0).getPhase());
+
+        HarvestPhaseDTO loading = phases.get(1);
+        assertEquals(7, loading.getHarvestId());
+        assertEquals(5000L, loading.getDurationMicros());
+        assertEquals(300L, loading.getBytes());
+        assertEquals(30, loading.getTriples());
+        assertEquals(Long.valueOf(6000L), loading.getTriplesPerSecond());
+        assertEquals(5000L, timer.getDurationMicros(Phase.LOADING));
+        assertEquals(0L, timer.getDurationMicros(Phase.SCRIPTS));
+    }
+}
@@ -0,0 +1,97 @@
+package eionet.cr.harvest.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ScriptFootprint}.
+ *
+ * @author jaanus
+ */
+public class ScriptFootprintTest extends TestCase {
+
+    /** */
+    private static final String PROLOGUE = "PREFIX ex: <http://example.org/> ";
+
+    /**
+     * Scripts writing and reading different predicates are independent, ones reading each other's output are not.
+     */
+    public void testIndependence() {
+
+        ScriptFootprint labels =
+                ScriptFootprint.analyse(PROLOGUE + "INSERT INTO <http://source> {?s ex:label ?o} WHERE {?s ex:name ?o}");
+        ScriptFootprint titles =
+                ScriptFootprint.analyse(PROLOGUE + "INSERT INTO <http://source> {?s ex:title ?o} WHERE {?s ex:heading ?o}");
+        ScriptFootprint fromLabels =
+                ScriptFootprint.analyse("INSERT INTO <http://source> {?s <http://example.org/caption> ?o} "
+                        + "WHERE {?s <http://example.org/label> ?o}");
+
+        assertTrue(labels.isIndependentOf(titles));
+        assertTrue(titles.isIndependentOf(labels));
+        assertFalse(labels.isIndependentOf(fromLabels));
+        assertFalse(fromLabels.isIndependentOf(labels));
+    }
+
+    /**
+     * Triple patterns of groups inside parentheses, like FILTER (NOT EXISTS {...}), are reads too.
+     */
+    public void testExists() {
+
+        ScriptFootprint labels =
+                ScriptFootprint.analyse(PROLOGUE + "INSERT INTO <http://source> {?s ex:label ?o} WHERE {?s ex:name ?o}");
+        ScriptFootprint unlabeled =
+                ScriptFootprint.analyse(PROLOGUE + "INSERT INTO <http://source> {?s ex:flag 1} WHERE {?s ex:name ?o . "
+                        + "FILTER (NOT EXISTS {?s ex:label ?x}) }");
+
+        assertFalse(unlabeled.touchesEverything());
+        assertFalse(labels.isIndependentOf(unlabeled));
+        assertFalse(unlabeled.isIndependentOf(labels));
+    }
+
+    /**
+     * Scripts touching the same type depend on each other, a variable type touches every type.
+     */
+    public void testTypes() {
+
+        ScriptFootprint typeA = ScriptFootprint.analyse(PROLOGUE + "INSERT INTO <http://source> {?s a ex:A} WHERE {?s ex:p ?o}");
+        ScriptFootprint readsA = ScriptFootprint.analyse(PROLOGUE + "INSERT INTO <http://source> {?s ex:q 1} WHERE {?s a ex:A}");
+        ScriptFootprint readsB = ScriptFootprint.analyse(PROLOGUE + "INSERT INTO <http://source> {?s ex:r 1} WHERE {?s a ex:B}");
+        ScriptFootprint readsAny =
+                ScriptFootprint.analyse(PROLOGUE + "INSERT INTO <http://source> {?s ex:t ?type} WHERE {?s a ?type}");
+
+        assertFalse(typeA.isIndependentOf(readsA));
+        assertTrue(typeA.isIndependentOf(readsB));
+        assertFalse(typeA.isIndependentOf(readsAny));
+    }
+
+    /**
+     * Insert-only scripts that read none of their own output are not self-feeding, the others are.
+     */
+    public void testSelfFeeding() {
+
+        assertFalse(ScriptFootprint.analyse(PROLOGUE + "INSERT INTO <http://source> {?s ex:label ?o} WHERE {?s ex:name ?o}")
+                .isSelfFeeding());
+        assertTrue(ScriptFootprint.analyse(
+                PROLOGUE + "INSERT INTO <http://source> {?s ex:broader ?z} WHERE {?s ex:broader ?y . ?y ex:broader ?z}")
+                .isSelfFeeding());
+        assertTrue(ScriptFootprint.analyse(
+                PROLOGUE + "DELETE FROM <http://source> {?s ex:label ?o} WHERE {?s ex:label ?o . FILTER (?o = '')}")
+                .isSelfFeeding());
+    }
+
+    /**
+     * Anything that cannot be analysed reliably must be considered touching everything.
+     */
+    public void testTouchesEverything() {
+
+        assertTrue(ScriptFootprint.analyse("INSERT INTO <http://source> {?s ?p ?o} WHERE {?s ?p ?o}").touchesEverything());
+        assertTrue(ScriptFootprint.analyse(PROLOGUE + "INSERT INTO <http://source> {?s ex:a ?o} WHERE {?s ex:b/ex:c ?o}")
+                .touchesEverything());
+        assertTrue(ScriptFootprint.analyse("CLEAR GRAPH <http://source>").touchesEverything());
+        assertTrue(ScriptFootprint.analyse(
+                PROLOGUE + "INSERT DATA {ex:a ex:b ex:c} ; INSERT INTO <http://source> {?s ex:d ?o} WHERE {?s ex:e ?o}")
+                .touchesEverything());
+        assertFalse(ScriptFootprint.analyse(
+                PROLOGUE + "INSERT INTO <http://source> {?s ex:label ?o} WHERE {?s ex:name ?o ; ex:kind 'x#y' . # comment\n}")
+                .touchesEverything());
+    }
+}
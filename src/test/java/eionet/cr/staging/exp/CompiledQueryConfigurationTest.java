@@ -0,0 +1,111 @@
+package eionet.cr.staging.exp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.openrdf.model.Literal;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.model.vocabulary.XMLSchema;
+
+import eionet.cr.common.Predicates;
+import eionet.cr.staging.exp.CompiledQueryConfiguration.Block;
+import eionet.cr.staging.exp.CompiledQueryConfiguration.Template;
+import eionet.cr.staging.util.ConceptIndex;
+import eionet.cr.staging.util.ConceptIndex.Kind;
+
+/**
+ * Tests for {@link CompiledQueryConfiguration}.
+ *
+ * @author jaanus
+ */
+public class CompiledQueryConfigurationTest extends TestCase {
+
+    /** */
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+
+    /** */
+    private static final String NS = "http://example.org/";
+
+    /**
+     * Known placeholders are filled, unknown ones and ones without value stay as they are.
+     */
+    public void testTemplate() {
+
+        Template template = new Template("a<x>b<y>c<z>d", Arrays.asList("x", "y"));
+        assertEquals("a1b<y>c<z>d", template.expand(new String[] {"1", null}));
+        assertEquals("<1>", new Template("<<x>>", Arrays.asList("x")).expand(new String[] {"1"}));
+        assertEquals("no placeholders", new Template("no placeholders", Arrays.asList("x")).expand(new String[] {"1"}));
+    }
+
+    /**
+     * Rows are converted like the export used to do it: blank codes get their defaults, unmapped placeholders stay in the
+     * subject, and values that are not existing concepts are reported.
+     */
+    public void testConvert() {
+
+        QueryConfiguration queryConf = new QueryConfiguration();
+        queryConf.setObjectUriTemplate(NS + "data/<dataset>/<indicator>/<breakdown>/<unit>/<refArea>/<timePeriod>");
+        queryConf.putColumnMapping("ind", createProperty(Predicates.DAS_INDICATOR, ExportRunner.INDICATOR, NS + "ind/<value>"));
+        queryConf.putColumnMapping("unit", createProperty(NS + "unit", "unit", NS + "unit/<value>"));
+        queryConf.putColumnMapping("time", createProperty(Predicates.DAS_TIMEPERIOD, "timePeriod", NS + "year/<value>"));
+        ObjectProperty valueProperty = new ObjectProperty(NS + "value", "value", "Value", ObjectProperty.Range.LITERAL);
+        valueProperty.setDataType(XMLSchema.DOUBLE.stringValue());
+        valueProperty.setPredicateURI(VF);
+        queryConf.putColumnMapping("val", valueProperty);
+
+        URI graphURI = VF.createURI(NS + "graph");
+        CompiledQueryConfiguration compiledConf = new CompiledQueryConfiguration(queryConf, "ds1", graphURI, VF);
+        compiledConf.addFixedValue(RDF.TYPE, VF.createURI(NS + "Observation"));
+        ConceptIndex.Builder concepts = new ConceptIndex.Builder();
+        concepts.add(Kind.INDICATOR, NS + "codelist", NS + "ind/i1");
+        compiledConf.setConcepts(concepts.build(null));
+        compiledConf.setConceptKind(ExportRunner.INDICATOR, Kind.INDICATOR);
+        assertTrue(compiledConf.isIndicatorMapped());
+
+        List<String[]> rows = new ArrayList<String[]>();
+        rows.add(new String[] {"i1", "pc", "2010", "1.5"});
+        rows.add(new String[] {" ", "pc", null, "2"});
+        Block block = compiledConf.convert(rows);
+
+        assertEquals(2, block.getRowCount());
+        assertEquals(2, block.getSubjectCount());
+        assertEquals(9, block.getStatements().size());
+
+        Statement first = block.getStatements().get(0);
+        assertEquals(NS + "data/ds1/i1/total/pc/<refArea>/2010", first.getSubject().stringValue());
+        assertEquals(RDF.TYPE, first.getPredicate());
+        assertEquals(graphURI, first.getContext());
+        assertEquals(NS + "ind/i1", block.getStatements().get(1).getObject().stringValue());
+        assertEquals(XMLSchema.DOUBLE, ((Literal) block.getStatements().get(4).getObject()).getDatatype());
+
+        Statement second = block.getStatements().get(5);
+        assertEquals(NS + "data/ds1/*/total/pc/<refArea>/<timePeriod>", second.getSubject().stringValue());
+        assertEquals(NS + "ind/*", block.getStatements().get(6).getObject().stringValue());
+
+        assertEquals(Collections.singleton(NS + "year/2010"), block.getTimePeriods());
+        assertEquals(Collections.singleton("*"), block.getMissingConcepts(ExportRunner.INDICATOR));
+        assertTrue(block.getMissingConcepts(ExportRunner.BREAKDOWN).isEmpty());
+    }
+
+    /**
+     * @param predicate Predicate of the property.
+     * @param id Id of the property.
+     * @param valueTemplate Value template of the property.
+     * @return A resource property with its predicate URI set.
+     */
+    private static ObjectProperty createProperty(String predicate, String id, String valueTemplate) {
+
+        ObjectProperty property = new ObjectProperty(predicate, id, id, ObjectProperty.Range.RESOURCE);
+        property.setValueTemplate(valueTemplate);
+        property.setPredicateURI(VF);
+        return property;
+    }
+}
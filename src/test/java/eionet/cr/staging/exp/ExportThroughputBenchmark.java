@@ -0,0 +1,189 @@
+package eionet.cr.staging.exp;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.openrdf.repository.RepositoryConnection;
+
+import eionet.cr.config.GeneralConfig;
+import eionet.cr.dao.DAOFactory;
+import eionet.cr.dao.StagingDatabaseDAO;
+import eionet.cr.dto.StagingDatabaseDTO;
+import eionet.cr.staging.util.VirtuosoUtil;
+import eionet.cr.util.sesame.SesameUtil;
+import eionet.cr.util.sql.SQLUtil;
+
+/**
+ * Measures the throughput of {@link ExportRunner} on a synthetic staging table of data cube observations, once with
+ * {@link GeneralConfig#STAGING_EXPORT_THREADS} set to 1 and once with the given number of threads.
+ * <p>
+ * Not a unit test, it needs the Virtuoso and the configuration of a development instance, and it adds and deletes a staging
+ * database and a graph there. Run it with the test classpath:
+ *
+ * <pre>
+ * java eionet.cr.staging.exp.ExportThroughputBenchmark [rows [threads]]
+ * </pre>
+ *
+ * The defaults are 5000000 rows and as many threads as there are processors.
+ *
+ * @author jaanus
+ */
+public class ExportThroughputBenchmark {
+
+    /** */
+    private static final String TABLE_NAME = "OBSERVATIONS";
+
+    /** Columns of the synthetic table, named so that they map to the default properties of the observation type. */
+    private static final List<String> COLUMN_NAMES = Arrays.asList("indicator", "breakdown", "unit", "refArea", "year", "value");
+
+    /** */
+    private static final List<String> COLUMN_TYPES = Arrays.asList("VARCHAR", "VARCHAR", "VARCHAR", "VARCHAR", "VARCHAR",
+            "DOUBLE PRECISION");
+
+    /** */
+    private static final String OBSERVATION_TYPE_URI = "http://purl.org/linked-data/cube#Observation";
+
+    /** */
+    private static final String DATASET_URI = "http://semantic.digital-agenda-data.eu/dataset/export-benchmark";
+
+    /** */
+    private static final String USER_NAME = "benchmark";
+
+    /** Number of rows inserted at a time. */
+    private static final int INSERT_BATCH_SIZE = 10000;
+
+    /**
+     * Disable utility class constructor.
+     */
+    private ExportThroughputBenchmark() {
+        // Empty constructor.
+    }
+
+    /**
+     * Creates the synthetic table, exports it with 1 and with the given number of threads, and prints the rows per second of
+     * both exports.
+     *
+     * @param args Number of rows and number of threads, optional.
+     * @throws Exception If the table or the exports fail.
+     */
+    public static void main(String[] args) throws Exception {
+
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        StagingDatabaseDAO dao = DAOFactory.get().getDao(StagingDatabaseDAO.class);
+        StagingDatabaseDTO dbDTO = new StagingDatabaseDTO();
+        dbDTO.setName("export_benchmark_" + System.currentTimeMillis());
+        dbDTO.setDescription("Synthetic observations for measuring the RDF export");
+        dao.createDatabase(dbDTO.getName());
+        dbDTO.setId(dao.createRecord(dbDTO, USER_NAME));
+        try {
+            String query = createTable(dbDTO.getName(), rows);
+            double singleRate = export(dbDTO, query, 1, rows);
+            double multiRate = export(dbDTO, query, threads, rows);
+            System.out.println(String.format("1 thread: %.0f rows/s, %d threads: %.0f rows/s, speedup %.2f", singleRate, threads,
+                    multiRate, multiRate / singleRate));
+        } finally {
+            dao.delete(Collections.singletonList(dbDTO.getName()));
+            clearGraph();
+        }
+    }
+
+    /**
+     * Creates the synthetic table in the given staging database, and fills it with the given number of rows.
+     *
+     * @param dbName Name of the staging database.
+     * @param rows Number of rows.
+     * @return The query that selects all rows of the table.
+     * @throws SQLException If creating or filling the table fails.
+     */
+    private static String createTable(String dbName, int rows) throws SQLException {
+
+        long started = System.currentTimeMillis();
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = SesameUtil.getSQLConnection();
+            conn.setAutoCommit(false);
+            String dbUser = conn.getMetaData().getUserName();
+            SQLUtil.executeUpdate(VirtuosoUtil.createTableStatement(TABLE_NAME, COLUMN_NAMES, COLUMN_TYPES, dbName, dbUser), conn);
+
+            pstmt = conn.prepareStatement(VirtuosoUtil.parameterizedInsertStatement(TABLE_NAME, COLUMN_NAMES, dbName, dbUser));
+            for (int i = 0; i < rows; i++) {
+                pstmt.setString(1, "ind" + (i % 500));
+                pstmt.setString(2, "brk" + (i / 500 % 100));
+                pstmt.setString(3, "pc_" + (i % 7));
+                pstmt.setString(4, "C" + (i / 50000 % 30));
+                pstmt.setString(5, String.valueOf(1990 + i / 1500000));
+                pstmt.setDouble(6, i * 0.01);
+                pstmt.addBatch();
+                if ((i + 1) % INSERT_BATCH_SIZE == 0 || i + 1 == rows) {
+                    pstmt.executeBatch();
+                    conn.commit();
+                }
+            }
+
+            long millis = System.currentTimeMillis() - started;
+            System.out.println(String.format("Created %d rows in %d sec", rows, millis / 1000L));
+            return "SELECT * FROM " + dbName + "." + dbUser + "." + TABLE_NAME;
+        } finally {
+            SQLUtil.close(pstmt);
+            SQLUtil.close(conn);
+        }
+    }
+
+    /**
+     * Exports the given query with the given number of threads, clearing the exported graph first.
+     *
+     * @param dbDTO The staging database.
+     * @param query The export query.
+     * @param threads Number of threads.
+     * @param rows Number of rows the query returns.
+     * @return The exported rows per second.
+     * @throws Exception If the export fails.
+     */
+    private static double export(StagingDatabaseDTO dbDTO, String query, int threads, int rows) throws Exception {
+
+        ObjectType objectType = ObjectTypes.getByUri(OBSERVATION_TYPE_URI);
+        QueryConfiguration queryConf = new QueryConfiguration();
+        queryConf.setQuery(query);
+        queryConf.setObjectTypeUri(OBSERVATION_TYPE_URI);
+        queryConf.setObjectUriTemplate(objectType.getObjectUriTemplate());
+        queryConf.setDatasetUri(DATASET_URI);
+        queryConf.setClearDataset(true);
+        for (String columnName : COLUMN_NAMES) {
+            queryConf.putColumnMapping(columnName, objectType.getDefaultProperty(columnName));
+        }
+
+        GeneralConfig.getProperties().setProperty(GeneralConfig.STAGING_EXPORT_THREADS, String.valueOf(threads));
+        long started = System.currentTimeMillis();
+        ExportRunner exportRunner = ExportRunner.start(dbDTO, "benchmark_" + threads + "_threads", USER_NAME, queryConf);
+        exportRunner.join();
+        long millis = Math.max(1L, System.currentTimeMillis() - started);
+
+        double rate = rows * 1000d / millis;
+        System.out.println(String.format("%d thread(s): %d triples in %d ms, %.0f rows/s", threads,
+                exportRunner.getTripleCount(), millis, rate));
+        return rate;
+    }
+
+    /**
+     * Removes the triples that the exports added.
+     *
+     * @throws Exception If clearing the graph fails.
+     */
+    private static void clearGraph() throws Exception {
+
+        RepositoryConnection repoConn = null;
+        try {
+            repoConn = SesameUtil.getRepositoryConnection();
+            repoConn.clear(repoConn.getValueFactory().createURI(DATASET_URI.replace("/dataset/", "/data/")));
+        } finally {
+            SesameUtil.close(repoConn);
+        }
+    }
+}
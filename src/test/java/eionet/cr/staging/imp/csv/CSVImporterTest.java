@@ -0,0 +1,159 @@
+package eionet.cr.staging.imp.csv;
+
+import java.io.File;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.Logger;
+
+import eionet.cr.config.GeneralConfig;
+import eionet.cr.staging.imp.ImportException;
+import eionet.cr.test.helpers.RecordingConnection;
+
+/**
+ * Tests for {@link CSVImporter} and {@link ColumnType}.
+ *
+ * @author jaanus
+ */
+public class CSVImporterTest extends TestCase {
+
+    /**
+     * The separator occurring most often outside quotes wins, comma is the default.
+     */
+    public void testDetectSeparator() {
+
+        assertEquals(',', CSVImporter.detectSeparator("a,b,c"));
+        assertEquals('\t', CSVImporter.detectSeparator("a\tb,c\td"));
+        assertEquals(';', CSVImporter.detectSeparator("\"a,b,c\";d;e"));
+        assertEquals(',', CSVImporter.detectSeparator("a"));
+        assertEquals(',', CSVImporter.detectSeparator(null));
+    }
+
+    /**
+     * Blank column names are generated, and names that would be equal in the database get suffixes.
+     */
+    public void testColumnNames() {
+
+        List<String> names = CSVImporter.columnNames(new String[] {"\uFEFFtime", " ", "Ref area", "ref_area", "time"});
+        assertEquals(Arrays.asList("time", "column_2", "Ref area", "ref_area_2", "time_2"), names);
+    }
+
+    /**
+     * Columns get the narrowest type that fits all their non-blank values.
+     */
+    public void testInferTypes() {
+
+        List<String[]> records =
+                Arrays.asList(new String[] {"1", "1", "1", "007", "x", ""}, new String[] {"-2", "3000000000", "1.5E3", "1", "2"},
+                        new String[] {"", "", "", "", "", " "});
+        List<ColumnType> types = CSVImporter.inferTypes(6, records);
+        assertEquals(Arrays.asList(ColumnType.INTEGER, ColumnType.BIGINT, ColumnType.DOUBLE, ColumnType.VARCHAR,
+                ColumnType.VARCHAR, ColumnType.VARCHAR), types);
+
+        assertEquals(ColumnType.VARCHAR, ColumnType.of("99999999999999999999"));
+        assertEquals(ColumnType.DOUBLE, ColumnType.of(".5"));
+        assertEquals(ColumnType.VARCHAR, ColumnType.of("1,5"));
+        assertEquals(ColumnType.VARCHAR, ColumnType.of("NaN"));
+    }
+
+    /**
+     * Values fit the type of their own and the wider types, which columns are widened to when a value does not fit.
+     */
+    public void testAccepts() {
+
+        assertTrue(ColumnType.INTEGER.accepts("12"));
+        assertTrue(ColumnType.DOUBLE.accepts("12"));
+        assertFalse(ColumnType.INTEGER.accepts("3000000000"));
+        assertEquals(ColumnType.BIGINT, ColumnType.of("3000000000").widen(ColumnType.INTEGER));
+        assertFalse(ColumnType.BIGINT.accepts("007"));
+        assertEquals(ColumnType.VARCHAR, ColumnType.of("007").widen(ColumnType.BIGINT));
+        assertTrue(ColumnType.VARCHAR.accepts("x"));
+    }
+
+    /**
+     * Only files with the extensions of CSV and TSV files are imported as such.
+     */
+    public void testIsCSVFile() {
+
+        assertTrue(CSVImporter.isCSVFile(new File("data.CSV")));
+        assertTrue(CSVImporter.isCSVFile(new File("data.tab")));
+        assertFalse(CSVImporter.isCSVFile(new File("readme.txt")));
+    }
+
+    /**
+     * Values are converted to their columns' types, and values that do not fit fail the conversion.
+     *
+     * @throws ImportException if the test fails
+     */
+    public void testToValues() throws ImportException {
+
+        List<String> names = Arrays.asList("a", "b", "c");
+        List<ColumnType> types = Arrays.asList(ColumnType.INTEGER, ColumnType.DOUBLE, ColumnType.VARCHAR);
+
+        Object[] values = CSVImporter.toValues(new String[] {" 12", "2", "x", ""}, 1, names, types);
+        assertEquals(Arrays.asList((Object) Integer.valueOf(12), Double.valueOf(2), "x"), Arrays.asList(values));
+        assertEquals(Arrays.asList(null, null, null), Arrays.asList(CSVImporter.toValues(new String[] {""}, 2, names, types)));
+
+        try {
+            CSVImporter.toValues(new String[] {"007", "", ""}, 3, names, types);
+            fail("Expected an ImportException for a value with leading zeros in an integer column");
+        } catch (ImportException e) {
+            assertTrue(e.getMessage().contains("record #3"));
+        }
+        try {
+            CSVImporter.toValues(new String[] {"1", "", "", "extra"}, 4, names, types);
+            fail("Expected an ImportException for a record with more values than columns");
+        } catch (ImportException e) {
+            assertTrue(e.getMessage().contains("Record #4"));
+        }
+    }
+
+    /**
+     * A value that does not fit its column's type makes the rows before it inserted, and the column widened, over the bulk load
+     * connection that the table was created with.
+     *
+     * @throws ImportException if the test fails
+     */
+    public void testWiden() throws ImportException {
+
+        final List<String> calls = new ArrayList<String>();
+        CSVImporter importer = new CSVImporter(Logger.getLogger(CSVImporterTest.class)) {
+            @Override
+            Connection openConnection() {
+                return RecordingConnection.create(calls);
+            }
+        };
+
+        String threadsBefore = GeneralConfig.getProperties().getProperty(GeneralConfig.STAGING_IMPORT_THREADS);
+        GeneralConfig.getProperties().setProperty(GeneralConfig.STAGING_IMPORT_THREADS, "1");
+        try {
+            List<String> names = Arrays.asList("code", "value");
+            List<ColumnType> types = Arrays.asList(ColumnType.INTEGER, ColumnType.DOUBLE);
+            CSVImporter.BatchInserter inserter = importer.new BatchInserter("test_db", "data", names, types);
+            inserter.add(new String[] {"1", "1.5"}, 1);
+            inserter.add(new String[] {"2", "2"}, 2);
+            inserter.add(new String[] {"x", "3"}, 3);
+            inserter.finish();
+            inserter.close();
+        } finally {
+            if (threadsBefore == null) {
+                GeneralConfig.getProperties().remove(GeneralConfig.STAGING_IMPORT_THREADS);
+            } else {
+                GeneralConfig.getProperties().setProperty(GeneralConfig.STAGING_IMPORT_THREADS, threadsBefore);
+            }
+        }
+
+        assertEquals(7, calls.size());
+        assertEquals("log_enable(2, 1)", calls.get(0));
+        assertTrue(calls.get(1).startsWith("CREATE TABLE test_db.dba.data"));
+        assertEquals("executeBatch", calls.get(2));
+        assertEquals("ALTER TABLE test_db.dba.data MODIFY COLUMN \"code\" VARCHAR", calls.get(3));
+        assertEquals("executeBatch", calls.get(4));
+        assertEquals("log_enable(1, 1)", calls.get(5));
+        assertEquals("close", calls.get(6));
+    }
+}
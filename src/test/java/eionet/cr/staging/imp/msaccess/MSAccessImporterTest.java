@@ -0,0 +1,254 @@
+package eionet.cr.staging.imp.msaccess;
+
+import java.io.File;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.Logger;
+
+import com.healthmarketscience.jackcess.ColumnBuilder;
+import com.healthmarketscience.jackcess.DataType;
+import com.healthmarketscience.jackcess.Database;
+import com.healthmarketscience.jackcess.Table;
+import com.healthmarketscience.jackcess.TableBuilder;
+
+import eionet.cr.config.GeneralConfig;
+import eionet.cr.staging.imp.ImportException;
+import eionet.cr.test.helpers.RecordingConnection;
+
+/**
+ * Tests for {@link MSAccessImporter} and {@link VirtuosoHandler}.
+ *
+ * @author jaanus
+ */
+public class MSAccessImporterTest extends TestCase {
+
+    /** */
+    private static final Logger LOGGER = Logger.getLogger(MSAccessImporterTest.class);
+
+    /** */
+    private static final String[] TABLE_NAMES = {"indicators", "units", "observations"};
+
+    /** */
+    private static final int ROWS_PER_TABLE = 50;
+
+    /** */
+    private File file;
+
+    /** */
+    private String threadsBefore;
+
+    /** Handlers created by the importer under test. */
+    private final List<RecordingHandler> handlers = Collections.synchronizedList(new ArrayList<RecordingHandler>());
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        file = File.createTempFile("msaccess-import", ".mdb");
+        file.delete();
+        Database database = Database.create(file);
+        try {
+            for (String tableName : TABLE_NAMES) {
+                Table table = new TableBuilder(tableName).addColumn(new ColumnBuilder("id", DataType.LONG).toColumn())
+                        .addColumn(new ColumnBuilder("code", DataType.TEXT).toColumn()).toTable(database);
+                for (int i = 0; i < ROWS_PER_TABLE; i++) {
+                    table.addRow(Integer.valueOf(i), tableName + i);
+                }
+            }
+        } finally {
+            database.close();
+        }
+        threadsBefore = GeneralConfig.getProperties().getProperty(GeneralConfig.STAGING_IMPORT_THREADS);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+
+        if (threadsBefore == null) {
+            GeneralConfig.getProperties().remove(GeneralConfig.STAGING_IMPORT_THREADS);
+        } else {
+            GeneralConfig.getProperties().setProperty(GeneralConfig.STAGING_IMPORT_THREADS, threadsBefore);
+        }
+        file.delete();
+    }
+
+    /**
+     * With more than one import thread, the tables are created by one handler, and the rows of every table are imported by a
+     * handler of its own, in bulk load mode.
+     *
+     * @throws Exception
+     */
+    public void testConcurrentImport() throws Exception {
+
+        GeneralConfig.getProperties().setProperty(GeneralConfig.STAGING_IMPORT_THREADS, "2");
+        createImporter(-1).doImport(file, "test_db");
+
+        assertEquals(TABLE_NAMES.length + 1, handlers.size());
+        Map<String, RecordingHandler> bulkHandlers = new HashMap<String, RecordingHandler>();
+        for (RecordingHandler handler : handlers) {
+            assertTrue(handler.closed);
+            assertTrue(handler.ended);
+            if (handler.bulkLoad) {
+                assertEquals(1, handler.rowsByTables.size());
+                bulkHandlers.put(handler.rowsByTables.keySet().iterator().next(), handler);
+            } else {
+                assertEquals(TABLE_NAMES.length, handler.createdTables.size());
+                assertTrue(handler.rowsByTables.isEmpty());
+            }
+        }
+        for (String tableName : TABLE_NAMES) {
+            assertEquals(Integer.valueOf(ROWS_PER_TABLE), bulkHandlers.get(tableName).rowsByTables.get(tableName));
+        }
+    }
+
+    /**
+     * The rows stop being imported when the importing thread is interrupted.
+     *
+     * @throws Exception
+     */
+    public void testInterrupted() throws Exception {
+
+        GeneralConfig.getProperties().setProperty(GeneralConfig.STAGING_IMPORT_THREADS, "1");
+        try {
+            createImporter(10).doImport(file, "test_db");
+            fail("Was expecting an ImportException");
+        } catch (ImportException e) {
+            assertTrue(Thread.interrupted());
+        }
+
+        assertEquals(1, handlers.size());
+        assertTrue(handlers.get(0).closed);
+        int rowCount = 0;
+        for (Integer tableRows : handlers.get(0).rowsByTables.values()) {
+            rowCount += tableRows.intValue();
+        }
+        assertEquals(10, rowCount);
+    }
+
+    /**
+     * A handler in bulk load mode switches the transaction log of its connection off, and back on before closing it.
+     *
+     * @throws Exception
+     */
+    public void testBulkLoadLogging() throws Exception {
+
+        final List<String> calls = new ArrayList<String>();
+        VirtuosoHandler handler = new VirtuosoHandler("test_db", LOGGER, true) {
+            @Override
+            Connection openConnection() {
+                return RecordingConnection.create(calls);
+            }
+        };
+
+        Database database = Database.open(file, true);
+        try {
+            Table table = database.getTable(TABLE_NAMES[0]);
+            handler.processRow(table, table.getNextRow());
+            handler.endOfFile();
+            handler.close();
+        } finally {
+            database.close();
+        }
+
+        assertEquals("log_enable(2, 1)", calls.get(0));
+        assertEquals("log_enable(1, 1)", calls.get(calls.size() - 2));
+        assertEquals("close", calls.get(calls.size() - 1));
+    }
+
+    /**
+     * Creates an importer whose handlers record what they are given.
+     *
+     * @param interruptAtRow If positive, the handlers interrupt the current thread after this many rows.
+     * @return The importer.
+     */
+    private MSAccessImporter createImporter(final int interruptAtRow) {
+
+        return new MSAccessImporter(LOGGER) {
+            @Override
+            MSAccessImportHandlerIF createHandler(String dbName, boolean bulkLoad) {
+                RecordingHandler handler = new RecordingHandler(bulkLoad, interruptAtRow);
+                handlers.add(handler);
+                return handler;
+            }
+        };
+    }
+
+    /**
+     * A handler that records the created tables and counts the rows processed by tables.
+     */
+    private static class RecordingHandler implements MSAccessImportHandlerIF {
+
+        /** */
+        private final boolean bulkLoad;
+
+        /** */
+        private final int interruptAtRow;
+
+        /** */
+        private final List<String> createdTables = new ArrayList<String>();
+
+        /** */
+        private final Map<String, Integer> rowsByTables = new HashMap<String, Integer>();
+
+        /** */
+        private int rowCount;
+
+        /** */
+        private boolean ended;
+
+        /** */
+        private boolean closed;
+
+        /**
+         * Class constructor.
+         *
+         * @param bulkLoad True if the handler was created for bulk load mode.
+         * @param interruptAtRow If positive, the current thread is interrupted after this many rows.
+         */
+        RecordingHandler(boolean bulkLoad, int interruptAtRow) {
+            this.bulkLoad = bulkLoad;
+            this.interruptAtRow = interruptAtRow;
+        }
+
+        @Override
+        public void newTable(Table table) {
+            createdTables.add(table.getName());
+        }
+
+        @Override
+        public void processRow(Table table, Map<String, Object> row) {
+
+            Integer tableRows = rowsByTables.get(table.getName());
+            rowsByTables.put(table.getName(), Integer.valueOf(tableRows == null ? 1 : tableRows.intValue() + 1));
+            if (++rowCount == interruptAtRow) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void endOfFile() {
+            ended = true;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
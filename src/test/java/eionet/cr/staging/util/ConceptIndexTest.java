@@ -0,0 +1,79 @@
+package eionet.cr.staging.util;
+
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import eionet.cr.staging.util.ConceptIndex.Kind;
+import eionet.cr.util.sesame.SPARQLResultCache;
+
+/**
+ * Tests for {@link ConceptIndex}.
+ *
+ * @author jaanus
+ */
+public class ConceptIndexTest extends TestCase {
+
+    /** */
+    private static final String NS = "http://example.org/";
+
+    /**
+     * Concepts are found by their URIs, within their own kind only.
+     */
+    public void testContains() {
+
+        ConceptIndex.Builder builder = new ConceptIndex.Builder();
+        builder.add(Kind.INDICATOR, NS + "codelists", NS + "indicator/i1");
+        builder.add(Kind.UNIT, NS + "codelists", NS + "unit/pc");
+        ConceptIndex index = builder.build(null);
+
+        assertTrue(index.contains(Kind.INDICATOR, NS + "indicator/i1"));
+        assertFalse(index.contains(Kind.INDICATOR, NS + "unit/pc"));
+        assertFalse(index.contains(Kind.BREAKDOWN, NS + "indicator/i1"));
+        assertFalse(index.contains(Kind.REF_AREA, null));
+    }
+
+    /**
+     * Refreshing a graph replaces its concepts and keeps the concepts of other graphs.
+     */
+    public void testRefresh() {
+
+        ConceptIndex.Builder builder = new ConceptIndex.Builder();
+        builder.add(Kind.INDICATOR, NS + "a", NS + "indicator/i1");
+        builder.add(Kind.INDICATOR, NS + "b", NS + "indicator/i2");
+        builder.add(Kind.BREAKDOWN, NS + "b", NS + "breakdown/total");
+        ConceptIndex index = builder.build(null);
+
+        ConceptIndex.Builder refresh = new ConceptIndex.Builder();
+        refresh.addGraph(NS + "b");
+        refresh.add(Kind.INDICATOR, NS + "b", NS + "indicator/i3");
+        ConceptIndex refreshed = refresh.build(index);
+
+        assertTrue(refreshed.contains(Kind.INDICATOR, NS + "indicator/i1"));
+        assertFalse(refreshed.contains(Kind.INDICATOR, NS + "indicator/i2"));
+        assertTrue(refreshed.contains(Kind.INDICATOR, NS + "indicator/i3"));
+        assertFalse(refreshed.contains(Kind.BREAKDOWN, NS + "breakdown/total"));
+        assertTrue(index.contains(Kind.BREAKDOWN, NS + "breakdown/total"));
+    }
+
+    /**
+     * A change of a known graph is refreshed, a change of a graph that the index does not know makes the index rebuilt.
+     */
+    public void testChangedGraphs() {
+
+        ConceptIndex.Builder builder = new ConceptIndex.Builder();
+        builder.add(Kind.UNIT, NS + "units", NS + "unit/pc");
+        ConceptIndex index = builder.build(null);
+        assertTrue(index.getChangedGraphs().isEmpty());
+
+        SPARQLResultCache.invalidate(NS + "units");
+        assertEquals(Collections.singleton(NS + "units"), index.getChangedGraphs());
+
+        SPARQLResultCache.invalidate(NS + "indicators");
+        assertNull(index.getChangedGraphs());
+
+        ConceptIndex.Builder refresh = new ConceptIndex.Builder();
+        refresh.addGraph(NS + "units");
+        assertNull(refresh.build(index).getChangedGraphs());
+        assertTrue(new ConceptIndex.Builder().build(null).getChangedGraphs().isEmpty());
+    }
+}
@@ -0,0 +1,34 @@
+package eionet.cr.staging.util;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link VirtuosoUtil}.
+ *
+ * @author jaanus
+ */
+public class VirtuosoUtilTest extends TestCase {
+
+    /**
+     * Tables and columns are named like in the statements that create them.
+     */
+    public void testAlterColumnTypeStatement() {
+
+        assertEquals("ALTER TABLE db.dba.Ref_area_codes MODIFY COLUMN \"ref_area\" VARCHAR",
+                VirtuosoUtil.alterColumnTypeStatement("Ref area-codes", "ref_area", "VARCHAR", "db", "dba"));
+        assertEquals("ALTER TABLE db.dba.data MODIFY COLUMN \"time_period\" BIGINT",
+                VirtuosoUtil.alterColumnTypeStatement(" data ", " time period ", "BIGINT", "db", "dba"));
+    }
+
+    /**
+     * The table is created with the given columns and types, in the given order.
+     */
+    public void testCreateTableStatement() {
+
+        String sql = VirtuosoUtil.createTableStatement("data", Arrays.asList("code", "obs value"),
+                Arrays.asList("INTEGER", "DOUBLE PRECISION"), "db", "dba");
+        assertEquals("CREATE TABLE db.dba.data (\n    \"code\" INTEGER,\n    \"obs_value\" DOUBLE PRECISION\n)", sql);
+    }
+}
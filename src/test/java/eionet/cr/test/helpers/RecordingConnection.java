@@ -0,0 +1,75 @@
+package eionet.cr.test.helpers;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * Creates JDBC connections that execute nothing, but record the SQL statements executed over them, the executions of batches as
+ * "executeBatch", and their closing as "close". The connection's user is "dba", the other methods return nulls, zeros and
+ * falses, or objects of the same kind for JDBC interfaces.
+ *
+ * @author jaanus
+ */
+public final class RecordingConnection {
+
+    /** */
+    private static final String DB_USER = "dba";
+
+    /**
+     * Disable utility class constructor.
+     */
+    private RecordingConnection() {
+        // Empty constructor.
+    }
+
+    /**
+     * Creates a new recording connection.
+     *
+     * @param calls The list that the calls are recorded into.
+     * @return The connection.
+     */
+    public static Connection create(List<String> calls) {
+        return (Connection) proxy(Connection.class, calls);
+    }
+
+    /**
+     * @param type The JDBC interface.
+     * @param calls The list that the calls are recorded into.
+     * @return A recording proxy of the given interface.
+     */
+    private static Object proxy(final Class<?> type, final List<String> calls) {
+
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+
+                String name = method.getName();
+                if ((name.equals("execute") || name.equals("executeUpdate")) && args != null && args.length == 1) {
+                    calls.add((String) args[0]);
+                } else if (name.equals("executeBatch")) {
+                    calls.add(name);
+                    return new int[0];
+                } else if (name.equals("close") && type.equals(Connection.class)) {
+                    calls.add(name);
+                } else if (name.equals("getUserName")) {
+                    return DB_USER;
+                }
+
+                Class<?> returnType = method.getReturnType();
+                if (returnType.isInterface() && returnType.getName().startsWith("java.sql.")) {
+                    return proxy(returnType, calls);
+                } else if (returnType.equals(boolean.class)) {
+                    return Boolean.FALSE;
+                } else if (returnType.equals(int.class)) {
+                    return Integer.valueOf(0);
+                } else if (returnType.equals(long.class)) {
+                    return Long.valueOf(0L);
+                }
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,84 @@
+package eionet.cr.util.sesame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link SPARQLResultCache}.
+ *
+ * @author jaanus
+ */
+public class SPARQLResultCacheTest extends TestCase {
+
+    /**
+     * Whitespace is collapsed outside of literals only.
+     */
+    public void testNormalize() {
+
+        assertEquals("SELECT * WHERE { ?s ?p \"a  b\" }",
+                SPARQLResultCache.normalize("  SELECT *\n\tWHERE {  ?s ?p \"a  b\" }\n"));
+        assertEquals("SELECT * WHERE { ?s ?p 'it\\'s  x' }", SPARQLResultCache.normalize("SELECT * WHERE { ?s ?p 'it\\'s  x' }"));
+        assertEquals(SPARQLResultCache.normalize("SELECT ?s\nWHERE {?s ?p ?o}"),
+                SPARQLResultCache.normalize("SELECT ?s   WHERE {?s ?p ?o}  "));
+    }
+
+    /**
+     * Data versions change with the graphs that the query reads, and fall back to the store version for unparseable queries.
+     *
+     * @throws URISyntaxException
+     */
+    public void testGetDataVersions() throws URISyntaxException {
+
+        String query = "select count(*) where {graph ?g {?s ?p ?o}}";
+        Map<String, Object> bindings = new HashMap<String, Object>();
+        bindings.put("g", new URI("http://example.org/versionsTest/g1"));
+
+        String versions = SPARQLResultCache.getDataVersions(query, bindings);
+        assertEquals("http://example.org/versionsTest/g1=0 ", versions);
+
+        SPARQLResultCache.invalidate("http://example.org/versionsTest/g2");
+        assertEquals(versions, SPARQLResultCache.getDataVersions(query, bindings));
+
+        SPARQLResultCache.invalidate("http://example.org/versionsTest/g1");
+        assertEquals("http://example.org/versionsTest/g1=1 ", SPARQLResultCache.getDataVersions(query, bindings));
+        List<String> graphs = Arrays.asList("http://example.org/versionsTest/g2", "http://example.org/versionsTest/g1");
+        assertEquals("http://example.org/versionsTest/g1=1 http://example.org/versionsTest/g2=1 ",
+                SPARQLResultCache.getGraphVersions(graphs));
+
+        long storeVersion = SPARQLResultCache.getStoreVersion();
+        assertEquals("*=" + storeVersion, SPARQLResultCache.getDataVersions(query, null));
+        assertEquals("*=" + storeVersion, SPARQLResultCache.getDataVersions("select count(*) where {?s bif:contains 'x'}", null));
+
+        SPARQLResultCache.invalidate("http://example.org/versionsTest/g3");
+        Set<String> changed = SPARQLResultCache.getGraphsChangedSince(storeVersion);
+        assertTrue(changed.contains("http://example.org/versionsTest/g3"));
+        assertFalse(changed.contains("http://example.org/versionsTest/g1"));
+        assertTrue(SPARQLResultCache.getGraphsChangedSince(SPARQLResultCache.getStoreVersion()).isEmpty());
+    }
+
+    /**
+     * Everything is written through, but a copy is kept only up to the maximum.
+     *
+     * @throws IOException
+     */
+    public void testCapture() throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SPARQLResultCache.CapturingOutputStream capture = new SPARQLResultCache.CapturingOutputStream(out, 5);
+        capture.write("abc".getBytes());
+        assertEquals("abc", new String(capture.getCapturedBytes()));
+
+        capture.write("def".getBytes());
+        assertNull(capture.getCapturedBytes());
+        assertEquals("abcdef", out.toString());
+    }
+}
@@ -0,0 +1,107 @@
+package eionet.cr.web.action;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.openrdf.model.Model;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.impl.GraphQueryResultImpl;
+import org.openrdf.query.impl.MapBindingSet;
+import org.openrdf.query.impl.TupleQueryResultImpl;
+import org.openrdf.query.resultio.QueryResultIO;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.Rio;
+
+/**
+ * Tests for the content negotiation and binary output of {@link SPARQLEndpointActionBean}.
+ *
+ * @author jaanus
+ */
+public class SPARQLEndpointActionBeanTest extends TestCase {
+
+    /** */
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+
+    /**
+     * The first supported MIME type of the Accept header is used, and the binary ones are streamed in the binary format.
+     */
+    public void testAcceptedMimeType() {
+
+        assertEquals("application/x-binary-rdf-results-table", SPARQLEndpointActionBean
+                .getAcceptedMimeType("application/x-parquet, application/x-binary-rdf-results-table;q=0.9, text/csv;q=0.5"));
+        assertEquals("application/x-binary-rdf",
+                SPARQLEndpointActionBean.getAcceptedMimeType("application/x-binary-rdf, application/rdf+xml;q=0.8"));
+        assertEquals("text/csv", SPARQLEndpointActionBean.getAcceptedMimeType(" text/csv ;q=1,application/json"));
+        assertEquals("text/html", SPARQLEndpointActionBean.getAcceptedMimeType("text/html,application/xhtml+xml,*/*;q=0.8"));
+        assertNull(SPARQLEndpointActionBean.getAcceptedMimeType("application/vnd.apache.arrow.stream, */*"));
+        assertNull(SPARQLEndpointActionBean.getAcceptedMimeType(" "));
+        assertNull(SPARQLEndpointActionBean.getAcceptedMimeType(null));
+
+        String binary = SPARQLEndpointActionBean.getStreamingFormat("application/x-binary-rdf-results-table");
+        assertNotNull(binary);
+        assertEquals(binary, SPARQLEndpointActionBean.getStreamingFormat("application/x-binary-rdf"));
+        assertFalse(binary.equals(SPARQLEndpointActionBean.getStreamingFormat("application/sparql-results+xml")));
+        assertNull(SPARQLEndpointActionBean.getStreamingFormat("text/html"));
+    }
+
+    /**
+     * A SELECT result written in the binary tuple format reads back the same, unbound values included.
+     *
+     * @throws Exception
+     */
+    public void testBinaryTuples() throws Exception {
+
+        MapBindingSet row1 = new MapBindingSet();
+        row1.addBinding("s", VF.createURI("http://example.com/a"));
+        row1.addBinding("o", VF.createLiteral("\u00f5un", "et"));
+        MapBindingSet row2 = new MapBindingSet();
+        row2.addBinding("s", VF.createBNode("b1"));
+        List<BindingSet> rows = Arrays.<BindingSet> asList(row1, row2);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SPARQLEndpointActionBean.writeBinary(new TupleQueryResultImpl(Arrays.asList("s", "o"), rows), out);
+
+        TupleQueryResult read =
+                QueryResultIO.parse(new ByteArrayInputStream(out.toByteArray()), TupleQueryResultFormat.BINARY);
+        assertEquals(Arrays.asList("s", "o"), read.getBindingNames());
+        BindingSet readRow = read.next();
+        assertEquals(row1.getValue("s"), readRow.getValue("s"));
+        assertEquals(row1.getValue("o"), readRow.getValue("o"));
+        readRow = read.next();
+        assertNotNull(readRow.getValue("s"));
+        assertNull(readRow.getValue("o"));
+        assertFalse(read.hasNext());
+    }
+
+    /**
+     * A CONSTRUCT result written in the binary RDF format reads back the same.
+     *
+     * @throws Exception
+     */
+    public void testBinaryRdf() throws Exception {
+
+        URI subject = VF.createURI("http://example.com/a");
+        URI predicate = VF.createURI("http://purl.org/dc/terms/title");
+        List<Statement> statements = Arrays.asList(
+                VF.createStatement(subject, predicate, VF.createLiteral("A & B")),
+                VF.createStatement(subject, predicate, VF.createLiteral(42)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SPARQLEndpointActionBean.writeBinary(new GraphQueryResultImpl(Collections.<String, String> emptyMap(), statements), out);
+
+        Model model = Rio.parse(new ByteArrayInputStream(out.toByteArray()), "", RDFFormat.BINARY);
+        assertEquals(2, model.size());
+        assertTrue(model.containsAll(statements));
+    }
+}
@@ -0,0 +1,140 @@
+package eionet.cr.web.sparqlClient.helpers;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.impl.MapBindingSet;
+import org.openrdf.query.impl.TupleQueryResultImpl;
+
+/**
+ * Tests for {@link CRHtmlWriter}.
+ *
+ * @author jaanus
+ */
+public class CRHtmlWriterTest extends TestCase {
+
+    /** */
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+
+    /** */
+    private final CountingWriter out = new CountingWriter();
+
+    /**
+     * Literals are escaped, resources are escaped and linked to their factsheets.
+     *
+     * @throws Exception
+     */
+    public void testEscaping() throws Exception {
+
+        MapBindingSet row = new MapBindingSet();
+        row.addBinding("s", VF.createURI("http://example.com/a?b=1&c=2"));
+        row.addBinding("o", VF.createLiteral("<b>bold</b> & \"quoted\""));
+
+        CRHtmlWriter writer = new CRHtmlWriter(out, "/cr", false, 10);
+        writer.write(result(Arrays.<BindingSet> asList(row)));
+
+        String html = out.toString();
+        assertTrue(html, html.contains("<th>s</th><th>o</th>"));
+        assertTrue(html, html.contains("<a href=\"/cr/factsheet.action?uri=http%3A%2F%2Fexample.com%2Fa%3Fb%3D1%26c%3D2\">"
+                + "http://example.com/a?b=1&amp;c=2</a>"));
+        assertTrue(html, html.contains("<td>&lt;b&gt;bold&lt;/b&gt; &amp; &quot;quoted&quot;</td>"));
+        assertFalse(html, html.contains("<b>"));
+        assertTrue(html, html.endsWith("</tbody>\n</table>\n"));
+        assertEquals(1, writer.getRowCount());
+    }
+
+    /**
+     * Only the allowed number of rows is written, and it is known whether the rest were skipped.
+     *
+     * @throws Exception
+     */
+    public void testMaxRows() throws Exception {
+
+        CRHtmlWriter writer = new CRHtmlWriter(out, "", false, 3);
+        writer.write(result(rows(5)));
+        assertEquals(3, writer.getRowCount());
+        assertFalse(writer.isAllRowsWritten());
+        assertEquals(3, count(out.toString(), "<tr class="));
+
+        CRHtmlWriter exact = new CRHtmlWriter(new StringWriter(), "", false, 3);
+        exact.write(result(rows(3)));
+        assertEquals(3, exact.getRowCount());
+        assertTrue(exact.isAllRowsWritten());
+
+        CRHtmlWriter empty = new CRHtmlWriter(new StringWriter(), "", false, 3);
+        empty.write(result(rows(0)));
+        assertEquals(0, empty.getRowCount());
+        assertTrue(empty.isAllRowsWritten());
+    }
+
+    /**
+     * The output is flushed every 100 rows while writing, and once more at the end.
+     *
+     * @throws Exception
+     */
+    public void testFlush() throws Exception {
+
+        CRHtmlWriter writer = new CRHtmlWriter(out, "", false, 1000);
+        writer.write(result(rows(250)));
+        assertEquals(250, writer.getRowCount());
+        assertEquals(Arrays.asList(100, 200, 250), out.flushedRows);
+    }
+
+    /**
+     * @param rows The rows.
+     * @return Result of the rows, with binding names s and o.
+     */
+    private static TupleQueryResultImpl result(List<BindingSet> rows) {
+        return new TupleQueryResultImpl(Arrays.asList("s", "o"), rows);
+    }
+
+    /**
+     * @param count Number of rows.
+     * @return The rows, each with a literal bound to s only.
+     */
+    private static List<BindingSet> rows(int count) {
+
+        List<BindingSet> rows = new ArrayList<BindingSet>();
+        for (int i = 0; i < count; i++) {
+            MapBindingSet row = new MapBindingSet();
+            row.addBinding("s", VF.createLiteral(i));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * @param s String to search in.
+     * @param sub String to count.
+     * @return Number of occurrences.
+     */
+    private static int count(String s, String sub) {
+
+        int count = 0;
+        for (int i = s.indexOf(sub); i >= 0; i = s.indexOf(sub, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Records how many rows had been written at each flush.
+     */
+    private static class CountingWriter extends StringWriter {
+
+        /** */
+        private final List<Integer> flushedRows = new ArrayList<Integer>();
+
+        @Override
+        public void flush() {
+            flushedRows.add(Integer.valueOf(count(toString(), "<tr class=")));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package eionet.cr.web.sparqlClient.helpers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ResultOutputBuffer}.
+ *
+ * @author jaanus
+ */
+public class ResultOutputBufferTest extends TestCase {
+
+    /** */
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    /**
+     * @throws IOException
+     */
+    public void testJson() throws IOException {
+
+        ResultOutputBuffer buffer = new ResultOutputBuffer(out, 1024);
+        buffer.appendJson("a\"b\\c/d\n\t\u0001").flush();
+        assertEquals("a\\\"b\\\\c\\/d\\n\\t\\u0001", out.toString("UTF-8"));
+    }
+
+    /**
+     * @throws IOException
+     */
+    public void testXml() throws IOException {
+
+        ResultOutputBuffer buffer = new ResultOutputBuffer(out, 1024);
+        buffer.appendXml("<a href=\"x\">&\u0000</a>").flush();
+        assertEquals("&lt;a href=&quot;x&quot;&gt;&amp;&lt;/a&gt;", out.toString("UTF-8"));
+    }
+
+    /**
+     * @throws IOException
+     */
+    public void testCsv() throws IOException {
+
+        ResultOutputBuffer buffer = new ResultOutputBuffer(out, 1024);
+        buffer.appendCsv("plain").append(',').appendCsv("a,b").append(',').appendCsv("say \"hi\"").flush();
+        assertEquals("plain,\"a,b\",\"say \"\"hi\"\"\"", out.toString("UTF-8"));
+    }
+
+    /**
+     * Multi-byte characters, including surrogate pairs, are encoded into UTF-8, also across buffer boundaries.
+     *
+     * @throws IOException
+     */
+    public void testUtf8() throws IOException {
+
+        String s = "\u00f5\u00e4\u00f6\u00fc \u20ac \ud83d\ude00 \u4e2d";
+        ResultOutputBuffer buffer = new ResultOutputBuffer(out, 1);
+        for (int i = 0; i < 100; i++) {
+            buffer.append(s);
+        }
+        assertTrue(buffer.size() > 0);
+        buffer.flush();
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            expected.append(s);
+        }
+        assertEquals(expected.toString(), out.toString("UTF-8"));
+        assertEquals(0, buffer.size());
+    }
+}
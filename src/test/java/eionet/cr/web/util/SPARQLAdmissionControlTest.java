@@ -0,0 +1,99 @@
+package eionet.cr.web.util;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import eionet.cr.web.util.SPARQLAdmissionControl.CallerClass;
+
+/**
+ * Tests for {@link SPARQLAdmissionControl}.
+ *
+ * @author jaanus
+ */
+public class SPARQLAdmissionControlTest extends TestCase {
+
+    /**
+     * Queries take permits by their cost, and are rejected when the permits of their class are taken.
+     */
+    public void testPermits() {
+
+        SPARQLAdmissionControl admissionControl = create(3, 0);
+
+        SPARQLAdmissionControl.Ticket ticket1 = admissionControl.admit(CallerClass.ANONYMOUS, "10.0.0.1", 2);
+        assertNotNull(ticket1);
+        assertEquals(60, ticket1.getMaxQuerySeconds());
+        assertNull(admissionControl.admit(CallerClass.ANONYMOUS, "10.0.0.2", 2));
+
+        SPARQLAdmissionControl.Ticket ticket2 = admissionControl.admit(CallerClass.ANONYMOUS, "10.0.0.2", 1);
+        assertNotNull(ticket2);
+
+        // Other classes have permits of their own, or no limits at all.
+        assertNotNull(admissionControl.admit(CallerClass.AUTHENTICATED, "10.0.0.3", 4));
+        SPARQLAdmissionControl.Ticket internal = admissionControl.admit(CallerClass.INTERNAL, "127.0.0.1", 4);
+        assertNotNull(internal);
+        assertEquals(0, internal.getMaxQuerySeconds());
+
+        // Releasing twice gives the permits back only once, and a query costlier than all permits takes them all.
+        ticket1.release();
+        ticket1.release();
+        assertNull(admissionControl.admit(CallerClass.ANONYMOUS, "10.0.0.4", 4));
+        ticket2.release();
+        assertNotNull(admissionControl.admit(CallerClass.ANONYMOUS, "10.0.0.4", 4));
+    }
+
+    /**
+     * A client cannot have more than the maximum number of queries at a time, except an internal one.
+     */
+    public void testMaxPerClient() {
+
+        SPARQLAdmissionControl admissionControl = create(0, 2);
+
+        SPARQLAdmissionControl.Ticket ticket = admissionControl.admit(CallerClass.ANONYMOUS, "10.0.0.1", 1);
+        assertNotNull(ticket);
+        assertNotNull(admissionControl.admit(CallerClass.ANONYMOUS, "10.0.0.1", 1));
+        assertNull(admissionControl.admit(CallerClass.AUTHENTICATED, "10.0.0.1", 1));
+        assertNotNull(admissionControl.admit(CallerClass.ANONYMOUS, "10.0.0.2", 1));
+
+        ticket.release();
+        assertNotNull(admissionControl.admit(CallerClass.ANONYMOUS, "10.0.0.1", 1));
+
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(admissionControl.admit(CallerClass.INTERNAL, "127.0.0.1", 1));
+        }
+    }
+
+    /**
+     * The client of a forwarded request is the rightmost address in X-Forwarded-For that is not an internal host's.
+     */
+    public void testClientIp() {
+
+        SPARQLAdmissionControl admissionControl = create(0, 0);
+
+        assertEquals("10.0.0.1", admissionControl.getClientIp("10.0.0.1", "10.0.0.9"));
+        assertEquals("10.0.0.2", admissionControl.getClientIp("127.0.0.1", "10.0.0.9, 10.0.0.2"));
+        assertEquals("10.0.0.2", admissionControl.getClientIp("127.0.0.1", "10.0.0.9, 10.0.0.2, 127.0.0.1 "));
+        assertEquals("localhost", admissionControl.getClientIp("127.0.0.1", "localhost, 127.0.0.1"));
+        assertEquals("127.0.0.1", admissionControl.getClientIp("127.0.0.1", null));
+    }
+
+    /**
+     * A query that could not be parsed gets a medium cost.
+     */
+    public void testUnknownCost() {
+        assertEquals(SPARQLAdmissionControl.UNKNOWN_COST, SPARQLAdmissionControl.estimateCost(null));
+    }
+
+    /**
+     * @param anonymousPermits number of permits of anonymous callers
+     * @param maxPerClient maximum number of queries per client
+     * @return the admission control, with 4 permits for authenticated callers and none for internal ones
+     */
+    private static SPARQLAdmissionControl create(int anonymousPermits, int maxPerClient) {
+
+        Map<CallerClass, Integer> permits = new EnumMap<CallerClass, Integer>(CallerClass.class);
+        permits.put(CallerClass.ANONYMOUS, Integer.valueOf(anonymousPermits));
+        permits.put(CallerClass.AUTHENTICATED, Integer.valueOf(4));
+        return new SPARQLAdmissionControl(permits, maxPerClient, 0, 60, null);
+    }
+}
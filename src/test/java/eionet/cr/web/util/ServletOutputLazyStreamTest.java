@@ -0,0 +1,28 @@
+package eionet.cr.web.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ServletOutputLazyStream}.
+ *
+ * @author jaanus
+ */
+public class ServletOutputLazyStreamTest extends TestCase {
+
+    /**
+     * GZIP is accepted when listed, or covered by "*", with a quality value above zero.
+     */
+    public void testAcceptsGzip() {
+
+        assertTrue(ServletOutputLazyStream.acceptsGzip("gzip, deflate"));
+        assertTrue(ServletOutputLazyStream.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(ServletOutputLazyStream.acceptsGzip("*"));
+        assertTrue(ServletOutputLazyStream.acceptsGzip("gzip;q=0, x-gzip"));
+
+        assertFalse(ServletOutputLazyStream.acceptsGzip(null));
+        assertFalse(ServletOutputLazyStream.acceptsGzip("deflate"));
+        assertFalse(ServletOutputLazyStream.acceptsGzip("gzip;q=0"));
+        assertFalse(ServletOutputLazyStream.acceptsGzip("gzip; q=0.0, *"));
+        assertFalse(ServletOutputLazyStream.acceptsGzip("*;q=0"));
+    }
+}